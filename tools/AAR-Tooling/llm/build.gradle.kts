@@ -46,6 +46,10 @@ android {
     kotlinOptions {
         jvmTarget = "11"
     }
+    testOptions {
+        // Lets JVM tests run bridge code that logs through android.util.Log.
+        unitTests.isReturnDefaultValues = true
+    }
     packaging {
         jniLibs {
             pickFirsts += listOf(
@@ -65,6 +69,27 @@ dependencies {
     implementation(libs.androidx.appcompat)
     implementation(libs.material)
     testImplementation(libs.junit)
+    testImplementation(libs.kotlinx.coroutines.test)
+    // The android.jar stubs of org.json do nothing on the JVM.
+    testImplementation(libs.org.json)
     androidTestImplementation(libs.androidx.junit)
     androidTestImplementation(libs.androidx.espresso.core)
-}
\ No newline at end of file
+}
+
+// The only supported way to update the AAR that Unity loads:
+// ./gradlew :llm:copyReleaseAarToUnity
+tasks.register<Copy>("copyReleaseAarToUnity") {
+    val aar = layout.buildDirectory.file("outputs/aar/llm-release.aar")
+    val consumerRules = file("consumer-rules.pro")
+    dependsOn("assembleRelease")
+    from(aar)
+    into(rootProject.file("../../unity/Packages/com.google.xr.embardiment/Runtime/Plugins/Android LLM"))
+    doFirst {
+        // Unity's build shrinks the app with these rules, so an AAR without them breaks at runtime.
+        val packaged = zipTree(aar).matching { include("proguard.txt") }.singleFile.readText()
+        val missing = consumerRules.readLines()
+            .map { it.trim() }
+            .filter { it.isNotEmpty() && !it.startsWith("#") && it !in packaged }
+        check(missing.isEmpty()) { "$name: proguard.txt in the AAR lacks $missing" }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+
+/**
+ * Limits how many blocks run at once, like a semaphore whose size can change while blocks run or
+ * wait. Lowering the limit lets running blocks finish; waiting ones start, in arrival order, only
+ * once fewer than the new limit run.
+ */
+internal class ConcurrencyLimit {
+    private val lock = Any()
+    // Zero or less while unlimited.
+    private var limit = 0
+    private var running = 0
+    private val waiting = ArrayDeque<CompletableDeferred<Unit>>()
+
+    /** Changes the limit; zero or less lifts it. */
+    fun setLimit(newLimit: Int) {
+        val admitted = synchronized(lock) {
+            limit = newLimit
+            admit()
+        }
+        for (waiter in admitted) waiter.complete(Unit)
+    }
+
+    /** Runs [block] once it fits within the limit. */
+    suspend fun <T> withPermit(block: suspend () -> T): T {
+        acquire()
+        try {
+            return block()
+        } finally {
+            release()
+        }
+    }
+
+    private suspend fun acquire() {
+        val waiter = synchronized(lock) {
+            if (waiting.isEmpty() && hasRoom()) {
+                running++
+                return
+            }
+            CompletableDeferred<Unit>().also { waiting.addLast(it) }
+        }
+        try {
+            waiter.await()
+        } catch (e: CancellationException) {
+            // Admitted just as the caller was cancelled: hand the permit on.
+            val admitted = synchronized(lock) { !waiting.remove(waiter) }
+            if (admitted) release()
+            throw e
+        }
+    }
+
+    private fun release() {
+        val admitted = synchronized(lock) {
+            running--
+            admit()
+        }
+        for (waiter in admitted) waiter.complete(Unit)
+    }
+
+    /** Takes waiters off the queue while the limit has room; called with [lock] held. */
+    private fun admit(): List<CompletableDeferred<Unit>> {
+        val admitted = ArrayList<CompletableDeferred<Unit>>()
+        while (waiting.isNotEmpty() && hasRoom()) {
+            admitted.add(waiting.removeFirst())
+            running++
+        }
+        return admitted
+    }
+
+    private fun hasRoom() = limit <= 0 || running < limit
+}
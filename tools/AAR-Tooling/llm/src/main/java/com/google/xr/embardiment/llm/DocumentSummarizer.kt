@@ -0,0 +1,208 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import android.util.Log
+import java.io.Closeable
+import java.security.MessageDigest
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.coroutines.resume
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.suspendCancellableCoroutine
+
+/**
+ * Summarizes recognized documents while the user is not asking anything, so a prompt can carry a
+ * document's short summary instead of its full text.
+ *
+ * Documents are summarized one at a time as [LlmBridge.PRIORITY_BACKGROUND] requests, once the user
+ * has been idle for [idleMs]: the app reports activity the bridge cannot see, such as speech or
+ * prompts to a cloud model, with [setUserActive]. Like every background request, summaries are
+ * held back while [LlmBridge.setThrottle] disallows background work. Summaries are cached by a
+ * hash of the document text, so a document read again, or another with the same text, is not
+ * summarized twice. A text already within [maxSummaryTokens] is its own summary.
+ */
+class DocumentSummarizer internal constructor(
+    private val bridge: LlmBridge,
+    workDispatcher: CoroutineDispatcher
+) : Closeable {
+    /** Summarizes with [bridge], which the summarizer keeps a reference to until [close]. */
+    constructor(bridge: LlmBridge) : this(bridge.retain(), Dispatchers.Default)
+
+    private class Pending(val hash: String, val text: String)
+
+    private val scope = CoroutineScope(workDispatcher)
+    private val lock = Any()
+    // Access ordered, so the least recently used summary is evicted first.
+    private val summaries = LinkedHashMap<String, String>(16, 0.75f, true)
+    private val documentHashes = HashMap<Int, String>()
+    // Insertion ordered: documents are summarized in the order they were read.
+    private val pending = LinkedHashMap<Int, Pending>()
+    private val wake = Channel<Unit>(Channel.CONFLATED)
+    private val userActiveNanos = AtomicLong(Long.MIN_VALUE)
+
+    /** How long the user must have been idle before a summary starts. */
+    @Volatile var idleMs = DEFAULT_IDLE_MS
+
+    /** The length summaries are asked for, in estimated tokens. */
+    @Volatile var maxSummaryTokens = DEFAULT_MAX_SUMMARY_TOKENS
+
+    /** How many summaries are kept. */
+    @Volatile var maxCachedSummaries = DEFAULT_MAX_CACHED_SUMMARIES
+
+    /** The number of documents waiting to be summarized. */
+    val pendingCount: Int
+        get() = synchronized(lock) { pending.size }
+
+    init {
+        scope.launch { drain() }
+    }
+
+    /**
+     * Schedules [text], the recognized text of [documentId], for summarizing, replacing what was
+     * submitted for that document before.
+     */
+    fun submit(documentId: Int, text: String) {
+        val hash = hashOf(text)
+        synchronized(lock) {
+            documentHashes[documentId] = hash
+            // Removed first, so a resubmitted document moves to the back of the queue.
+            pending.remove(documentId)
+            if (summaries.containsKey(hash)) return
+            if (TokenEstimator.estimate(text) <= maxSummaryTokens) {
+                putSummary(hash, text)
+                return
+            }
+            pending[documentId] = Pending(hash, text)
+        }
+        wake.trySend(Unit)
+    }
+
+    /**
+     * Records that the user is active, e.g. speaking or waiting for a reply from a model other
+     * than [bridge]. Interactive requests to [bridge] count as activity without it.
+     */
+    fun setUserActive() {
+        userActiveNanos.set(System.nanoTime())
+    }
+
+    /** The summary of the text last submitted for [documentId], or null if it is not ready. */
+    fun getSummary(documentId: Int): String? = synchronized(lock) {
+        documentHashes[documentId]?.let { summaries[it] }
+    }
+
+    /** Forgets [documentId]; its summary stays cached for other documents with the same text. */
+    fun removeDocument(documentId: Int) {
+        synchronized(lock) {
+            documentHashes.remove(documentId)
+            pending.remove(documentId)
+        }
+    }
+
+    /** Stops summarizing and drops the reference to the bridge. */
+    override fun close() {
+        scope.cancel()
+        bridge.close()
+    }
+
+    private suspend fun drain() {
+        while (true) {
+            val next = synchronized(lock) { pending.entries.firstOrNull()?.toPair() }
+            if (next == null) {
+                wake.receive()
+                continue
+            }
+            awaitIdle()
+            val (documentId, document) = next
+            // Skip the document if it was replaced or removed while waiting.
+            val current = synchronized(lock) { pending[documentId] === document }
+            if (!current) continue
+            val summary = summarize(document.text)
+            synchronized(lock) {
+                if (pending[documentId] === document) pending.remove(documentId)
+                if (summary != null) putSummary(document.hash, summary)
+            }
+        }
+    }
+
+    private suspend fun awaitIdle() {
+        while (true) {
+            val remainingMs = idleMs - minOf(bridge.idleNanos(), userIdleNanos()) / NANOS_PER_MILLI
+            if (remainingMs <= 0) return
+            // Checked again afterwards, in case the user became active meanwhile.
+            delay(remainingMs)
+        }
+    }
+
+    /** How long since [setUserActive], or [Long.MAX_VALUE] if it was never called. */
+    private fun userIdleNanos(): Long {
+        val activeNanos = userActiveNanos.get()
+        if (activeNanos == Long.MIN_VALUE) return Long.MAX_VALUE
+        return System.nanoTime() - activeNanos
+    }
+
+    /** Returns the summary, or null if the bridge failed to produce one. */
+    private suspend fun summarize(text: String): String? =
+        suspendCancellableCoroutine { continuation ->
+            val words = maxSummaryTokens * WORDS_PER_TOKEN_PERCENT / 100
+            val prompt = "Summarize the following text from a screen in at most $words words. " +
+                "Keep names, numbers and headings.\n\n$text"
+            val request = bridge.startGeneration(
+                prompt,
+                LlmBridge.PRIORITY_BACKGROUND,
+                object : LlmBridge.LlmCallback {
+                    override fun onSuccess(result: String) {
+                        continuation.resume(result.trim())
+                    }
+
+                    override fun onFailure(errorMessage: String) {
+                        Log.w("DocumentSummarizer", "Summary failed: $errorMessage")
+                        continuation.resume(null)
+                    }
+                }
+            )
+            continuation.invokeOnCancellation { request.cancel() }
+        }
+
+    private fun putSummary(hash: String, summary: String) {
+        summaries[hash] = summary
+        val iterator = summaries.entries.iterator()
+        while (summaries.size > maxCachedSummaries && iterator.hasNext()) {
+            iterator.next()
+            iterator.remove()
+        }
+    }
+
+    companion object {
+        private const val DEFAULT_IDLE_MS = 3000L
+        private const val DEFAULT_MAX_SUMMARY_TOKENS = 96
+        private const val DEFAULT_MAX_CACHED_SUMMARIES = 64
+        private const val NANOS_PER_MILLI = 1_000_000L
+        // English prose runs at roughly three words for every four tokens.
+        private const val WORDS_PER_TOKEN_PERCENT = 75
+
+        private fun hashOf(text: String): String {
+            val digest = MessageDigest.getInstance("SHA-256").digest(text.toByteArray())
+            return digest.joinToString("") { "%02x".format(it) }
+        }
+    }
+}
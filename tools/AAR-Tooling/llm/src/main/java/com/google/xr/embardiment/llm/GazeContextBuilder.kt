@@ -0,0 +1,133 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+/**
+ * Builds an LLM prompt from OCR text ranked by gaze dwell, within a token budget.
+ *
+ * Each OCR result is registered once with [setSource] as its item texts, indexed by the item ids
+ * of the OCR spatial index. [build] then takes (source, item, weight) triples, keeps the heaviest
+ * items that fit into the context window left over by the response and the surrounding prompt,
+ * and writes them in document order into one buffer sized up front. Callers should pass items of
+ * a single kind, e.g. only lines, since a block's text already contains its lines.
+ */
+class GazeContextBuilder(private val contextWindowTokens: Int = DEFAULT_CONTEXT_WINDOW_TOKENS) {
+    private class Source(val texts: Array<String?>, val tokens: IntArray)
+
+    private val sources = HashMap<Int, Source>()
+
+    /** Registers or replaces the item texts of one OCR result; token counts are estimated here. */
+    @Synchronized
+    fun setSource(sourceId: Int, itemTexts: Array<String?>) {
+        val tokens = IntArray(itemTexts.size) { TokenEstimator.estimate(itemTexts[it] ?: "") }
+        sources[sourceId] = Source(itemTexts, tokens)
+    }
+
+    @Synchronized
+    fun removeSource(sourceId: Int) {
+        sources.remove(sourceId)
+    }
+
+    @Synchronized
+    fun clearSources() {
+        sources.clear()
+    }
+
+    /**
+     * Returns [header], the selected item texts one per line, then [footer].
+     *
+     * @param weights The dwell weight of each (sourceIds[i], itemIds[i]); repeated items add up.
+     *     Equal weights keep document order, so uniform weights truncate from the end.
+     * @param count The number of valid entries in the three arrays, so callers can reuse them.
+     * @param maxOutputTokens The tokens reserved for the response, as passed to the model.
+     */
+    @Synchronized
+    fun build(
+        header: String,
+        footer: String,
+        sourceIds: IntArray,
+        itemIds: IntArray,
+        weights: FloatArray,
+        count: Int,
+        maxOutputTokens: Int
+    ): String {
+        require(count <= sourceIds.size && count <= itemIds.size && count <= weights.size) {
+            "count exceeds the id or weight arrays."
+        }
+
+        // Merge repeated items and drop ones that cannot be resolved to text.
+        val candidateIndex = HashMap<Long, Int>(count * 2)
+        val keys = LongArray(count)
+        val candidateWeights = FloatArray(count)
+        var candidates = 0
+        for (i in 0 until count) {
+            val text = sources[sourceIds[i]]?.texts?.getOrNull(itemIds[i])
+            if (text.isNullOrEmpty()) continue
+            val key = keyOf(sourceIds[i], itemIds[i])
+            val existing = candidateIndex[key]
+            if (existing != null) {
+                candidateWeights[existing] += weights[i]
+            } else {
+                candidateIndex[key] = candidates
+                keys[candidates] = key
+                candidateWeights[candidates] = weights[i]
+                candidates++
+            }
+        }
+
+        val ranked = (0 until candidates).sortedWith(
+            compareByDescending<Int> { candidateWeights[it] }.thenBy { keys[it] }
+        )
+        var remaining = contextWindowTokens - maxOutputTokens -
+            TokenEstimator.estimate(header) - TokenEstimator.estimate(footer)
+        val selected = LongArray(candidates)
+        var selectedCount = 0
+        var capacity = header.length + footer.length
+        for (candidate in ranked) {
+            val key = keys[candidate]
+            val source = sources.getValue(sourceOf(key))
+            val tokens = source.tokens[itemOf(key)]
+            // A long item that does not fit leaves room for shorter, lighter ones.
+            if (tokens > remaining) continue
+            remaining -= tokens
+            selected[selectedCount++] = key
+            capacity += source.texts[itemOf(key)]!!.length + 1
+        }
+        selected.sort(0, selectedCount)
+
+        val prompt = StringBuilder(capacity)
+        prompt.append(header)
+        for (i in 0 until selectedCount) {
+            prompt.append(sources.getValue(sourceOf(selected[i])).texts[itemOf(selected[i])])
+            prompt.append('\n')
+        }
+        prompt.append(footer)
+        return prompt.toString()
+    }
+
+    companion object {
+        /** Gemini Nano's input and output share a window of this many tokens. */
+        const val DEFAULT_CONTEXT_WINDOW_TOKENS = 4096
+
+        private fun keyOf(sourceId: Int, itemId: Int) =
+            (sourceId.toLong() shl 32) or (itemId.toLong() and 0xFFFFFFFFL)
+
+        private fun sourceOf(key: Long) = (key shr 32).toInt()
+
+        private fun itemOf(key: Long) = key.toInt()
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import java.io.IOException
+import java.net.HttpURLConnection
+import java.net.URL
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.fold
+import kotlinx.coroutines.job
+import org.json.JSONArray
+import org.json.JSONObject
+
+/**
+ * The Gemini API as an [LlmModel], streamed over server-sent events so that the first chunk can
+ * be told apart from the whole response. [baseUrl] is swappable so tests can point it at a local
+ * server.
+ */
+internal class GeminiCloudModel(
+    private val baseUrl: String,
+    private val apiKey: String,
+    private val modelName: String,
+    private val temperature: Float,
+    private val topK: Int,
+    private val maxOutputTokens: Int
+) : LlmModel {
+    override suspend fun generate(prompt: String): String? =
+        generateStream(prompt).fold(StringBuilder()) { text, chunk -> text.append(chunk) }
+            .toString()
+            .ifEmpty { null }
+
+    override fun generateStream(prompt: String): Flow<String> = flow {
+        val connection =
+            URL("$baseUrl/v1beta/models/$modelName:streamGenerateContent?alt=sse")
+                .openConnection() as HttpURLConnection
+        // A blocked read only returns once the connection is torn down.
+        val cancelHandle = currentCoroutineContext().job.invokeOnCompletion {
+            connection.disconnect()
+        }
+        try {
+            connection.requestMethod = "POST"
+            connection.doOutput = true
+            connection.connectTimeout = CONNECT_TIMEOUT_MS
+            connection.setRequestProperty("Content-Type", "application/json")
+            connection.setRequestProperty("x-goog-api-key", apiKey)
+            connection.outputStream.use { it.write(requestBody(prompt).toByteArray()) }
+
+            val status = connection.responseCode
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw IOException("Gemini request failed with HTTP $status.")
+            }
+            connection.inputStream.bufferedReader().useLines { lines ->
+                for (line in lines) {
+                    if (!line.startsWith(DATA_PREFIX)) continue
+                    val text = chunkText(JSONObject(line.substring(DATA_PREFIX.length)))
+                    if (text.isNotEmpty()) emit(text)
+                }
+            }
+        } finally {
+            cancelHandle.dispose()
+            connection.disconnect()
+        }
+    }.flowOn(Dispatchers.IO)
+
+    private fun requestBody(prompt: String): String {
+        val part = JSONObject().put("text", prompt)
+        val content = JSONObject().put("parts", JSONArray().put(part))
+        val generationConfig = JSONObject()
+            .put("temperature", temperature.toDouble())
+            .put("topK", topK)
+            .put("maxOutputTokens", maxOutputTokens)
+            .put("thinkingConfig", JSONObject().put("thinkingBudget", 0))
+        return JSONObject()
+            .put("contents", JSONArray().put(content))
+            .put("generationConfig", generationConfig)
+            .toString()
+    }
+
+    private fun chunkText(chunk: JSONObject): String {
+        val parts = chunk.optJSONArray("candidates")
+            ?.optJSONObject(0)
+            ?.optJSONObject("content")
+            ?.optJSONArray("parts")
+            ?: return ""
+        val text = StringBuilder()
+        for (i in 0 until parts.length()) {
+            text.append(parts.optJSONObject(i)?.optString("text").orEmpty())
+        }
+        return text.toString()
+    }
+
+    override fun close() {}
+
+    companion object {
+        const val DEFAULT_BASE_URL = "https://generativelanguage.googleapis.com"
+        const val DEFAULT_MODEL = "gemini-2.5-flash"
+
+        private const val DATA_PREFIX = "data: "
+        private const val CONNECT_TIMEOUT_MS = 10_000
+
+        fun factory(baseUrl: String, apiKey: String, modelName: String) =
+            LlmModelFactory { temperature, topK, maxOutputTokens ->
+                GeminiCloudModel(baseUrl, apiKey, modelName, temperature, topK, maxOutputTokens)
+            }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import org.json.JSONObject
+
+/**
+ * The timings and sizes of one [LlmBridge] request. A request waits for its priority turn and a
+ * generation permit (queue), may have to load the model (init), and then generates; the
+ * first-token and total times are measured from submission, so they are what the caller
+ * experienced. A preempted request keeps the queue time of its first start. Token counts are
+ * [TokenEstimator] estimates, since AICore exposes no tokenizer.
+ */
+internal class GenerationStats(private val promptChars: Int, private val promptTokens: Int) {
+    private val submittedNanos = System.nanoTime()
+    private var startedNanos = 0L
+    private var attemptNanos = 0L
+    private var initNanos = 0L
+    private var loadedModel = false
+    private var generationStartNanos = 0L
+    private var firstChunkNanos = 0L
+    private var doneNanos = 0L
+
+    /** True if the request never had to wait for the model to load. */
+    var cacheHit = false
+        private set
+    var outputTokens = 0
+        private set
+    /** How often a background request was cancelled and restarted for interactive ones. */
+    var preemptions = 0
+        private set
+
+    val queueMs: Float
+        get() = millis(startedNanos - submittedNanos)
+    val initMs: Float
+        get() = millis(initNanos)
+    val firstTokenMs: Float
+        get() = millis(firstChunkNanos - submittedNanos)
+    val totalMs: Float
+        get() = millis(doneNanos - submittedNanos)
+
+    /** Output tokens per second of the generation call, prefill included. */
+    val outputTokensPerSecond: Float
+        get() {
+            val generationMs = millis(doneNanos - generationStartNanos)
+            return if (generationMs > 0f) outputTokens * 1000f / generationMs else 0f
+        }
+
+    /** Marks the request as holding its turn and permit; the queue ends at the first start. */
+    fun onStarted() {
+        attemptNanos = System.nanoTime()
+        if (startedNanos == 0L) startedNanos = attemptNanos
+    }
+
+    /** Marks the model as ready; [loaded] is true if this request had to wait for it to load. */
+    fun onModelReady(loaded: Boolean) {
+        generationStartNanos = System.nanoTime()
+        if (loaded) {
+            initNanos += generationStartNanos - attemptNanos
+            loadedModel = true
+        }
+        cacheHit = !loadedModel
+    }
+
+    /** Forgets the cancelled attempt's first chunk, so it is timed from the attempt that lands. */
+    fun onPreempted() {
+        preemptions++
+        firstChunkNanos = 0L
+    }
+
+    fun onChunk() {
+        if (firstChunkNanos == 0L) firstChunkNanos = System.nanoTime()
+    }
+
+    /** Marks the request as done; a response that did not stream counts as its own first chunk. */
+    fun onDone(response: String) {
+        doneNanos = System.nanoTime()
+        if (firstChunkNanos == 0L) firstChunkNanos = doneNanos
+        outputTokens = TokenEstimator.estimate(response)
+    }
+
+    fun toJson(): JSONObject = JSONObject()
+        .put("queueMs", queueMs.toDouble())
+        .put("initMs", initMs.toDouble())
+        .put("firstTokenMs", firstTokenMs.toDouble())
+        .put("totalMs", totalMs.toDouble())
+        .put("outputTokens", outputTokens)
+        .put("outputTokensPerSecond", outputTokensPerSecond.toDouble())
+        .put("promptChars", promptChars)
+        .put("promptTokens", promptTokens)
+        .put("cacheHit", cacheHit)
+        .put("preemptions", preemptions)
+
+    private fun millis(nanos: Long): Float = nanos / NANOS_PER_MILLI
+
+    private companion object {
+        const val NANOS_PER_MILLI = 1_000_000f
+    }
+}
+
+/** Rolling percentiles over the [GenerationStats] of the last successful requests. */
+internal class GenerationStatsWindow {
+    private var requests = 0L
+    private var cacheHits = 0L
+    private val queueMs = LatencyWindow()
+    private val initMs = LatencyWindow()
+    private val firstTokenMs = LatencyWindow()
+    private val totalMs = LatencyWindow()
+    private val outputTokens = LatencyWindow()
+    private val outputTokensPerSecond = LatencyWindow()
+
+    @Synchronized
+    fun record(stats: GenerationStats) {
+        requests++
+        if (stats.cacheHit) cacheHits++ else initMs.record(stats.initMs)
+        queueMs.record(stats.queueMs)
+        firstTokenMs.record(stats.firstTokenMs)
+        totalMs.record(stats.totalMs)
+        outputTokens.record(stats.outputTokens.toFloat())
+        outputTokensPerSecond.record(stats.outputTokensPerSecond)
+    }
+
+    @Synchronized
+    fun toJson(): JSONObject = JSONObject()
+        .put("requests", requests)
+        .put("cacheHits", cacheHits)
+        .put("queueMs", queueMs.toJson())
+        .put("initMs", initMs.toJson())
+        .put("firstTokenMs", firstTokenMs.toJson())
+        .put("totalMs", totalMs.toJson())
+        .put("outputTokens", outputTokens.toJson())
+        .put("outputTokensPerSecond", outputTokensPerSecond.toJson())
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import org.json.JSONArray
+import org.json.JSONObject
+
+/**
+ * The subset of JSON Schema that [StreamingJsonValidator] checks: `type` (a name or a list of
+ * names), `properties`, `required`, `additionalProperties` (as a boolean), `items` and string
+ * `enum`s. Other keywords are ignored.
+ */
+internal class JsonSchema private constructor(
+    private val types: Int,
+    val properties: Map<String, JsonSchema>,
+    val required: Set<String>,
+    val additionalProperties: Boolean,
+    private val items: JsonSchema?,
+    val enumValues: List<String>?
+) {
+    val itemSchema: JsonSchema
+        get() = items ?: ANY_SCHEMA
+
+    fun allows(type: Int): Boolean =
+        types and type != 0 || (type == INTEGER && types and NUMBER != 0)
+
+    /** The schema of property [name], or null if the property is not allowed. */
+    fun propertySchema(name: String): JsonSchema? =
+        properties[name] ?: if (additionalProperties) ANY_SCHEMA else null
+
+    companion object {
+        const val OBJECT = 1
+        const val ARRAY = 2
+        const val STRING = 4
+        const val NUMBER = 8
+        const val INTEGER = 16
+        const val BOOLEAN = 32
+        const val NULL = 64
+        private const val ANY = 127
+
+        private val TYPE_NAMES = mapOf(
+            "object" to OBJECT,
+            "array" to ARRAY,
+            "string" to STRING,
+            "number" to NUMBER,
+            "integer" to INTEGER,
+            "boolean" to BOOLEAN,
+            "null" to NULL
+        )
+
+        val ANY_SCHEMA = JsonSchema(ANY, emptyMap(), emptySet(), true, null, null)
+
+        /** Parses [schemaJson]; throws [org.json.JSONException] if it is not a JSON object. */
+        fun parse(schemaJson: String): JsonSchema = fromJson(JSONObject(schemaJson))
+
+        private fun fromJson(json: JSONObject): JsonSchema {
+            val properties = LinkedHashMap<String, JsonSchema>()
+            json.optJSONObject("properties")?.let { props ->
+                for (name in props.keys()) {
+                    properties[name] = fromJson(props.getJSONObject(name))
+                }
+            }
+            return JsonSchema(
+                typesOf(json.opt("type")),
+                properties,
+                json.optJSONArray("required")?.strings()?.toSet() ?: emptySet(),
+                json.optBoolean("additionalProperties", true),
+                json.optJSONObject("items")?.let { fromJson(it) },
+                json.optJSONArray("enum")?.strings()
+            )
+        }
+
+        private fun typesOf(type: Any?): Int = when (type) {
+            is String -> TYPE_NAMES[type] ?: ANY
+            is JSONArray -> type.strings().fold(0) { mask, name ->
+                mask or (TYPE_NAMES[name] ?: ANY)
+            }
+            else -> ANY
+        }
+
+        private fun JSONArray.strings(): List<String> = List(length()) { get(it).toString() }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import org.json.JSONObject
+
+/** The last [capacity] samples, usually latencies in milliseconds, summarized as percentiles. */
+internal class LatencyWindow(capacity: Int = DEFAULT_CAPACITY) {
+    private val samples = FloatArray(capacity)
+    private var next = 0
+    private var size = 0
+
+    @Synchronized
+    fun record(ms: Float) {
+        samples[next] = ms
+        next = (next + 1) % samples.size
+        if (size < samples.size) size++
+    }
+
+    /** Returns the nearest-rank [percentile] (0-100), or 0 without samples. */
+    @Synchronized
+    fun percentile(percentile: Float): Float {
+        if (size == 0) return 0f
+        val sorted = samples.copyOf(size).apply { sort() }
+        val rank = Math.ceil(percentile / 100.0 * size).toInt().coerceIn(1, size)
+        return sorted[rank - 1]
+    }
+
+    @Synchronized
+    fun toJson(): JSONObject = JSONObject()
+        .put("count", size)
+        .put("p50", percentile(50f).toDouble())
+        .put("p95", percentile(95f).toDouble())
+        .put("p99", percentile(99f).toDouble())
+
+    private companion object {
+        const val DEFAULT_CAPACITY = 256
+    }
+}
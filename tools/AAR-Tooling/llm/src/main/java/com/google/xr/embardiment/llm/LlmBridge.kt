@@ -20,34 +20,225 @@ import android.app.Application
 import android.util.Log
 import com.google.ai.edge.aicore.GenerativeModel
 import com.google.ai.edge.aicore.generationConfig
+import java.io.Closeable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executor
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.collect
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.mapNotNull
+import kotlinx.coroutines.flow.takeWhile
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
 import kotlinx.coroutines.withContext
+import org.json.JSONException
+
+/** The generation backend behind [LlmBridge]: AICore on device, a fake in tests. */
+internal interface LlmModel : Closeable {
+    suspend fun generate(prompt: String): String?
+
+    /** Emits the response in chunks as they are produced; the default emits it in one piece. */
+    fun generateStream(prompt: String): Flow<String> = flow { generate(prompt)?.let { emit(it) } }
+}
+
+internal fun interface LlmModelFactory {
+    fun create(temperature: Float, topK: Int, maxOutputTokens: Int): LlmModel
+}
+
+/**
+ * Reference counted: the creator holds the first reference and every in-flight request holds
+ * another, so [close] from Unity never cuts off a pending callback. When the last reference is
+ * released the coroutine scope is cancelled and the model is closed.
+ *
+ * A request identical to one still running, e.g. the same prompt sent again by a repeated tap,
+ * does not run a second inference: it joins the running one and receives the same result.
+ *
+ * Requests are [PRIORITY_INTERACTIVE] unless submitted as [PRIORITY_BACKGROUND], e.g. to
+ * summarize documents while the user is idle. Background generations wait while interactive ones
+ * run and are cancelled and restarted later when an interactive request arrives, so they never
+ * hold up the user's question.
+ */
+class LlmBridge internal constructor(
+    workDispatcher: CoroutineDispatcher,
+    private val modelFactory: LlmModelFactory
+) : Closeable {
+    constructor() : this(Dispatchers.Default)
+
+    constructor(workDispatcher: CoroutineDispatcher) : this(workDispatcher, defaultModelFactory)
+
+    /** Runs generation on a shared [executor], e.g. the plugin host's. */
+    constructor(executor: Executor) : this(executor.asCoroutineDispatcher())
 
-class LlmBridge {
     interface LlmCallback {
         fun onSuccess(result: String)
         fun onFailure(errorMessage: String)
     }
 
-    private val scope = CoroutineScope(Dispatchers.Default)
-    private var generativeModel: GenerativeModel? = null
+    /** An [LlmCallback] that also receives the stats of each successful request. */
+    interface LlmStatsCallback : LlmCallback {
+        /**
+         * Called on the main thread right before [onSuccess] with a JSON object: queueMs, initMs,
+         * firstTokenMs, totalMs, outputTokens, outputTokensPerSecond, promptChars, promptTokens,
+         * cacheHit (the model was already loaded) and preemptions (restarts of a background
+         * request). Token counts are estimates.
+         */
+        fun onStats(statsJson: String)
+    }
+
+    /** A submitted generation. */
+    fun interface LlmRequest {
+        /**
+         * Drops the request without invoking its callback. AICore may still finish the inference
+         * already running natively, but a request that has not started yet never reaches the model.
+         */
+        fun cancel()
+    }
+
+    private val scope = CoroutineScope(workDispatcher)
+    private val refCount = AtomicInteger(1)
+    private val sessions = ConcurrentHashMap<Int, LlmSession>()
+    private val nextSessionId = AtomicInteger(1)
+    private val modelMutex = Mutex()
+    private val statsWindow = GenerationStatsWindow()
+    private val flights = HashMap<FlightKey, Flight>()
+    private val coalesced = AtomicLong()
+    private val scheduler = PriorityScheduler()
+    @Volatile private var generativeModel: SharedModel? = null
+    private val generationLimit = ConcurrencyLimit()
+    @Volatile private var outputTokenCap = Int.MAX_VALUE
     /* let's use these default values */
     private var temperature: Float? = null
     private var topK: Int? = null
     private var maxOutputTokens: Int? = null
 
+    val isClosed: Boolean
+        get() = refCount.get() == 0
+
+    /** Adds a reference that must be balanced by a [close]. */
+    fun retain(): LlmBridge {
+        check(tryRetain()) { "LlmBridge is closed." }
+        return this
+    }
+
+    /** Drops a reference; the last one cancels pending work and closes the model. */
+    override fun close() {
+        if (refCount.getAndUpdate { if (it > 0) it - 1 else 0 } == 1) {
+            scope.cancel()
+            sessions.clear()
+            retireModel()
+            Log.d("LlmBridge", "LlmBridge released.")
+        }
+    }
+
+    private fun tryRetain(): Boolean {
+        while (true) {
+            val count = refCount.get()
+            if (count == 0) return false
+            if (refCount.compareAndSet(count, count + 1)) return true
+        }
+    }
+
     fun updateSettings(maxOutputTokens: Int, temperature: Float, topK: Int) {
+        if (isClosed) return
         this.maxOutputTokens = maxOutputTokens
         this.temperature = temperature
         this.topK = topK
-        generativeModel?.close();
-        generativeModel = null;
+        retireModel()
+    }
+
+    /**
+     * Limits the bridge while the device is throttling, on top of [updateSettings].
+     *
+     * @param maxOutputTokens Caps the output tokens of later requests; [Int.MAX_VALUE] lifts the
+     *     cap. A changed cap recreates the model, like [updateSettings]; generations already
+     *     running finish on the old one.
+     * @param maxConcurrentGenerations The most generations that run at once; zero or less lifts
+     *     the limit. Under a lower limit, generations already running finish and waiting ones
+     *     start once fewer than the new limit run.
+     * @param allowBackground Whether [PRIORITY_BACKGROUND] requests may run. Held back ones start
+     *     over once allowed again.
+     */
+    @Synchronized
+    fun setThrottle(maxOutputTokens: Int, maxConcurrentGenerations: Int, allowBackground: Boolean) {
+        if (isClosed) return
+        if (outputTokenCap != maxOutputTokens) {
+            outputTokenCap = maxOutputTokens
+            retireModel()
+        }
+        generationLimit.setLimit(maxConcurrentGenerations)
+        scheduler.holdBackground(!allowBackground)
+    }
+
+    /** What makes two requests identical: the same work under the same settings. */
+    private data class FlightKey(
+        val kind: String,
+        val priority: Int,
+        val sessionId: Int,
+        val text: String,
+        val schemaJson: String?,
+        val maxAttempts: Int,
+        val temperature: Float?,
+        val topK: Int?,
+        val maxOutputTokens: Int?
+    )
+
+    /**
+     * The model and the generations running on it. A replaced model is retired rather than
+     * closed, and closed once its last generation has finished.
+     */
+    private class SharedModel(val model: LlmModel) {
+        private var users = 0
+        private var retired = false
+
+        /** Returns false once retired, when generations must use the model that replaced it. */
+        @Synchronized
+        fun tryUse(): Boolean {
+            if (retired) return false
+            users++
+            return true
+        }
+
+        fun release() {
+            if (synchronized(this) { --users == 0 && retired }) model.close()
+        }
+
+        fun retire() {
+            val idle = synchronized(this) {
+                if (retired) return
+                retired = true
+                users == 0
+            }
+            if (idle) model.close()
+        }
+    }
+
+    /** One running generation and the callbacks of every request sharing it. */
+    private class Flight(val key: FlightKey) {
+        val callbacks = ArrayList<LlmCallback>(1)
+        lateinit var job: Job
     }
 
     companion object {
-        private val applicationContext: Application? by lazy {
+        /** Runs as soon as possible, preempting background work. */
+        const val PRIORITY_INTERACTIVE = 0
+
+        /** Runs only while no interactive request does. */
+        const val PRIORITY_BACKGROUND = 1
+
+        private val NO_REQUEST = LlmRequest {}
+
+        internal val applicationContext: Application? by lazy {
             try {
                 val unityPlayerClass = Class.forName("com.unity3d.player.UnityPlayer")
                 val currentActivity = unityPlayerClass.getField("currentActivity").get(null)
@@ -57,53 +248,376 @@ class LlmBridge {
                 null
             }
         }
+
+        private val aicoreModelFactory = LlmModelFactory { temperature, topK, maxOutputTokens ->
+            val context = applicationContext
+                ?: throw IllegalStateException("Application context is null. Cannot initialize model.")
+
+            val model = GenerativeModel(
+                generationConfig {
+                    this.candidateCount = 1
+                    this.context = context
+                    this.temperature = temperature
+                    this.topK = topK
+                    this.maxOutputTokens = maxOutputTokens
+                }
+            )
+            object : LlmModel {
+                override suspend fun generate(prompt: String) = model.generateContent(prompt).text
+
+                override fun generateStream(prompt: String) =
+                    model.generateContentStream(prompt).mapNotNull { it.text }
+
+                override fun close() = model.close()
+            }
+        }
+
+        /** Creates the models of bridges built with a public constructor; tests replace it. */
+        @Volatile
+        internal var defaultModelFactory: LlmModelFactory = aicoreModelFactory
+    }
+
+    // A session prepares the model while its first turn may already be waiting for it.
+    private suspend fun initializeModel() = modelMutex.withLock {
+        withContext(Dispatchers.IO) { createModel() }
     }
 
-    private suspend fun initializeModel() = withContext(Dispatchers.IO) {
-        if (generativeModel != null) return@withContext
+    /**
+     * Runs [block] on the shared model, creating it first if needed, e.g. for [LlmRouter]. The
+     * model is not closed before [block] returns, even if new settings replace it meanwhile.
+     */
+    internal suspend fun <T> withModel(block: suspend (LlmModel) -> T): T {
+        while (true) {
+            val shared = generativeModel
+            if (shared == null) {
+                initializeModel()
+                continue
+            }
+            // A model retired since it was read is closing; use its replacement instead.
+            if (!shared.tryUse()) continue
+            try {
+                return block(shared.model)
+            } finally {
+                shared.release()
+            }
+        }
+    }
 
-        val context = applicationContext
-            ?: throw IllegalStateException("Application context is null. Cannot initialize model.")
+    /** Closes the model once its running generations finish; the next one is built afresh. */
+    @Synchronized
+    private fun retireModel() {
+        val retired = generativeModel
+        generativeModel = null
+        retired?.retire()
+    }
 
+    /** Creates a separate model from [factory] with the bridge's current settings. */
+    internal fun createModel(factory: LlmModelFactory): LlmModel {
         val currentTemp = temperature ?: throw IllegalStateException("LLM temperature not set. Call updateSettings() from Unity.")
         val currentTopK = topK ?: throw IllegalStateException("LLM topK not set. Call updateSettings() from Unity.")
         val currentMaxTokens = maxOutputTokens ?: throw IllegalStateException("LLM maxOutputTokens not set. Call updateSettings() from Unity.")
+        return factory.create(currentTemp, currentTopK, minOf(currentMaxTokens, outputTokenCap))
+    }
 
-        generativeModel = GenerativeModel(
-            generationConfig {
-                this.candidateCount = 1
-                this.context = context
-                this.temperature = currentTemp
-                this.topK = currentTopK
-                this.maxOutputTokens = currentMaxTokens
-            }
-        )
+    private fun createModel() {
+        if (generativeModel != null) return
+
+        generativeModel = SharedModel(createModel(modelFactory))
         Log.d("LlmBridge", "GenerativeModel initialized successfully.")
     }
 
 
     fun generateResponse(prompt: String, callback: LlmCallback) {
+        startGeneration(prompt, callback)
+    }
+
+    /** Like [generateResponse], but returns a handle that cancels the request. */
+    fun startGeneration(prompt: String, callback: LlmCallback): LlmRequest =
+        startGeneration(prompt, PRIORITY_INTERACTIVE, callback)
+
+    /** Like [startGeneration], at [priority], one of the PRIORITY_ constants. */
+    fun startGeneration(prompt: String, priority: Int, callback: LlmCallback): LlmRequest {
         Log.d("LlmBridge", "Received prompt: $prompt")
+        val stats = GenerationStats(prompt.length, TokenEstimator.estimate(prompt))
+        val key = flightKey("generate", priority, 0, prompt)
+        return launchGeneration(key, callback, stats) { model ->
+            val text = StringBuilder()
+            model.generateStream(prompt).collect { chunk ->
+                stats.onChunk()
+                text.append(chunk)
+            }
+            if (text.isEmpty()) null else text.toString()
+        }
+    }
+
+    /**
+     * Returns rolling percentiles over the last successful requests as a JSON object of
+     * LatencyWindow summaries (count, p50, p95, p99) plus request, cache hit and coalesced request
+     * counters. Only interactive requests are included; "preemptions" counts the background
+     * generations restarted for them.
+     */
+    fun getStats(): String = statsWindow.toJson()
+        .put("coalescedRequests", coalesced.get())
+        .put("preemptions", scheduler.preemptions)
+        .toString()
+
+    /** How many requests joined an identical one instead of running their own inference. */
+    val coalescedRequests: Long
+        get() = coalesced.get()
+
+    /**
+     * Opens a session whose turns all start with [systemContext] and returns its id.
+     *
+     * The session only saves sending the context across JNI with every turn. AICore keeps no
+     * prefill state between calls, so every turn is still prefilled in full on device, context
+     * included. Opening a session also starts loading the model.
+     */
+    fun openSession(systemContext: String): Int {
+        val session = LlmSession(nextSessionId.getAndIncrement(), systemContext)
+        sessions[session.id] = session
+        Log.d("LlmBridge", "Opened session ${session.id} (~${session.estimatedTokens} tokens).")
+        prepareModel()
+        return session.id
+    }
+
+    /** Generates a response to [utterance] following the context of session [sessionId]. */
+    fun ask(sessionId: Int, utterance: String, callback: LlmCallback) {
+        startAsk(sessionId, utterance, callback)
+    }
+
+    /** Like [ask], but returns a handle that cancels the request. */
+    fun startAsk(sessionId: Int, utterance: String, callback: LlmCallback): LlmRequest =
+        startAsk(sessionId, utterance, PRIORITY_INTERACTIVE, callback)
+
+    /** Like [startAsk], at [priority], one of the PRIORITY_ constants. */
+    fun startAsk(
+        sessionId: Int,
+        utterance: String,
+        priority: Int,
+        callback: LlmCallback
+    ): LlmRequest {
+        val session = sessions[sessionId]
+        if (session == null) {
+            callback.onFailure("Unknown LLM session: $sessionId")
+            return NO_REQUEST
+        }
+        val stats = GenerationStats(
+            session.systemContext.length + utterance.length,
+            session.estimatedTokens + TokenEstimator.estimate(utterance)
+        )
+        val key = flightKey("ask", priority, sessionId, utterance)
+        return launchGeneration(key, callback, stats) { it.generate(session.promptFor(utterance)) }
+    }
+
+    fun closeSession(sessionId: Int) {
+        sessions.remove(sessionId)
+    }
+
+    /**
+     * Generates a JSON value matching [schemaJson] and passes it to the callback without
+     * insignificant whitespace. The response is validated while it streams: an attempt is stopped
+     * at the first character that cannot lead to a valid value, or as soon as the value is
+     * complete, and retried up to [maxAttempts] times in total.
+     */
+    fun generateStructured(
+        prompt: String,
+        schemaJson: String,
+        maxAttempts: Int,
+        callback: LlmCallback
+    ) {
+        startStructured(prompt, schemaJson, maxAttempts, callback)
+    }
+
+    /** Like [generateStructured], but returns a handle that cancels the request. */
+    fun startStructured(
+        prompt: String,
+        schemaJson: String,
+        maxAttempts: Int,
+        callback: LlmCallback
+    ): LlmRequest {
+        val schema = try {
+            JsonSchema.parse(schemaJson)
+        } catch (e: JSONException) {
+            callback.onFailure("Invalid JSON schema: ${e.message}")
+            return NO_REQUEST
+        }
+        val structuredPrompt = "$prompt\n\nRespond only with JSON matching this schema: $schemaJson"
+        val stats = GenerationStats(
+            structuredPrompt.length,
+            TokenEstimator.estimate(structuredPrompt)
+        )
+        val attempts = maxAttempts.coerceAtLeast(1)
+        val key = flightKey("structured", PRIORITY_INTERACTIVE, 0, prompt, schemaJson, attempts)
+        return launchGeneration(key, callback, stats) {
+            generateValidated(it, structuredPrompt, schema, attempts, stats)
+        }
+    }
 
+    private suspend fun generateValidated(
+        model: LlmModel,
+        prompt: String,
+        schema: JsonSchema,
+        maxAttempts: Int,
+        stats: GenerationStats
+    ): String {
+        var lastError = ""
+        for (attempt in 1..maxAttempts) {
+            val validator = StreamingJsonValidator(schema)
+            var status = StreamingJsonValidator.NEED_MORE
+            // Cancels the generation as soon as the outcome is known.
+            model.generateStream(prompt)
+                .takeWhile { chunk ->
+                    stats.onChunk()
+                    status = validator.feed(chunk)
+                    status == StreamingJsonValidator.NEED_MORE
+                }
+                .collect()
+            if (status == StreamingJsonValidator.NEED_MORE) status = validator.finish()
+            when (status) {
+                StreamingJsonValidator.COMPLETE -> return validator.compactJson()
+                StreamingJsonValidator.INVALID -> lastError = validator.error.orEmpty()
+                else -> lastError = "The response ended before the JSON value was complete."
+            }
+            Log.w("LlmBridge", "Structured attempt $attempt of $maxAttempts failed: $lastError")
+        }
+        throw IllegalStateException("No valid JSON after $maxAttempts attempts. $lastError")
+    }
+
+    /** Creates the model ahead of the first turn when the settings are already known. */
+    private fun prepareModel() {
+        if (generativeModel != null || maxOutputTokens == null || !tryRetain()) return
         scope.launch {
             try {
-                if (generativeModel == null) {
-                    initializeModel()
-                }
+                initializeModel()
+            } catch (e: Exception) {
+                Log.w("LlmBridge", "Could not prepare the model ahead of a session.", e)
+            }
+        }.invokeOnCompletion { close() }
+    }
+
+    private fun flightKey(
+        kind: String,
+        priority: Int,
+        sessionId: Int,
+        text: String,
+        schemaJson: String? = null,
+        maxAttempts: Int = 1
+    ) = FlightKey(
+        kind,
+        priority,
+        sessionId,
+        text,
+        schemaJson,
+        maxAttempts,
+        temperature,
+        topK,
+        maxOutputTokens?.let { minOf(it, outputTokenCap) }
+    )
+
+    /** How long no interactive request has run, see [PriorityScheduler.idleNanos]. */
+    internal fun idleNanos(): Long = scheduler.idleNanos()
+
+    /** Runs [block] on the shared model as interactive work, e.g. for [LlmRouter]. */
+    internal suspend fun <T> runInteractive(block: suspend () -> T): T =
+        scheduler.interactive(block)
+
+    private fun launchGeneration(
+        key: FlightKey,
+        callback: LlmCallback,
+        stats: GenerationStats,
+        generate: suspend (LlmModel) -> String?
+    ): LlmRequest {
+        if (key.priority != PRIORITY_INTERACTIVE && key.priority != PRIORITY_BACKGROUND) {
+            callback.onFailure("Unknown LLM priority: ${key.priority}")
+            return NO_REQUEST
+        }
+        val flight = synchronized(flights) {
+            val running = flights[key]
+            if (running != null) {
+                running.callbacks.add(callback)
+                coalesced.incrementAndGet()
+                Log.d("LlmBridge", "Joined an identical request in flight.")
+                return LlmRequest { leave(running, callback) }
+            }
+            if (!tryRetain()) return@synchronized null
+            Flight(key).also {
+                it.callbacks.add(callback)
+                flights[key] = it
+            }
+        }
+        if (flight == null) {
+            callback.onFailure("LlmBridge is closed.")
+            return NO_REQUEST
+        }
 
-                val response = generativeModel?.generateContent(prompt)
-                val responseText = response?.text ?: "No valid response from model."
+        val job = scope.launch(start = CoroutineStart.LAZY) {
+            try {
+                // The request starts once it holds both its scheduler turn and a permit.
+                val run: suspend () -> String? = {
+                    generationLimit.withPermit {
+                        stats.onStarted()
+                        val loading = generativeModel == null
+                        if (loading) {
+                            initializeModel()
+                        }
+                        stats.onModelReady(loading)
+                        withModel(generate)
+                    }
+                }
+                val response = if (key.priority == PRIORITY_BACKGROUND) {
+                    scheduler.background(stats::onPreempted, run)
+                } else {
+                    scheduler.interactive(run)
+                }
+                val responseText = response ?: "No valid response from model."
+                stats.onDone(responseText)
+                // Background waits would hide the latency the user actually experiences.
+                if (key.priority == PRIORITY_INTERACTIVE) statsWindow.record(stats)
 
+                val callbacks = land(flight)
+                val statsJson = stats.toJson().toString()
                 withContext(Dispatchers.Main) {
-                    callback.onSuccess(responseText)
+                    for (waiting in callbacks) {
+                        (waiting as? LlmStatsCallback)?.onStats(statsJson)
+                        waiting.onSuccess(responseText)
+                    }
                 }
 
+            } catch (e: CancellationException) {
+                throw e
             } catch (e: Exception) {
                 Log.e("LlmBridge", "Error during LLM processing.", e)
+                val callbacks = land(flight)
                 withContext(Dispatchers.Main) {
-                    callback.onFailure(e.localizedMessage ?: "Failed during processing.")
+                    for (waiting in callbacks) {
+                        waiting.onFailure(e.localizedMessage ?: "Failed during processing.")
+                    }
                 }
             }
         }
+        flight.job = job
+        job.invokeOnCompletion {
+            land(flight)
+            close()
+        }
+        job.start()
+        return LlmRequest { leave(flight, callback) }
+    }
+
+    /** Ends [flight] for new requests and returns the callbacks still waiting for it. */
+    private fun land(flight: Flight): List<LlmCallback> = synchronized(flights) {
+        flights.remove(flight.key, flight)
+        val callbacks = flight.callbacks.toList()
+        flight.callbacks.clear()
+        callbacks
+    }
+
+    /** Drops one request's callback; the generation is cancelled once nobody waits for it. */
+    private fun leave(flight: Flight, callback: LlmCallback) {
+        val abandoned = synchronized(flights) {
+            if (!flight.callbacks.remove(callback)) return
+            flight.callbacks.isEmpty() && flights.remove(flight.key, flight)
+        }
+        if (abandoned) flight.job.cancel()
     }
 }
\ No newline at end of file
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import android.util.Log
+import java.io.Closeable
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+import kotlinx.coroutines.withTimeoutOrNull
+import org.json.JSONObject
+
+/**
+ * Routes prompts between the on-device model of an [LlmBridge] and the Gemini API.
+ *
+ * On-device generation always starts first. If its first chunk has not arrived within the
+ * request's first-token SLO, or it fails, the prompt is also sent to the cloud; whichever backend
+ * streams a chunk first wins and the other is cancelled. The router records every routing decision
+ * and the first-token and total latency percentiles of each backend.
+ *
+ * The router holds its own reference to the bridge until [close].
+ */
+class LlmRouter internal constructor(
+    private val bridge: LlmBridge,
+    private val cloudFactory: LlmModelFactory,
+    workDispatcher: CoroutineDispatcher
+) : Closeable {
+    constructor(bridge: LlmBridge, apiKey: String) :
+        this(bridge, GeminiCloudModel.DEFAULT_BASE_URL, apiKey, GeminiCloudModel.DEFAULT_MODEL)
+
+    /** Uses the Gemini API at [baseUrl], e.g. a local server in tests. */
+    constructor(bridge: LlmBridge, baseUrl: String, apiKey: String, modelName: String) :
+        this(bridge, GeminiCloudModel.factory(baseUrl, apiKey, modelName), Dispatchers.Default)
+
+    private sealed class BackendEvent(val backend: Int) {
+        class Chunk(backend: Int, val text: String) : BackendEvent(backend)
+        class Done(backend: Int) : BackendEvent(backend)
+        class Failed(backend: Int, val error: Exception) : BackendEvent(backend)
+    }
+
+    private class BackendStats {
+        var wins = 0L
+        var errors = 0L
+        var cancelled = 0L
+        val firstTokenMs = LatencyWindow()
+        val totalMs = LatencyWindow()
+    }
+
+    private val scope = CoroutineScope(SupervisorJob() + workDispatcher)
+    private val backendStats = Array(BACKEND_COUNT) { BackendStats() }
+    private val decisions = LinkedHashMap<String, Long>()
+
+    init {
+        bridge.retain()
+    }
+
+    /**
+     * Generates a response to [prompt], sending it to the cloud too if the on-device model has not
+     * produced its first chunk within [firstTokenSloMs].
+     */
+    fun route(
+        prompt: String,
+        firstTokenSloMs: Long,
+        callback: LlmBridge.LlmCallback
+    ): LlmBridge.LlmRequest {
+        val job = scope.launch {
+            try {
+                val text = race(prompt, firstTokenSloMs)
+                withContext(Dispatchers.Main) {
+                    callback.onSuccess(text)
+                }
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                Log.e("LlmRouter", "Both backends failed.", e)
+                recordDecision(DECISION_FAILED)
+                withContext(Dispatchers.Main) {
+                    callback.onFailure(e.localizedMessage ?: "Failed during processing.")
+                }
+            }
+        }
+        return LlmBridge.LlmRequest { job.cancel() }
+    }
+
+    /** Returns the routing decisions and per-backend counters and latency percentiles as JSON. */
+    fun getStats(): String = synchronized(backendStats) {
+        val json = JSONObject().put("decisions", JSONObject(decisions))
+        for (backend in 0 until BACKEND_COUNT) {
+            val stats = backendStats[backend]
+            json.put(
+                BACKEND_NAMES[backend],
+                JSONObject()
+                    .put("wins", stats.wins)
+                    .put("errors", stats.errors)
+                    .put("cancelled", stats.cancelled)
+                    .put("firstTokenMs", stats.firstTokenMs.toJson())
+                    .put("totalMs", stats.totalMs.toJson())
+            )
+        }
+        json.toString()
+    }
+
+    override fun close() {
+        scope.cancel()
+        bridge.close()
+    }
+
+    private suspend fun race(prompt: String, firstTokenSloMs: Long): String = coroutineScope {
+        val events = Channel<BackendEvent>(Channel.UNLIMITED)
+        val startNanos = System.nanoTime()
+        val jobs = arrayOfNulls<Job>(BACKEND_COUNT)
+        val failed = BooleanArray(BACKEND_COUNT)
+
+        fun start(backend: Int) {
+            jobs[backend] = launch {
+                try {
+                    val stream: suspend (LlmModel) -> Unit = { model ->
+                        model.generateStream(prompt).collect {
+                            events.send(BackendEvent.Chunk(backend, it))
+                        }
+                    }
+                    if (backend == ON_DEVICE) {
+                        // A routed prompt preempts the bridge's background work. The model is
+                        // shared with the bridge, which closes it.
+                        bridge.runInteractive { bridge.withModel(stream) }
+                    } else {
+                        val model = bridge.createModel(cloudFactory)
+                        try {
+                            stream(model)
+                        } finally {
+                            model.close()
+                        }
+                    }
+                    events.send(BackendEvent.Done(backend))
+                } catch (e: CancellationException) {
+                    throw e
+                } catch (e: Exception) {
+                    events.send(BackendEvent.Failed(backend, e))
+                }
+            }
+        }
+
+        var winner = -1
+        var decision = DECISION_ON_DEVICE
+        val text = StringBuilder()
+
+        fun claim(backend: Int) {
+            winner = backend
+            val loser = jobs[1 - backend]
+            synchronized(backendStats) {
+                backendStats[backend].firstTokenMs.record(elapsedMs(startNanos))
+                if (loser != null && !failed[1 - backend]) backendStats[1 - backend].cancelled++
+            }
+            loser?.cancel()
+        }
+
+        suspend fun awaitWinner(): String {
+            while (true) {
+                val event = if (winner < 0 && jobs[CLOUD] == null) {
+                    val remainingMs = firstTokenSloMs - elapsedMs(startNanos).toLong()
+                    withTimeoutOrNull(remainingMs.coerceAtLeast(0)) { events.receive() }
+                } else {
+                    events.receive()
+                }
+                if (event == null) {
+                    decision = DECISION_HEDGED_ON_DEVICE
+                    start(CLOUD)
+                    continue
+                }
+                if (winner >= 0 && event.backend != winner) continue
+
+                when (event) {
+                    is BackendEvent.Chunk -> {
+                        if (winner < 0) claim(event.backend)
+                        text.append(event.text)
+                    }
+                    is BackendEvent.Done -> {
+                        if (winner < 0) claim(event.backend)
+                        if (winner == CLOUD && decision != DECISION_FALLBACK) {
+                            decision = DECISION_HEDGED_CLOUD
+                        }
+                        synchronized(backendStats) {
+                            backendStats[winner].wins++
+                            backendStats[winner].totalMs.record(elapsedMs(startNanos))
+                        }
+                        recordDecision(decision)
+                        return text.toString()
+                    }
+                    is BackendEvent.Failed -> {
+                        synchronized(backendStats) { backendStats[event.backend].errors++ }
+                        if (event.backend == winner) throw event.error
+                        failed[event.backend] = true
+                        if (jobs[CLOUD] == null) {
+                            decision = DECISION_FALLBACK
+                            start(CLOUD)
+                        } else if (failed.all { it }) {
+                            throw event.error
+                        }
+                    }
+                }
+            }
+        }
+
+        start(ON_DEVICE)
+        try {
+            awaitWinner()
+        } finally {
+            jobs.forEach { it?.cancel() }
+        }
+    }
+
+    private fun recordDecision(decision: String) {
+        synchronized(backendStats) {
+            decisions[decision] = (decisions[decision] ?: 0L) + 1
+        }
+    }
+
+    private fun elapsedMs(startNanos: Long) = (System.nanoTime() - startNanos) / 1_000_000f
+
+    private companion object {
+        const val ON_DEVICE = 0
+        const val CLOUD = 1
+        const val BACKEND_COUNT = 2
+        val BACKEND_NAMES = arrayOf("onDevice", "cloud")
+
+        const val DECISION_ON_DEVICE = "onDevice"
+        const val DECISION_HEDGED_ON_DEVICE = "hedgedOnDevice"
+        const val DECISION_HEDGED_CLOUD = "hedgedCloud"
+        const val DECISION_FALLBACK = "cloudFallback"
+        const val DECISION_FAILED = "failed"
+    }
+}
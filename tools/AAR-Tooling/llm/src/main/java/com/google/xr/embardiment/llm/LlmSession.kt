@@ -0,0 +1,39 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+/**
+ * A system context shared by every turn of one [LlmBridge] session, e.g. the document text of
+ * the screens around the user. It crosses JNI once, when the session is opened, instead of with
+ * every turn. Each turn still reaches the model as the whole context followed by the utterance,
+ * so the model processes the context again every time.
+ */
+internal class LlmSession(val id: Int, val systemContext: String) {
+    val estimatedTokens = TokenEstimator.estimate(systemContext)
+
+    /** Returns the context followed by [utterance], built in one buffer of the final size. */
+    fun promptFor(utterance: String): String =
+        StringBuilder(systemContext.length + SEPARATOR.length + utterance.length)
+            .append(systemContext)
+            .append(SEPARATOR)
+            .append(utterance)
+            .toString()
+
+    private companion object {
+        const val SEPARATOR = "\n\n"
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import java.util.concurrent.atomic.AtomicLong
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.async
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
+
+/**
+ * Keeps background model calls out of the way of interactive ones. Background work only starts
+ * while no interactive work runs; an interactive call arriving while background work runs cancels
+ * that work, which starts over once the last interactive call has finished. On-device inference
+ * cannot be suspended mid-generation, so preempted work restarts rather than resumes. Background
+ * work can also be held back as a whole, e.g. while the device is throttling.
+ */
+internal class PriorityScheduler {
+    /** Cancels background work to make way for interactive work. */
+    private class Preempted : CancellationException("Preempted by an interactive request.")
+
+    private val lock = Any()
+    private var interactive = 0
+    private var held = false
+    // Completed whenever background work may run: no interactive work runs and none is held.
+    private var idle = CompletableDeferred(Unit)
+    private val running = HashSet<Deferred<*>>()
+    private var lastInteractiveNanos = Long.MIN_VALUE
+    private val preemptionCount = AtomicLong()
+
+    /** How many background attempts were cancelled for interactive work. */
+    val preemptions: Long
+        get() = preemptionCount.get()
+
+    /** Runs [block] straight away, cancelling background work that is running. */
+    suspend fun <T> interactive(block: suspend () -> T): T {
+        val preempted = synchronized(lock) {
+            if (interactive++ == 0 && !held) idle = CompletableDeferred()
+            running.toList()
+        }
+        for (attempt in preempted) attempt.cancel(Preempted())
+        try {
+            return block()
+        } finally {
+            synchronized(lock) {
+                lastInteractiveNanos = System.nanoTime()
+                if (--interactive == 0 && !held) idle.complete(Unit)
+            }
+        }
+    }
+
+    /**
+     * Runs [block] once no interactive work runs, and again from the start each time it is
+     * preempted. [onPreempted] is called before each restart.
+     */
+    suspend fun <T> background(onPreempted: () -> Unit = {}, block: suspend () -> T): T {
+        while (true) {
+            awaitIdle()
+            try {
+                return coroutineScope {
+                    val attempt = async(start = CoroutineStart.LAZY) { block() }
+                    // An interactive call that started in between holds the attempt back.
+                    val admitted = synchronized(lock) {
+                        interactive == 0 && !held && running.add(attempt)
+                    }
+                    if (!admitted) attempt.cancel(Preempted())
+                    try {
+                        attempt.await()
+                    } finally {
+                        synchronized(lock) { running.remove(attempt) }
+                    }
+                }
+            } catch (e: Preempted) {
+                // Only the attempt was cancelled, unless the caller was cancelled as well.
+                currentCoroutineContext().ensureActive()
+                preemptionCount.incrementAndGet()
+                onPreempted()
+            }
+        }
+    }
+
+    /**
+     * Holds background work back while [hold] is set, cancelling what runs; it starts over once
+     * released.
+     */
+    fun holdBackground(hold: Boolean) {
+        val preempted = synchronized(lock) {
+            if (held == hold) return
+            held = hold
+            if (interactive > 0) return
+            if (hold) {
+                idle = CompletableDeferred()
+                running.toList()
+            } else {
+                idle.complete(Unit)
+                emptyList()
+            }
+        }
+        for (attempt in preempted) attempt.cancel(Preempted())
+    }
+
+    /**
+     * How long no interactive work has run, in nanoseconds: zero while some runs, and
+     * [Long.MAX_VALUE] if none ever has.
+     */
+    fun idleNanos(): Long = synchronized(lock) {
+        when {
+            interactive > 0 -> 0L
+            lastInteractiveNanos == Long.MIN_VALUE -> Long.MAX_VALUE
+            else -> System.nanoTime() - lastInteractiveNanos
+        }
+    }
+
+    private suspend fun awaitIdle() {
+        while (true) {
+            val gate = synchronized(lock) { if (interactive == 0 && !held) return else idle }
+            gate.await()
+        }
+    }
+}
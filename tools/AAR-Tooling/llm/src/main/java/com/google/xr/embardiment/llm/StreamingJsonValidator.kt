@@ -0,0 +1,341 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+/**
+ * Validates a JSON value against a [JsonSchema] as it streams in, one chunk at a time, so a
+ * generation can be stopped at the first character that cannot lead to a valid value: a wrong
+ * type, a property name or enum value that no allowed one starts with, a malformed number or
+ * literal, or a missing required property. Once the root value is complete, later text is ignored.
+ *
+ * Leading whitespace and a Markdown code fence before the value are skipped. The value itself is
+ * copied into [compactJson] without insignificant whitespace.
+ */
+internal class StreamingJsonValidator(private val schema: JsonSchema) {
+    private class Frame(val schema: JsonSchema, val isObject: Boolean) {
+        var state = STATE_FIRST
+        var key: String? = null
+        val seenKeys = HashSet<String>()
+    }
+
+    private val stack = ArrayList<Frame>()
+    private val compact = StringBuilder()
+    private var status = NEED_MORE
+    private var offset = 0
+    private var inFence = false
+    private var rootStarted = false
+
+    // The scalar being read, if any.
+    private var scalar = SCALAR_NONE
+    private var scalarSchema = schema
+    private var scalarIsKey = false
+    private val scalarText = StringBuilder()
+    private var escape = ESCAPE_NONE
+    private var unicodeDigits = 0
+    private var unicodeValue = 0
+    private var literal = ""
+
+    var error: String? = null
+        private set
+
+    /** Feeds the next chunk and returns [NEED_MORE], [COMPLETE] or [INVALID]. */
+    fun feed(chunk: CharSequence): Int {
+        for (c in chunk) {
+            if (status != NEED_MORE) break
+            accept(c)
+            offset++
+        }
+        return status
+    }
+
+    /** Marks the end of the stream, which completes a number at the root; returns the status. */
+    fun finish(): Int {
+        if (status == NEED_MORE && scalar == SCALAR_NUMBER && stack.isEmpty()) endNumber()
+        return status
+    }
+
+    /** The validated value without insignificant whitespace, once [feed] returned [COMPLETE]. */
+    fun compactJson(): String = compact.toString()
+
+    private fun accept(c: Char) {
+        when (scalar) {
+            SCALAR_STRING -> return acceptStringChar(c)
+            SCALAR_LITERAL -> return acceptLiteralChar(c)
+            SCALAR_NUMBER -> {
+                if (c in NUMBER_CHARS) return acceptNumberChar(c)
+                if (!endNumber()) return
+                if (status != NEED_MORE) return
+            }
+        }
+        if (!rootStarted && (c == '`' || inFence)) {
+            // Skips ``` and an optional language tag up to the end of the line.
+            inFence = c != '\n'
+            return
+        }
+        if (c.isWhitespace()) return
+
+        if (!rootStarted) {
+            rootStarted = true
+            beginValue(c, schema)
+            return
+        }
+
+        val frame = stack.lastOrNull() ?: return
+        if (frame.isObject) acceptInObject(frame, c) else acceptInArray(frame, c)
+    }
+
+    private fun acceptInObject(frame: Frame, c: Char) {
+        when (frame.state) {
+            STATE_FIRST, STATE_KEY -> when {
+                c == '"' -> beginString(JsonSchema.ANY_SCHEMA, isKey = true)
+                c == '}' && frame.state == STATE_FIRST -> closeContainer(frame, c)
+                else -> fail("expected a property name")
+            }
+            STATE_COLON -> if (c == ':') {
+                compact.append(c)
+                frame.state = STATE_VALUE
+            } else {
+                fail("expected ':'")
+            }
+            STATE_VALUE -> beginValue(c, frame.schema.propertySchema(frame.key!!)!!)
+            STATE_COMMA_OR_END -> when (c) {
+                ',' -> {
+                    compact.append(c)
+                    frame.state = STATE_KEY
+                }
+                '}' -> closeContainer(frame, c)
+                else -> fail("expected ',' or '}'")
+            }
+        }
+    }
+
+    private fun acceptInArray(frame: Frame, c: Char) {
+        when (frame.state) {
+            STATE_FIRST -> if (c == ']') {
+                closeContainer(frame, c)
+            } else {
+                beginValue(c, frame.schema.itemSchema)
+            }
+            STATE_VALUE -> beginValue(c, frame.schema.itemSchema)
+            STATE_COMMA_OR_END -> when (c) {
+                ',' -> {
+                    compact.append(c)
+                    frame.state = STATE_VALUE
+                }
+                ']' -> closeContainer(frame, c)
+                else -> fail("expected ',' or ']'")
+            }
+        }
+    }
+
+    private fun beginValue(c: Char, valueSchema: JsonSchema) {
+        when {
+            c == '{' -> if (expect(valueSchema, JsonSchema.OBJECT, "an object")) {
+                compact.append(c)
+                stack.add(Frame(valueSchema, isObject = true))
+            }
+            c == '[' -> if (expect(valueSchema, JsonSchema.ARRAY, "an array")) {
+                compact.append(c)
+                stack.add(Frame(valueSchema, isObject = false))
+            }
+            c == '"' -> if (expect(valueSchema, JsonSchema.STRING, "a string")) {
+                beginString(valueSchema, isKey = false)
+            }
+            c == '-' || c in '0'..'9' -> if (expect(valueSchema, JsonSchema.NUMBER, "a number")) {
+                scalar = SCALAR_NUMBER
+                scalarSchema = valueSchema
+                scalarText.setLength(0)
+                acceptNumberChar(c)
+            }
+            c == 't' || c == 'f' -> if (expect(valueSchema, JsonSchema.BOOLEAN, "a boolean")) {
+                beginLiteral(c, if (c == 't') "true" else "false")
+            }
+            c == 'n' -> if (expect(valueSchema, JsonSchema.NULL, "null")) beginLiteral(c, "null")
+            else -> fail("expected a value")
+        }
+    }
+
+    private fun expect(valueSchema: JsonSchema, type: Int, description: String): Boolean {
+        // A number is only known not to be an integer once it has a fraction or exponent.
+        val allowed = valueSchema.allows(type) ||
+            (type == JsonSchema.NUMBER && valueSchema.allows(JsonSchema.INTEGER))
+        if (!allowed) fail("$description is not allowed here")
+        return allowed
+    }
+
+    private fun beginString(valueSchema: JsonSchema, isKey: Boolean) {
+        scalar = SCALAR_STRING
+        scalarSchema = valueSchema
+        scalarIsKey = isKey
+        scalarText.setLength(0)
+        escape = ESCAPE_NONE
+        compact.append('"')
+    }
+
+    private fun acceptStringChar(c: Char) {
+        compact.append(c)
+        when (escape) {
+            ESCAPE_PENDING -> {
+                escape = ESCAPE_NONE
+                when (c) {
+                    '"', '\\', '/' -> appendStringChar(c)
+                    'b' -> appendStringChar('\b')
+                    'f' -> appendStringChar('\u000C')
+                    'n' -> appendStringChar('\n')
+                    'r' -> appendStringChar('\r')
+                    't' -> appendStringChar('\t')
+                    'u' -> {
+                        escape = ESCAPE_UNICODE
+                        unicodeDigits = 0
+                        unicodeValue = 0
+                    }
+                    else -> fail("invalid escape '\\$c'")
+                }
+            }
+            ESCAPE_UNICODE -> {
+                val digit = Character.digit(c, 16)
+                if (digit < 0) return fail("invalid unicode escape")
+                unicodeValue = unicodeValue * 16 + digit
+                if (++unicodeDigits == 4) {
+                    escape = ESCAPE_NONE
+                    appendStringChar(unicodeValue.toChar())
+                }
+            }
+            else -> when {
+                c == '\\' -> escape = ESCAPE_PENDING
+                c == '"' -> endString()
+                c < ' ' -> fail("unescaped control character in string")
+                else -> appendStringChar(c)
+            }
+        }
+    }
+
+    private fun appendStringChar(c: Char) {
+        scalarText.append(c)
+        val candidates = stringCandidates() ?: return
+        if (candidates.none { it.startsWith(scalarText) }) {
+            fail(if (scalarIsKey) "no property starts with \"$scalarText\"" else "not in enum")
+        }
+    }
+
+    private fun endString() {
+        scalar = SCALAR_NONE
+        val text = scalarText.toString()
+        val candidates = stringCandidates()
+        if (candidates != null && text !in candidates) {
+            return fail(if (scalarIsKey) "unknown property \"$text\"" else "not in enum")
+        }
+        if (!scalarIsKey) return endValue()
+
+        val frame = stack.last()
+        if (frame.schema.propertySchema(text) == null) return fail("unknown property \"$text\"")
+        frame.key = text
+        frame.seenKeys.add(text)
+        frame.state = STATE_COLON
+    }
+
+    /** The allowed values of the string being read, or null if any string is allowed. */
+    private fun stringCandidates(): Collection<String>? {
+        if (!scalarIsKey) return scalarSchema.enumValues
+        val objectSchema = stack.last().schema
+        return if (objectSchema.additionalProperties) null else objectSchema.properties.keys
+    }
+
+    private fun acceptNumberChar(c: Char) {
+        if ((c == '.' || c == 'e' || c == 'E') && !scalarSchema.allows(JsonSchema.NUMBER)) {
+            return fail("expected an integer")
+        }
+        scalarText.append(c)
+        compact.append(c)
+    }
+
+    /** Validates the number just read; returns false if it is malformed. */
+    private fun endNumber(): Boolean {
+        scalar = SCALAR_NONE
+        if (!NUMBER_PATTERN.matches(scalarText)) {
+            fail("malformed number")
+            return false
+        }
+        endValue()
+        return true
+    }
+
+    private fun beginLiteral(c: Char, word: String) {
+        scalar = SCALAR_LITERAL
+        literal = word
+        scalarText.setLength(0)
+        acceptLiteralChar(c)
+    }
+
+    private fun acceptLiteralChar(c: Char) {
+        if (c != literal[scalarText.length]) return fail("expected $literal")
+        scalarText.append(c)
+        compact.append(c)
+        if (scalarText.length == literal.length) {
+            scalar = SCALAR_NONE
+            endValue()
+        }
+    }
+
+    private fun closeContainer(frame: Frame, c: Char) {
+        if (frame.isObject) {
+            val missing = frame.schema.required.firstOrNull { it !in frame.seenKeys }
+            if (missing != null) return fail("missing required property \"$missing\"")
+        }
+        compact.append(c)
+        stack.removeAt(stack.size - 1)
+        endValue()
+    }
+
+    private fun endValue() {
+        val parent = stack.lastOrNull()
+        if (parent == null) {
+            status = COMPLETE
+        } else {
+            parent.state = STATE_COMMA_OR_END
+        }
+    }
+
+    private fun fail(message: String) {
+        status = INVALID
+        error = "Invalid JSON at offset $offset: $message."
+    }
+
+    companion object {
+        const val NEED_MORE = 0
+        const val COMPLETE = 1
+        const val INVALID = 2
+
+        private const val STATE_FIRST = 0
+        private const val STATE_KEY = 1
+        private const val STATE_COLON = 2
+        private const val STATE_VALUE = 3
+        private const val STATE_COMMA_OR_END = 4
+
+        private const val SCALAR_NONE = 0
+        private const val SCALAR_STRING = 1
+        private const val SCALAR_NUMBER = 2
+        private const val SCALAR_LITERAL = 3
+
+        private const val ESCAPE_NONE = 0
+        private const val ESCAPE_PENDING = 1
+        private const val ESCAPE_UNICODE = 2
+
+        private const val NUMBER_CHARS = "0123456789+-.eE"
+        private val NUMBER_PATTERN = Regex("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?")
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import android.content.Context
+import android.os.BatteryManager
+import android.os.PowerManager
+import android.util.Log
+import java.io.Closeable
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
+import org.json.JSONObject
+
+/** One reading of what limits the device's sustained performance. */
+internal data class PowerState(
+    /** One of the PowerManager.THERMAL_STATUS_ constants. */
+    val thermalStatus: Int,
+    /** The forecast thermal headroom, where 1.0 is severe throttling; NaN if unknown. */
+    val thermalHeadroom: Float,
+    /** The battery charge in percent, or -1 if unknown. */
+    val batteryPercent: Int,
+    val charging: Boolean,
+    val powerSaveMode: Boolean
+)
+
+/** Reads the device's [PowerState]: the system services on device, a fake in tests. */
+internal fun interface PowerSource {
+    fun read(): PowerState
+}
+
+internal class AndroidPowerSource(context: Context) : PowerSource {
+    private val power = context.getSystemService(PowerManager::class.java)
+    private val battery = context.getSystemService(BatteryManager::class.java)
+
+    override fun read() = PowerState(
+        power?.currentThermalStatus ?: PowerManager.THERMAL_STATUS_NONE,
+        power?.getThermalHeadroom(HEADROOM_FORECAST_SECONDS) ?: Float.NaN,
+        battery?.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY) ?: -1,
+        battery?.isCharging ?: true,
+        power?.isPowerSaveMode ?: false
+    )
+
+    private companion object {
+        const val HEADROOM_FORECAST_SECONDS = 10
+    }
+}
+
+/**
+ * Watches the thermal status, thermal headroom and battery and maps them to a throttling tier,
+ * from [TIER_NOMINAL] to [TIER_CRITICAL], each with the [Limits] OCR and LLM work should keep to.
+ *
+ * A headset throttles its CPU and GPU hard once it heats up, and latency then degrades
+ * unpredictably; lowering the load ahead of that keeps it steady. The tier rises as soon as a
+ * reading calls for it, but only falls once readings have stayed lower for [coolDownMs], so the
+ * limits do not flap around a threshold.
+ */
+class ThrottlingGovernor internal constructor(
+    private val source: PowerSource,
+    workDispatcher: CoroutineDispatcher,
+    private val nanoTime: () -> Long = System::nanoTime
+) : Closeable {
+    /** Reads the system services of [context]. */
+    constructor(context: Context) : this(AndroidPowerSource(context), Dispatchers.Default)
+
+    /** Reads the system services of the running Unity player's application. */
+    constructor() : this(
+        LlmBridge.applicationContext
+            ?: throw IllegalStateException("Application context is null. Cannot read power state.")
+    )
+
+    /**
+     * What work may do at one tier.
+     *
+     * @property ocrMaxScale The largest scale OCR recognizes images at.
+     * @property ocrFrameIntervalMs The least time between recognized camera frames.
+     * @property llmMaxOutputTokens Caps the output tokens of LLM requests.
+     * @property llmConcurrency The most LLM generations at once; zero is unlimited.
+     * @property backgroundWork Whether background LLM requests may run.
+     */
+    data class Limits(
+        val ocrMaxScale: Float,
+        val ocrFrameIntervalMs: Long,
+        val llmMaxOutputTokens: Int,
+        val llmConcurrency: Int,
+        val backgroundWork: Boolean
+    ) {
+        fun toJson(): JSONObject = JSONObject()
+            .put("ocrMaxScale", ocrMaxScale.toDouble())
+            .put("ocrFrameIntervalMs", ocrFrameIntervalMs)
+            .put("llmMaxOutputTokens", llmMaxOutputTokens)
+            .put("llmConcurrency", llmConcurrency)
+            .put("backgroundWork", backgroundWork)
+    }
+
+    /** Receives the tier and its limits whenever the tier changes. */
+    fun interface Listener {
+        fun onTierChanged(tier: Int, limits: Limits)
+    }
+
+    private val scope = CoroutineScope(workDispatcher)
+    private val lock = Any()
+    private var currentTier = TIER_NOMINAL
+    private var lastState: PowerState? = null
+    // When readings first called for a lower tier than the current one, or null.
+    private var lowerSinceNanos: Long? = null
+    private var listener: Listener? = null
+    private var polling: Job? = null
+
+    /** How often [start] reads the device. */
+    @Volatile var pollMs = DEFAULT_POLL_MS
+
+    /** How long readings must call for a lower tier before the tier falls. */
+    @Volatile var coolDownMs = DEFAULT_COOL_DOWN_MS
+
+    /** The current tier, one of the TIER_ constants. */
+    val tier: Int
+        get() = synchronized(lock) { currentTier }
+
+    /** The limits of the current tier. */
+    val limits: Limits
+        get() = limitsFor(tier)
+
+    /**
+     * Reads the device every [pollMs] until [close], reporting the current tier to [listener]
+     * straight away and every change after that. A running poll is replaced.
+     */
+    fun start(listener: Listener) {
+        synchronized(lock) {
+            this.listener = listener
+            polling?.cancel()
+            polling = scope.launch {
+                val initial = tier
+                listener.onTierChanged(initial, limitsFor(initial))
+                while (isActive) {
+                    poll()
+                    delay(pollMs)
+                }
+            }
+        }
+    }
+
+    /** Reads the device once and returns the tier, reporting a change to the listener. */
+    fun poll(): Int {
+        val state = try {
+            source.read()
+        } catch (e: RuntimeException) {
+            Log.w("ThrottlingGovernor", "Could not read the power state.", e)
+            return tier
+        }
+        val reading = tierFor(state)
+        val now = nanoTime()
+        val previous: Int
+        val newTier: Int
+        val changed: Listener?
+        synchronized(lock) {
+            lastState = state
+            previous = currentTier
+            if (reading >= currentTier) {
+                currentTier = reading
+                lowerSinceNanos = null
+            } else {
+                val since = lowerSinceNanos ?: now.also { lowerSinceNanos = it }
+                if (now - since >= coolDownMs * NANOS_PER_MILLI) {
+                    currentTier = reading
+                    lowerSinceNanos = null
+                }
+            }
+            newTier = currentTier
+            changed = if (newTier != previous) listener else null
+        }
+        if (newTier != previous) {
+            Log.d("ThrottlingGovernor", "Tier $previous -> $newTier: $state")
+        }
+        changed?.onTierChanged(newTier, limitsFor(newTier))
+        return newTier
+    }
+
+    /** Returns the tier, its limits and the last reading as a JSON object. */
+    fun getStats(): String {
+        val (current, state) = synchronized(lock) { currentTier to lastState }
+        val json = JSONObject()
+            .put("tier", current)
+            .put("limits", limitsFor(current).toJson())
+        if (state != null) {
+            json.put("thermalStatus", state.thermalStatus)
+            if (!state.thermalHeadroom.isNaN()) {
+                json.put("thermalHeadroom", state.thermalHeadroom.toDouble())
+            }
+            json.put("batteryPercent", state.batteryPercent)
+            json.put("charging", state.charging)
+            json.put("powerSaveMode", state.powerSaveMode)
+        }
+        return json.toString()
+    }
+
+    /** Stops polling. */
+    override fun close() {
+        scope.cancel()
+    }
+
+    companion object {
+        /** Cool and charged enough: no limits. */
+        const val TIER_NOMINAL = 0
+
+        /** Warm, or saving power: background work stops and the load eases off. */
+        const val TIER_FAIR = 1
+
+        /** Throttling, or nearly out of battery: one generation at a time and smaller images. */
+        const val TIER_SERIOUS = 2
+
+        /** About to shut down for heat: the least work that still answers the user. */
+        const val TIER_CRITICAL = 3
+
+        private const val DEFAULT_POLL_MS = 5000L
+        private const val DEFAULT_COOL_DOWN_MS = 30_000L
+        private const val NANOS_PER_MILLI = 1_000_000L
+        // Forecast headroom at which the platform expects light and severe throttling.
+        private const val FAIR_HEADROOM = 0.85f
+        private const val SERIOUS_HEADROOM = 1.0f
+        private const val FAIR_BATTERY_PERCENT = 15
+        private const val SERIOUS_BATTERY_PERCENT = 5
+
+        private val LIMITS = arrayOf(
+            Limits(1f, 0L, Int.MAX_VALUE, 0, true),
+            Limits(0.75f, 250L, 256, 2, false),
+            Limits(0.5f, 1000L, 128, 1, false),
+            Limits(0.35f, 3000L, 64, 1, false)
+        )
+
+        /** Returns the limits of [tier]. */
+        @JvmStatic
+        fun limitsFor(tier: Int): Limits = LIMITS[tier.coerceIn(TIER_NOMINAL, TIER_CRITICAL)]
+
+        internal fun tierFor(state: PowerState): Int {
+            val thermal = when {
+                state.thermalStatus >= PowerManager.THERMAL_STATUS_CRITICAL -> TIER_CRITICAL
+                state.thermalStatus >= PowerManager.THERMAL_STATUS_SEVERE -> TIER_SERIOUS
+                state.thermalStatus >= PowerManager.THERMAL_STATUS_MODERATE -> TIER_FAIR
+                else -> TIER_NOMINAL
+            }
+            // NaN compares false, so an unknown headroom never raises the tier.
+            val headroom = when {
+                state.thermalHeadroom >= SERIOUS_HEADROOM -> TIER_SERIOUS
+                state.thermalHeadroom >= FAIR_HEADROOM -> TIER_FAIR
+                else -> TIER_NOMINAL
+            }
+            val battery = when {
+                state.charging || state.batteryPercent < 0 -> TIER_NOMINAL
+                state.batteryPercent <= SERIOUS_BATTERY_PERCENT -> TIER_SERIOUS
+                state.batteryPercent <= FAIR_BATTERY_PERCENT -> TIER_FAIR
+                else -> TIER_NOMINAL
+            }
+            val powerSave = if (state.powerSaveMode) TIER_FAIR else TIER_NOMINAL
+            return maxOf(thermal, headroom, battery, powerSave)
+        }
+    }
+}
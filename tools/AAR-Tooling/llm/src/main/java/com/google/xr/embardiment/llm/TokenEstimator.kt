@@ -0,0 +1,44 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+/**
+ * Estimates how many tokens a SentencePiece tokenizer such as Gemini Nano's produces for a text,
+ * without the tokenizer itself, which AICore does not expose. The estimate errs high so that a
+ * prompt built against it does not overflow the context window: latin words cost one token per
+ * [LETTERS_PER_TOKEN] letters, rounded up per word, which is about what the tokenizer spends on
+ * uncommon words and more than it spends on common ones; digits, punctuation and other scripts
+ * cost one token per character.
+ */
+internal object TokenEstimator {
+    private const val LETTERS_PER_TOKEN = 4
+
+    fun estimate(text: CharSequence): Int {
+        var tokens = 0
+        var letterRun = 0
+        for (c in text) {
+            if (c < '\u0080' && c.isLetter()) {
+                letterRun++
+                continue
+            }
+            tokens += (letterRun + LETTERS_PER_TOKEN - 1) / LETTERS_PER_TOKEN
+            letterRun = 0
+            if (!c.isWhitespace()) tokens++
+        }
+        return tokens + (letterRun + LETTERS_PER_TOKEN - 1) / LETTERS_PER_TOKEN
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import android.os.SystemClock
+import java.io.Closeable
+import java.util.Locale
+
+/**
+ * Starts generating on partial ASR transcripts, before the final transcript arrives.
+ *
+ * The caller reports every partial with [onPartial] and calls [speculate] once the latest one is
+ * stable, e.g. unchanged for a while or at the end of speech. A partial whose word edit distance
+ * from the speculated transcript exceeds [divergenceThreshold] cancels the speculation; a stable
+ * partial within the threshold keeps it running instead of starting over. When the final
+ * transcript has the speculated words, the speculation is committed, possibly before the final
+ * transcript even arrived; otherwise it is dropped and the final transcript is generated from
+ * scratch. Every final transcript is answered with one [Listener] call.
+ */
+class TranscriptSpeculator internal constructor(
+    private val bridge: LlmBridge,
+    private val listener: Listener,
+    private val clock: () -> Long
+) : Closeable {
+    /** Generates with [bridge], which the speculator keeps a reference to until [close]. */
+    constructor(bridge: LlmBridge, listener: Listener) :
+        this(bridge.retain(), listener, SystemClock::elapsedRealtimeNanos)
+
+    interface Listener {
+        /**
+         * [transcript] was answered with [text]. [savedNanos] is how much sooner that happened
+         * than generating from the final transcript would have, zero unless [speculative].
+         */
+        fun onResult(transcript: String, text: String, speculative: Boolean, savedNanos: Long)
+
+        fun onError(errorMessage: String)
+    }
+
+    class Stats(
+        val speculations: Long,
+        val cancelled: Long,
+        val hits: Long,
+        val misses: Long,
+        val totalSavedNanos: Long,
+        val maxSavedNanos: Long,
+        val lastSavedNanos: Long
+    )
+
+    /** One generation, started either from a partial transcript or from the final one. */
+    private inner class Attempt(
+        val transcript: String,
+        val words: List<String>,
+        val speculative: Boolean
+    ) : LlmBridge.LlmCallback {
+        val startNanos = clock()
+        var request: LlmBridge.LlmRequest? = null
+        var done = false
+        var doneNanos = 0L
+        var result: String? = null
+        var error: String? = null
+        // Set once the final transcript has confirmed this attempt.
+        var committed = false
+        var finalNanos = 0L
+
+        override fun onSuccess(result: String) = onAttemptDone(this, result, null)
+
+        override fun onFailure(errorMessage: String) = onAttemptDone(this, null, errorMessage)
+    }
+
+    private val lock = Any()
+
+    /** The fewest words a partial needs to be speculated on. */
+    @Volatile var minWords = 3
+
+    /** How far, as word edits per word of the longer transcript, a partial may drift. */
+    @Volatile var divergenceThreshold = 0.25f
+
+    /** The [LlmBridge] session to ask in, or -1 to generate a prompt of its own. */
+    @Volatile var sessionId = -1
+
+    /** Prepended to the transcript when there is no session. */
+    @Volatile var promptPrefix = ""
+
+    /** Appended to the transcript when there is no session. */
+    @Volatile var promptSuffix = ""
+
+    // Guarded by lock.
+    private var current: Attempt? = null
+    private var latestPartial: String? = null
+    private var closed = false
+    private var speculations = 0L
+    private var cancelled = 0L
+    private var hits = 0L
+    private var misses = 0L
+    private var totalSavedNanos = 0L
+    private var maxSavedNanos = 0L
+    private var lastSavedNanos = 0L
+
+    /** Records the latest partial and cancels a speculation it has drifted too far from. */
+    fun onPartial(text: String) {
+        synchronized(lock) {
+            latestPartial = text
+            val attempt = current
+            if (attempt != null && divergence(attempt.words, words(text)) > divergenceThreshold) {
+                cancelCurrent()
+            }
+        }
+    }
+
+    /** Speculates on the latest partial, unless the running speculation is close enough to it. */
+    fun speculate() {
+        synchronized(lock) {
+            val partial = latestPartial ?: return
+            val partialWords = words(partial)
+            if (partialWords.size < minWords) return
+            val attempt = current
+            if (attempt != null && divergence(attempt.words, partialWords) <= divergenceThreshold) {
+                return
+            }
+            cancelCurrent()
+            if (start(partial, partialWords, true) != null) {
+                speculations++
+            }
+        }
+    }
+
+    /**
+     * Answers the final transcript [text], recognized at [elapsedRealtimeNanos], with the
+     * speculation if it has the same words and with a new generation otherwise.
+     */
+    fun onFinal(text: String, elapsedRealtimeNanos: Long) {
+        val deliverable = synchronized(lock) {
+            latestPartial = null
+            val finalWords = words(text)
+            if (finalWords.isEmpty()) {
+                cancelCurrent()
+                return
+            }
+            var attempt = current
+            if (attempt != null && attempt.words == finalWords) {
+                hits++
+            } else {
+                if (attempt != null) {
+                    misses++
+                    cancelCurrent()
+                }
+                attempt = start(text, finalWords, false) ?: return
+            }
+            attempt.committed = true
+            attempt.finalNanos = elapsedRealtimeNanos
+            // A committed attempt is delivered even if the next turn starts speculating first.
+            current = null
+            attempt.takeIf { it.done }
+        }
+        deliverable?.let { deliver(it) }
+    }
+
+    /** Drops the partial and any speculation, e.g. when a new utterance begins. */
+    fun endTurn() {
+        synchronized(lock) {
+            latestPartial = null
+            cancelCurrent()
+        }
+    }
+
+    fun stats(): Stats = synchronized(lock) {
+        Stats(
+            speculations,
+            cancelled,
+            hits,
+            misses,
+            totalSavedNanos,
+            maxSavedNanos,
+            lastSavedNanos
+        )
+    }
+
+    fun resetStats() {
+        synchronized(lock) {
+            speculations = 0
+            cancelled = 0
+            hits = 0
+            misses = 0
+            totalSavedNanos = 0
+            maxSavedNanos = 0
+            lastSavedNanos = 0
+        }
+    }
+
+    override fun close() {
+        synchronized(lock) {
+            if (closed) return
+            closed = true
+            latestPartial = null
+            cancelCurrent()
+        }
+        bridge.close()
+    }
+
+    /** Starts generating [transcript] and makes it the current attempt; needs the lock. */
+    private fun start(
+        transcript: String,
+        transcriptWords: List<String>,
+        speculative: Boolean
+    ): Attempt? {
+        if (closed) return null
+        val attempt = Attempt(transcript, transcriptWords, speculative)
+        current = attempt
+        val session = sessionId
+        attempt.request = if (session >= 0) {
+            bridge.startAsk(session, transcript, attempt)
+        } else {
+            bridge.startGeneration(promptPrefix + transcript + promptSuffix, attempt)
+        }
+        return attempt
+    }
+
+    /** Cancels the current, not yet committed attempt; needs the lock. */
+    private fun cancelCurrent() {
+        val attempt = current ?: return
+        current = null
+        if (attempt.speculative) cancelled++
+        attempt.request?.cancel()
+    }
+
+    private fun onAttemptDone(attempt: Attempt, text: String?, errorMessage: String?) {
+        synchronized(lock) {
+            // Superseded or cancelled after the bridge had already produced a result.
+            if (attempt !== current && !attempt.committed) return
+            attempt.done = true
+            attempt.doneNanos = clock()
+            attempt.result = text
+            attempt.error = errorMessage
+            if (!attempt.committed) return
+        }
+        deliver(attempt)
+    }
+
+    private fun deliver(attempt: Attempt) {
+        var savedNanos = 0L
+        if (attempt.speculative) {
+            synchronized(lock) {
+                // Without speculation the response would have arrived one generation after the
+                // final transcript; it is delivered now instead.
+                val generationNanos = attempt.doneNanos - attempt.startNanos
+                savedNanos = maxOf(0L, attempt.finalNanos + generationNanos - clock())
+                totalSavedNanos += savedNanos
+                maxSavedNanos = maxOf(maxSavedNanos, savedNanos)
+                lastSavedNanos = savedNanos
+            }
+        }
+        val error = attempt.error
+        if (error != null) {
+            listener.onError(error)
+        } else {
+            val text = attempt.result ?: ""
+            listener.onResult(attempt.transcript, text, attempt.speculative, savedNanos)
+        }
+    }
+
+    internal companion object {
+        private val WORD_SEPARATOR = Regex("[^\\p{L}\\p{N}']+")
+
+        fun words(text: String): List<String> =
+            text.lowercase(Locale.ROOT).split(WORD_SEPARATOR).filter { it.isNotEmpty() }
+
+        /** Word-level edit distance between [a] and [b], divided by the longer length. */
+        fun divergence(a: List<String>, b: List<String>): Float {
+            val longest = maxOf(a.size, b.size)
+            if (longest == 0) return 0f
+            var previous = IntArray(b.size + 1) { it }
+            var row = IntArray(b.size + 1)
+            for (i in 1..a.size) {
+                row[0] = i
+                for (j in 1..b.size) {
+                    val substitution = previous[j - 1] + if (a[i - 1] == b[j - 1]) 0 else 1
+                    row[j] = minOf(substitution, minOf(previous[j], row[j - 1]) + 1)
+                }
+                val swap = previous
+                previous = row
+                row = swap
+            }
+            return previous[b.size] / longest.toFloat()
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.setMain
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Test
+
+/** Tests [DocumentSummarizer] against a fake model on the host JVM. */
+@OptIn(ExperimentalCoroutinesApi::class)
+class DocumentSummarizerTest {
+    private class SummaryModel : LlmModel {
+        val calls = AtomicInteger()
+
+        override suspend fun generate(prompt: String): String {
+            calls.incrementAndGet()
+            return "  Summary of ${prompt.substringAfterLast("\n").take(12)}  "
+        }
+
+        override fun close() {}
+    }
+
+    private val model = SummaryModel()
+    private lateinit var workExecutor: ExecutorService
+    private lateinit var bridge: LlmBridge
+    private lateinit var summarizer: DocumentSummarizer
+
+    private val menu = "Lunch menu. Tomato soup with basil, grilled cheese sandwich, soup of the " +
+        "day: ask your server. Desserts: apple pie, chocolate mousse, seasonal fruit. " +
+        "Drinks: still and sparkling water, coffee, tea, fresh orange juice."
+    private val timetable = "Platform 4. Train to Zurich departs 10:42, train to Basel departs " +
+        "11:05, train to Geneva departs 11:30. Delays are announced on this board and by the " +
+        "station staff; please keep your ticket ready for inspection."
+
+    @Before
+    fun setUp() {
+        Dispatchers.setMain(Dispatchers.Unconfined)
+        workExecutor = Executors.newFixedThreadPool(2)
+        val dispatcher = workExecutor.asCoroutineDispatcher()
+        bridge = LlmBridge(dispatcher) { _, _, _ -> model }
+        bridge.updateSettings(64, 0.5f, 16)
+        summarizer = DocumentSummarizer(bridge.retain(), dispatcher)
+        summarizer.idleMs = 0
+        summarizer.maxSummaryTokens = 24
+    }
+
+    @After
+    fun tearDown() {
+        summarizer.close()
+        bridge.close()
+        workExecutor.shutdownNow()
+        Dispatchers.resetMain()
+    }
+
+    @Test
+    fun submit_summarizesAndCachesByText() {
+        summarizer.submit(0, menu)
+        awaitTrue { summarizer.getSummary(0) != null }
+
+        assertEquals("Summary of Lunch menu.", summarizer.getSummary(0))
+        // The same text under another document is served from the cache.
+        summarizer.submit(7, menu)
+        assertEquals("Summary of Lunch menu.", summarizer.getSummary(7))
+        assertEquals(1, model.calls.get())
+    }
+
+    @Test
+    fun submit_shortText_isItsOwnSummary() {
+        summarizer.submit(0, "Platform 4")
+
+        assertEquals("Platform 4", summarizer.getSummary(0))
+        assertEquals(0, model.calls.get())
+    }
+
+    @Test
+    fun submit_newTextForDocument_replacesItsSummary() {
+        summarizer.submit(0, menu)
+        awaitTrue { summarizer.getSummary(0) != null }
+
+        // Held, so the new summary cannot land before the old one is seen to be dropped.
+        bridge.setThrottle(Int.MAX_VALUE, 0, false)
+        summarizer.submit(0, timetable)
+        assertNull(summarizer.getSummary(0))
+        bridge.setThrottle(Int.MAX_VALUE, 0, true)
+        awaitTrue { summarizer.getSummary(0) != null }
+
+        assertEquals("Summary of Platform 4.", summarizer.getSummary(0))
+    }
+
+    @Test
+    fun summarizing_waitsWhileBackgroundWorkIsHeld() {
+        bridge.setThrottle(Int.MAX_VALUE, 0, false)
+        summarizer.submit(0, menu)
+        Thread.sleep(100)
+
+        assertEquals(0, model.calls.get())
+        assertEquals(1, summarizer.pendingCount)
+
+        bridge.setThrottle(Int.MAX_VALUE, 0, true)
+        awaitTrue { summarizer.getSummary(0) != null }
+        assertEquals(0, summarizer.pendingCount)
+    }
+
+    @Test
+    fun summarizing_waitsUntilTheUserHasBeenIdle() {
+        summarizer.idleMs = 300
+        summarizer.setUserActive()
+
+        summarizer.submit(0, menu)
+        Thread.sleep(100)
+        assertNull(summarizer.getSummary(0))
+        // Activity while waiting pushes the summary back again.
+        summarizer.setUserActive()
+        Thread.sleep(250)
+        assertNull(summarizer.getSummary(0))
+
+        awaitTrue { summarizer.getSummary(0) != null }
+        assertEquals(1, model.calls.get())
+    }
+
+    @Test
+    fun summarizing_waitsUntilInteractiveRequestsHaveBeenIdle() {
+        summarizer.idleMs = 300
+        val done = CountDownLatch(1)
+        bridge.generateResponse("question", object : LlmBridge.LlmCallback {
+            override fun onSuccess(result: String) = done.countDown()
+
+            override fun onFailure(errorMessage: String) = done.countDown()
+        })
+        assertTrue(done.await(5, TimeUnit.SECONDS))
+
+        summarizer.submit(0, menu)
+        Thread.sleep(100)
+        assertNull(summarizer.getSummary(0))
+
+        awaitTrue { summarizer.getSummary(0) != null }
+        assertEquals(2, model.calls.get())
+    }
+
+    private fun awaitTrue(condition: () -> Boolean) {
+        val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10)
+        while (!condition()) {
+            if (System.nanoTime() > deadline) fail("Condition not met within 10s.")
+            Thread.sleep(5)
+        }
+    }
+}
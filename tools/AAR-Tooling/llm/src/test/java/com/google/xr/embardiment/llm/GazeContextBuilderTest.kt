@@ -0,0 +1,98 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class GazeContextBuilderTest {
+    @Test
+    fun estimate_countsWordsDigitsAndPunctuation() {
+        assertEquals(0, TokenEstimator.estimate(""))
+        assertEquals(2, TokenEstimator.estimate("the cat"))
+        assertEquals(3, TokenEstimator.estimate("information"))
+        assertEquals(6, TokenEstimator.estimate("2025, ok"))
+    }
+
+    @Test
+    fun build_keepsHeaviestItemsInDocumentOrder() {
+        val builder = GazeContextBuilder(contextWindowTokens = 7)
+        builder.setSource(0, arrayOf("alpha", "bravo", "charlie", "delta"))
+
+        val prompt = builder.build(
+            "",
+            "",
+            intArrayOf(0, 0, 0, 0),
+            intArrayOf(0, 1, 2, 3),
+            floatArrayOf(0.1f, 0.9f, 0.2f, 0.8f),
+            count = 4,
+            maxOutputTokens = 3
+        )
+
+        assertEquals("bravo\ndelta\n", prompt)
+    }
+
+    @Test
+    fun build_reservesOutputAndPromptTokens() {
+        val builder = GazeContextBuilder(contextWindowTokens = 11)
+        builder.setSource(0, arrayOf("one", "two", "three"))
+
+        val prompt = builder.build(
+            "Q: why\n",
+            "A:",
+            intArrayOf(0, 0, 0),
+            intArrayOf(0, 1, 2),
+            floatArrayOf(1f, 1f, 1f),
+            count = 3,
+            maxOutputTokens = 5
+        )
+
+        // The header and footer take five tokens, leaving one for the first item.
+        assertEquals("Q: why\none\nA:", prompt)
+    }
+
+    @Test
+    fun build_mergesRepeatedItemsAndSkipsUnknownOnes() {
+        val builder = GazeContextBuilder(contextWindowTokens = 2)
+        builder.setSource(1, arrayOf("first", "second"))
+
+        val prompt = builder.build(
+            "",
+            "",
+            intArrayOf(1, 1, 1, 1, 7),
+            intArrayOf(0, 1, 0, 5, 0),
+            floatArrayOf(0.5f, 0.8f, 0.5f, 9f, 9f),
+            count = 5,
+            maxOutputTokens = 0
+        )
+
+        // Merged, "first" outweighs "second", which then no longer fits.
+        assertEquals("first\n", prompt)
+    }
+
+    @Test
+    fun build_skipsItemsThatDoNotFitForSmallerOnes() {
+        val builder = GazeContextBuilder(contextWindowTokens = 2)
+        builder.setSource(0, arrayOf("a long line of text", "short"))
+
+        val prompt = builder.build(
+            "", "", intArrayOf(0, 0), intArrayOf(0, 1), floatArrayOf(2f, 1f), 2, 0
+        )
+
+        assertEquals("short\n", prompt)
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.setMain
+import org.json.JSONObject
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Test
+
+/** Tests that [LlmBridge] runs identical in-flight requests once and shares the result. */
+@OptIn(ExperimentalCoroutinesApi::class)
+class LlmBridgeCoalescingTest {
+    private class GatedModel(private val gate: CompletableDeferred<Unit>) : LlmModel {
+        val calls = AtomicInteger()
+
+        override suspend fun generate(prompt: String): String {
+            calls.incrementAndGet()
+            gate.await()
+            return "echo: $prompt"
+        }
+
+        override fun close() {}
+    }
+
+    private class RecordingCallback(private val done: CountDownLatch) : LlmBridge.LlmCallback {
+        @Volatile var result: String? = null
+
+        override fun onSuccess(result: String) {
+            this.result = result
+            done.countDown()
+        }
+
+        override fun onFailure(errorMessage: String) {
+            done.countDown()
+        }
+    }
+
+    private val gate = CompletableDeferred<Unit>()
+    private val model = GatedModel(gate)
+    private lateinit var workExecutor: ExecutorService
+    private lateinit var bridge: LlmBridge
+
+    @Before
+    fun setUp() {
+        Dispatchers.setMain(Dispatchers.Unconfined)
+        workExecutor = Executors.newFixedThreadPool(2)
+        bridge = LlmBridge(workExecutor.asCoroutineDispatcher()) { _, _, _ -> model }
+        bridge.updateSettings(64, 0.5f, 16)
+    }
+
+    @After
+    fun tearDown() {
+        bridge.close()
+        workExecutor.shutdownNow()
+        Dispatchers.resetMain()
+    }
+
+    @Test
+    fun identicalRequests_runOnceAndAllReceiveTheResult() {
+        val done = CountDownLatch(3)
+        val callbacks = List(3) { RecordingCallback(done) }
+
+        callbacks.forEach { bridge.startGeneration("hello", it) }
+        gate.complete(Unit)
+
+        assertTrue(done.await(5, TimeUnit.SECONDS))
+        assertEquals(1, model.calls.get())
+        callbacks.forEach { assertEquals("echo: hello", it.result) }
+        assertEquals(2L, bridge.coalescedRequests)
+        assertEquals(2L, JSONObject(bridge.getStats()).getLong("coalescedRequests"))
+    }
+
+    @Test
+    fun differentPromptsOrSettings_runSeparately() {
+        val done = CountDownLatch(3)
+
+        bridge.startGeneration("hello", RecordingCallback(done))
+        bridge.startGeneration("goodbye", RecordingCallback(done))
+        bridge.updateSettings(64, 0.9f, 16)
+        bridge.startGeneration("hello", RecordingCallback(done))
+        gate.complete(Unit)
+
+        assertTrue(done.await(5, TimeUnit.SECONDS))
+        assertEquals(3, model.calls.get())
+        assertEquals(0L, bridge.coalescedRequests)
+    }
+
+    @Test
+    fun cancellingOneCaller_keepsTheSharedGenerationForTheOthers() {
+        val done = CountDownLatch(2)
+        val cancelled = RecordingCallback(done)
+        val kept = RecordingCallback(done)
+
+        val request = bridge.startGeneration("hello", cancelled)
+        bridge.startGeneration("hello", kept)
+        request.cancel()
+        gate.complete(Unit)
+
+        awaitTrue { kept.result != null }
+        assertEquals("echo: hello", kept.result)
+        assertNull(cancelled.result)
+        assertEquals(1, model.calls.get())
+    }
+
+    @Test
+    fun cancellingEveryCaller_cancelsTheGeneration() {
+        val done = CountDownLatch(2)
+
+        val first = bridge.startGeneration("hello", RecordingCallback(done))
+        val second = bridge.startGeneration("hello", RecordingCallback(done))
+        awaitTrue { model.calls.get() == 1 }
+        first.cancel()
+        second.cancel()
+
+        // The flight is gone, so the same prompt starts a fresh generation.
+        val again = RecordingCallback(CountDownLatch(1))
+        bridge.startGeneration("hello", again)
+        gate.complete(Unit)
+        awaitTrue { again.result != null }
+        assertEquals(2, model.calls.get())
+        assertEquals(2L, done.count)
+    }
+
+    @Test
+    fun requestAfterCompletion_runsAgain() {
+        gate.complete(Unit)
+        val first = CountDownLatch(1)
+        bridge.startGeneration("hello", RecordingCallback(first))
+        assertTrue(first.await(5, TimeUnit.SECONDS))
+
+        val second = CountDownLatch(1)
+        bridge.startGeneration("hello", RecordingCallback(second))
+        assertTrue(second.await(5, TimeUnit.SECONDS))
+
+        assertEquals(2, model.calls.get())
+        assertEquals(0L, bridge.coalescedRequests)
+    }
+
+    private fun awaitTrue(condition: () -> Boolean) {
+        val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10)
+        while (!condition()) {
+            if (System.nanoTime() > deadline) fail("Condition not met within 10s.")
+            Thread.sleep(5)
+        }
+    }
+}
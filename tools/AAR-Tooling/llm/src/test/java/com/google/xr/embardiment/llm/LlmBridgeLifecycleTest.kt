@@ -0,0 +1,288 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import java.lang.ref.WeakReference
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.setMain
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Test
+
+/** Lifecycle and leak tests for [LlmBridge], run against a fake model on the host JVM. */
+@OptIn(ExperimentalCoroutinesApi::class)
+class LlmBridgeLifecycleTest {
+    private class FakeModel(
+        private val gate: CompletableDeferred<Unit>?,
+        private val closedCount: AtomicInteger
+    ) : LlmModel {
+        @Volatile var closed = false
+
+        override suspend fun generate(prompt: String): String {
+            gate?.await()
+            return "echo: $prompt"
+        }
+
+        override fun close() {
+            closed = true
+            closedCount.incrementAndGet()
+        }
+    }
+
+    private class FakeModelFactory(private val gate: CompletableDeferred<Unit>? = null) :
+        LlmModelFactory {
+        val created = AtomicInteger()
+        val closed = AtomicInteger()
+        @Volatile var last: FakeModel? = null
+
+        override fun create(temperature: Float, topK: Int, maxOutputTokens: Int): LlmModel {
+            created.incrementAndGet()
+            return FakeModel(gate, closed).also { last = it }
+        }
+    }
+
+    private class RecordingCallback(private val done: CountDownLatch) : LlmBridge.LlmCallback {
+        @Volatile var result: String? = null
+        @Volatile var error: String? = null
+
+        override fun onSuccess(result: String) {
+            this.result = result
+            done.countDown()
+        }
+
+        override fun onFailure(errorMessage: String) {
+            error = errorMessage
+            done.countDown()
+        }
+    }
+
+    private lateinit var workExecutor: ExecutorService
+
+    @Before
+    fun setUp() {
+        Dispatchers.setMain(Dispatchers.Unconfined)
+        workExecutor = Executors.newFixedThreadPool(2)
+    }
+
+    @After
+    fun tearDown() {
+        workExecutor.shutdownNow()
+        Dispatchers.resetMain()
+    }
+
+    @Test
+    fun close_afterRequestCompletes_closesModel() {
+        val factory = FakeModelFactory()
+        val bridge = newBridge(factory)
+        val done = CountDownLatch(1)
+        val callback = RecordingCallback(done)
+
+        bridge.generateResponse("hello", callback)
+        assertTrue(done.await(5, TimeUnit.SECONDS))
+        assertEquals("echo: hello", callback.result)
+        assertEquals(0, factory.closed.get())
+
+        bridge.close()
+
+        // The request's own reference may still be in the middle of being dropped.
+        awaitTrue { bridge.isClosed && factory.closed.get() == 1 }
+    }
+
+    @Test
+    fun close_duringGeneration_defersReleaseUntilCallback() {
+        val gate = CompletableDeferred<Unit>()
+        val factory = FakeModelFactory(gate)
+        val bridge = newBridge(factory)
+        val done = CountDownLatch(1)
+        val callback = RecordingCallback(done)
+
+        bridge.generateResponse("hello", callback)
+        awaitTrue { factory.last != null }
+        bridge.close()
+
+        assertFalse(bridge.isClosed)
+        assertFalse(factory.last!!.closed)
+
+        gate.complete(Unit)
+        assertTrue(done.await(5, TimeUnit.SECONDS))
+        assertEquals("echo: hello", callback.result)
+        awaitTrue { bridge.isClosed && factory.last!!.closed }
+    }
+
+    @Test
+    fun cancel_duringGeneration_skipsCallbackAndReleasesReference() {
+        val gate = CompletableDeferred<Unit>()
+        val factory = FakeModelFactory(gate)
+        val bridge = newBridge(factory)
+        val done = CountDownLatch(1)
+        val callback = RecordingCallback(done)
+
+        val request = bridge.startGeneration("hello", callback)
+        awaitTrue { factory.last != null }
+        request.cancel()
+        bridge.close()
+
+        awaitTrue { bridge.isClosed && factory.last!!.closed }
+        assertEquals(1L, done.count)
+    }
+
+    @Test
+    fun retain_keepsBridgeOpenUntilEveryReferenceIsClosed() {
+        val bridge = newBridge(FakeModelFactory())
+
+        bridge.retain()
+        bridge.close()
+        assertFalse(bridge.isClosed)
+
+        bridge.close()
+        assertTrue(bridge.isClosed)
+
+        // Extra closes are ignored rather than driving the count negative.
+        bridge.close()
+        assertTrue(bridge.isClosed)
+    }
+
+    @Test
+    fun closedBridge_rejectsRetainAndRequests() {
+        val bridge = newBridge(FakeModelFactory())
+        bridge.close()
+
+        try {
+            bridge.retain()
+            fail("retain() on a closed bridge should throw.")
+        } catch (expected: IllegalStateException) {
+        }
+
+        val done = CountDownLatch(1)
+        val callback = RecordingCallback(done)
+        bridge.generateResponse("hello", callback)
+        assertTrue(done.await(1, TimeUnit.SECONDS))
+        assertEquals("LlmBridge is closed.", callback.error)
+    }
+
+    @Test
+    fun createAndCloseThousandsOfBridges_threadsAndHeapStayFlat() {
+        assertChurnStaysFlat(::newBridge)
+    }
+
+    @Test
+    fun publicConstructor_createAndCloseThousandsOfBridges_threadsAndHeapStayFlat() {
+        // The constructor Unity calls, with its own dispatcher and only the model faked.
+        val previous = LlmBridge.defaultModelFactory
+        try {
+            assertChurnStaysFlat { factory ->
+                LlmBridge.defaultModelFactory = factory
+                LlmBridge().also { it.updateSettings(64, 0.5f, 16) }
+            }
+        } finally {
+            LlmBridge.defaultModelFactory = previous
+        }
+    }
+
+    private fun assertChurnStaysFlat(create: (LlmModelFactory) -> LlmBridge) {
+        // Warm up the work and IO dispatchers so their threads count towards the baseline.
+        churn(FakeModelFactory(), WARM_UP_BRIDGES, create)
+        val baselineThreads = liveThreadCount()
+        val baselineHeap = usedHeapAfterGc()
+
+        val factory = FakeModelFactory()
+        val bridges = churn(factory, BRIDGES, create)
+
+        awaitTrue { factory.closed.get() == BRIDGES }
+        assertEquals(BRIDGES, factory.created.get())
+        awaitCollected(bridges)
+        assertTrue(
+            "Threads grew from $baselineThreads to ${liveThreadCount()}",
+            liveThreadCount() <= baselineThreads + THREAD_TOLERANCE
+        )
+        val heapGrowth = usedHeapAfterGc() - baselineHeap
+        assertTrue("Heap grew by $heapGrowth bytes", heapGrowth < HEAP_TOLERANCE_BYTES)
+    }
+
+    private fun newBridge(factory: LlmModelFactory): LlmBridge {
+        val bridge = LlmBridge(workExecutor.asCoroutineDispatcher(), factory)
+        bridge.updateSettings(64, 0.5f, 16)
+        return bridge
+    }
+
+    /** Creates [count] bridges, sends each one prompt and closes it straight away. */
+    private fun churn(
+        factory: LlmModelFactory,
+        count: Int,
+        create: (LlmModelFactory) -> LlmBridge
+    ): List<WeakReference<LlmBridge>> {
+        val done = CountDownLatch(count)
+        val bridges = ArrayList<WeakReference<LlmBridge>>(count)
+        for (i in 0 until count) {
+            val bridge = create(factory)
+            bridge.generateResponse("prompt $i", RecordingCallback(done))
+            bridge.close()
+            bridges.add(WeakReference(bridge))
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS))
+        return bridges
+    }
+
+    private fun awaitTrue(condition: () -> Boolean) {
+        val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10)
+        while (!condition()) {
+            if (System.nanoTime() > deadline) fail("Condition not met within 10s.")
+            Thread.sleep(5)
+        }
+    }
+
+    private fun awaitCollected(refs: List<WeakReference<*>>) {
+        awaitTrue {
+            System.gc()
+            refs.none { it.get() != null }
+        }
+    }
+
+    // The shared Default and IO pool grows and shrinks with load on its own, up to a fixed bound,
+    // so only threads outside it can reveal a per-bridge leak.
+    private fun liveThreadCount() =
+        Thread.getAllStackTraces().keys.count { !it.name.startsWith("DefaultDispatcher-worker") }
+
+    private fun usedHeapAfterGc(): Long {
+        val runtime = Runtime.getRuntime()
+        repeat(3) {
+            System.gc()
+            Thread.sleep(20)
+        }
+        return runtime.totalMemory() - runtime.freeMemory()
+    }
+
+    companion object {
+        private const val WARM_UP_BRIDGES = 200
+        private const val BRIDGES = 5000
+        private const val THREAD_TOLERANCE = 2
+        private const val HEAP_TOLERANCE_BYTES = 8L * 1024 * 1024
+    }
+}
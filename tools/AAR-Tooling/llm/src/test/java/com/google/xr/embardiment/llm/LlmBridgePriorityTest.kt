@@ -0,0 +1,285 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.setMain
+import org.json.JSONObject
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Test
+
+/** Tests that background requests on [LlmBridge] give way to interactive ones. */
+@OptIn(ExperimentalCoroutinesApi::class)
+class LlmBridgePriorityTest {
+    /** Runs one prompt at a time, like a single on-device accelerator. */
+    private class SerialModel : LlmModel {
+        private val device = Mutex()
+        val gates = HashMap<String, CompletableDeferred<Unit>>()
+        val calls = ArrayList<String>()
+
+        override suspend fun generate(prompt: String): String = device.withLock {
+            synchronized(calls) { calls.add(prompt) }
+            synchronized(gates) { gates[prompt] }?.await()
+            "echo: $prompt"
+        }
+
+        fun callsOf(prompt: String) = synchronized(calls) { calls.count { it == prompt } }
+
+        override fun close() {}
+    }
+
+    private class RecordingCallback : LlmBridge.LlmStatsCallback {
+        val done = CountDownLatch(1)
+        @Volatile var result: String? = null
+        @Volatile var error: String? = null
+        @Volatile var stats: JSONObject? = null
+
+        override fun onStats(statsJson: String) {
+            stats = JSONObject(statsJson)
+        }
+
+        override fun onSuccess(result: String) {
+            this.result = result
+            done.countDown()
+        }
+
+        override fun onFailure(errorMessage: String) {
+            error = errorMessage
+            done.countDown()
+        }
+    }
+
+    private val model = SerialModel()
+    private val createdWithTokens = ArrayList<Int>()
+    private val closedWithTokens = ArrayList<Int>()
+    private lateinit var workExecutor: ExecutorService
+    private lateinit var bridge: LlmBridge
+
+    @Before
+    fun setUp() {
+        Dispatchers.setMain(Dispatchers.Unconfined)
+        workExecutor = Executors.newFixedThreadPool(4)
+        bridge = LlmBridge(workExecutor.asCoroutineDispatcher()) { _, _, maxOutputTokens ->
+            synchronized(createdWithTokens) { createdWithTokens.add(maxOutputTokens) }
+            // Every model shares the one device, but is closed on its own.
+            object : LlmModel {
+                override suspend fun generate(prompt: String) = model.generate(prompt)
+
+                override fun close() {
+                    synchronized(closedWithTokens) { closedWithTokens.add(maxOutputTokens) }
+                }
+            }
+        }
+        bridge.updateSettings(64, 0.5f, 16)
+    }
+
+    @After
+    fun tearDown() {
+        bridge.close()
+        workExecutor.shutdownNow()
+        Dispatchers.resetMain()
+    }
+
+    @Test
+    fun interactive_preemptsRunningBackground_whichRestartsAfterwards() {
+        val summaryGate = gate("summarize")
+        val background = RecordingCallback()
+        bridge.startGeneration("summarize", LlmBridge.PRIORITY_BACKGROUND, background)
+        awaitTrue { model.callsOf("summarize") == 1 }
+
+        // The model runs one prompt at a time, so this only answers if the summary gave way.
+        val question = RecordingCallback()
+        bridge.startGeneration("question", question)
+        assertTrue(question.done.await(5, TimeUnit.SECONDS))
+        assertEquals("echo: question", question.result)
+
+        awaitTrue { model.callsOf("summarize") == 2 }
+        summaryGate.complete(Unit)
+        assertTrue(background.done.await(5, TimeUnit.SECONDS))
+        assertEquals("echo: summarize", background.result)
+        assertEquals(1, background.stats!!.getInt("preemptions"))
+
+        val stats = JSONObject(bridge.getStats())
+        assertEquals(1L, stats.getLong("preemptions"))
+        // Only the interactive request counts towards the latency percentiles.
+        assertEquals(1L, stats.getLong("requests"))
+    }
+
+    @Test
+    fun background_waitsUntilInteractiveWorkHasFinished() {
+        val questionGate = gate("question")
+        val question = RecordingCallback()
+        bridge.startGeneration("question", question)
+        awaitTrue { model.callsOf("question") == 1 }
+
+        val background = RecordingCallback()
+        bridge.startGeneration("summarize", LlmBridge.PRIORITY_BACKGROUND, background)
+        Thread.sleep(100)
+        assertEquals(0, model.callsOf("summarize"))
+
+        questionGate.complete(Unit)
+        assertTrue(question.done.await(5, TimeUnit.SECONDS))
+        assertTrue(background.done.await(5, TimeUnit.SECONDS))
+        assertEquals(0, background.stats!!.getInt("preemptions"))
+        val calls = synchronized(model.calls) { model.calls.toList() }
+        assertEquals(listOf("question", "summarize"), calls)
+    }
+
+    @Test
+    fun backgroundAsk_inSession_completes() {
+        val sessionId = bridge.openSession("Screen text: Platform 4")
+        val background = RecordingCallback()
+
+        bridge.startAsk(sessionId, "Summarize.", LlmBridge.PRIORITY_BACKGROUND, background)
+
+        assertTrue(background.done.await(5, TimeUnit.SECONDS))
+        assertTrue(background.result!!.endsWith("Summarize."))
+    }
+
+    @Test
+    fun throttle_holdsBackgroundBack_untilAllowedAgain() {
+        bridge.setThrottle(Int.MAX_VALUE, 0, false)
+        val background = RecordingCallback()
+        bridge.startGeneration("summarize", LlmBridge.PRIORITY_BACKGROUND, background)
+
+        val question = RecordingCallback()
+        bridge.startGeneration("question", question)
+        assertTrue(question.done.await(5, TimeUnit.SECONDS))
+        Thread.sleep(100)
+        assertEquals(0, model.callsOf("summarize"))
+
+        bridge.setThrottle(Int.MAX_VALUE, 0, true)
+        assertTrue(background.done.await(5, TimeUnit.SECONDS))
+        assertEquals("echo: summarize", background.result)
+    }
+
+    @Test
+    fun throttle_capsOutputTokensOfTheNextModel() {
+        val first = RecordingCallback()
+        bridge.startGeneration("question", first)
+        assertTrue(first.done.await(5, TimeUnit.SECONDS))
+
+        bridge.setThrottle(32, 1, true)
+        val second = RecordingCallback()
+        bridge.startGeneration("question", second)
+        assertTrue(second.done.await(5, TimeUnit.SECONDS))
+
+        assertEquals(listOf(64, 32), synchronized(createdWithTokens) { createdWithTokens.toList() })
+    }
+
+    @Test
+    fun throttle_newOutputCap_closesTheOldModelOnceItsGenerationFinishes() {
+        val questionGate = gate("question")
+        val first = RecordingCallback()
+        bridge.startGeneration("question", first)
+        awaitTrue { model.callsOf("question") == 1 }
+
+        bridge.setThrottle(32, 0, true)
+        val second = RecordingCallback()
+        bridge.startGeneration("follow-up", second)
+        awaitTrue { synchronized(createdWithTokens) { createdWithTokens.size } == 2 }
+        assertEquals(0, synchronized(closedWithTokens) { closedWithTokens.size })
+
+        questionGate.complete(Unit)
+        assertTrue(first.done.await(5, TimeUnit.SECONDS))
+        assertTrue(second.done.await(5, TimeUnit.SECONDS))
+
+        assertEquals("echo: question", first.result)
+        assertEquals("echo: follow-up", second.result)
+        assertEquals(listOf(64), synchronized(closedWithTokens) { closedWithTokens.toList() })
+    }
+
+    @Test
+    fun throttle_lowerConcurrencyLimit_waitsForRunningGenerations() {
+        val running = AtomicInteger()
+        val peak = AtomicInteger()
+        val gates = mapOf("a" to CompletableDeferred<Unit>(), "b" to CompletableDeferred<Unit>())
+        val concurrent = LlmBridge(workExecutor.asCoroutineDispatcher()) { _, _, _ ->
+            object : LlmModel {
+                override suspend fun generate(prompt: String): String {
+                    peak.accumulateAndGet(running.incrementAndGet(), ::maxOf)
+                    try {
+                        gates[prompt]?.await()
+                    } finally {
+                        running.decrementAndGet()
+                    }
+                    return "echo: $prompt"
+                }
+
+                override fun close() {}
+            }
+        }
+        try {
+            concurrent.updateSettings(64, 0.5f, 16)
+            concurrent.setThrottle(Int.MAX_VALUE, 2, true)
+            val callbacks = List(3) { RecordingCallback() }
+            concurrent.startGeneration("a", callbacks[0])
+            concurrent.startGeneration("b", callbacks[1])
+            awaitTrue { running.get() == 2 }
+
+            concurrent.setThrottle(Int.MAX_VALUE, 1, true)
+            concurrent.startGeneration("c", callbacks[2])
+            gates.getValue("a").complete(Unit)
+            assertTrue(callbacks[0].done.await(5, TimeUnit.SECONDS))
+            // "b" still runs, which is all the new limit allows.
+            Thread.sleep(100)
+            assertEquals(1L, callbacks[2].done.count)
+
+            gates.getValue("b").complete(Unit)
+            assertTrue(callbacks[2].done.await(5, TimeUnit.SECONDS))
+            assertEquals("echo: c", callbacks[2].result)
+            assertEquals(2, peak.get())
+        } finally {
+            concurrent.close()
+        }
+    }
+
+    @Test
+    fun unknownPriority_fails() {
+        val callback = RecordingCallback()
+
+        bridge.startGeneration("question", 7, callback)
+
+        assertEquals("Unknown LLM priority: 7", callback.error)
+    }
+
+    private fun gate(prompt: String): CompletableDeferred<Unit> =
+        CompletableDeferred<Unit>().also { synchronized(model.gates) { model.gates[prompt] = it } }
+
+    private fun awaitTrue(condition: () -> Boolean) {
+        val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10)
+        while (!condition()) {
+            if (System.nanoTime() > deadline) fail("Condition not met within 10s.")
+            Thread.sleep(5)
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.setMain
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class LlmBridgeSessionTest {
+    private val prompts: MutableList<String> = Collections.synchronizedList(ArrayList())
+    private val created = AtomicInteger()
+
+    private val factory = LlmModelFactory { _, _, _ ->
+        created.incrementAndGet()
+        object : LlmModel {
+            override suspend fun generate(prompt: String): String {
+                prompts.add(prompt)
+                return "ok"
+            }
+
+            override fun close() {}
+        }
+    }
+
+    private class RecordingCallback : LlmBridge.LlmCallback {
+        val done = CountDownLatch(1)
+        @Volatile var error: String? = null
+
+        override fun onSuccess(result: String) {
+            done.countDown()
+        }
+
+        override fun onFailure(errorMessage: String) {
+            error = errorMessage
+            done.countDown()
+        }
+    }
+
+    @Before
+    fun setUp() {
+        Dispatchers.setMain(Dispatchers.Unconfined)
+    }
+
+    @After
+    fun tearDown() {
+        Dispatchers.resetMain()
+    }
+
+    @Test
+    fun ask_prefixesEachTurnWithTheSessionContext() {
+        val bridge = newBridge()
+        val session = bridge.openSession("Document text")
+
+        ask(bridge, session, "first question")
+        ask(bridge, session, "second question")
+
+        assertEquals(
+            listOf("Document text\n\nfirst question", "Document text\n\nsecond question"),
+            prompts
+        )
+        // The model opened with the session is reused by every turn.
+        assertEquals(1, created.get())
+        bridge.close()
+    }
+
+    @Test
+    fun ask_unknownOrClosedSession_fails() {
+        val bridge = newBridge()
+        val session = bridge.openSession("Document text")
+        bridge.closeSession(session)
+
+        val callback = ask(bridge, session, "question")
+
+        assertEquals("Unknown LLM session: $session", callback.error)
+        assertTrue(prompts.isEmpty())
+        bridge.close()
+    }
+
+    private fun newBridge(): LlmBridge {
+        val bridge = LlmBridge(Dispatchers.Default, factory)
+        bridge.updateSettings(64, 0.5f, 16)
+        return bridge
+    }
+
+    private fun ask(bridge: LlmBridge, session: Int, utterance: String): RecordingCallback {
+        val callback = RecordingCallback()
+        bridge.ask(session, utterance, callback)
+        assertTrue(callback.done.await(5, TimeUnit.SECONDS))
+        return callback
+    }
+}
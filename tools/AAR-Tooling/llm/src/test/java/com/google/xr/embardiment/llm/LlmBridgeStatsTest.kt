@@ -0,0 +1,170 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.setMain
+import org.json.JSONObject
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class LlmBridgeStatsTest {
+    private val factory = LlmModelFactory { _, _, _ ->
+        Thread.sleep(MODEL_LOAD_MS)
+        object : LlmModel {
+            override suspend fun generate(prompt: String): String = "unused"
+
+            override fun generateStream(prompt: String): Flow<String> = flow {
+                emit("Hello")
+                delay(DECODE_MS)
+                emit(" world, again")
+            }
+
+            override fun close() {}
+        }
+    }
+
+    private class RecordingCallback : LlmBridge.LlmStatsCallback {
+        val done = CountDownLatch(1)
+        @Volatile var result: String? = null
+        @Volatile var stats: JSONObject? = null
+        @Volatile var statsBeforeResult = false
+
+        override fun onStats(statsJson: String) {
+            stats = JSONObject(statsJson)
+            statsBeforeResult = result == null
+        }
+
+        override fun onSuccess(result: String) {
+            this.result = result
+            done.countDown()
+        }
+
+        override fun onFailure(errorMessage: String) {
+            done.countDown()
+        }
+    }
+
+    @Before
+    fun setUp() {
+        Dispatchers.setMain(Dispatchers.Unconfined)
+    }
+
+    @After
+    fun tearDown() {
+        Dispatchers.resetMain()
+    }
+
+    @Test
+    fun generateResponse_statsCallback_receivesStatsBeforeTheResult() {
+        val bridge = newBridge()
+
+        val first = generate(bridge, "Say hello.")
+        val second = generate(bridge, "Say hello.")
+
+        assertEquals("Hello world, again", first.result)
+        assertTrue(first.statsBeforeResult)
+        val firstStats = first.stats!!
+        assertFalse(firstStats.getBoolean("cacheHit"))
+        assertTrue(firstStats.getDouble("initMs") >= MODEL_LOAD_MS)
+        assertTrue(firstStats.getDouble("firstTokenMs") >= firstStats.getDouble("initMs"))
+        assertTrue(
+            firstStats.getDouble("totalMs") >= firstStats.getDouble("firstTokenMs") + DECODE_MS
+        )
+        // "Hello" (2) + "world" (2) + "," (1) + "again" (2).
+        assertEquals(7, firstStats.getInt("outputTokens"))
+        assertEquals("Say hello.".length, firstStats.getInt("promptChars"))
+        assertEquals(4, firstStats.getInt("promptTokens"))
+
+        val secondStats = second.stats!!
+        assertTrue(secondStats.getBoolean("cacheHit"))
+        assertEquals(0.0, secondStats.getDouble("initMs"), 0.0)
+        bridge.close()
+    }
+
+    @Test
+    fun getStats_summarizesSuccessfulRequests() {
+        val bridge = newBridge()
+        generate(bridge, "one")
+        generate(bridge, "two")
+        generate(bridge, "three")
+
+        val stats = JSONObject(bridge.getStats())
+
+        assertEquals(3, stats.getLong("requests"))
+        assertEquals(2, stats.getLong("cacheHits"))
+        assertEquals(1, stats.getJSONObject("initMs").getInt("count"))
+        val firstTokenMs = stats.getJSONObject("firstTokenMs")
+        assertEquals(3, firstTokenMs.getInt("count"))
+        assertTrue(firstTokenMs.getDouble("p99") >= firstTokenMs.getDouble("p50"))
+        assertEquals(7.0, stats.getJSONObject("outputTokens").getDouble("p50"), 0.0)
+        bridge.close()
+    }
+
+    @Test
+    fun generateResponse_waitForAPermit_countsAsQueueTime() {
+        val bridge = newBridge()
+        generate(bridge, "Load the model.")
+        bridge.setThrottle(Int.MAX_VALUE, 1, true)
+
+        val first = RecordingCallback()
+        val second = RecordingCallback()
+        bridge.generateResponse("first", first)
+        bridge.generateResponse("second", second)
+        assertTrue(first.done.await(5, TimeUnit.SECONDS))
+        assertTrue(second.done.await(5, TimeUnit.SECONDS))
+
+        // One of the two waited for the other's whole generation before it could start.
+        val queueMs = listOf(first, second).map { it.stats!!.getDouble("queueMs") }
+        assertTrue(queueMs.max() >= DECODE_MS)
+        for (callback in listOf(first, second)) {
+            val stats = callback.stats!!
+            assertTrue(stats.getDouble("firstTokenMs") >= stats.getDouble("queueMs"))
+        }
+        bridge.close()
+    }
+
+    private fun newBridge(): LlmBridge {
+        val bridge = LlmBridge(Dispatchers.Default, factory)
+        bridge.updateSettings(64, 0.5f, 16)
+        return bridge
+    }
+
+    private fun generate(bridge: LlmBridge, prompt: String): RecordingCallback {
+        val callback = RecordingCallback()
+        bridge.generateResponse(prompt, callback)
+        assertTrue(callback.done.await(5, TimeUnit.SECONDS))
+        return callback
+    }
+
+    private companion object {
+        const val MODEL_LOAD_MS = 50L
+        const val DECODE_MS = 20L
+    }
+}
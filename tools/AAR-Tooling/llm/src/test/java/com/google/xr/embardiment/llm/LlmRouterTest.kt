@@ -0,0 +1,202 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import com.sun.net.httpserver.HttpServer
+import java.net.InetSocketAddress
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.setMain
+import org.json.JSONArray
+import org.json.JSONObject
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+/** Routes between a fake on-device model and a local server speaking the Gemini SSE protocol. */
+@OptIn(ExperimentalCoroutinesApi::class)
+class LlmRouterTest {
+    private class FakeOnDeviceModel(
+        private val gate: CompletableDeferred<Unit>?,
+        private val error: Exception?
+    ) : LlmModel {
+        @Volatile var cancelled = false
+
+        override suspend fun generate(prompt: String) = "device: $prompt"
+
+        override fun generateStream(prompt: String): Flow<String> = flow {
+            try {
+                gate?.await()
+                error?.let { throw it }
+                emit("device: ")
+                emit(prompt)
+            } catch (e: CancellationException) {
+                cancelled = true
+                throw e
+            }
+        }
+
+        override fun close() {}
+    }
+
+    private class RecordingCallback : LlmBridge.LlmCallback {
+        val done = CountDownLatch(1)
+        @Volatile var result: String? = null
+        @Volatile var error: String? = null
+
+        override fun onSuccess(result: String) {
+            this.result = result
+            done.countDown()
+        }
+
+        override fun onFailure(errorMessage: String) {
+            error = errorMessage
+            done.countDown()
+        }
+    }
+
+    private lateinit var server: HttpServer
+    private val cloudRequests = AtomicInteger()
+    @Volatile private var lastRequestBody: String? = null
+
+    @Before
+    fun setUp() {
+        Dispatchers.setMain(Dispatchers.Unconfined)
+        server = HttpServer.create(InetSocketAddress("127.0.0.1", 0), 0)
+        server.createContext("/v1beta/models/test-model:streamGenerateContent") { exchange ->
+            cloudRequests.incrementAndGet()
+            lastRequestBody = exchange.requestBody.bufferedReader().readText()
+            val body = chunk("cloud ") + chunk("answer")
+            exchange.responseHeaders.add("Content-Type", "text/event-stream")
+            exchange.sendResponseHeaders(200, 0)
+            exchange.responseBody.use { it.write(body.toByteArray()) }
+        }
+        server.start()
+    }
+
+    @After
+    fun tearDown() {
+        server.stop(0)
+        Dispatchers.resetMain()
+    }
+
+    @Test
+    fun fastOnDevice_neverCallsTheCloud() {
+        val router = newRouter(FakeOnDeviceModel(gate = null, error = null))
+
+        val callback = route(router, "hello", firstTokenSloMs = 5_000)
+
+        assertEquals("device: hello", callback.result)
+        assertEquals(0, cloudRequests.get())
+        assertEquals(1L, decisions(router).getLong("onDevice"))
+        router.close()
+    }
+
+    @Test
+    fun slowOnDevice_hedgesToTheCloudAndCancelsTheDevice() {
+        val device = FakeOnDeviceModel(gate = CompletableDeferred(), error = null)
+        val router = newRouter(device)
+
+        val callback = route(router, "hello", firstTokenSloMs = 50)
+
+        assertEquals("cloud answer", callback.result)
+        assertEquals(1, cloudRequests.get())
+        val request = JSONObject(lastRequestBody!!)
+        assertEquals(
+            "hello",
+            request.getJSONArray("contents").getJSONObject(0)
+                .getJSONArray("parts").getJSONObject(0).getString("text")
+        )
+        assertTrue(device.cancelled)
+        val stats = JSONObject(router.getStats())
+        assertEquals(1L, stats.getJSONObject("decisions").getLong("hedgedCloud"))
+        assertEquals(1L, stats.getJSONObject("onDevice").getLong("cancelled"))
+        val cloudFirstToken = stats.getJSONObject("cloud").getJSONObject("firstTokenMs")
+        assertEquals(1, cloudFirstToken.getInt("count"))
+        router.close()
+    }
+
+    @Test
+    fun failingOnDevice_fallsBackToTheCloudImmediately() {
+        val device = FakeOnDeviceModel(gate = null, error = IllegalStateException("no model"))
+        val router = newRouter(device)
+
+        val callback = route(router, "hello", firstTokenSloMs = 60_000)
+
+        assertEquals("cloud answer", callback.result)
+        assertEquals(1L, decisions(router).getLong("cloudFallback"))
+        router.close()
+    }
+
+    @Test
+    fun bothBackendsFailing_reportsFailure() {
+        server.removeContext("/v1beta/models/test-model:streamGenerateContent")
+        val device = FakeOnDeviceModel(gate = null, error = IllegalStateException("no model"))
+        val router = newRouter(device)
+
+        val callback = route(router, "hello", firstTokenSloMs = 60_000)
+
+        assertEquals("Gemini request failed with HTTP 404.", callback.error)
+        assertEquals(1L, decisions(router).getLong("failed"))
+        router.close()
+    }
+
+    private fun newRouter(device: LlmModel): LlmRouter {
+        val bridge = LlmBridge(Dispatchers.Default) { _, _, _ -> device }
+        bridge.updateSettings(64, 0.5f, 16)
+        val baseUrl = "http://127.0.0.1:${server.address.port}"
+        val router = LlmRouter(
+            bridge,
+            GeminiCloudModel.factory(baseUrl, "key", "test-model"),
+            Dispatchers.Default
+        )
+        // The router holds its own reference.
+        bridge.close()
+        return router
+    }
+
+    private fun route(
+        router: LlmRouter,
+        prompt: String,
+        firstTokenSloMs: Long
+    ): RecordingCallback {
+        val callback = RecordingCallback()
+        router.route(prompt, firstTokenSloMs, callback)
+        assertTrue(callback.done.await(10, TimeUnit.SECONDS))
+        return callback
+    }
+
+    private fun decisions(router: LlmRouter) =
+        JSONObject(router.getStats()).getJSONObject("decisions")
+
+    private fun chunk(text: String): String {
+        val part = JSONObject().put("text", text)
+        val content = JSONObject().put("parts", JSONArray().put(part))
+        val candidate = JSONObject().put("content", content)
+        return "data: " + JSONObject().put("candidates", JSONArray().put(candidate)) + "\n\n"
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.setMain
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class StructuredOutputTest {
+    private val schema = JsonSchema.parse(
+        """
+        {
+          "type": "object",
+          "properties": {
+            "action": {"type": "string", "enum": ["open", "close"]},
+            "count": {"type": "integer"},
+            "score": {"type": "number"},
+            "tags": {"type": "array", "items": {"type": "string"}}
+          },
+          "required": ["action"],
+          "additionalProperties": false
+        }
+        """
+    )
+
+    private class RecordingCallback : LlmBridge.LlmCallback {
+        val done = CountDownLatch(1)
+        @Volatile var result: String? = null
+        @Volatile var error: String? = null
+
+        override fun onSuccess(result: String) {
+            this.result = result
+            done.countDown()
+        }
+
+        override fun onFailure(errorMessage: String) {
+            error = errorMessage
+            done.countDown()
+        }
+    }
+
+    @Before
+    fun setUp() {
+        Dispatchers.setMain(Dispatchers.Unconfined)
+    }
+
+    @After
+    fun tearDown() {
+        Dispatchers.resetMain()
+    }
+
+    @Test
+    fun feed_validObjectOneCharAtATime_completesWithCompactJson() {
+        val validator = StreamingJsonValidator(schema)
+        val json = "{ \"action\" : \"open\",\n \"count\": 3, \"score\": -1.5e2, " +
+            "\"tags\": [\"a\", \"\\\"b\"] }"
+
+        var status = StreamingJsonValidator.NEED_MORE
+        for (c in json) {
+            assertEquals(StreamingJsonValidator.NEED_MORE, status)
+            status = validator.feed(c.toString())
+        }
+
+        assertEquals(StreamingJsonValidator.COMPLETE, status)
+        assertEquals(
+            "{\"action\":\"open\",\"count\":3,\"score\":-1.5e2,\"tags\":[\"a\",\"\\\"b\"]}",
+            validator.compactJson()
+        )
+    }
+
+    @Test
+    fun feed_codeFenceAndTrailingText_areIgnored() {
+        val validator = StreamingJsonValidator(schema)
+
+        val status = validator.feed("```json\n{\"action\": \"close\"}\n```\nDone.")
+
+        assertEquals(StreamingJsonValidator.COMPLETE, status)
+        assertEquals("{\"action\":\"close\"}", validator.compactJson())
+    }
+
+    @Test
+    fun feed_unknownPropertyPrefix_failsBeforeTheNameEnds() {
+        val validator = StreamingJsonValidator(schema)
+
+        assertEquals(StreamingJsonValidator.INVALID, validator.feed("{\"actx"))
+        assertTrue(validator.error!!.contains("no property starts with \"actx\""))
+    }
+
+    @Test
+    fun feed_enumPrefix_failsBeforeTheStringEnds() {
+        val validator = StreamingJsonValidator(schema)
+
+        assertEquals(StreamingJsonValidator.NEED_MORE, validator.feed("{\"action\": \"ope"))
+        assertEquals(StreamingJsonValidator.INVALID, validator.feed("x"))
+        val other = StreamingJsonValidator(schema)
+        assertEquals(StreamingJsonValidator.INVALID, other.feed("{\"action\": \"x"))
+    }
+
+    @Test
+    fun feed_typeMismatch_fails() {
+        val validator = StreamingJsonValidator(schema)
+
+        assertEquals(StreamingJsonValidator.INVALID, validator.feed("{\"count\": \"3\""))
+        assertTrue(validator.error!!.contains("a string is not allowed here"))
+    }
+
+    @Test
+    fun feed_integerWithFraction_fails() {
+        val validator = StreamingJsonValidator(schema)
+
+        assertEquals(StreamingJsonValidator.INVALID, validator.feed("{\"count\": 3.5"))
+        assertTrue(validator.error!!.contains("expected an integer"))
+    }
+
+    @Test
+    fun feed_missingRequiredProperty_failsOnClose() {
+        val validator = StreamingJsonValidator(schema)
+
+        assertEquals(StreamingJsonValidator.NEED_MORE, validator.feed("{\"count\": 3"))
+        assertEquals(StreamingJsonValidator.INVALID, validator.feed("}"))
+        assertTrue(validator.error!!.contains("missing required property \"action\""))
+    }
+
+    @Test
+    fun finish_rootNumber_completes() {
+        val validator = StreamingJsonValidator(JsonSchema.parse("{\"type\": \"integer\"}"))
+
+        assertEquals(StreamingJsonValidator.NEED_MORE, validator.feed("42"))
+        assertEquals(StreamingJsonValidator.COMPLETE, validator.finish())
+        assertEquals("42", validator.compactJson())
+    }
+
+    @Test
+    fun generateStructured_invalidAttempt_isCutShortAndRetried() {
+        val attempts = AtomicInteger()
+        val emittedAfterError = AtomicInteger()
+        val bridge = LlmBridge(Dispatchers.Default) { _, _, _ ->
+            object : LlmModel {
+                override suspend fun generate(prompt: String): String? = null
+
+                override fun generateStream(prompt: String): Flow<String> = flow {
+                    if (attempts.incrementAndGet() == 1) {
+                        emit("{\"verb\"")
+                        // The validator rejects the first chunk, so this is never collected.
+                        emittedAfterError.incrementAndGet()
+                        emit(": \"open\"}")
+                    } else {
+                        emit("{\"action\":")
+                        emit(" \"open\", \"count\": 2}")
+                    }
+                }
+
+                override fun close() {}
+            }
+        }
+        bridge.updateSettings(64, 0.5f, 16)
+        val callback = RecordingCallback()
+
+        bridge.generateStructured("Pick an action.", SCHEMA_JSON, 3, callback)
+
+        assertTrue(callback.done.await(5, TimeUnit.SECONDS))
+        assertNull(callback.error)
+        assertEquals("{\"action\":\"open\",\"count\":2}", callback.result)
+        assertEquals(2, attempts.get())
+        assertEquals(0, emittedAfterError.get())
+        bridge.close()
+    }
+
+    @Test
+    fun generateStructured_invalidSchema_failsWithoutGenerating() {
+        val bridge = LlmBridge(Dispatchers.Default) { _, _, _ -> error("not created") }
+        val callback = RecordingCallback()
+
+        bridge.generateStructured("Pick an action.", "not a schema", 3, callback)
+
+        assertTrue(callback.done.await(5, TimeUnit.SECONDS))
+        assertTrue(callback.error!!.startsWith("Invalid JSON schema"))
+        bridge.close()
+    }
+
+    private companion object {
+        const val SCHEMA_JSON =
+            "{\"type\":\"object\",\"properties\":{\"action\":{\"type\":\"string\"}," +
+                "\"count\":{\"type\":\"integer\"}},\"required\":[\"action\"]," +
+                "\"additionalProperties\":false}"
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import android.os.PowerManager
+import java.util.concurrent.TimeUnit
+import kotlinx.coroutines.Dispatchers
+import org.json.JSONObject
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/** Tests [ThrottlingGovernor] against a fake power source and clock on the host JVM. */
+class ThrottlingGovernorTest {
+    private val cool = PowerState(PowerManager.THERMAL_STATUS_NONE, 0.3f, 80, false, false)
+
+    @Volatile private var state = cool
+    private var nowNanos = 0L
+    private val changes = ArrayList<Int>()
+    private val governor = ThrottlingGovernor({ state }, Dispatchers.Unconfined) { nowNanos }
+
+    @After
+    fun tearDown() {
+        governor.close()
+    }
+
+    @Test
+    fun tierFor_takesTheWorstSignal() {
+        assertEquals(ThrottlingGovernor.TIER_NOMINAL, ThrottlingGovernor.tierFor(cool))
+        val warm = cool.copy(thermalStatus = PowerManager.THERMAL_STATUS_MODERATE)
+        assertEquals(ThrottlingGovernor.TIER_FAIR, ThrottlingGovernor.tierFor(warm))
+        assertEquals(
+            ThrottlingGovernor.TIER_CRITICAL,
+            ThrottlingGovernor.tierFor(
+                cool.copy(thermalStatus = PowerManager.THERMAL_STATUS_SHUTDOWN, batteryPercent = 3)
+            )
+        )
+        assertEquals(
+            ThrottlingGovernor.TIER_SERIOUS,
+            ThrottlingGovernor.tierFor(cool.copy(thermalHeadroom = 1.05f))
+        )
+        assertEquals(
+            ThrottlingGovernor.TIER_FAIR,
+            ThrottlingGovernor.tierFor(cool.copy(powerSaveMode = true))
+        )
+    }
+
+    @Test
+    fun tierFor_ignoresLowBatteryWhileChargingAndUnknownHeadroom() {
+        assertEquals(
+            ThrottlingGovernor.TIER_NOMINAL,
+            ThrottlingGovernor.tierFor(
+                cool.copy(batteryPercent = 4, charging = true, thermalHeadroom = Float.NaN)
+            )
+        )
+        assertEquals(
+            ThrottlingGovernor.TIER_SERIOUS,
+            ThrottlingGovernor.tierFor(cool.copy(batteryPercent = 4))
+        )
+    }
+
+    @Test
+    fun poll_raisesTheTierAtOnce_andLowersItOnlyAfterCoolingDown() {
+        governor.coolDownMs = 1000
+        governor.start { tier, _ -> synchronized(changes) { changes.add(tier) } }
+
+        state = cool.copy(thermalStatus = PowerManager.THERMAL_STATUS_SEVERE)
+        assertEquals(ThrottlingGovernor.TIER_SERIOUS, governor.poll())
+
+        state = cool
+        nowNanos += TimeUnit.MILLISECONDS.toNanos(500)
+        assertEquals(ThrottlingGovernor.TIER_SERIOUS, governor.poll())
+        nowNanos += TimeUnit.MILLISECONDS.toNanos(600)
+        assertEquals(ThrottlingGovernor.TIER_SERIOUS, governor.poll())
+        nowNanos += TimeUnit.MILLISECONDS.toNanos(400)
+        assertEquals(ThrottlingGovernor.TIER_NOMINAL, governor.poll())
+
+        val reported = synchronized(changes) { changes.toList() }
+        assertEquals(
+            listOf(
+                ThrottlingGovernor.TIER_NOMINAL,
+                ThrottlingGovernor.TIER_SERIOUS,
+                ThrottlingGovernor.TIER_NOMINAL
+            ),
+            reported
+        )
+    }
+
+    @Test
+    fun poll_aReadingAsHighAsTheTier_restartsTheCoolDown() {
+        governor.coolDownMs = 1000
+        state = cool.copy(thermalStatus = PowerManager.THERMAL_STATUS_MODERATE)
+        governor.poll()
+
+        state = cool
+        governor.poll()
+        nowNanos += TimeUnit.MILLISECONDS.toNanos(800)
+        state = cool.copy(thermalStatus = PowerManager.THERMAL_STATUS_MODERATE)
+        governor.poll()
+        state = cool
+        nowNanos += TimeUnit.MILLISECONDS.toNanos(800)
+
+        assertEquals(ThrottlingGovernor.TIER_FAIR, governor.poll())
+    }
+
+    @Test
+    fun limits_tightenWithTheTier() {
+        val nominal = ThrottlingGovernor.limitsFor(ThrottlingGovernor.TIER_NOMINAL)
+        val critical = ThrottlingGovernor.limitsFor(ThrottlingGovernor.TIER_CRITICAL)
+
+        assertTrue(nominal.backgroundWork)
+        assertFalse(critical.backgroundWork)
+        assertTrue(critical.ocrMaxScale < nominal.ocrMaxScale)
+        assertTrue(critical.ocrFrameIntervalMs > nominal.ocrFrameIntervalMs)
+        assertTrue(critical.llmMaxOutputTokens < nominal.llmMaxOutputTokens)
+        assertEquals(1, critical.llmConcurrency)
+    }
+
+    @Test
+    fun getStats_reportsTheTierAndTheLastReading() {
+        state = cool.copy(powerSaveMode = true)
+        governor.poll()
+
+        val stats = JSONObject(governor.getStats())
+        assertEquals(ThrottlingGovernor.TIER_FAIR, stats.getInt("tier"))
+        assertFalse(stats.getJSONObject("limits").getBoolean("backgroundWork"))
+        assertEquals(80, stats.getInt("batteryPercent"))
+        assertTrue(stats.getBoolean("powerSaveMode"))
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2025 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.llm
+
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.setMain
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Test
+
+/** Tests [TranscriptSpeculator] against a fake model whose replies the test releases. */
+@OptIn(ExperimentalCoroutinesApi::class)
+class TranscriptSpeculatorTest {
+    private class ReplyModel : LlmModel {
+        val prompts: MutableList<String> = Collections.synchronizedList(ArrayList())
+        private val replies = HashMap<String, CompletableDeferred<String>>()
+
+        fun reply(prompt: String): CompletableDeferred<String> =
+            synchronized(replies) { replies.getOrPut(prompt) { CompletableDeferred() } }
+
+        override suspend fun generate(prompt: String): String {
+            prompts.add(prompt)
+            return reply(prompt).await()
+        }
+
+        override fun close() {}
+    }
+
+    private class RecordingListener : TranscriptSpeculator.Listener {
+        val done = CountDownLatch(1)
+        @Volatile var transcript: String? = null
+        @Volatile var text: String? = null
+        @Volatile var speculative = false
+        @Volatile var savedNanos = -1L
+
+        override fun onResult(
+            transcript: String,
+            text: String,
+            speculative: Boolean,
+            savedNanos: Long
+        ) {
+            this.transcript = transcript
+            this.text = text
+            this.speculative = speculative
+            this.savedNanos = savedNanos
+            done.countDown()
+        }
+
+        override fun onError(errorMessage: String) {
+            fail("Unexpected error: $errorMessage")
+        }
+    }
+
+    private val model = ReplyModel()
+    private val listener = RecordingListener()
+    private val now = AtomicLong()
+    private lateinit var bridge: LlmBridge
+    private lateinit var speculator: TranscriptSpeculator
+
+    @Before
+    fun setUp() {
+        Dispatchers.setMain(Dispatchers.Unconfined)
+        bridge = LlmBridge(Dispatchers.Default) { _, _, _ -> model }
+        bridge.updateSettings(64, 0.5f, 16)
+        speculator = TranscriptSpeculator(bridge.retain(), listener, now::get)
+    }
+
+    @After
+    fun tearDown() {
+        speculator.close()
+        bridge.close()
+        Dispatchers.resetMain()
+    }
+
+    @Test
+    fun divergence_isWordEditsPerWordOfTheLongerTranscript() {
+        val words = TranscriptSpeculator.words("What's the weather, in Zurich?")
+
+        assertEquals(listOf("what's", "the", "weather", "in", "zurich"), words)
+        assertEquals(0f, TranscriptSpeculator.divergence(words, words), 0f)
+        val basel = TranscriptSpeculator.words("what's the weather in basel")
+        assertEquals(0.2f, TranscriptSpeculator.divergence(words, basel), 1e-6f)
+        val shorter = TranscriptSpeculator.words("what's the weather")
+        assertEquals(0.4f, TranscriptSpeculator.divergence(words, shorter), 1e-6f)
+    }
+
+    @Test
+    fun speculate_partialWithinThreshold_keepsTheSpeculation() {
+        speculator.onPartial("what is the weather")
+        speculator.speculate()
+        // One word more is a divergence of 0.2, within the default 0.25.
+        speculator.onPartial("what is the weather today")
+        speculator.speculate()
+
+        awaitTrue { model.prompts.size == 1 }
+        val stats = speculator.stats()
+        assertEquals(1, stats.speculations)
+        assertEquals(0, stats.cancelled)
+        assertEquals(listOf("what is the weather"), model.prompts)
+    }
+
+    @Test
+    fun onPartial_beyondThreshold_cancelsAndTheNextStablePartialRestarts() {
+        speculator.onPartial("what is the weather")
+        speculator.speculate()
+        speculator.onPartial("where is the nearest station")
+
+        assertEquals(1, speculator.stats().cancelled)
+        speculator.speculate()
+
+        assertEquals(2, speculator.stats().speculations)
+        awaitTrue { model.prompts.contains("where is the nearest station") }
+    }
+
+    @Test
+    fun speculate_tooFewWords_waits() {
+        speculator.onPartial("what is")
+        speculator.speculate()
+
+        assertEquals(0, speculator.stats().speculations)
+    }
+
+    @Test
+    fun onFinal_speculatedWords_commitsTheSpeculationAndReportsTheTimeSaved() {
+        speculator.onPartial("what is the weather")
+        speculator.speculate()
+        awaitTrue { model.prompts.size == 1 }
+
+        // Punctuation and case do not count, only the words.
+        now.set(millis(300))
+        speculator.onFinal("What is the weather?", now.get())
+        now.set(millis(400))
+        model.reply("what is the weather").complete("Sunny")
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS))
+
+        assertEquals("Sunny", listener.text)
+        assertTrue(listener.speculative)
+        // Generated in 400 ms from 0, where starting at the final result would end at 700 ms.
+        assertEquals(millis(300), listener.savedNanos)
+        val stats = speculator.stats()
+        assertEquals(1, stats.hits)
+        assertEquals(0, stats.misses)
+        assertEquals(millis(300), stats.totalSavedNanos)
+        assertEquals(1, model.prompts.size)
+    }
+
+    @Test
+    fun onFinal_otherWords_missesAndGeneratesTheFinalTranscript() {
+        speculator.onPartial("what is the weather")
+        speculator.speculate()
+        // Kept as close enough, but the final transcript differs from what was speculated.
+        speculator.onPartial("what is the weather today")
+        speculator.speculate()
+
+        speculator.onFinal("what is the weather today", now.get())
+        model.reply("what is the weather today").complete("Rain later")
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS))
+
+        assertEquals("what is the weather today", listener.transcript)
+        assertEquals("Rain later", listener.text)
+        assertFalse(listener.speculative)
+        assertEquals(0, listener.savedNanos)
+        val stats = speculator.stats()
+        assertEquals(0, stats.hits)
+        assertEquals(1, stats.misses)
+        assertEquals(1, stats.cancelled)
+    }
+
+    @Test
+    fun onFinal_withoutSpeculation_isNeitherHitNorMiss() {
+        speculator.onFinal("what is the weather", now.get())
+        model.reply("what is the weather").complete("Sunny")
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS))
+
+        assertFalse(listener.speculative)
+        val stats = speculator.stats()
+        assertEquals(0, stats.hits)
+        assertEquals(0, stats.misses)
+    }
+
+    private fun millis(value: Long): Long = TimeUnit.MILLISECONDS.toNanos(value)
+
+    private fun awaitTrue(condition: () -> Boolean) {
+        val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5)
+        while (!condition()) {
+            if (System.nanoTime() > deadline) fail("Condition not met in time.")
+            Thread.sleep(5)
+        }
+    }
+}
@@ -46,16 +46,41 @@ android {
     kotlinOptions {
         jvmTarget = "11"
     }
+    testOptions {
+        // Lets JVM tests run bridge code that logs through android.util.Log.
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
 
     implementation(libs.appcompat.v7)
     testImplementation(libs.junit)
+    testImplementation(libs.kotlinx.coroutines.test)
     androidTestImplementation(libs.runner)
     androidTestImplementation(libs.espresso.core)
     implementation(libs.mlkit.text.recognition)
+    implementation(libs.androidx.camera.camera2)
+    implementation(libs.androidx.camera.lifecycle)
     implementation(libs.kotlinx.coroutines.android)
     implementation(libs.kotlinx.coroutines.core)
     implementation(libs.kotlinx.coroutines.play.services)
-}
\ No newline at end of file
+}
+
+// The only supported way to update the AAR that Unity loads:
+// ./gradlew :ocr:copyReleaseAarToUnity
+tasks.register<Copy>("copyReleaseAarToUnity") {
+    val aar = layout.buildDirectory.file("outputs/aar/ocr-release.aar")
+    val consumerRules = file("consumer-rules.pro")
+    dependsOn("assembleRelease")
+    from(aar)
+    into(rootProject.file("../../unity/Packages/com.google.xr.embardiment/Runtime/Plugins/Android OCR"))
+    doFirst {
+        // Unity's build shrinks the app with these rules, so an AAR without them breaks at runtime.
+        val packaged = zipTree(aar).matching { include("proguard.txt") }.singleFile.readText()
+        val missing = consumerRules.readLines()
+            .map { it.trim() }
+            .filter { it.isNotEmpty() && !it.startsWith("#") && it !in packaged }
+        check(missing.isEmpty()) { "$name: proguard.txt in the AAR lacks $missing" }
+    }
+}
@@ -0,0 +1,5 @@
+# RecognizerPool creates each script's recognizer options through reflection.
+-keep class com.google.mlkit.vision.text.**.*TextRecognizerOptions$Builder {
+    public <init>();
+    public *;
+}
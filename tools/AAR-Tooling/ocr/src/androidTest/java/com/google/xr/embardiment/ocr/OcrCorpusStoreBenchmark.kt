@@ -0,0 +1,120 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.graphics.Color
+import android.graphics.Paint
+import android.os.SystemClock
+import android.support.test.InstrumentationRegistry
+import android.support.test.runner.AndroidJUnit4
+import android.util.Log
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import org.json.JSONObject
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Compares the cold start of a document scene with and without [OcrCorpusStore]: the time until
+ * every screen has a result, from a bridge that has not recognized anything yet. Timings are
+ * logged under the "OcrCorpusStoreBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4::class)
+class OcrCorpusStoreBenchmark {
+    private val context = InstrumentationRegistry.getInstrumentation().targetContext
+
+    @Test
+    fun coldStart_withStore_skipsRecognition() {
+        val screens = List(SCREEN_COUNT) { renderScreen(it) }
+        val file = File(context.cacheDir, "ocr_corpus_benchmark.bin")
+        file.delete()
+
+        // The first launch recognizes every screen, filling the store as it goes.
+        val withoutStoreMs = recognizeAll(screens, file)
+        OcrCorpusStore.open(file).close()
+
+        // The next launch maps the file again and serves every screen from it.
+        val withStoreMs = recognizeAll(screens, file)
+
+        Log.i(
+            "OcrCorpusStoreBenchmark",
+            "$SCREEN_COUNT screens: ${withoutStoreMs}ms recognizing, ${withStoreMs}ms from the " +
+                "store (${file.length()} bytes)."
+        )
+        assertTrue(withStoreMs < withoutStoreMs)
+        file.delete()
+    }
+
+    /** Returns how long a fresh bridge took to deliver a result for every screen. */
+    private fun recognizeAll(screens: List<ByteArray>, storeFile: File): Long {
+        val startMs = SystemClock.elapsedRealtime()
+        val bridge = OcrBridge()
+        bridge.openCorpusStore(storeFile.path)
+        val done = CountDownLatch(screens.size)
+        val texts = arrayOfNulls<String>(screens.size)
+        screens.forEachIndexed { i, screen ->
+            bridge.processImage(screen, 0, i, object : OcrBridge.OcrCallback {
+                override fun onSuccess(resultJson: String) {
+                    texts[i] = JSONObject(resultJson).getString("fullText")
+                    done.countDown()
+                }
+
+                override fun onFailure(errorMessage: String) {
+                    done.countDown()
+                }
+            })
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS))
+        val elapsedMs = SystemClock.elapsedRealtime() - startMs
+
+        // Stored results must serve the same text and feed the retrieval index like fresh ones.
+        texts.forEachIndexed { i, text -> assertTrue(text!!.contains("Screen ${i + 1}")) }
+        val hits = JSONObject(bridge.retrieve("quarterly report", 1, 0)).getJSONArray("hits")
+        assertEquals(1, hits.length())
+        bridge.close()
+        return elapsedMs
+    }
+
+    private fun renderScreen(index: Int): ByteArray {
+        val bitmap = Bitmap.createBitmap(1280, 720, Bitmap.Config.ARGB_8888)
+        val canvas = Canvas(bitmap)
+        canvas.drawColor(Color.WHITE)
+        val paint = Paint(Paint.ANTI_ALIAS_FLAG).apply {
+            color = Color.BLACK
+            textSize = 40f
+        }
+        canvas.drawText("Screen ${index + 1}", 60f, 80f, paint)
+        for (line in 0 until 10) {
+            val text = "Line $line of the quarterly report, page ${index + 1}"
+            canvas.drawText(text, 60f, 160f + line * 52f, paint)
+        }
+        val jpeg = ByteArrayOutputStream()
+        bitmap.compress(Bitmap.CompressFormat.JPEG, 90, jpeg)
+        bitmap.recycle()
+        return jpeg.toByteArray()
+    }
+
+    private companion object {
+        const val SCREEN_COUNT = 6
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.sqrt
+
+/**
+ * Picks the resolution [OcrBridge] recognizes at so that recognition fits a per-frame latency
+ * budget.
+ *
+ * Recognition time is tracked as an EWMA of milliseconds per recognized megapixel, and the scale is
+ * chosen so the predicted time of the next frame fits [budgetMs]. Every run at the highest scale
+ * seen so far becomes the quality reference; when a smaller scale loses too many elements or too
+ * much confidence against it, the scale is not allowed below the next step up. That floor relaxes
+ * one step after [FLOOR_RELAX_FRAMES] frames without a quality drop, so a scene change can lower
+ * the scale again.
+ *
+ * Thread-safe; concurrent requests share one estimate.
+ */
+internal class AdaptiveScaleController(
+    budgetMs: Float,
+    private val minScale: Float = DEFAULT_MIN_SCALE,
+    private val smoothing: Float = DEFAULT_SMOOTHING
+) {
+    /** The per-frame recognition budget; zero or less recognizes at full resolution. */
+    @get:Synchronized @set:Synchronized
+    var budgetMs: Float = budgetMs
+
+    /** The largest scale chosen, e.g. to ease the load while the device throttles. */
+    @get:Synchronized @set:Synchronized
+    var maxScale: Float = 1f
+
+    private var msPerMegapixel = Float.NaN
+    private var scaleFloor = minScale
+    private var framesSinceDrop = 0
+    private var referenceScale = 0f
+    private var referenceElements = 0f
+    private var referenceConfidence = 0f
+
+    /** The current per-megapixel latency estimate, or NaN before the first frame. */
+    @get:Synchronized
+    val latencyPerMegapixelMs: Float
+        get() = msPerMegapixel
+
+    /** Returns the scale in (0, 1] to recognize a [width] x [height] image at. */
+    @Synchronized
+    fun chooseScale(width: Int, height: Int): Float {
+        if (budgetMs <= 0f || msPerMegapixel.isNaN() || width <= 0 || height <= 0) {
+            return maxScale
+        }
+        val megapixels = width.toFloat() * height / PIXELS_PER_MEGAPIXEL
+        // Recognition time scales with area, so the linear scale is the root of the area ratio.
+        val budgetScale = sqrt(budgetMs / (msPerMegapixel * megapixels))
+        // The cap wins over the quality floor: a throttling device cannot afford the floor.
+        return min(maxScale, max(quantize(budgetScale), max(minScale, scaleFloor)))
+    }
+
+    /**
+     * Feeds back one recognition.
+     *
+     * @param scale The scale that was used.
+     * @param megapixels The size of the image that was recognized, after scaling.
+     * @param elapsedMs The recognition time.
+     * @param elementCount The number of recognized elements (words).
+     * @param meanConfidence The mean element confidence, or NaN if unavailable.
+     */
+    @Synchronized
+    fun record(
+        scale: Float,
+        megapixels: Float,
+        elapsedMs: Float,
+        elementCount: Int,
+        meanConfidence: Float
+    ) {
+        if (megapixels > 0f) {
+            val sample = elapsedMs / megapixels
+            msPerMegapixel =
+                if (msPerMegapixel.isNaN()) sample
+                else msPerMegapixel + smoothing * (sample - msPerMegapixel)
+        }
+
+        if (scale >= referenceScale) {
+            referenceScale = scale
+            referenceElements = elementCount.toFloat()
+            referenceConfidence = meanConfidence
+            framesSinceDrop = 0
+            return
+        }
+
+        val lostElements = elementCount < referenceElements * (1f - ELEMENT_DROP_TOLERANCE)
+        val lostConfidence = !meanConfidence.isNaN() && !referenceConfidence.isNaN() &&
+            meanConfidence < referenceConfidence - CONFIDENCE_DROP_TOLERANCE
+        if (lostElements || lostConfidence) {
+            scaleFloor = min(1f, scale / SCALE_STEP)
+            framesSinceDrop = 0
+        } else if (++framesSinceDrop >= FLOOR_RELAX_FRAMES && scaleFloor > minScale) {
+            scaleFloor = max(minScale, scaleFloor * SCALE_STEP)
+            // The reference may describe a scene that is gone, so the current frame replaces it.
+            referenceScale = scale
+            referenceElements = elementCount.toFloat()
+            referenceConfidence = meanConfidence
+            framesSinceDrop = 0
+        }
+    }
+
+    /** Forgets the latency estimate and the quality reference, e.g. after a scene change. */
+    @Synchronized
+    fun reset() {
+        msPerMegapixel = Float.NaN
+        scaleFloor = minScale
+        framesSinceDrop = 0
+        referenceScale = 0f
+        referenceElements = 0f
+        referenceConfidence = 0f
+    }
+
+    // Snapping down avoids re-decoding at a slightly different size on every frame.
+    private fun quantize(scale: Float) = ((scale + 1e-4f) / SCALE_QUANTUM).toInt() * SCALE_QUANTUM
+
+    companion object {
+        const val DEFAULT_MIN_SCALE = 0.25f
+        const val DEFAULT_SMOOTHING = 0.2f
+        private const val PIXELS_PER_MEGAPIXEL = 1_000_000f
+        private const val SCALE_STEP = 0.8f
+        private const val SCALE_QUANTUM = 0.05f
+        private const val ELEMENT_DROP_TOLERANCE = 0.15f
+        private const val CONFIDENCE_DROP_TOLERANCE = 0.1f
+        private const val FLOOR_RELAX_FRAMES = 30
+    }
+}
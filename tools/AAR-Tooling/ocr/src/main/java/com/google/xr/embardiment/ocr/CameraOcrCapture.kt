@@ -0,0 +1,199 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import android.content.Context
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
+import android.util.Log
+import android.util.Size
+import androidx.camera.core.CameraSelector
+import androidx.camera.core.ExperimentalGetImage
+import androidx.camera.core.ImageAnalysis
+import androidx.camera.core.ImageProxy
+import androidx.camera.core.resolutionselector.ResolutionSelector
+import androidx.camera.core.resolutionselector.ResolutionStrategy
+import androidx.camera.lifecycle.ProcessCameraProvider
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleOwner
+import androidx.lifecycle.LifecycleRegistry
+import com.google.mlkit.vision.common.InputImage
+import java.io.Closeable
+import java.util.concurrent.Executor
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Feeds camera frames from CameraX straight into ML Kit, so pixels never reach Unity: an
+ * [ImageAnalysis] use case keeps only the latest frame, and each frame is recognized in place via
+ * [InputImage.fromMediaImage], without a GPU readback, a copy or a JPEG round trip. Results reach
+ * the callback as the same JSON as [OcrBridge.processImage], and the frame's spatial index backs
+ * [OcrBridge.queryPoint].
+ *
+ * A frame is held until its recognition finishes, so a slow recognizer makes the camera drop frames
+ * instead of queueing them. CameraX binds to a [LifecycleOwner], which Unity's activity is not, so
+ * the capture owns one: [start] resumes it and [close] destroys it. Needs the CAMERA permission.
+ */
+class CameraOcrCapture(private val context: Context, bridge: OcrBridge) : Closeable {
+    /** Uses the Unity activity's application context. */
+    constructor(bridge: OcrBridge) : this(
+        unityApplication ?: throw IllegalStateException("Application context is null."),
+        bridge
+    )
+
+    private class CaptureLifecycleOwner : LifecycleOwner {
+        private val registry = LifecycleRegistry(this)
+
+        override val lifecycle: Lifecycle
+            get() = registry
+
+        fun moveTo(state: Lifecycle.State) {
+            registry.currentState = state
+        }
+    }
+
+    private val bridge = bridge.retain()
+    private val mainHandler = Handler(Looper.getMainLooper())
+    private val analysisExecutor: ExecutorService = Executors.newSingleThreadExecutor()
+    private val lifecycleOwner = CaptureLifecycleOwner()
+    private val scanRequested = AtomicBoolean()
+    @Volatile private var minIntervalMs = 0L
+    @Volatile private var callback: OcrBridge.OcrCallback? = null
+    private var lastFrameMs = 0L
+    private var provider: ProcessCameraProvider? = null
+    private var analysis: ImageAnalysis? = null
+    private var closed = false
+
+    /**
+     * Opens the camera and starts recognizing frames; a running capture is restarted.
+     *
+     * @param backCamera Whether to use the back camera rather than the front one.
+     * @param targetWidth The preferred analysis width; CameraX picks the closest supported size.
+     * @param targetHeight The preferred analysis height.
+     * @param minIntervalMs The least time between recognized frames; zero recognizes frames as
+     *     fast as the recognizer keeps up, and a negative value only frames requested with
+     *     [scanNextFrame].
+     */
+    fun start(
+        backCamera: Boolean,
+        targetWidth: Int,
+        targetHeight: Int,
+        minIntervalMs: Long,
+        callback: OcrBridge.OcrCallback
+    ) {
+        this.minIntervalMs = minIntervalMs
+        this.callback = callback
+        mainHandler.post {
+            if (closed) return@post
+            val future = ProcessCameraProvider.getInstance(context)
+            future.addListener({
+                try {
+                    bind(future.get(), backCamera, Size(targetWidth, targetHeight))
+                } catch (e: Exception) {
+                    Log.e("CameraOcrCapture", "Failed to bind the camera.", e)
+                    callback.onFailure(e.localizedMessage ?: "Failed to open the camera.")
+                }
+            }, Executor { mainHandler.post(it) })
+        }
+    }
+
+    /** Recognizes the next frame, for scanning on demand after a start with a negative interval. */
+    fun scanNextFrame() {
+        scanRequested.set(true)
+    }
+
+    /** Releases the camera; [start] opens it again. */
+    fun stop() {
+        mainHandler.post { unbind() }
+    }
+
+    /** Releases the camera and this capture's reference to the bridge. */
+    override fun close() {
+        mainHandler.post {
+            if (closed) return@post
+            closed = true
+            unbind()
+            lifecycleOwner.moveTo(Lifecycle.State.DESTROYED)
+            analysisExecutor.shutdown()
+            bridge.close()
+        }
+    }
+
+    private fun bind(cameraProvider: ProcessCameraProvider, backCamera: Boolean, targetSize: Size) {
+        if (closed) return
+        unbind()
+        val useCase = ImageAnalysis.Builder()
+            .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+            .setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_YUV_420_888)
+            .setResolutionSelector(
+                ResolutionSelector.Builder()
+                    .setResolutionStrategy(
+                        ResolutionStrategy(
+                            targetSize,
+                            ResolutionStrategy.FALLBACK_RULE_CLOSEST_HIGHER_THEN_LOWER
+                        )
+                    )
+                    .build()
+            )
+            .build()
+        useCase.setAnalyzer(analysisExecutor, ::analyze)
+        val selector = if (backCamera) {
+            CameraSelector.DEFAULT_BACK_CAMERA
+        } else {
+            CameraSelector.DEFAULT_FRONT_CAMERA
+        }
+
+        lifecycleOwner.moveTo(Lifecycle.State.RESUMED)
+        cameraProvider.bindToLifecycle(lifecycleOwner, selector, useCase)
+        provider = cameraProvider
+        analysis = useCase
+        Log.d("CameraOcrCapture", "Camera bound for OCR.")
+    }
+
+    private fun unbind() {
+        analysis?.let {
+            it.clearAnalyzer()
+            provider?.unbind(it)
+        }
+        analysis = null
+        if (!closed) lifecycleOwner.moveTo(Lifecycle.State.CREATED)
+    }
+
+    /** Runs on [analysisExecutor]; every frame must be closed, or CameraX stops delivering. */
+    @androidx.annotation.OptIn(ExperimentalGetImage::class)
+    private fun analyze(frame: ImageProxy) {
+        val frameCallback = callback
+        val mediaImage = frame.image
+        if (frameCallback == null || mediaImage == null || !isDue()) {
+            frame.close()
+            return
+        }
+        val image = InputImage.fromMediaImage(mediaImage, frame.imageInfo.rotationDegrees)
+        bridge.processFrame(image, frame::close, frameCallback)
+    }
+
+    private fun isDue(): Boolean {
+        if (minIntervalMs < 0) return scanRequested.getAndSet(false)
+        val interval = maxOf(minIntervalMs, bridge.frameIntervalFloorMs)
+        val now = SystemClock.elapsedRealtime()
+        if (now - lastFrameMs < interval) return false
+        lastFrameMs = now
+        return true
+    }
+}
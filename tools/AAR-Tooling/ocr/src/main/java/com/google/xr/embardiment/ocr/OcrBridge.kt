@@ -16,116 +16,618 @@
 
 package com.google.xr.embardiment.ocr
 
+import android.graphics.Bitmap
 import android.graphics.BitmapFactory
+import android.graphics.BitmapRegionDecoder
 import android.graphics.Rect
+import android.os.Build
+import android.os.SystemClock
 import android.util.Log
 import com.google.mlkit.vision.common.InputImage
 import com.google.mlkit.vision.text.Text
-import com.google.mlkit.vision.text.TextRecognition
-import com.google.mlkit.vision.text.latin.TextRecognizerOptions
+import com.google.mlkit.vision.text.TextRecognizer
+import java.io.Closeable
+import java.io.File
+import java.util.concurrent.Executor
+import java.util.concurrent.atomic.AtomicInteger
+import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.coroutineScope
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
+import kotlinx.coroutines.tasks.await
 import kotlinx.coroutines.withContext
-import org.json.JSONArray
+import kotlin.math.max
+import kotlin.math.roundToInt
 import org.json.JSONObject
 
-class OcrBridge {
+/**
+ * Reference counted: the creator holds the first reference and every in-flight image holds
+ * another, so Unity can [close] the bridge right after submitting work. When the last reference is
+ * released the coroutine scope is cancelled. Recognizers come from the process-wide
+ * [RecognizerPool], which outlives the bridge.
+ */
+class OcrBridge internal constructor(
+    workDispatcher: CoroutineDispatcher,
+    private val recognizerExecutor: Executor?,
+    private val recognizers: RecognizerPool,
+    private val ownsRecognizers: Boolean
+) : Closeable {
+    constructor() : this(Dispatchers.Default, null, RecognizerPool.shared, false)
+
+    /** Runs decoding and ML Kit recognition on a shared [executor], e.g. the plugin host's. */
+    constructor(executor: Executor) : this(
+        executor.asCoroutineDispatcher(),
+        executor,
+        RecognizerPool.shared,
+        false
+    )
+
+    /** Recognizes Latin text with [recognizer], which the bridge closes along with itself. */
+    internal constructor(workDispatcher: CoroutineDispatcher, recognizer: TextRecognizer) : this(
+        workDispatcher,
+        null,
+        RecognizerPool { _, _ -> recognizer }.apply { preload(OcrScript.LATIN, null) },
+        true
+    )
+
     // The callback interface now expects a single JSON string on success.
     interface OcrCallback {
         fun onSuccess(resultJson: String)
         fun onFailure(errorMessage: String)
     }
 
-    private val scope = CoroutineScope(Dispatchers.Default)
-    private val recognizer = TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS)
+    private val scope = CoroutineScope(workDispatcher)
+    private val refCount = AtomicInteger(1)
+    private val scaleController = AdaptiveScaleController(0f)
+    @Volatile private var script = OcrScript.LATIN
+    @Volatile private var deltaTracker: OcrDeltaTracker? = null
+    @Volatile private var lastIndex: OcrSpatialIndex? = null
+    private val textIndex = OcrTextIndex()
+    @Volatile private var corpusStore: OcrCorpusStore? = null
+    private val inFlight = SingleFlight<FlightKey, String>()
+
+    /** The least time between camera frames, on top of the interval the capture started with. */
+    @Volatile internal var frameIntervalFloorMs = 0L
+        private set
+
+    val isClosed: Boolean
+        get() = refCount.get() == 0
+
+    /** How many images joined an identical one already being recognized instead of running OCR. */
+    val coalescedRequests: Long
+        get() = inFlight.coalesced
+
+    /** Adds a reference that must be balanced by a [close]. */
+    fun retain(): OcrBridge {
+        check(tryRetain()) { "OcrBridge is closed." }
+        return this
+    }
+
+    /** Drops a reference; the last one cancels pending work. */
+    override fun close() {
+        if (refCount.getAndUpdate { if (it > 0) it - 1 else 0 } == 1) {
+            scope.cancel()
+            if (ownsRecognizers) recognizers.close()
+            Log.d("OcrBridge", "OcrBridge released.")
+        }
+    }
+
+    private fun tryRetain(): Boolean {
+        while (true) {
+            val count = refCount.get()
+            if (count == 0) return false
+            if (refCount.compareAndSet(count, count + 1)) return true
+        }
+    }
+
+    /**
+     * Enables adaptive resolution: images are downscaled until recognition is predicted to fit
+     * [budgetMs] per frame, and scaled back up when the text gets lost. Zero or less recognizes at
+     * the resolution Unity hands in. The scale used is reported in the result's metadata.
+     */
+    fun setLatencyBudget(budgetMs: Float) {
+        scaleController.budgetMs = budgetMs
+    }
+
+    /**
+     * Eases the load while the device throttles: encoded images are recognized at no more than
+     * [maxScale] of their resolution, below the latency budget's scale if need be, and camera
+     * captures recognize at most one frame per [minFrameIntervalMs]. 1 and 0 lift the limits.
+     */
+    fun setThrottle(maxScale: Float, minFrameIntervalMs: Long) {
+        scaleController.maxScale = maxScale.coerceIn(MIN_THROTTLE_SCALE, 1f)
+        frameIntervalFloorMs = maxOf(0L, minFrameIntervalMs)
+    }
+
+    /**
+     * Selects the script later images are read in: "latin", "chinese", "japanese", "korean" or
+     * "devanagari". Each script's model is loaded on its first image; scripts other than Latin
+     * need their ML Kit artifact in the app.
+     */
+    fun setScript(scriptName: String) {
+        script = OcrScript.forName(scriptName)
+    }
+
+    /**
+     * Enables delta results for continuous scanning: instead of the whole result, [processImage]
+     * and camera frames then report only the blocks added, changed or removed since the previous
+     * result, with ids that stay stable across frames. Tiled documents are always reported whole.
+     */
+    @Synchronized
+    fun setDeltaMode(enabled: Boolean) {
+        // Enabling it again keeps the tracked blocks, so callers may set it before every request.
+        if (!enabled) {
+            deltaTracker = null
+        } else if (deltaTracker == null) {
+            deltaTracker = OcrDeltaTracker()
+        }
+    }
+
+    /** Makes the next delta report every block as added, e.g. after Unity rebuilt its scene. */
+    fun resetDeltas() {
+        deltaTracker?.reset()
+    }
+
+    /** Forgets the adaptive latency estimate and quality reference, e.g. after a scene change. */
+    fun resetAdaptiveScale() {
+        scaleController.reset()
+    }
+
+    /**
+     * Returns the ids of the items of [kind] (0 block, 1 line, 2 element, negative for any) whose
+     * box contains ([x], [y]) in the most recent result. Ids index the spatialIndex item arrays of
+     * that result's JSON.
+     */
+    fun queryPoint(x: Int, y: Int, kind: Int): IntArray =
+        lastIndex?.queryPoint(x, y, kind) ?: IntArray(0)
+
+    /** Like [queryPoint], for items within [radius] pixels of ([x], [y]). */
+    fun queryRadius(x: Int, y: Int, radius: Int, kind: Int): IntArray =
+        lastIndex?.queryRadius(x, y, radius, kind) ?: IntArray(0)
+
+    /**
+     * Returns up to [k] lines of the indexed documents that best match [query], as JSON
+     * `{"hits":[{"document", "item", "score", "text"}]}`, best first and within about
+     * [tokenBudget] tokens (zero or less for no limit). Items are the spatial index ids of the
+     * lines in their document's most recent result.
+     */
+    fun retrieve(query: String, k: Int, tokenBudget: Int): String =
+        OcrTextIndex.toJson(textIndex.retrieve(query, k, tokenBudget))
+
+    /** Drops a document from the index that [retrieve] searches. */
+    fun removeIndexedDocument(documentId: Int) {
+        textIndex.removeDocument(documentId)
+    }
+
+    fun clearIndex() {
+        textIndex.clear()
+    }
+
+    /**
+     * Persists results to the store file at [path], e.g. in the app's files directory, and serves
+     * images recognized in an earlier launch from it without running ML Kit again. Bridges of one
+     * process share the store of a path. Delta mode and camera frames bypass the store.
+     */
+    fun openCorpusStore(path: String) {
+        corpusStore = OcrCorpusStore.open(File(path))
+    }
+
+    /** Stops using the store; it stays open for other bridges of the process. */
+    fun closeCorpusStore() {
+        corpusStore = null
+    }
+
+    /**
+     * Reclaims the space of superseded results in the store and, past [maxBytes], of results not
+     * used since the process opened it, oldest first.
+     */
+    fun compactCorpusStore(maxBytes: Long) {
+        corpusStore?.compact(maxBytes)
+    }
 
     fun processImage(
         imageData: ByteArray,
         rotation: Int,
         callback: OcrCallback
+    ) {
+        processImage(imageData, rotation, NO_DOCUMENT, callback)
+    }
+
+    /**
+     * Like [processImage], and also indexes the recognized lines for [retrieve] under
+     * [documentId], replacing the lines previously recognized for it.
+     */
+    fun processImage(
+        imageData: ByteArray,
+        rotation: Int,
+        documentId: Int,
+        callback: OcrCallback
     ) {
         Log.d("OcrBridge", "Received image data for processing: ${imageData.size} bytes.")
+        if (!tryRetain()) {
+            callback.onFailure("OcrBridge is closed.")
+            return
+        }
 
         scope.launch {
             try {
-                val bitmap = withContext(Dispatchers.IO) {
-                    BitmapFactory.decodeByteArray(imageData, 0, imageData.size)
+                val jsonResponse = runOnce(imageData, rotation, 0, documentId) { stored ->
+                    recognizeImage(imageData, rotation, documentId, stored)
                 }
+                withContext(Dispatchers.Main) { callback.onSuccess(jsonResponse) }
 
-                if (bitmap == null) {
-                    withContext(Dispatchers.Main) { callback.onFailure("Failed to decode image data.") }
-                    return@launch
+            } catch (e: Exception) {
+                Log.e("OcrBridge", "Error during image processing.", e)
+                withContext(Dispatchers.Main) {
+                    callback.onFailure(e.localizedMessage ?: "Failed during processing.")
                 }
+            }
+        }.invokeOnCompletion { close() }
+    }
 
-                val image = InputImage.fromBitmap(bitmap, rotation)
+    /** Recognizes an encoded image, or serves it from [stored], and returns the result JSON. */
+    private suspend fun recognizeImage(
+        imageData: ByteArray,
+        rotation: Int,
+        documentId: Int,
+        stored: StoredResult?
+    ): String {
+        if (stored != null) storedJson(stored, documentId)?.let { return it }
 
-                recognizer.process(image)
-                    .addOnSuccessListener { visionText ->
-                        // Serialize the result to a JSON string that matches the C# structs.
-                        val jsonResponse = serializeVisionTextToJson(visionText)
-                        Log.d("OcrBridge", "Text recognition successful.")
-                        callback.onSuccess(jsonResponse)
-                    }
-                    .addOnFailureListener { e ->
-                        Log.e("OcrBridge", "Text recognition failed.", e)
-                        callback.onFailure(e.localizedMessage ?: "Unknown error")
-                    }
+        // Decoding is CPU bound, so it stays on the work dispatcher.
+        val bounds = BitmapFactory.Options().apply { inJustDecodeBounds = true }
+        BitmapFactory.decodeByteArray(imageData, 0, imageData.size, bounds)
+        val scale = scaleController.chooseScale(bounds.outWidth, bounds.outHeight)
+        val bitmap = if (bounds.outWidth > 0 && bounds.outHeight > 0) {
+            decodeScaled(imageData, bounds.outWidth, scale)
+        } else {
+            null
+        }
+        if (bitmap == null) throw IllegalArgumentException("Failed to decode image data.")
+
+        val image = InputImage.fromBitmap(bitmap, rotation)
+
+        // Awaiting the task keeps this request's reference until recognition finishes.
+        val startNanos = SystemClock.elapsedRealtimeNanos()
+        val visionText = recognize(image)
+        val recognitionMs = (SystemClock.elapsedRealtimeNanos() - startNanos) / 1_000_000f
+
+        val actualScale = bitmap.width.toFloat() / bounds.outWidth
+        val megapixels = bitmap.width.toFloat() * bitmap.height / 1_000_000f
+        val blocks = visionText.toOcrBlocks(1f / actualScale)
+        var elementCount = 0
+        var confidenceSum = 0f
+        for (block in blocks) {
+            for (line in block.lines) {
+                for (element in line.elements) {
+                    elementCount++
+                    confidenceSum += element.confidence
+                }
+            }
+        }
+        val meanConfidence =
+            if (elementCount > 0) confidenceSum / elementCount else Float.NaN
+        scaleController.record(
+            actualScale, megapixels, recognitionMs, elementCount, meanConfidence
+        )
+
+        val metadata = JSONObject()
+        metadata.put("scale", actualScale.toDouble())
+        metadata.put("script", script.name.lowercase())
+        metadata.put("width", bitmap.width)
+        metadata.put("height", bitmap.height)
+        metadata.put("recognitionMs", recognitionMs.toDouble())
+        metadata.put("budgetMs", scaleController.budgetMs.toDouble())
+        metadata.put("elementCount", elementCount)
+
+        // Serialize the result to a JSON string that matches the C# structs.
+        val index = OcrSpatialIndex.build(blocks)
+        lastIndex = index
+        indexDocument(documentId, blocks, index)
+        val jsonResponse = serializeResult(visionText.text, blocks, metadata, index)
+        stored?.let { storeResult(it, jsonResponse, blocks) }
+        Log.d("OcrBridge", "Text recognition successful.")
+        return jsonResponse
+    }
+
+    /**
+     * Recognizes a camera frame that ML Kit reads in place, e.g. from [InputImage.fromMediaImage].
+     * [onDone] runs once the frame is no longer needed, whether recognition succeeded or not, so
+     * the caller can release the frame's buffer. Boxes are in the upright frame's pixels.
+     */
+    internal fun processFrame(image: InputImage, onDone: () -> Unit, callback: OcrCallback) {
+        if (!tryRetain()) {
+            onDone()
+            callback.onFailure("OcrBridge is closed.")
+            return
+        }
+
+        scope.launch {
+            try {
+                val startNanos = SystemClock.elapsedRealtimeNanos()
+                val visionText = recognize(image)
+                val recognitionMs = (SystemClock.elapsedRealtimeNanos() - startNanos) / 1_000_000f
+                val blocks = visionText.toOcrBlocks(1f)
+                val sideways = image.rotationDegrees % 180 != 0
+
+                val metadata = JSONObject()
+                metadata.put("scale", 1.0)
+                metadata.put("script", script.name.lowercase())
+                metadata.put("width", if (sideways) image.height else image.width)
+                metadata.put("height", if (sideways) image.width else image.height)
+                metadata.put("recognitionMs", recognitionMs.toDouble())
+                metadata.put("elementCount", blocks.sumOf { block ->
+                    block.lines.sumOf { it.elements.size }
+                })
+
+                val index = OcrSpatialIndex.build(blocks)
+                lastIndex = index
+                val jsonResponse = serializeResult(visionText.text, blocks, metadata, index)
+                withContext(Dispatchers.Main) { callback.onSuccess(jsonResponse) }
 
             } catch (e: Exception) {
-                Log.e("OcrBridge", "Error during image processing.", e)
+                Log.e("OcrBridge", "Error during frame processing.", e)
                 withContext(Dispatchers.Main) {
                     callback.onFailure(e.localizedMessage ?: "Failed during processing.")
                 }
             }
+        }.invokeOnCompletion {
+            // Also runs if the scope was cancelled before the frame was recognized.
+            onDone()
+            close()
         }
     }
 
-    // This function manually builds the JSON structure to match your C# definitions.
-    private fun serializeVisionTextToJson(visionText: Text): String {
-        val root = JSONObject()
-        root.put("fullText", visionText.text)
+    /**
+     * Recognizes a very large image, e.g. a multi-page capture or an 8K render, in overlapping
+     * tiles. Tiles are decoded region by region with [BitmapRegionDecoder], so the full bitmap is
+     * never held, and at most [maxParallel] tiles are decoded or being recognized at once. Lines
+     * read twice across a tile seam are reported once. Boxes are in full-image coordinates.
+     *
+     * @param tileSize The edge length of a tile in pixels.
+     * @param overlap How far neighbouring tiles overlap, in pixels; should exceed a line height.
+     */
+    fun processImageTiled(
+        imageData: ByteArray,
+        rotation: Int,
+        tileSize: Int,
+        overlap: Int,
+        maxParallel: Int,
+        callback: OcrCallback
+    ) {
+        processImageTiled(
+            imageData, rotation, tileSize, overlap, maxParallel, NO_DOCUMENT, callback
+        )
+    }
 
-        val textBlocksArray = JSONArray()
-        for (block in visionText.textBlocks) {
-            val blockObject = JSONObject()
-            blockObject.put("text", block.text)
-            blockObject.put("boundingBox", jsonFromRect(block.boundingBox))
+    /** Like [processImageTiled], and also indexes the recognized lines under [documentId]. */
+    fun processImageTiled(
+        imageData: ByteArray,
+        rotation: Int,
+        tileSize: Int,
+        overlap: Int,
+        maxParallel: Int,
+        documentId: Int,
+        callback: OcrCallback
+    ) {
+        Log.d("OcrBridge", "Received image data for tiled processing: ${imageData.size} bytes.")
+        if (!tryRetain()) {
+            callback.onFailure("OcrBridge is closed.")
+            return
+        }
 
-            val linesArray = JSONArray()
-            for (line in block.lines) {
-                val lineObject = JSONObject()
-                lineObject.put("text", line.text)
-                lineObject.put("boundingBox", jsonFromRect(line.boundingBox))
+        scope.launch {
+            try {
+                val jsonResponse = runOnce(imageData, rotation, tileSize, documentId) { stored ->
+                    recognizeImageTiled(
+                        imageData, rotation, tileSize, overlap, maxParallel, documentId, stored
+                    )
+                }
+                withContext(Dispatchers.Main) { callback.onSuccess(jsonResponse) }
 
-                val elementsArray = JSONArray()
-                // ML Kit calls them 'elements', which matches your C# struct.
-                for (element in line.elements) {
-                    val elementObject = JSONObject()
-                    elementObject.put("text", element.text)
-                    elementObject.put("boundingBox", jsonFromRect(element.boundingBox))
-                    elementsArray.put(elementObject)
+            } catch (e: Exception) {
+                Log.e("OcrBridge", "Error during tiled image processing.", e)
+                withContext(Dispatchers.Main) {
+                    callback.onFailure(e.localizedMessage ?: "Failed during processing.")
                 }
-                // The JSON key is "elements", matching your C# struct.
-                lineObject.put("elements", elementsArray)
-                linesArray.put(lineObject)
             }
-            blockObject.put("lines", linesArray)
-            textBlocksArray.put(blockObject)
+        }.invokeOnCompletion { close() }
+    }
+
+    /** Recognizes an image tile by tile, or serves it from [stored]; returns the result JSON. */
+    private suspend fun recognizeImageTiled(
+        imageData: ByteArray,
+        rotation: Int,
+        tileSize: Int,
+        overlap: Int,
+        maxParallel: Int,
+        documentId: Int,
+        stored: StoredResult?
+    ): String {
+        if (stored != null) storedJson(stored, documentId)?.let { return it }
+
+        val decoder = newRegionDecoder(imageData)
+            ?: throw IllegalArgumentException("Failed to decode image data.")
+
+        try {
+            val width = decoder.width
+            val height = decoder.height
+            val tiles = tileGrid(width, height, tileSize, overlap)
+            val permits = Semaphore(max(1, maxParallel))
+
+            val startNanos = SystemClock.elapsedRealtimeNanos()
+            val tileBlocks = coroutineScope {
+                tiles.map { tile ->
+                    async {
+                        permits.withPermit {
+                            recognizeTile(decoder, tile, rotation, width, height)
+                        }
+                    }
+                }.awaitAll()
+            }
+            val blocks = mergeTiles(tileBlocks)
+            val recognitionMs = (SystemClock.elapsedRealtimeNanos() - startNanos) / 1_000_000f
+
+            val metadata = JSONObject()
+            metadata.put("scale", 1.0)
+            metadata.put("script", script.name.lowercase())
+            metadata.put("width", width)
+            metadata.put("height", height)
+            metadata.put("recognitionMs", recognitionMs.toDouble())
+            metadata.put("elementCount", blocks.sumOf { block ->
+                block.lines.sumOf { it.elements.size }
+            })
+            metadata.put("tileCount", tiles.size)
+
+            val fullText = blocks.joinToString("\n") { it.text }
+            val index = OcrSpatialIndex.build(blocks)
+            lastIndex = index
+            indexDocument(documentId, blocks, index)
+            val jsonResponse = serializeOcrResult(fullText, blocks, metadata, index)
+            stored?.let { storeResult(it, jsonResponse, blocks) }
+            Log.d("OcrBridge", "Tiled text recognition successful (${tiles.size} tiles).")
+            return jsonResponse
+        } finally {
+            decoder.recycle()
+        }
+    }
+
+    private suspend fun recognizeTile(
+        decoder: BitmapRegionDecoder,
+        tile: OcrBox,
+        rotation: Int,
+        width: Int,
+        height: Int
+    ): List<OcrBlock> {
+        val bitmap = decoder.decodeRegion(Rect(tile.x, tile.y, tile.right, tile.bottom), null)
+            ?: return emptyList()
+        try {
+            val visionText = recognize(InputImage.fromBitmap(bitmap, rotation))
+            // ML Kit reports boxes in the rotated tile; offset them by where that tile sits in the
+            // rotated full image.
+            val origin = rotateBox(tile, rotation, width, height)
+            return visionText.toOcrBlocks(1f, origin.x, origin.y)
+        } finally {
+            bitmap.recycle()
+        }
+    }
+
+    // Holds one of the recognizer's permits until ML Kit has finished with the image.
+    private suspend fun recognize(image: InputImage): Text =
+        recognizers.use(script, recognizerExecutor) { it.process(image).await() }
+
+    /** Where an image's result is stored. */
+    private class StoredResult(val store: OcrCorpusStore, val key: OcrCorpusStore.Key)
+
+    /** An image, the options it is recognized with and the document it is indexed under. */
+    private data class FlightKey(val image: OcrCorpusStore.Key, val documentId: Int)
+
+    /**
+     * Runs [recognize] once for identical requests in flight at the same time and hands every one
+     * of them its result, with where that result is stored if there is a store. In delta mode every
+     * image must reach the tracker, so nothing is shared or stored.
+     */
+    private suspend fun runOnce(
+        imageData: ByteArray,
+        rotation: Int,
+        variant: Int,
+        documentId: Int,
+        recognize: suspend (StoredResult?) -> String
+    ): String {
+        if (deltaTracker != null) return recognize(null)
+        val key = OcrCorpusStore.keyOf(imageData, rotation, script, variant)
+        val stored = corpusStore?.let { StoredResult(it, key) }
+        return inFlight.run(FlightKey(key, documentId)) { recognize(stored) }
+    }
+
+    /** The stored result JSON, indexed as if it had just been recognized, or null. */
+    private fun storedJson(stored: StoredResult, documentId: Int): String? {
+        val result = stored.store.get(stored.key) ?: return null
+        val index = OcrSpatialIndex.build(result.blocks)
+        lastIndex = index
+        indexDocument(documentId, result.blocks, index)
+        Log.d("OcrBridge", "Served a stored result.")
+        return result.json
+    }
+
+    private fun storeResult(stored: StoredResult, json: String, blocks: List<OcrBlock>) {
+        try {
+            stored.store.put(stored.key, json, blocks)
+        } catch (e: java.io.IOException) {
+            // The result still reaches Unity; only the next launch recognizes the image again.
+            Log.e("OcrBridge", "Failed to store the result.", e)
         }
-        root.put("textBlocks", textBlocksArray)
-        return root.toString()
     }
 
-    // Helper to convert a Rect into a JSONObject using the keys from your C# BoundingBox.
-    private fun jsonFromRect(rect: Rect?): JSONObject {
-        val rectObject = JSONObject()
-        if (rect != null) {
-            rectObject.put("x", rect.left)
-            rectObject.put("y", rect.top)
-            rectObject.put("w", rect.width())  // Use "w" to match [JsonProperty("w")]
-            rectObject.put("h", rect.height()) // Use "h" to match [JsonProperty("h")]
+    private fun indexDocument(documentId: Int, blocks: List<OcrBlock>, index: OcrSpatialIndex) {
+        if (documentId < 0) return
+        val items = (0 until index.itemCount)
+            .filter { index.itemKind[it] == OcrSpatialIndex.KIND_LINE }
+            .toIntArray()
+        val texts = items.map { blocks[index.itemBlock[it]].lines[index.itemLine[it]].text }
+        textIndex.setDocument(documentId, items, texts)
+    }
+
+    /** The whole result, or in delta mode only what changed since the previous one. */
+    private fun serializeResult(
+        fullText: String,
+        blocks: List<OcrBlock>,
+        metadata: JSONObject,
+        index: OcrSpatialIndex
+    ): String {
+        val tracker = deltaTracker ?: return serializeOcrResult(fullText, blocks, metadata, index)
+        return serializeOcrDelta(tracker.update(blocks), metadata)
+    }
+
+    private fun newRegionDecoder(imageData: ByteArray): BitmapRegionDecoder? =
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                BitmapRegionDecoder.newInstance(imageData, 0, imageData.size)
+            } else {
+                @Suppress("DEPRECATION")
+                BitmapRegionDecoder.newInstance(imageData, 0, imageData.size, false)
+            }
+        } catch (e: java.io.IOException) {
+            Log.e("OcrBridge", "Image format does not support region decoding.", e)
+            null
+        }
+
+    /**
+     * Decodes [imageData] at roughly [scale]: a power-of-two subsample in the decoder, so the full
+     * resolution bitmap is never allocated, then an exact filtered resize.
+     */
+    private fun decodeScaled(imageData: ByteArray, sourceWidth: Int, scale: Float): Bitmap? {
+        var sampleSize = 1
+        while (scale * sampleSize * 2 <= 1f) {
+            sampleSize *= 2
+        }
+        val options = BitmapFactory.Options().apply { inSampleSize = sampleSize }
+        val decoded = BitmapFactory.decodeByteArray(imageData, 0, imageData.size, options)
+            ?: return null
+        val targetWidth = max(1, (sourceWidth * scale).roundToInt())
+        if (decoded.width <= targetWidth) {
+            return decoded
         }
-        return rectObject
+        val targetHeight = max(1, decoded.height * targetWidth / decoded.width)
+        val scaled = Bitmap.createScaledBitmap(decoded, targetWidth, targetHeight, true)
+        if (scaled !== decoded) {
+            decoded.recycle()
+        }
+        return scaled
+    }
+
+    companion object {
+        /** Passed as a document id to recognize without indexing the result. */
+        const val NO_DOCUMENT = -1
+
+        // Below this, text is too small for the recognizer whatever the device's state.
+        private const val MIN_THROTTLE_SCALE = 0.1f
     }
 }
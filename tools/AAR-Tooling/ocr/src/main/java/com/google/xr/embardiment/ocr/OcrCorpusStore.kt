@@ -0,0 +1,362 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import android.util.Log
+import java.io.Closeable
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.security.MessageDigest
+
+/**
+ * OCR results persisted across launches, keyed by a hash of the image they were recognized from,
+ * so reopening a scene serves the results of textures it has read before without running ML Kit.
+ *
+ * The file is append-only: a header, then length-prefixed records, each holding the key, the
+ * result JSON exactly as it was sent to Unity and the blocks in a compact binary form for the
+ * spatial and text indexes. Opening scans only the record headers; reads come straight from a
+ * memory mapping of the file, and the JSON is handed back without being parsed. A record written
+ * again under the same key supersedes the older one, whose bytes stay dead until [compact]. A
+ * record cut short by a crash is dropped when the file is opened.
+ */
+internal class OcrCorpusStore(private val file: File) : Closeable {
+    /** The SHA-256 prefix of an image and the options it was recognized with. */
+    data class Key(val high: Long, val low: Long)
+
+    class Stored(val json: String, val blocks: List<OcrBlock>)
+
+    private val offsets = HashMap<Key, Long>()
+    // Keys read or written since the store was opened, which compaction always keeps.
+    private val touched = HashSet<Key>()
+    private var access = RandomAccessFile(file, "rw")
+    private var size = 0L
+    private var mapping: MappedByteBuffer? = null
+
+    /** Bytes held by superseded records, which [compact] reclaims. */
+    var deadBytes = 0L
+        @Synchronized get
+        private set
+
+    /** The number of results stored. */
+    val count: Int
+        @Synchronized get() = offsets.size
+
+    init {
+        scan()
+    }
+
+    @Synchronized
+    fun get(key: Key): Stored? {
+        val offset = offsets[key] ?: return null
+        touched.add(key)
+        val buffer = mapped().duplicate()
+        buffer.position((offset + RECORD_HEADER_BYTES).toInt())
+        val json = readString(buffer)
+        return Stored(json, readBlocks(buffer))
+    }
+
+    /** Appends a result; an I/O failure leaves the store as it was. */
+    @Synchronized
+    fun put(key: Key, json: String, blocks: List<OcrBlock>) {
+        val payload = RecordWriter()
+        payload.putLong(key.high)
+        payload.putLong(key.low)
+        payload.putString(json)
+        writeBlocks(payload, blocks)
+
+        val record = ByteBuffer.allocate(Int.SIZE_BYTES + payload.size)
+        record.putInt(payload.size)
+        record.put(payload.buffer, 0, payload.size)
+        record.flip()
+        val channel = access.channel
+        var position = size
+        while (record.hasRemaining()) {
+            position += channel.write(record, position)
+        }
+
+        offsets.put(key, size)?.let { deadBytes += recordBytes(it) }
+        touched.add(key)
+        size = position
+    }
+
+    /** Bytes held by the latest record of every key. */
+    val liveBytes: Long
+        @Synchronized get() = size - HEADER_BYTES - deadBytes
+
+    /**
+     * Rewrites the file with only the latest record of every key. If those exceed [maxBytes],
+     * results not used since the store was opened are dropped too, oldest first.
+     */
+    @Synchronized
+    fun compact(maxBytes: Long = Long.MAX_VALUE) {
+        var excess = liveBytes - maxBytes
+        if (deadBytes == 0L && excess <= 0) return
+        val live = ArrayList<Long>(offsets.size)
+        // Offsets grow with every append, so ascending offsets are oldest first.
+        for ((key, offset) in offsets.entries.sortedBy { it.value }) {
+            if (excess > 0 && key !in touched) {
+                excess -= recordBytes(offset)
+                continue
+            }
+            live.add(offset)
+        }
+
+        val temp = File(file.path + ".compact")
+        RandomAccessFile(temp, "rw").use { out ->
+            out.setLength(0)
+            val target = out.channel
+            target.write(header(), 0)
+            target.position(HEADER_BYTES.toLong())
+            val source = access.channel
+            for (offset in live) {
+                val bytes = recordBytes(offset)
+                var copied = 0L
+                while (copied < bytes) {
+                    copied += source.transferTo(offset + copied, bytes - copied, target)
+                }
+            }
+            target.force(true)
+        }
+
+        access.close()
+        mapping = null
+        if (!temp.renameTo(file)) {
+            throw IOException("Failed to replace ${file.name} with its compacted copy.")
+        }
+        access = RandomAccessFile(file, "rw")
+        scan()
+        Log.d("OcrCorpusStore", "Compacted ${file.name} to $size bytes.")
+    }
+
+    /** Forgets every result and truncates the file. */
+    @Synchronized
+    fun clear() {
+        offsets.clear()
+        touched.clear()
+        deadBytes = 0
+        mapping = null
+        access.setLength(0)
+        access.channel.write(header(), 0)
+        size = HEADER_BYTES.toLong()
+    }
+
+    @Synchronized
+    override fun close() {
+        mapping = null
+        access.close()
+        synchronized(shared) { shared.remove(file.canonicalPath, this) }
+    }
+
+    /** Indexes the record headers and drops a trailing record cut short by a crash. */
+    private fun scan() {
+        offsets.clear()
+        deadBytes = 0
+        mapping = null
+        val length = access.length()
+        val channel = access.channel
+        val head = ByteBuffer.allocate(RECORD_HEADER_BYTES)
+        if (length < HEADER_BYTES || !hasHeader(channel)) {
+            if (length > 0) Log.w("OcrCorpusStore", "Discarding ${file.name}: unknown format.")
+            access.setLength(0)
+            channel.write(header(), 0)
+            size = HEADER_BYTES.toLong()
+            return
+        }
+
+        var offset = HEADER_BYTES.toLong()
+        while (offset + RECORD_HEADER_BYTES <= length) {
+            head.clear()
+            readFully(channel, head, offset)
+            val end = offset + Int.SIZE_BYTES + head.getInt()
+            if (end > length || end < offset + RECORD_HEADER_BYTES) break
+            offsets.put(Key(head.getLong(), head.getLong()), offset)
+                ?.let { deadBytes += recordBytes(it) }
+            offset = end
+        }
+        if (offset < length) {
+            Log.w("OcrCorpusStore", "Dropping ${length - offset} bytes of a torn record.")
+            access.setLength(offset)
+        }
+        size = offset
+    }
+
+    private fun hasHeader(channel: FileChannel): Boolean {
+        val head = ByteBuffer.allocate(HEADER_BYTES)
+        readFully(channel, head, 0)
+        return head.remaining() == HEADER_BYTES && head.getInt() == MAGIC &&
+            head.getInt() == VERSION
+    }
+
+    /** Maps the file again once records were appended past the current mapping. */
+    private fun mapped(): MappedByteBuffer {
+        val current = mapping
+        if (current != null && current.capacity().toLong() == size) return current
+        val remapped = access.channel.map(FileChannel.MapMode.READ_ONLY, 0, size)
+        mapping = remapped
+        return remapped
+    }
+
+    private fun recordBytes(offset: Long): Long {
+        val length = ByteBuffer.allocate(Int.SIZE_BYTES)
+        readFully(access.channel, length, offset)
+        return Int.SIZE_BYTES + length.getInt().toLong()
+    }
+
+    /** A growable heap buffer for one record. */
+    private class RecordWriter {
+        var buffer = ByteArray(1024)
+        var size = 0
+
+        private fun ensure(bytes: Int) {
+            if (size + bytes > buffer.size) {
+                buffer = buffer.copyOf(maxOf(buffer.size * 2, size + bytes))
+            }
+        }
+
+        fun putInt(value: Int) {
+            ensure(Int.SIZE_BYTES)
+            ByteBuffer.wrap(buffer, size, Int.SIZE_BYTES).putInt(value)
+            size += Int.SIZE_BYTES
+        }
+
+        fun putLong(value: Long) {
+            ensure(Long.SIZE_BYTES)
+            ByteBuffer.wrap(buffer, size, Long.SIZE_BYTES).putLong(value)
+            size += Long.SIZE_BYTES
+        }
+
+        fun putFloat(value: Float) = putInt(value.toRawBits())
+
+        fun putString(value: String) {
+            val bytes = value.toByteArray(Charsets.UTF_8)
+            putInt(bytes.size)
+            ensure(bytes.size)
+            bytes.copyInto(buffer, size)
+            size += bytes.size
+        }
+
+        fun putBox(box: OcrBox?) {
+            // Boxes may start off-image, so presence is flagged rather than marked by a value.
+            if (box == null) {
+                putInt(0)
+                return
+            }
+            putInt(1)
+            putInt(box.x)
+            putInt(box.y)
+            putInt(box.w)
+            putInt(box.h)
+        }
+    }
+
+    companion object {
+        private const val MAGIC = 0x454F4352 // "EOCR"
+        private const val VERSION = 1
+        private const val HEADER_BYTES = 8
+        // The payload length and the key.
+        private const val RECORD_HEADER_BYTES = Int.SIZE_BYTES + 2 * Long.SIZE_BYTES
+
+        private val shared = HashMap<String, OcrCorpusStore>()
+
+        /** Returns the process's store for [file], opening it on first use. */
+        fun open(file: File): OcrCorpusStore = synchronized(shared) {
+            shared.getOrPut(file.canonicalPath) {
+                file.parentFile?.mkdirs()
+                OcrCorpusStore(file)
+            }
+        }
+
+        /**
+         * Hashes [imageData] with everything else that shapes its result: the [rotation], the
+         * [script] and a [variant] such as the tile size.
+         */
+        fun keyOf(imageData: ByteArray, rotation: Int, script: OcrScript, variant: Int): Key {
+            val digest = MessageDigest.getInstance("SHA-256")
+            digest.update(imageData)
+            digest.update(
+                ByteBuffer.allocate(3 * Int.SIZE_BYTES)
+                    .putInt(rotation)
+                    .putInt(script.ordinal)
+                    .putInt(variant)
+                    .array()
+            )
+            val hash = ByteBuffer.wrap(digest.digest())
+            return Key(hash.getLong(), hash.getLong())
+        }
+
+        private fun header(): ByteBuffer =
+            ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).also { it.flip() }
+
+        private fun writeBlocks(out: RecordWriter, blocks: List<OcrBlock>) {
+            out.putInt(blocks.size)
+            for (block in blocks) {
+                out.putString(block.text)
+                out.putBox(block.box)
+                out.putInt(block.lines.size)
+                for (line in block.lines) {
+                    out.putString(line.text)
+                    out.putBox(line.box)
+                    out.putInt(line.elements.size)
+                    for (element in line.elements) {
+                        out.putString(element.text)
+                        out.putBox(element.box)
+                        out.putFloat(element.confidence)
+                    }
+                }
+            }
+        }
+
+        private fun readBlocks(buffer: ByteBuffer): List<OcrBlock> =
+            List(buffer.getInt()) {
+                val text = readString(buffer)
+                val box = readBox(buffer)
+                val lines = List(buffer.getInt()) {
+                    val lineText = readString(buffer)
+                    val lineBox = readBox(buffer)
+                    val elements = List(buffer.getInt()) {
+                        OcrElement(readString(buffer), readBox(buffer), buffer.getFloat())
+                    }
+                    OcrLine(lineText, lineBox, elements)
+                }
+                OcrBlock(text, box, lines)
+            }
+
+        private fun readString(buffer: ByteBuffer): String {
+            val length = buffer.getInt()
+            val slice = buffer.slice()
+            slice.limit(length)
+            buffer.position(buffer.position() + length)
+            return Charsets.UTF_8.decode(slice).toString()
+        }
+
+        private fun readBox(buffer: ByteBuffer): OcrBox? {
+            if (buffer.getInt() == 0) return null
+            return OcrBox(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt())
+        }
+
+        private fun readFully(channel: FileChannel, buffer: ByteBuffer, position: Long) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) break
+            }
+            buffer.flip()
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+/** A block with the id it keeps across frames. */
+internal class TrackedBlock(val id: Int, val block: OcrBlock)
+
+/** What changed between two results of a continuous scan. */
+internal class OcrDelta(
+    val frame: Long,
+    val added: List<TrackedBlock>,
+    val changed: List<TrackedBlock>,
+    val removed: IntArray
+) {
+    val isEmpty: Boolean
+        get() = added.isEmpty() && changed.isEmpty() && removed.isEmpty()
+}
+
+/**
+ * Follows text blocks across the results of a continuous scan and reports only what changed, so a
+ * consumer can keep one object per block instead of rebuilding its scene every frame.
+ *
+ * Blocks are matched greedily by a score that weighs box IoU against text similarity (the Dice
+ * coefficient of character bigrams), so a block still matches while the camera drifts or while
+ * recognition flickers on a few characters. A matched block is reported as changed when its text
+ * differs from, or its box has drifted away from, what was last reported for it. A block missing
+ * from up to [maxMissedFrames] results in a row keeps its id, so one dropped frame does not remove
+ * and re-add it.
+ *
+ * Thread-safe; results should be fed in frame order.
+ */
+internal class OcrDeltaTracker(
+    private val maxMissedFrames: Int = DEFAULT_MAX_MISSED_FRAMES,
+    private val matchThreshold: Float = DEFAULT_MATCH_THRESHOLD,
+    private val changedIou: Float = DEFAULT_CHANGED_IOU
+) {
+    private class Track(val id: Int, var reported: OcrBlock, var bigrams: IntArray) {
+        var current = reported
+        var missed = 0
+    }
+
+    private class Candidate(val track: Track, val blockIndex: Int, val score: Float)
+
+    private val tracks = ArrayList<Track>()
+    private var nextId = 1
+    private var frame = 0L
+
+    /** Matches [blocks] against the tracked ones and returns the difference. */
+    @Synchronized
+    fun update(blocks: List<OcrBlock>): OcrDelta {
+        frame++
+        val blockBigrams = blocks.map { bigramsOf(it.text) }
+        val candidates = ArrayList<Candidate>()
+        for (track in tracks) {
+            for (i in blocks.indices) {
+                val score = matchScore(track, blocks[i], blockBigrams[i])
+                if (score >= matchThreshold) candidates.add(Candidate(track, i, score))
+            }
+        }
+        candidates.sortByDescending { it.score }
+
+        val matchedTracks = HashSet<Track>()
+        val matchedBlocks = BooleanArray(blocks.size)
+        val changed = ArrayList<TrackedBlock>()
+        for (candidate in candidates) {
+            val track = candidate.track
+            if (track in matchedTracks || matchedBlocks[candidate.blockIndex]) continue
+            matchedTracks.add(track)
+            matchedBlocks[candidate.blockIndex] = true
+
+            val block = blocks[candidate.blockIndex]
+            track.current = block
+            track.bigrams = blockBigrams[candidate.blockIndex]
+            track.missed = 0
+            val drifted = iou(block.box, track.reported.box) < changedIou
+            if (block.text != track.reported.text || drifted) {
+                track.reported = block
+                changed.add(TrackedBlock(track.id, block))
+            }
+        }
+
+        val removed = ArrayList<Int>()
+        val iterator = tracks.iterator()
+        while (iterator.hasNext()) {
+            val track = iterator.next()
+            if (track !in matchedTracks && ++track.missed > maxMissedFrames) {
+                iterator.remove()
+                removed.add(track.id)
+            }
+        }
+
+        val added = ArrayList<TrackedBlock>()
+        for (i in blocks.indices) {
+            if (matchedBlocks[i]) continue
+            val track = Track(nextId++, blocks[i], blockBigrams[i])
+            tracks.add(track)
+            added.add(TrackedBlock(track.id, blocks[i]))
+        }
+        return OcrDelta(frame, added, changed, removed.toIntArray())
+    }
+
+    /** Forgets every block, so the next result is reported as all added. */
+    @Synchronized
+    fun reset() {
+        tracks.clear()
+    }
+
+    private fun matchScore(track: Track, block: OcrBlock, bigrams: IntArray): Float {
+        val a = track.current.box
+        val b = block.box
+        val overlap = iou(a, b)
+        // Blocks that do not overlap at all are different blocks, however similar their text.
+        if (overlap <= 0f && !(a == null && b == null)) return 0f
+        return IOU_WEIGHT * overlap + (1f - IOU_WEIGHT) * dice(track.bigrams, bigrams)
+    }
+
+    companion object {
+        private const val DEFAULT_MAX_MISSED_FRAMES = 2
+        private const val DEFAULT_MATCH_THRESHOLD = 0.5f
+        private const val DEFAULT_CHANGED_IOU = 0.8f
+        private const val IOU_WEIGHT = 0.5f
+
+        fun iou(a: OcrBox?, b: OcrBox?): Float {
+            if (a == null || b == null) return if (a == b) 1f else 0f
+            val intersection = a.intersectionArea(b)
+            if (intersection == 0L) return 0f
+            return intersection.toFloat() / (a.area + b.area - intersection)
+        }
+
+        /** The sorted character bigrams of [text], case and whitespace insensitive. */
+        fun bigramsOf(text: String): IntArray {
+            val chars = StringBuilder(text.length)
+            for (c in text) {
+                if (!c.isWhitespace()) chars.append(c.lowercaseChar())
+            }
+            if (chars.length < 2) {
+                return if (chars.isEmpty()) IntArray(0) else intArrayOf(chars[0].code)
+            }
+            val bigrams = IntArray(chars.length - 1) {
+                (chars[it].code shl 16) or chars[it + 1].code
+            }
+            bigrams.sort()
+            return bigrams
+        }
+
+        /** The Dice coefficient of two sorted bigram multisets, in [0, 1]. */
+        fun dice(a: IntArray, b: IntArray): Float {
+            if (a.isEmpty() && b.isEmpty()) return 1f
+            var i = 0
+            var j = 0
+            var shared = 0
+            while (i < a.size && j < b.size) {
+                when {
+                    a[i] == b[j] -> {
+                        shared++
+                        i++
+                        j++
+                    }
+                    a[i] < b[j] -> i++
+                    else -> j++
+                }
+            }
+            return 2f * shared / (a.size + b.size)
+        }
+    }
+}
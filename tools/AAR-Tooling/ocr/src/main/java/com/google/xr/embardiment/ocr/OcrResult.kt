@@ -0,0 +1,170 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import android.graphics.Rect
+import com.google.mlkit.vision.text.Text
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.roundToInt
+import org.json.JSONArray
+import org.json.JSONObject
+
+/*
+ * Plain copies of ML Kit's Text hierarchy in the coordinates of the image Unity handed in, so
+ * results from scaled or tiled recognition can be merged and serialized the same way.
+ */
+
+internal data class OcrBox(val x: Int, val y: Int, val w: Int, val h: Int) {
+    val right: Int get() = x + w
+    val bottom: Int get() = y + h
+    val area: Long get() = w.toLong() * h
+
+    fun intersectionArea(other: OcrBox): Long {
+        val iw = min(right, other.right) - max(x, other.x)
+        val ih = min(bottom, other.bottom) - max(y, other.y)
+        return if (iw > 0 && ih > 0) iw.toLong() * ih else 0L
+    }
+
+    fun union(other: OcrBox): OcrBox {
+        val left = min(x, other.x)
+        val top = min(y, other.y)
+        return OcrBox(left, top, max(right, other.right) - left, max(bottom, other.bottom) - top)
+    }
+}
+
+internal data class OcrElement(val text: String, val box: OcrBox?, val confidence: Float)
+
+internal data class OcrLine(val text: String, val box: OcrBox?, val elements: List<OcrElement>)
+
+internal data class OcrBlock(val text: String, val box: OcrBox?, val lines: List<OcrLine>)
+
+/**
+ * Converts ML Kit's result, multiplying every box by [toSource] and then offsetting it by
+ * ([offsetX], [offsetY]) to land in source image coordinates.
+ */
+internal fun Text.toOcrBlocks(toSource: Float, offsetX: Int = 0, offsetY: Int = 0): List<OcrBlock> {
+    fun box(rect: Rect?): OcrBox? = rect?.let {
+        OcrBox(
+            (it.left * toSource).roundToInt() + offsetX,
+            (it.top * toSource).roundToInt() + offsetY,
+            (it.width() * toSource).roundToInt(),
+            (it.height() * toSource).roundToInt()
+        )
+    }
+
+    return textBlocks.map { block ->
+        OcrBlock(
+            block.text,
+            box(block.boundingBox),
+            block.lines.map { line ->
+                OcrLine(
+                    line.text,
+                    box(line.boundingBox),
+                    line.elements.map { OcrElement(it.text, box(it.boundingBox), it.confidence) }
+                )
+            }
+        )
+    }
+}
+
+// This function manually builds the JSON structure to match your C# definitions.
+internal fun serializeOcrResult(
+    fullText: String,
+    blocks: List<OcrBlock>,
+    metadata: JSONObject,
+    index: OcrSpatialIndex
+): String {
+    val root = JSONObject()
+    root.put("fullText", fullText)
+    root.put("metadata", metadata)
+    root.put("spatialIndex", index.toJson())
+
+    val textBlocksArray = JSONArray()
+    for (block in blocks) {
+        textBlocksArray.put(jsonFromBlock(block))
+    }
+    root.put("textBlocks", textBlocksArray)
+    return root.toString()
+}
+
+/**
+ * Serializes only what changed since the previous result of a continuous scan. Blocks carry the
+ * "id" they keep across frames; the full text and spatial index are left out.
+ */
+internal fun serializeOcrDelta(delta: OcrDelta, metadata: JSONObject): String {
+    fun jsonFromTracked(blocks: List<TrackedBlock>): JSONArray {
+        val array = JSONArray()
+        for (tracked in blocks) {
+            array.put(jsonFromBlock(tracked.block).put("id", tracked.id))
+        }
+        return array
+    }
+
+    val deltaObject = JSONObject()
+    deltaObject.put("frame", delta.frame)
+    deltaObject.put("added", jsonFromTracked(delta.added))
+    deltaObject.put("changed", jsonFromTracked(delta.changed))
+    deltaObject.put("removed", JSONArray().apply { delta.removed.forEach { put(it) } })
+
+    val root = JSONObject()
+    root.put("metadata", metadata)
+    root.put("delta", deltaObject)
+    return root.toString()
+}
+
+private fun jsonFromBlock(block: OcrBlock): JSONObject {
+    val blockObject = JSONObject()
+    blockObject.put("text", block.text)
+    blockObject.put("boundingBox", jsonFromBox(block.box))
+    blockObject.put("wordCount", block.lines.sumOf { it.elements.size })
+
+    val linesArray = JSONArray()
+    for (line in block.lines) {
+        val lineObject = JSONObject()
+        lineObject.put("text", line.text)
+        lineObject.put("boundingBox", jsonFromBox(line.box))
+        // Elements are words, so consumers never have to split the text to budget it.
+        lineObject.put("wordCount", line.elements.size)
+
+        val elementsArray = JSONArray()
+        // ML Kit calls them 'elements', which matches your C# struct.
+        for (element in line.elements) {
+            val elementObject = JSONObject()
+            elementObject.put("text", element.text)
+            elementObject.put("boundingBox", jsonFromBox(element.box))
+            elementsArray.put(elementObject)
+        }
+        // The JSON key is "elements", matching your C# struct.
+        lineObject.put("elements", elementsArray)
+        linesArray.put(lineObject)
+    }
+    blockObject.put("lines", linesArray)
+    return blockObject
+}
+
+// Helper to convert a box into a JSONObject using the keys from your C# BoundingBox.
+private fun jsonFromBox(box: OcrBox?): JSONObject {
+    val rectObject = JSONObject()
+    if (box != null) {
+        rectObject.put("x", box.x)
+        rectObject.put("y", box.y)
+        rectObject.put("w", box.w)  // Use "w" to match [JsonProperty("w")]
+        rectObject.put("h", box.h)  // Use "h" to match [JsonProperty("h")]
+    }
+    return rectObject
+}
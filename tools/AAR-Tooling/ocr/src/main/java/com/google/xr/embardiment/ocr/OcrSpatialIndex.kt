@@ -0,0 +1,239 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import kotlin.math.ceil
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.sqrt
+import org.json.JSONArray
+import org.json.JSONObject
+
+/**
+ * A static, packed R-tree over the boxes of every block, line and element of one OCR result, built
+ * with sort-tile-recursive packing so gaze and ray lookups are O(log n) instead of a scan.
+ *
+ * Items are numbered in document order: each block, then its lines, each line followed by its
+ * elements. [itemKind], [itemBlock], [itemLine] and [itemElement] map an item back to its position
+ * in the result. The tree is stored level by level in flat arrays, leaves first, and the same
+ * layout is serialized by [toJson] so Unity can query it without calling back into Java.
+ */
+internal class OcrSpatialIndex private constructor(
+    val nodeSize: Int,
+    /** Start of each level in [boxes] (in nodes), plus the total node count. */
+    private val levelOffsets: IntArray,
+    /** minX, minY, maxX, maxY per node. */
+    private val boxes: IntArray,
+    /** The item stored in each leaf. */
+    private val leafItems: IntArray,
+    val itemKind: IntArray,
+    val itemBlock: IntArray,
+    val itemLine: IntArray,
+    val itemElement: IntArray
+) {
+    val itemCount: Int get() = itemKind.size
+
+    /** Returns the items of [kind] (or of any kind if negative) whose box contains ([x], [y]). */
+    fun queryPoint(x: Int, y: Int, kind: Int = ANY_KIND): IntArray = queryRadius(x, y, 0, kind)
+
+    /**
+     * Returns the items of [kind] (or of any kind if negative) whose box lies within [radius]
+     * pixels of ([x], [y]), in no particular order.
+     */
+    fun queryRadius(x: Int, y: Int, radius: Int, kind: Int = ANY_KIND): IntArray {
+        val hits = IntArrayBuilder()
+        if (leafItems.isEmpty()) return hits.toArray()
+
+        val radiusSquared = radius.toLong() * radius
+        val stack = IntArrayBuilder()
+        // The root is the only node of the top level.
+        stack.add(levelOffsets[levelOffsets.size - 2])
+        while (stack.size > 0) {
+            val node = stack.removeLast()
+            if (distanceSquared(node, x, y) > radiusSquared) continue
+
+            val level = levelOf(node)
+            if (level == 0) {
+                val item = leafItems[node]
+                if (kind < 0 || itemKind[item] == kind) hits.add(item)
+                continue
+            }
+            val firstChild = levelOffsets[level - 1] + (node - levelOffsets[level]) * nodeSize
+            val endChild = min(firstChild + nodeSize, levelOffsets[level])
+            for (child in firstChild until endChild) stack.add(child)
+        }
+        return hits.toArray()
+    }
+
+    fun toJson(): JSONObject {
+        val json = JSONObject()
+        json.put("nodeSize", nodeSize)
+        json.put("levelOffsets", jsonArray(levelOffsets))
+        json.put("boxes", jsonArray(boxes))
+        json.put("leafItems", jsonArray(leafItems))
+        json.put("itemKind", jsonArray(itemKind))
+        json.put("itemBlock", jsonArray(itemBlock))
+        json.put("itemLine", jsonArray(itemLine))
+        json.put("itemElement", jsonArray(itemElement))
+        return json
+    }
+
+    private fun levelOf(node: Int): Int {
+        var level = 0
+        while (node >= levelOffsets[level + 1]) level++
+        return level
+    }
+
+    private fun distanceSquared(node: Int, x: Int, y: Int): Long {
+        val i = node * 4
+        val dx = max(0, max(boxes[i] - x, x - boxes[i + 2])).toLong()
+        val dy = max(0, max(boxes[i + 1] - y, y - boxes[i + 3])).toLong()
+        return dx * dx + dy * dy
+    }
+
+    private class IntArrayBuilder {
+        private var data = IntArray(16)
+        var size = 0
+            private set
+
+        fun add(value: Int) {
+            if (size == data.size) data = data.copyOf(size * 2)
+            data[size++] = value
+        }
+
+        fun removeLast(): Int = data[--size]
+
+        fun toArray(): IntArray = data.copyOf(size)
+    }
+
+    companion object {
+        const val KIND_BLOCK = 0
+        const val KIND_LINE = 1
+        const val KIND_ELEMENT = 2
+        const val ANY_KIND = -1
+        const val DEFAULT_NODE_SIZE = 16
+
+        fun build(blocks: List<OcrBlock>, nodeSize: Int = DEFAULT_NODE_SIZE): OcrSpatialIndex {
+            require(nodeSize >= 2) { "nodeSize must be at least 2." }
+
+            val kinds = ArrayList<Int>()
+            val blockOf = ArrayList<Int>()
+            val lineOf = ArrayList<Int>()
+            val elementOf = ArrayList<Int>()
+            val itemBoxes = ArrayList<OcrBox?>()
+            fun addItem(kind: Int, block: Int, line: Int, element: Int, box: OcrBox?) {
+                kinds.add(kind)
+                blockOf.add(block)
+                lineOf.add(line)
+                elementOf.add(element)
+                itemBoxes.add(box)
+            }
+            blocks.forEachIndexed { b, block ->
+                addItem(KIND_BLOCK, b, -1, -1, block.box)
+                block.lines.forEachIndexed { l, line ->
+                    addItem(KIND_LINE, b, l, -1, line.box)
+                    line.elements.forEachIndexed { e, element ->
+                        addItem(KIND_ELEMENT, b, l, e, element.box)
+                    }
+                }
+            }
+
+            // Items without a box cannot be hit, so only boxed items become leaves.
+            val leaves = itemBoxes.indices.filter { itemBoxes[it] != null }.toMutableList()
+            sortTileRecursive(leaves, nodeSize) { itemBoxes[it]!! }
+
+            val levelSizes = ArrayList<Int>()
+            var count = leaves.size
+            do {
+                levelSizes.add(count)
+                count = (count + nodeSize - 1) / nodeSize
+            } while (levelSizes.last() > 1)
+            val levelOffsets = IntArray(levelSizes.size + 1)
+            for (level in levelSizes.indices) {
+                levelOffsets[level + 1] = levelOffsets[level] + levelSizes[level]
+            }
+
+            val boxes = IntArray(levelOffsets.last() * 4)
+            leaves.forEachIndexed { node, item ->
+                val box = itemBoxes[item]!!
+                boxes[node * 4] = box.x
+                boxes[node * 4 + 1] = box.y
+                boxes[node * 4 + 2] = box.right
+                boxes[node * 4 + 3] = box.bottom
+            }
+            for (level in 1 until levelSizes.size) {
+                for (j in 0 until levelSizes[level]) {
+                    val node = levelOffsets[level] + j
+                    val firstChild = levelOffsets[level - 1] + j * nodeSize
+                    val endChild = min(firstChild + nodeSize, levelOffsets[level])
+                    var minX = Int.MAX_VALUE
+                    var minY = Int.MAX_VALUE
+                    var maxX = Int.MIN_VALUE
+                    var maxY = Int.MIN_VALUE
+                    for (child in firstChild until endChild) {
+                        minX = min(minX, boxes[child * 4])
+                        minY = min(minY, boxes[child * 4 + 1])
+                        maxX = max(maxX, boxes[child * 4 + 2])
+                        maxY = max(maxY, boxes[child * 4 + 3])
+                    }
+                    boxes[node * 4] = minX
+                    boxes[node * 4 + 1] = minY
+                    boxes[node * 4 + 2] = maxX
+                    boxes[node * 4 + 3] = maxY
+                }
+            }
+
+            return OcrSpatialIndex(
+                nodeSize,
+                levelOffsets,
+                boxes,
+                leaves.toIntArray(),
+                kinds.toIntArray(),
+                blockOf.toIntArray(),
+                lineOf.toIntArray(),
+                elementOf.toIntArray()
+            )
+        }
+
+        /**
+         * Orders [items] so that each run of [nodeSize] items is spatially compact: sort by centre
+         * x, cut into vertical slices of whole nodes, and sort each slice by centre y.
+         */
+        private fun sortTileRecursive(
+            items: MutableList<Int>,
+            nodeSize: Int,
+            box: (Int) -> OcrBox
+        ) {
+            if (items.size <= nodeSize) return
+            items.sortBy { box(it).x + box(it).w / 2 }
+            val nodeCount = ceil(items.size / nodeSize.toDouble())
+            val sliceSize = ceil(sqrt(nodeCount)).toInt() * nodeSize
+            var start = 0
+            while (start < items.size) {
+                val end = min(start + sliceSize, items.size)
+                items.subList(start, end).sortBy { box(it).y + box(it).h / 2 }
+                start = end
+            }
+        }
+
+        private fun jsonArray(values: IntArray): JSONArray {
+            val array = JSONArray()
+            for (value in values) array.put(value)
+            return array
+        }
+    }
+}
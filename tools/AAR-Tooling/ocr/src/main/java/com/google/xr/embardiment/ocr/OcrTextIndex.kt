@@ -0,0 +1,252 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import kotlin.math.ln
+import org.json.JSONArray
+import org.json.JSONObject
+
+/** One retrieved line: the document it was indexed under, its item id there, and its score. */
+internal class RetrievalHit(val document: Int, val item: Int, val score: Float, val text: String)
+
+/**
+ * An inverted index over the OCR lines of every document seen this session, ranked with BM25, so
+ * a prompt can carry only the lines relevant to a request instead of every screen's full text.
+ *
+ * Lines are numbered in insertion order and described by flat arrays; each term keeps its postings
+ * as parallel line and frequency arrays. Replacing or removing a document only marks its lines
+ * dead and corrects the document frequencies; dead lines are skipped by queries and dropped once
+ * they outnumber the live ones, by re-indexing the live lines.
+ */
+internal class OcrTextIndex(private val k1: Float = DEFAULT_K1, private val b: Float = DEFAULT_B) {
+    private class Postings {
+        var lines = IntArray(4)
+        var freqs = IntArray(4)
+        var size = 0
+        var documentFrequency = 0
+
+        fun add(line: Int, freq: Int) {
+            if (size == lines.size) {
+                lines = lines.copyOf(size * 2)
+                freqs = freqs.copyOf(size * 2)
+            }
+            lines[size] = line
+            freqs[size] = freq
+            size++
+        }
+    }
+
+    private val terms = HashMap<String, Int>()
+    private val postings = ArrayList<Postings>()
+
+    // Per line; a dead line has document -1.
+    private var lineDocument = IntArray(64)
+    private var lineItem = IntArray(64)
+    private var lineLength = IntArray(64)
+    private var lineTexts = arrayOfNulls<String>(64)
+    // The distinct term ids of line i are lineTerms[lineTermStart[i] until lineTermStart[i + 1]].
+    private var lineTermStart = IntArray(65)
+    private var lineTerms = IntArray(256)
+    private var lineCount = 0
+
+    private var liveLines = 0
+    private var liveLength = 0L
+
+    /** The number of lines queries currently search. */
+    val size: Int
+        @Synchronized get() = liveLines
+
+    /**
+     * Indexes [texts] as the lines of [documentId], replacing whatever was indexed under that id.
+     * [items] are the ids the lines are reported back with, e.g. their spatial index item ids.
+     */
+    @Synchronized
+    fun setDocument(documentId: Int, items: IntArray, texts: List<String>) {
+        require(documentId >= 0) { "Document ids must not be negative." }
+        require(items.size == texts.size) { "Every line needs an item id." }
+        removeLines(documentId)
+        for (i in texts.indices) addLine(documentId, items[i], texts[i])
+        compactIfSparse()
+    }
+
+    @Synchronized
+    fun removeDocument(documentId: Int) {
+        removeLines(documentId)
+        compactIfSparse()
+    }
+
+    @Synchronized
+    fun clear() {
+        terms.clear()
+        postings.clear()
+        lineCount = 0
+        liveLines = 0
+        liveLength = 0
+    }
+
+    /**
+     * Returns up to [k] lines ranked by BM25 against [query], best first. Lines are taken in rank
+     * order while their estimated tokens, about [CHARS_PER_TOKEN] characters each, fit
+     * [tokenBudget]; a line that does not fit leaves room for shorter ones. A budget of zero or
+     * less only limits by [k].
+     */
+    @Synchronized
+    fun retrieve(query: String, k: Int, tokenBudget: Int): List<RetrievalHit> {
+        if (k <= 0 || liveLines == 0) return emptyList()
+        val averageLength = liveLength.toFloat() / liveLines
+        val scores = FloatArray(lineCount)
+        val touched = IntArray(lineCount)
+        var touchedCount = 0
+
+        val queried = HashSet<Int>()
+        forEachTerm(query) { term ->
+            val termId = terms[term] ?: return@forEachTerm
+            if (!queried.add(termId)) return@forEachTerm
+            val termPostings = postings[termId]
+            val df = termPostings.documentFrequency
+            if (df == 0) return@forEachTerm
+            val idf = ln(1f + (liveLines - df + 0.5f) / (df + 0.5f))
+            for (p in 0 until termPostings.size) {
+                val line = termPostings.lines[p]
+                if (lineDocument[line] < 0) continue
+                val tf = termPostings.freqs[p].toFloat()
+                val norm = k1 * (1f - b + b * lineLength[line] / averageLength)
+                if (scores[line] == 0f) touched[touchedCount++] = line
+                scores[line] += idf * tf * (k1 + 1f) / (tf + norm)
+            }
+        }
+
+        // Ties keep document order, i.e. the order lines were indexed in.
+        val ranked = touched.copyOf(touchedCount).sortedWith(
+            compareByDescending<Int> { scores[it] }.thenBy { it }
+        )
+        val hits = ArrayList<RetrievalHit>(minOf(k, ranked.size))
+        var remaining = tokenBudget
+        for (line in ranked) {
+            if (hits.size == k) break
+            val text = lineTexts[line]!!
+            if (tokenBudget > 0) {
+                val tokens = (text.length + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN
+                if (tokens > remaining) continue
+                remaining -= tokens
+            }
+            hits.add(RetrievalHit(lineDocument[line], lineItem[line], scores[line], text))
+        }
+        return hits
+    }
+
+    private fun addLine(documentId: Int, item: Int, text: String) {
+        val counts = HashMap<Int, Int>()
+        var length = 0
+        forEachTerm(text) { term ->
+            val termId = terms.getOrPut(term) {
+                postings.add(Postings())
+                postings.size - 1
+            }
+            counts[termId] = (counts[termId] ?: 0) + 1
+            length++
+        }
+
+        if (lineCount == lineDocument.size) {
+            val capacity = lineCount * 2
+            lineDocument = lineDocument.copyOf(capacity)
+            lineItem = lineItem.copyOf(capacity)
+            lineLength = lineLength.copyOf(capacity)
+            lineTexts = lineTexts.copyOf(capacity)
+            lineTermStart = lineTermStart.copyOf(capacity + 1)
+        }
+        val line = lineCount++
+        lineDocument[line] = documentId
+        lineItem[line] = item
+        lineLength[line] = length
+        lineTexts[line] = text
+
+        val start = lineTermStart[line]
+        if (start + counts.size > lineTerms.size) {
+            lineTerms = lineTerms.copyOf(maxOf(lineTerms.size * 2, start + counts.size))
+        }
+        var end = start
+        for ((termId, freq) in counts) {
+            val termPostings = postings[termId]
+            termPostings.add(line, freq)
+            termPostings.documentFrequency++
+            lineTerms[end++] = termId
+        }
+        lineTermStart[line + 1] = end
+        liveLines++
+        liveLength += length
+    }
+
+    private fun removeLines(documentId: Int) {
+        for (line in 0 until lineCount) {
+            if (lineDocument[line] != documentId) continue
+            for (t in lineTermStart[line] until lineTermStart[line + 1]) {
+                postings[lineTerms[t]].documentFrequency--
+            }
+            lineDocument[line] = -1
+            lineTexts[line] = null
+            liveLines--
+            liveLength -= lineLength[line]
+        }
+    }
+
+    private fun compactIfSparse() {
+        if (lineCount - liveLines <= liveLines) return
+        val documents = lineDocument.copyOf(lineCount)
+        val items = lineItem.copyOf(lineCount)
+        val texts = lineTexts.copyOf(lineCount)
+        clear()
+        for (line in documents.indices) {
+            if (documents[line] >= 0) addLine(documents[line], items[line], texts[line]!!)
+        }
+    }
+
+    companion object {
+        private const val DEFAULT_K1 = 1.2f
+        private const val DEFAULT_B = 0.75f
+
+        /** A rough rate for [retrieve]'s budget; the prompt builder enforces the real one. */
+        const val CHARS_PER_TOKEN = 4
+
+        /** Splits [text] into lowercase runs of letters and digits. */
+        inline fun forEachTerm(text: String, action: (String) -> Unit) {
+            var start = -1
+            for (i in 0..text.length) {
+                val inTerm = i < text.length && text[i].isLetterOrDigit()
+                if (inTerm && start < 0) {
+                    start = i
+                } else if (!inTerm && start >= 0) {
+                    action(text.substring(start, i).lowercase())
+                    start = -1
+                }
+            }
+        }
+
+        fun toJson(hits: List<RetrievalHit>): String {
+            val array = JSONArray()
+            for (hit in hits) {
+                val hitObject = JSONObject()
+                hitObject.put("document", hit.document)
+                hitObject.put("item", hit.item)
+                hitObject.put("score", hit.score.toDouble())
+                hitObject.put("text", hit.text)
+                array.put(hitObject)
+            }
+            return JSONObject().put("hits", array).toString()
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import android.content.ComponentCallbacks2
+import android.content.res.Configuration
+import android.util.Log
+import com.google.mlkit.vision.text.TextRecognition
+import com.google.mlkit.vision.text.TextRecognizer
+import com.google.mlkit.vision.text.TextRecognizerOptionsInterface
+import java.util.concurrent.Executor
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
+
+/**
+ * The scripts ML Kit recognizes, each with its own model. Latin ships with this library; the
+ * others are recognized only if the app also includes their [artifact].
+ */
+internal enum class OcrScript(val optionsBuilderClass: String, val artifact: String) {
+    LATIN(
+        "com.google.mlkit.vision.text.latin.TextRecognizerOptions\$Builder",
+        "com.google.mlkit:text-recognition"
+    ),
+    CHINESE(
+        "com.google.mlkit.vision.text.chinese.ChineseTextRecognizerOptions\$Builder",
+        "com.google.mlkit:text-recognition-chinese"
+    ),
+    JAPANESE(
+        "com.google.mlkit.vision.text.japanese.JapaneseTextRecognizerOptions\$Builder",
+        "com.google.mlkit:text-recognition-japanese"
+    ),
+    KOREAN(
+        "com.google.mlkit.vision.text.korean.KoreanTextRecognizerOptions\$Builder",
+        "com.google.mlkit:text-recognition-korean"
+    ),
+    DEVANAGARI(
+        "com.google.mlkit.vision.text.devanagari.DevanagariTextRecognizerOptions\$Builder",
+        "com.google.mlkit:text-recognition-devanagari"
+    );
+
+    companion object {
+        /** Parses a script name such as "latin" or "Japanese". */
+        fun forName(name: String): OcrScript =
+            values().firstOrNull { it.name.equals(name, ignoreCase = true) }
+                ?: throw IllegalArgumentException("Unknown OCR script: $name")
+    }
+}
+
+/**
+ * ML Kit text recognizers keyed by script and executor, shared by every bridge of the process.
+ *
+ * A recognizer is created on first use, so a scene only pays the load time and memory of the
+ * scripts it actually reads. At most [maxConcurrent] images are in flight on one recognizer;
+ * further callers suspend instead of piling decoded bitmaps up in ML Kit's queue. Recognizers
+ * nobody is using are closed when the system reports memory pressure, and loaded again on the next
+ * use.
+ */
+internal class RecognizerPool(
+    private val maxConcurrent: Int = DEFAULT_MAX_CONCURRENT,
+    private val factory: (OcrScript, Executor?) -> TextRecognizer = ::newRecognizer
+) : ComponentCallbacks2 {
+    private data class Key(val script: OcrScript, val executor: Executor?)
+
+    private class Entry(val recognizer: TextRecognizer, maxConcurrent: Int) {
+        val permits = Semaphore(maxConcurrent)
+        var users = 0
+    }
+
+    private val entries = HashMap<Key, Entry>()
+
+    /** The number of recognizers currently loaded. */
+    val size: Int
+        get() = synchronized(entries) { entries.size }
+
+    /** Runs [block] with the recognizer for [script], loading it first if needed. */
+    suspend fun <T> use(
+        script: OcrScript,
+        executor: Executor?,
+        block: suspend (TextRecognizer) -> T
+    ): T {
+        val entry = acquire(Key(script, executor))
+        try {
+            return entry.permits.withPermit { block(entry.recognizer) }
+        } finally {
+            synchronized(entries) { entry.users-- }
+        }
+    }
+
+    /** Loads the recognizer for [script] ahead of its first use. */
+    fun preload(script: OcrScript, executor: Executor?) {
+        val entry = acquire(Key(script, executor))
+        synchronized(entries) { entry.users-- }
+    }
+
+    /** Closes every recognizer that is not in use and returns how many were closed. */
+    fun trimIdle(): Int {
+        val idle = synchronized(entries) {
+            val removed = entries.filterValues { it.users == 0 }
+            entries.keys.removeAll(removed.keys)
+            removed
+        }
+        for ((key, entry) in idle) {
+            entry.recognizer.close()
+            Log.d("RecognizerPool", "Evicted the ${key.script} recognizer.")
+        }
+        return idle.size
+    }
+
+    /** Closes every recognizer, including ones in use; only for a pool owned by one bridge. */
+    fun close() {
+        val all = synchronized(entries) {
+            val copy = entries.values.toList()
+            entries.clear()
+            copy
+        }
+        all.forEach { it.recognizer.close() }
+    }
+
+    @Suppress("DEPRECATION")
+    override fun onTrimMemory(level: Int) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) trimIdle()
+    }
+
+    override fun onLowMemory() {
+        trimIdle()
+    }
+
+    override fun onConfigurationChanged(newConfig: Configuration) {}
+
+    private fun acquire(key: Key): Entry = synchronized(entries) {
+        // Creating a client is cheap; ML Kit loads the model on the first image, outside the lock.
+        val entry = entries.getOrPut(key) {
+            Entry(factory(key.script, key.executor), maxConcurrent)
+        }
+        entry.users++
+        entry
+    }
+
+    companion object {
+        private const val DEFAULT_MAX_CONCURRENT = 2
+
+        /** The process-wide pool, trimmed on memory pressure reported to the Unity application. */
+        val shared: RecognizerPool by lazy {
+            RecognizerPool().also { pool -> unityApplication?.registerComponentCallbacks(pool) }
+        }
+
+        /**
+         * Creates a recognizer through reflection, so this library does not force every script's
+         * model into the app, and a missing one fails only the scenes that ask for it.
+         */
+        private fun newRecognizer(script: OcrScript, executor: Executor?): TextRecognizer {
+            val builder = try {
+                Class.forName(script.optionsBuilderClass).getConstructor().newInstance()
+            } catch (e: ReflectiveOperationException) {
+                throw IllegalStateException(
+                    "The ${script.name.lowercase()} OCR model is not in the app; " +
+                        "add ${script.artifact}.",
+                    e
+                )
+            }
+            if (executor != null) {
+                builder.javaClass.getMethod("setExecutor", Executor::class.java)
+                    .invoke(builder, executor)
+            }
+            val options = builder.javaClass.getMethod("build").invoke(builder)
+            return TextRecognition.getClient(options as TextRecognizerOptionsInterface)
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import java.util.concurrent.atomic.AtomicLong
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.completeWith
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
+
+/**
+ * Collapses concurrent calls with equal keys into one: the first caller runs the work and every
+ * caller arriving before it finishes waits for, and receives, the same value or exception. Nothing
+ * is cached; a call after the work finished runs it again. Cancelling the caller that runs the work
+ * cancels only that caller: the first waiting caller runs the work again and the others join it.
+ */
+internal class SingleFlight<K : Any, V> {
+    private val flights = HashMap<K, CompletableDeferred<V>>()
+    private val joined = AtomicLong()
+
+    /** How many calls received another call's value instead of running their own work. */
+    val coalesced: Long
+        get() = joined.get()
+
+    suspend fun run(key: K, block: suspend () -> V): V {
+        while (true) {
+            val running: CompletableDeferred<V>?
+            val flight: CompletableDeferred<V>
+            synchronized(flights) {
+                running = flights[key]
+                flight = running ?: CompletableDeferred<V>().also { flights[key] = it }
+            }
+            if (running != null) {
+                joined.incrementAndGet()
+                try {
+                    return running.await()
+                } catch (e: CancellationException) {
+                    // Rethrows this caller's own cancellation; otherwise the flight was abandoned
+                    // by its cancelled leader, and this caller runs the work or joins whoever does.
+                    currentCoroutineContext().ensureActive()
+                    joined.decrementAndGet()
+                    continue
+                }
+            }
+
+            val result = runCatching { block() }
+            // Later calls start afresh rather than joining a finished flight.
+            synchronized(flights) { flights.remove(key, flight) }
+            val error = result.exceptionOrNull()
+            if (error is CancellationException) {
+                flight.cancel(error)
+                throw error
+            }
+            flight.completeWith(result)
+            return result.getOrThrow()
+        }
+    }
+}
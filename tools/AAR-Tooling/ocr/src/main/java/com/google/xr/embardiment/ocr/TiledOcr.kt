@@ -0,0 +1,144 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import java.util.Collections
+import java.util.IdentityHashMap
+import kotlin.math.max
+import kotlin.math.min
+
+/*
+ * Geometry and merging for tiled recognition of images too large to decode or recognize in one
+ * piece. Kept free of Android types so it can be unit tested on the host.
+ */
+
+/** Overlap, as a fraction of the smaller box, above which lines from two tiles may be the same. */
+private const val SEAM_OVERLAP_FRACTION = 0.5f
+
+/** Fraction of the shorter line's words that must also appear in the longer one. */
+private const val SEAM_WORD_FRACTION = 0.5f
+
+/**
+ * Covers a [width] x [height] image with tiles of at most [tileSize] pixels that overlap their
+ * neighbours by at least [overlap] pixels, in row-major order. The last row and column are aligned
+ * to the image edge, so every tile is full size when the image is.
+ */
+internal fun tileGrid(width: Int, height: Int, tileSize: Int, overlap: Int): List<OcrBox> {
+    require(tileSize > 0) { "tileSize must be positive." }
+    require(overlap in 0 until tileSize) { "overlap must be in [0, tileSize)." }
+
+    fun starts(extent: Int): List<Int> {
+        val result = ArrayList<Int>()
+        var start = 0
+        while (start + tileSize < extent) {
+            result.add(start)
+            start += tileSize - overlap
+        }
+        result.add(max(0, extent - tileSize))
+        return result
+    }
+
+    val tiles = ArrayList<OcrBox>()
+    for (y in starts(height)) {
+        for (x in starts(width)) {
+            tiles.add(OcrBox(x, y, min(tileSize, width - x), min(tileSize, height - y)))
+        }
+    }
+    return tiles
+}
+
+/**
+ * Maps [box] in a [width] x [height] source image to the image ML Kit sees after rotating the
+ * source clockwise by [rotation] degrees, which is the frame its results are reported in.
+ */
+internal fun rotateBox(box: OcrBox, rotation: Int, width: Int, height: Int): OcrBox =
+    when (rotation) {
+        0 -> box
+        90 -> OcrBox(height - box.bottom, box.x, box.h, box.w)
+        180 -> OcrBox(width - box.right, height - box.bottom, box.w, box.h)
+        270 -> OcrBox(box.y, width - box.right, box.h, box.w)
+        else -> throw IllegalArgumentException("Rotation must be 0, 90, 180 or 270: $rotation")
+    }
+
+/**
+ * Merges per-tile results that are already in full-image coordinates. A line recognized by more
+ * than one tile is kept once: lines are visited longest first, so the copy that was not cut by a
+ * tile edge wins, and a shorter line from another tile is dropped when its box mostly overlaps a
+ * kept line and its words are contained in it. Blocks keep their tile order and lose only the
+ * dropped lines; blocks left empty are removed.
+ */
+internal fun mergeTiles(tiles: List<List<OcrBlock>>): List<OcrBlock> {
+    val candidates = ArrayList<SeamCandidate>()
+    tiles.forEachIndexed { tile, blocks ->
+        for (block in blocks) {
+            for (line in block.lines) {
+                candidates.add(SeamCandidate(tile, line))
+            }
+        }
+    }
+    candidates.sortByDescending { it.line.text.length }
+
+    // Lines are compared pairwise; a document has at most a few thousand of them.
+    val kept = ArrayList<SeamCandidate>()
+    val keptLines = Collections.newSetFromMap(IdentityHashMap<OcrLine, Boolean>())
+    for (candidate in candidates) {
+        if (kept.none { it.tile != candidate.tile && isSeamDuplicate(it, candidate) }) {
+            kept.add(candidate)
+            keptLines.add(candidate.line)
+        }
+    }
+
+    val merged = ArrayList<OcrBlock>()
+    for (blocks in tiles) {
+        for (block in blocks) {
+            val lines = block.lines.filter { it in keptLines }
+            if (lines.isEmpty()) continue
+            if (lines.size == block.lines.size) {
+                merged.add(block)
+                continue
+            }
+            val box = lines.mapNotNull { it.box }.reduceOrNull { a, b -> a.union(b) }
+            merged.add(OcrBlock(lines.joinToString("\n") { it.text }, box, lines))
+        }
+    }
+    return merged
+}
+
+private class SeamCandidate(val tile: Int, val line: OcrLine) {
+    val words = line.text.lowercase().split(WHITESPACE).filter { it.isNotEmpty() }
+    val normalized = words.joinToString(" ")
+    val wordSet = words.toHashSet()
+}
+
+private val WHITESPACE = Regex("\\s+")
+
+/** True if [candidate] is [kept] again, or a piece of it cut off by a tile edge. */
+private fun isSeamDuplicate(kept: SeamCandidate, candidate: SeamCandidate): Boolean {
+    val a = kept.line.box ?: return false
+    val b = candidate.line.box ?: return false
+    val smallerArea = min(a.area, b.area)
+    if (smallerArea == 0L || a.intersectionArea(b) < smallerArea * SEAM_OVERLAP_FRACTION) {
+        return false
+    }
+    if (kept.normalized.contains(candidate.normalized)) {
+        return true
+    }
+    // A word cut by the tile edge is read differently from the whole word, so also accept lines
+    // that mostly share words.
+    val shared = candidate.words.count { it in kept.wordSet }
+    return shared >= candidate.words.size * SEAM_WORD_FRACTION
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import android.app.Application
+import android.util.Log
+
+/** The application of Unity's current activity, for classes Unity constructs without a context. */
+internal val unityApplication: Application? by lazy {
+    try {
+        val unityPlayerClass = Class.forName("com.unity3d.player.UnityPlayer")
+        val currentActivity = unityPlayerClass.getField("currentActivity").get(null)
+        (currentActivity as? android.app.Activity)?.application
+    } catch (e: Exception) {
+        Log.e("UnityApplication", "Failed to get application context via UnityPlayer.", e)
+        null
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class AdaptiveScaleControllerTest {
+    @Test
+    fun chooseScale_withoutBudgetOrEstimate_usesFullResolution() {
+        val controller = AdaptiveScaleController(0f)
+        assertEquals(1f, controller.chooseScale(4000, 3000), 0f)
+
+        controller.budgetMs = 50f
+        assertEquals(1f, controller.chooseScale(4000, 3000), 0f)
+    }
+
+    @Test
+    fun chooseScale_downscalesToFitBudget() {
+        val controller = AdaptiveScaleController(25f)
+        // 12 MP in 400 ms: 33.3 ms/MP, so 25 ms fits 0.75 MP, a linear scale of 0.25.
+        controller.record(1f, 12f, 400f, 100, 0.9f)
+
+        assertEquals(0.25f, controller.chooseScale(4000, 3000), 1e-3f)
+        // A small image already fits.
+        assertEquals(1f, controller.chooseScale(640, 480), 0f)
+    }
+
+    @Test
+    fun chooseScale_neverGoesBelowMinimum() {
+        val controller = AdaptiveScaleController(1f, minScale = 0.4f)
+        controller.record(1f, 12f, 400f, 100, 0.9f)
+
+        assertEquals(0.4f, controller.chooseScale(4000, 3000), 0f)
+    }
+
+    @Test
+    fun chooseScale_neverExceedsMaxScale() {
+        val controller = AdaptiveScaleController(0f)
+        controller.maxScale = 0.5f
+        assertEquals(0.5f, controller.chooseScale(4000, 3000), 0f)
+
+        controller.budgetMs = 25f
+        controller.record(1f, 12f, 400f, 100, 0.9f)
+        controller.record(0.25f, 0.75f, 25f, 40, 0.9f)
+        // The cap holds even where the quality floor would ask for more.
+        controller.maxScale = 0.3f
+        assertEquals(0.3f, controller.chooseScale(4000, 3000), 0f)
+    }
+
+    @Test
+    fun record_tracksLatencyWithEwma() {
+        val controller = AdaptiveScaleController(25f, smoothing = 0.5f)
+        controller.record(1f, 1f, 40f, 10, 0.9f)
+        controller.record(1f, 1f, 20f, 10, 0.9f)
+
+        assertEquals(30f, controller.latencyPerMegapixelMs, 1e-3f)
+    }
+
+    @Test
+    fun record_elementDropRaisesScaleFloor() {
+        val controller = AdaptiveScaleController(25f)
+        controller.record(1f, 12f, 400f, 100, 0.9f)
+        controller.record(0.25f, 0.75f, 25f, 40, 0.9f)
+
+        // The budget still asks for 0.25, but the floor is one step above the lossy scale.
+        assertEquals(0.3125f, controller.chooseScale(4000, 3000), 1e-3f)
+    }
+
+    @Test
+    fun record_confidenceDropRaisesScaleFloor() {
+        val controller = AdaptiveScaleController(25f)
+        controller.record(1f, 12f, 400f, 100, 0.9f)
+        controller.record(0.25f, 0.75f, 25f, 100, 0.6f)
+
+        assertTrue(controller.chooseScale(4000, 3000) > 0.25f)
+    }
+
+    @Test
+    fun record_floorRelaxesAfterStableFrames() {
+        val controller = AdaptiveScaleController(25f)
+        controller.record(1f, 12f, 400f, 100, 0.9f)
+        controller.record(0.25f, 0.75f, 25f, 40, 0.9f)
+        val raised = controller.chooseScale(4000, 3000)
+
+        repeat(30) { controller.record(raised, 1.17f, 39f, 100, 0.9f) }
+
+        assertTrue(controller.chooseScale(4000, 3000) < raised)
+    }
+
+    @Test
+    fun reset_forgetsEstimate() {
+        val controller = AdaptiveScaleController(25f)
+        controller.record(1f, 12f, 400f, 100, 0.9f)
+        controller.reset()
+
+        assertEquals(1f, controller.chooseScale(4000, 3000), 0f)
+    }
+}
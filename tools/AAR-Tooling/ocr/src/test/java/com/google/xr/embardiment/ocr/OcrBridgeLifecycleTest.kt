@@ -0,0 +1,223 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import com.google.mlkit.vision.text.TextRecognizer
+import java.lang.management.ManagementFactory
+import java.lang.ref.WeakReference
+import java.lang.reflect.Proxy
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.setMain
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Lifecycle and leak tests for [OcrBridge] on the host JVM. The recognizer is a proxy that only
+ * counts close() calls; with Android stubs returning defaults every image fails to decode, which
+ * still takes each request through the bridge's scope and reference counting.
+ */
+@OptIn(ExperimentalCoroutinesApi::class)
+class OcrBridgeLifecycleTest {
+    private class RecordingCallback(private val done: CountDownLatch) : OcrBridge.OcrCallback {
+        @Volatile var error: String? = null
+
+        override fun onSuccess(resultJson: String) {
+            done.countDown()
+        }
+
+        override fun onFailure(errorMessage: String) {
+            error = errorMessage
+            done.countDown()
+        }
+    }
+
+    private val recognizersCreated = AtomicInteger()
+    private val recognizersClosed = AtomicInteger()
+    private lateinit var workExecutor: ExecutorService
+
+    @Before
+    fun setUp() {
+        Dispatchers.setMain(Dispatchers.Unconfined)
+        workExecutor = Executors.newFixedThreadPool(2)
+    }
+
+    @After
+    fun tearDown() {
+        workExecutor.shutdownNow()
+        Dispatchers.resetMain()
+    }
+
+    @Test
+    fun close_closesRecognizerOnce() {
+        val bridge = newBridge()
+
+        bridge.close()
+        bridge.close()
+
+        assertTrue(bridge.isClosed)
+        assertEquals(1, recognizersClosed.get())
+    }
+
+    @Test
+    fun close_afterSubmittingImage_releasesWhenRequestCompletes() {
+        val bridge = newBridge()
+        val done = CountDownLatch(1)
+        val callback = RecordingCallback(done)
+
+        bridge.processImage(ByteArray(16), 0, callback)
+        bridge.close()
+
+        assertTrue(done.await(5, TimeUnit.SECONDS))
+        assertEquals("Failed to decode image data.", callback.error)
+        awaitTrue { bridge.isClosed && recognizersClosed.get() == 1 }
+    }
+
+    @Test
+    fun retain_keepsBridgeOpenUntilEveryReferenceIsClosed() {
+        val bridge = newBridge()
+
+        bridge.retain()
+        bridge.close()
+        assertFalse(bridge.isClosed)
+        assertEquals(0, recognizersClosed.get())
+
+        bridge.close()
+        assertTrue(bridge.isClosed)
+        assertEquals(1, recognizersClosed.get())
+    }
+
+    @Test
+    fun closedBridge_rejectsRetainAndImages() {
+        val bridge = newBridge()
+        bridge.close()
+
+        try {
+            bridge.retain()
+            fail("retain() on a closed bridge should throw.")
+        } catch (expected: IllegalStateException) {
+        }
+
+        val done = CountDownLatch(1)
+        val callback = RecordingCallback(done)
+        bridge.processImage(ByteArray(16), 0, callback)
+        assertTrue(done.await(1, TimeUnit.SECONDS))
+        assertEquals("OcrBridge is closed.", callback.error)
+    }
+
+    @Test
+    fun createAndCloseThousandsOfBridges_threadsAndHeapStayFlat() {
+        // Warm up the work executor so its threads count towards the baseline.
+        churn(WARM_UP_BRIDGES)
+        val baselineThreads = liveThreadCount()
+        val baselineHeap = usedHeapAfterGc()
+        recognizersCreated.set(0)
+        recognizersClosed.set(0)
+
+        val bridges = churn(BRIDGES)
+
+        awaitTrue { recognizersClosed.get() == BRIDGES }
+        assertEquals(BRIDGES, recognizersCreated.get())
+        awaitCollected(bridges)
+        assertTrue(
+            "Threads grew from $baselineThreads to ${liveThreadCount()}",
+            liveThreadCount() <= baselineThreads + THREAD_TOLERANCE
+        )
+        val heapGrowth = usedHeapAfterGc() - baselineHeap
+        assertTrue("Heap grew by $heapGrowth bytes", heapGrowth < HEAP_TOLERANCE_BYTES)
+    }
+
+    private fun newBridge(): OcrBridge {
+        recognizersCreated.incrementAndGet()
+        return OcrBridge(workExecutor.asCoroutineDispatcher(), fakeRecognizer())
+    }
+
+    private fun fakeRecognizer(): TextRecognizer {
+        val type = TextRecognizer::class.java
+        return Proxy.newProxyInstance(type.classLoader, arrayOf(type)) { proxy, method, args ->
+            when (method.name) {
+                "close" -> {
+                    recognizersClosed.incrementAndGet()
+                    null
+                }
+                "hashCode" -> System.identityHashCode(proxy)
+                "equals" -> proxy === args?.get(0)
+                "toString" -> "FakeTextRecognizer"
+                else -> throw UnsupportedOperationException(method.name)
+            }
+        } as TextRecognizer
+    }
+
+    /** Creates [count] bridges, submits one image to each and closes it straight away. */
+    private fun churn(count: Int): List<WeakReference<OcrBridge>> {
+        val done = CountDownLatch(count)
+        val bridges = ArrayList<WeakReference<OcrBridge>>(count)
+        for (i in 0 until count) {
+            val bridge = newBridge()
+            bridge.processImage(ByteArray(16), 0, RecordingCallback(done))
+            bridge.close()
+            bridges.add(WeakReference(bridge))
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS))
+        return bridges
+    }
+
+    private fun awaitTrue(condition: () -> Boolean) {
+        val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10)
+        while (!condition()) {
+            if (System.nanoTime() > deadline) fail("Condition not met within 10s.")
+            Thread.sleep(5)
+        }
+    }
+
+    private fun awaitCollected(refs: List<WeakReference<*>>) {
+        awaitTrue {
+            System.gc()
+            refs.none { it.get() != null }
+        }
+    }
+
+    private fun liveThreadCount() = ManagementFactory.getThreadMXBean().threadCount
+
+    private fun usedHeapAfterGc(): Long {
+        val runtime = Runtime.getRuntime()
+        repeat(3) {
+            System.gc()
+            Thread.sleep(20)
+        }
+        return runtime.totalMemory() - runtime.freeMemory()
+    }
+
+    companion object {
+        private const val WARM_UP_BRIDGES = 200
+        private const val BRIDGES = 5000
+        private const val THREAD_TOLERANCE = 2
+        private const val HEAP_TOLERANCE_BYTES = 8L * 1024 * 1024
+    }
+}
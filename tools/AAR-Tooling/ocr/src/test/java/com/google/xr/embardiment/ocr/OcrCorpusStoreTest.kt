@@ -0,0 +1,171 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import java.io.File
+import java.io.RandomAccessFile
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+class OcrCorpusStoreTest {
+    @get:Rule val folder = TemporaryFolder()
+
+    private val file: File by lazy { File(folder.root, "corpus.bin") }
+    private val stores = ArrayList<OcrCorpusStore>()
+
+    private val blocks = listOf(
+        OcrBlock(
+            "Exit ↗",
+            OcrBox(-4, 10, 120, 30),
+            listOf(
+                OcrLine(
+                    "Exit ↗",
+                    OcrBox(-4, 10, 120, 30),
+                    listOf(
+                        OcrElement("Exit", OcrBox(-4, 10, 80, 30), 0.9f),
+                        OcrElement("↗", null, 0.5f)
+                    )
+                )
+            )
+        ),
+        OcrBlock("", null, emptyList())
+    )
+
+    @After
+    fun tearDown() {
+        stores.forEach { it.close() }
+    }
+
+    @Test
+    fun get_returnsWhatWasPut_acrossReopening() {
+        val key = OcrCorpusStore.keyOf(byteArrayOf(1, 2, 3), 0, OcrScript.LATIN, 0)
+        val store = open()
+        store.put(key, """{"fullText":"Exit ↗"}""", blocks)
+
+        assertStored(store.get(key))
+        store.close()
+        val reopened = open()
+        assertEquals(1, reopened.count)
+        assertStored(reopened.get(key))
+    }
+
+    @Test
+    fun get_unknownKey_isNull() {
+        val store = open()
+        store.put(key(1), "{}", blocks)
+
+        assertNull(store.get(key(2)))
+    }
+
+    @Test
+    fun put_sameKeyAgain_supersedesAndCompactReclaims() {
+        val store = open()
+        store.put(key(1), "first", blocks)
+        store.put(key(2), "other", emptyList())
+        val firstBytes = file.length()
+        store.put(key(1), "second", blocks)
+
+        assertEquals("second", store.get(key(1))!!.json)
+        assertTrue(store.deadBytes > 0)
+
+        store.compact()
+
+        assertEquals(0, store.deadBytes)
+        assertEquals(firstBytes + "second".length - "first".length, file.length())
+        assertEquals("second", store.get(key(1))!!.json)
+        assertEquals("other", store.get(key(2))!!.json)
+        store.close()
+        assertEquals(2, open().count)
+    }
+
+    @Test
+    fun compact_overBudget_dropsUnusedResultsOldestFirst() {
+        open().apply {
+            put(key(1), "oldest", blocks)
+            put(key(2), "older", blocks)
+            put(key(3), "newest", blocks)
+            close()
+        }
+        val store = open()
+        // Used by this launch, so kept however old.
+        store.get(key(1))
+
+        store.compact(maxBytes = store.liveBytes - 1)
+
+        assertEquals(2, store.count)
+        assertEquals("oldest", store.get(key(1))!!.json)
+        assertNull(store.get(key(2)))
+        assertEquals("newest", store.get(key(3))!!.json)
+    }
+
+    @Test
+    fun open_tornTrailingRecord_isDropped() {
+        open().apply {
+            put(key(1), "complete", blocks)
+            put(key(2), "torn", blocks)
+            close()
+        }
+        RandomAccessFile(file, "rw").use { it.setLength(it.length() - 3) }
+
+        val store = open()
+
+        assertEquals(1, store.count)
+        assertNull(store.get(key(2)))
+        // The next append lands where the torn record started.
+        store.put(key(3), "after", blocks)
+        store.close()
+        assertEquals("after", open().get(key(3))!!.json)
+    }
+
+    @Test
+    fun open_foreignFile_startsEmpty() {
+        file.writeText("not a corpus store")
+
+        val store = open()
+
+        assertEquals(0, store.count)
+        store.put(key(1), "{}", blocks)
+        assertEquals("{}", store.get(key(1))!!.json)
+    }
+
+    @Test
+    fun keyOf_coversImageRotationScriptAndVariant() {
+        val image = byteArrayOf(9, 8, 7)
+        val key = OcrCorpusStore.keyOf(image, 0, OcrScript.LATIN, 0)
+
+        assertEquals(key, OcrCorpusStore.keyOf(image.copyOf(), 0, OcrScript.LATIN, 0))
+        assertNotEquals(key, OcrCorpusStore.keyOf(byteArrayOf(9, 8, 6), 0, OcrScript.LATIN, 0))
+        assertNotEquals(key, OcrCorpusStore.keyOf(image, 90, OcrScript.LATIN, 0))
+        assertNotEquals(key, OcrCorpusStore.keyOf(image, 0, OcrScript.KOREAN, 0))
+        assertNotEquals(key, OcrCorpusStore.keyOf(image, 0, OcrScript.LATIN, 2048))
+    }
+
+    private fun open(): OcrCorpusStore = OcrCorpusStore(file).also { stores.add(it) }
+
+    private fun key(n: Int) = OcrCorpusStore.keyOf(byteArrayOf(n.toByte()), 0, OcrScript.LATIN, 0)
+
+    private fun assertStored(stored: OcrCorpusStore.Stored?) {
+        assertEquals("""{"fullText":"Exit ↗"}""", stored!!.json)
+        assertEquals(blocks, stored.blocks)
+    }
+}
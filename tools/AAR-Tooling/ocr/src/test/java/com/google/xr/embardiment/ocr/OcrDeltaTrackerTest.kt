@@ -0,0 +1,142 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class OcrDeltaTrackerTest {
+    private val tracker = OcrDeltaTracker()
+
+    private val title = block("Opening hours", OcrBox(0, 0, 200, 40))
+    private val hours = block("Monday to Friday 9-5", OcrBox(0, 60, 300, 40))
+
+    @Test
+    fun update_firstFrame_addsEveryBlock() {
+        val delta = tracker.update(listOf(title, hours))
+
+        assertEquals(1L, delta.frame)
+        assertEquals(listOf(1, 2), delta.added.map { it.id })
+        assertEquals(listOf(title, hours), delta.added.map { it.block })
+        assertTrue(delta.changed.isEmpty())
+        assertEquals(0, delta.removed.size)
+    }
+
+    @Test
+    fun update_sameFrame_isEmpty() {
+        tracker.update(listOf(title, hours))
+
+        assertTrue(tracker.update(listOf(title, hours)).isEmpty)
+    }
+
+    @Test
+    fun update_textFlicker_reportsOnlyThatBlockUnderItsId() {
+        tracker.update(listOf(title, hours))
+        val corrected = hours.copy(text = "Monday to Friday 9-6")
+
+        val delta = tracker.update(listOf(title, corrected))
+
+        assertTrue(delta.added.isEmpty())
+        assertEquals(1, delta.changed.size)
+        assertEquals(2, delta.changed[0].id)
+        assertEquals(corrected, delta.changed[0].block)
+    }
+
+    @Test
+    fun update_drift_isReportedOnceItAddsUpAgainstTheReportedBox() {
+        tracker.update(listOf(title, hours))
+
+        // Each step alone stays within the changed threshold; together they do not.
+        val slightly = tracker.update(listOf(title.moved(15), hours))
+        val further = tracker.update(listOf(title.moved(30), hours))
+
+        assertTrue(slightly.isEmpty)
+        assertTrue(further.added.isEmpty())
+        assertEquals(listOf(1), further.changed.map { it.id })
+    }
+
+    @Test
+    fun update_missingBlock_isRemovedOnlyAfterMaxMissedFrames() {
+        tracker.update(listOf(title, hours))
+
+        assertTrue(tracker.update(listOf(title)).isEmpty)
+        assertTrue(tracker.update(listOf(title)).isEmpty)
+        assertArrayEquals(intArrayOf(2), tracker.update(listOf(title)).removed)
+    }
+
+    @Test
+    fun update_blockBackWithinMissedFrames_keepsItsId() {
+        tracker.update(listOf(title, hours))
+        tracker.update(listOf(title))
+
+        val delta = tracker.update(listOf(title, hours))
+
+        assertTrue(delta.isEmpty)
+    }
+
+    @Test
+    fun update_newBlockOrReset_getsFreshIds() {
+        tracker.update(listOf(title, hours))
+        val closed = block("Closed on Sundays", OcrBox(0, 120, 250, 40))
+
+        val delta = tracker.update(listOf(title, hours, closed))
+        tracker.reset()
+        val afterReset = tracker.update(listOf(title))
+
+        assertEquals(listOf(3), delta.added.map { it.id })
+        assertEquals(listOf(4), afterReset.added.map { it.id })
+    }
+
+    @Test
+    fun update_sameTextElsewhere_isADifferentBlock() {
+        tracker.update(listOf(title))
+
+        val delta = tracker.update(listOf(title.copy(box = OcrBox(400, 400, 200, 40))))
+
+        assertEquals(listOf(2), delta.added.map { it.id })
+        assertTrue(delta.changed.isEmpty())
+    }
+
+    @Test
+    fun dice_comparesBigramsIgnoringCaseAndWhitespace() {
+        val night = OcrDeltaTracker.bigramsOf("Night")
+
+        assertEquals(1f, OcrDeltaTracker.dice(night, OcrDeltaTracker.bigramsOf("N ight")), 0f)
+        // Only "ht" is shared: 2 * 1 / (4 + 4).
+        assertEquals(0.25f, OcrDeltaTracker.dice(night, OcrDeltaTracker.bigramsOf("nacht")), 1e-6f)
+        assertEquals(0f, OcrDeltaTracker.dice(night, OcrDeltaTracker.bigramsOf("")), 0f)
+    }
+
+    @Test
+    fun iou_ofIdenticalDisjointAndHalfOverlappingBoxes() {
+        val box = OcrBox(0, 0, 100, 100)
+
+        assertEquals(1f, OcrDeltaTracker.iou(box, box), 0f)
+        assertEquals(0f, OcrDeltaTracker.iou(box, OcrBox(100, 0, 100, 100)), 0f)
+        // 5000 shared out of 15000 covered.
+        assertEquals(1f / 3, OcrDeltaTracker.iou(box, OcrBox(50, 0, 100, 100)), 1e-6f)
+    }
+
+    private fun block(text: String, box: OcrBox): OcrBlock {
+        val elements = text.split(' ').map { OcrElement(it, null, 1f) }
+        return OcrBlock(text, box, listOf(OcrLine(text, box, elements)))
+    }
+
+    private fun OcrBlock.moved(dx: Int): OcrBlock = copy(box = box!!.copy(x = box.x + dx))
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import kotlin.math.max
+import kotlin.random.Random
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class OcrSpatialIndexTest {
+    @Test
+    fun build_numbersItemsInDocumentOrder() {
+        val blocks = listOf(
+            OcrBlock(
+                "a b\nc",
+                OcrBox(0, 0, 100, 40),
+                listOf(
+                    OcrLine("a b", OcrBox(0, 0, 100, 20), listOf(element(0, 0), element(50, 0))),
+                    OcrLine("c", OcrBox(0, 20, 50, 20), listOf(element(0, 20)))
+                )
+            )
+        )
+
+        val index = OcrSpatialIndex.build(blocks)
+
+        assertEquals(6, index.itemCount)
+        assertArrayEquals(intArrayOf(0, 1, 2, 2, 1, 2), index.itemKind)
+        assertArrayEquals(intArrayOf(-1, 0, 0, 0, 1, 1), index.itemLine)
+        assertArrayEquals(intArrayOf(-1, -1, 0, 1, -1, 0), index.itemElement)
+    }
+
+    @Test
+    fun queryPoint_findsLineAndElement() {
+        val line = OcrLine("a b", OcrBox(0, 0, 100, 20), listOf(element(0, 0), element(50, 0)))
+        val index = OcrSpatialIndex.build(listOf(OcrBlock("a b", line.box, listOf(line))))
+
+        assertArrayEquals(intArrayOf(1), index.queryPoint(60, 10, OcrSpatialIndex.KIND_LINE))
+        assertArrayEquals(intArrayOf(3), index.queryPoint(60, 10, OcrSpatialIndex.KIND_ELEMENT))
+        assertEquals(0, index.queryPoint(60, 30, OcrSpatialIndex.ANY_KIND).size)
+    }
+
+    @Test
+    fun queries_matchBruteForce() {
+        val random = Random(42)
+        val blocks = List(40) { b ->
+            val lines = List(25) { l ->
+                val y = b * 600 + l * 24
+                val elements = List(8) { e -> element(e * 60 + random.nextInt(10), y) }
+                OcrLine("line $b $l", OcrBox(0, y, 480, 20), elements)
+            }
+            OcrBlock("block $b", OcrBox(0, b * 600, 480, 600), lines)
+        }
+        val index = OcrSpatialIndex.build(blocks)
+        val boxes = ArrayList<OcrBox>()
+        for (block in blocks) {
+            boxes.add(block.box!!)
+            for (line in block.lines) {
+                boxes.add(line.box!!)
+                line.elements.forEach { boxes.add(it.box!!) }
+            }
+        }
+
+        repeat(500) {
+            val x = random.nextInt(-50, 550)
+            val y = random.nextInt(-50, 24_050)
+            val radius = random.nextInt(0, 40)
+            val expected =
+                boxes.indices.filter { distanceSquared(boxes[it], x, y) <= radius * radius }
+
+            val actual = index.queryRadius(x, y, radius, OcrSpatialIndex.ANY_KIND).sorted()
+
+            assertEquals(expected, actual)
+        }
+    }
+
+    @Test
+    fun emptyResult_returnsNoHits() {
+        val index = OcrSpatialIndex.build(emptyList())
+
+        assertEquals(0, index.queryPoint(0, 0, OcrSpatialIndex.ANY_KIND).size)
+    }
+
+    private fun element(x: Int, y: Int) = OcrElement("w", OcrBox(x, y, 40, 20), 1f)
+
+    private fun distanceSquared(box: OcrBox, x: Int, y: Int): Int {
+        val dx = max(0, max(box.x - x, x - box.right))
+        val dy = max(0, max(box.y - y, y - box.bottom))
+        return dx * dx + dy * dy
+    }
+}
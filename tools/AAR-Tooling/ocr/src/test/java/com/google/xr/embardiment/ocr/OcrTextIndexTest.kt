@@ -0,0 +1,123 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class OcrTextIndexTest {
+    private val index = OcrTextIndex()
+
+    private val menu = listOf(
+        "Lunch menu",
+        "Tomato soup with basil",
+        "Grilled cheese sandwich",
+        "Soup of the day: ask your server"
+    )
+    private val timetable = listOf(
+        "Platform 4",
+        "Train to Zurich departs 10:42",
+        "Train to Basel departs 11:05"
+    )
+
+    @Test
+    fun retrieve_ranksMatchingLinesAcrossDocuments() {
+        index.setDocument(0, intArrayOf(1, 3, 5, 7), menu)
+        index.setDocument(1, intArrayOf(1, 3, 5), timetable)
+
+        val hits = index.retrieve("When does the train to Zurich leave?", 2, 0)
+
+        assertEquals(listOf(1 to 3, 1 to 5), hits.map { it.document to it.item })
+        assertEquals("Train to Zurich departs 10:42", hits[0].text)
+        assertTrue(hits[0].score > hits[1].score)
+    }
+
+    @Test
+    fun retrieve_rareTermsOutweighCommonOnes() {
+        index.setDocument(0, intArrayOf(0, 1, 2, 3), menu)
+
+        // "soup" is in two lines, "basil" in one.
+        val hits = index.retrieve("soup basil", 4, 0)
+
+        assertEquals("Tomato soup with basil", hits[0].text)
+        assertEquals(2, hits.size)
+    }
+
+    @Test
+    fun retrieve_limitsByCountAndTokenBudget() {
+        index.setDocument(0, intArrayOf(0, 1, 2), timetable)
+
+        assertEquals(1, index.retrieve("train departs", 1, 0).size)
+        // 29 characters is 8 tokens, so only one train line fits into 10.
+        val hits = index.retrieve("train departs", 3, 10)
+        assertEquals(1, hits.size)
+        assertEquals("Train to Zurich departs 10:42", hits[0].text)
+    }
+
+    @Test
+    fun retrieve_budgetSkipsLongLinesForShorterOnes() {
+        index.setDocument(0, intArrayOf(0, 1), listOf("platform platform number four", "platform"))
+
+        val hits = index.retrieve("platform", 2, 2)
+
+        assertEquals(listOf("platform"), hits.map { it.text })
+    }
+
+    @Test
+    fun setDocument_replacesTheDocumentsPreviousLines() {
+        index.setDocument(0, intArrayOf(0, 1, 2, 3), menu)
+        index.setDocument(0, intArrayOf(0, 1), listOf("Dinner menu", "Roast pumpkin"))
+
+        assertTrue(index.retrieve("soup", 5, 0).isEmpty())
+        assertEquals("Dinner menu", index.retrieve("menu", 5, 0).single().text)
+        assertEquals(2, index.size)
+    }
+
+    @Test
+    fun removeDocument_dropsItsLinesAndKeepsOthersSearchable() {
+        index.setDocument(0, intArrayOf(0, 1, 2, 3), menu)
+        index.setDocument(1, intArrayOf(0, 1, 2), timetable)
+
+        index.removeDocument(0)
+
+        assertTrue(index.retrieve("soup", 5, 0).isEmpty())
+        assertEquals(1, index.retrieve("Basel", 5, 0).single().document)
+        assertEquals(3, index.size)
+    }
+
+    @Test
+    fun retrieve_manyReplacements_staysConsistent() {
+        for (round in 0 until 50) {
+            index.setDocument(round % 3, intArrayOf(0, 1), listOf("round $round", "shared line"))
+        }
+
+        assertEquals(6, index.size)
+        assertEquals(3, index.retrieve("shared", 10, 0).size)
+        // Round 49 wrote document 1.
+        assertEquals(1, index.retrieve("round 49", 10, 0).first().document)
+    }
+
+    @Test
+    fun forEachTerm_splitsOnNonAlphanumericsAndLowercases() {
+        val terms = ArrayList<String>()
+
+        OcrTextIndex.forEachTerm("Soup of the day: ask, 10:42!") { terms.add(it) }
+
+        assertEquals(listOf("soup", "of", "the", "day", "ask", "10", "42"), terms)
+    }
+}
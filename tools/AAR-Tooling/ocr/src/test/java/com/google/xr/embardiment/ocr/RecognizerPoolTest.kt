@@ -0,0 +1,133 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import com.google.mlkit.vision.text.TextRecognizer
+import java.lang.reflect.Proxy
+import java.util.concurrent.atomic.AtomicInteger
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.yield
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertSame
+import org.junit.Assert.fail
+import org.junit.Test
+
+class RecognizerPoolTest {
+    private val created = ArrayList<OcrScript>()
+    private val closed = AtomicInteger()
+
+    private val pool = RecognizerPool(maxConcurrent = 2) { script, _ ->
+        synchronized(created) { created.add(script) }
+        fakeRecognizer()
+    }
+
+    @Test
+    fun use_createsEachScriptLazilyAndOnce() = runBlocking {
+        assertEquals(0, pool.size)
+
+        val first = pool.use(OcrScript.LATIN, null) { it }
+        val second = pool.use(OcrScript.LATIN, null) { it }
+        val japanese = pool.use(OcrScript.JAPANESE, null) { it }
+
+        assertSame(first, second)
+        assertNotSame(first, japanese)
+        assertEquals(listOf(OcrScript.LATIN, OcrScript.JAPANESE), created)
+        assertEquals(2, pool.size)
+    }
+
+    @Test
+    fun use_boundsConcurrentUseOfOneRecognizer() = runBlocking(Dispatchers.Default) {
+        val active = AtomicInteger()
+        val maxActive = AtomicInteger()
+        val release = CompletableDeferred<Unit>()
+
+        val uses = List(6) {
+            async {
+                pool.use(OcrScript.KOREAN, null) {
+                    maxActive.accumulateAndGet(active.incrementAndGet()) { a, b -> maxOf(a, b) }
+                    release.await()
+                    active.decrementAndGet()
+                }
+            }
+        }
+        while (active.get() < 2) yield()
+        release.complete(Unit)
+        uses.awaitAll()
+
+        assertEquals(2, maxActive.get())
+        assertEquals(listOf(OcrScript.KOREAN), created)
+    }
+
+    @Test
+    fun trimIdle_closesOnlyRecognizersNotInUse() = runBlocking {
+        pool.preload(OcrScript.LATIN, null)
+        val inUse = CompletableDeferred<Unit>()
+        val release = CompletableDeferred<Unit>()
+        val job = launch(Dispatchers.Default) {
+            pool.use(OcrScript.CHINESE, null) {
+                inUse.complete(Unit)
+                release.await()
+            }
+        }
+        inUse.await()
+
+        assertEquals(1, pool.trimIdle())
+        assertEquals(1, closed.get())
+        assertEquals(1, pool.size)
+
+        release.complete(Unit)
+        job.join()
+        assertEquals(1, pool.trimIdle())
+        assertEquals(0, pool.size)
+
+        // An evicted script loads again on its next use.
+        pool.use(OcrScript.LATIN, null) {}
+        assertEquals(listOf(OcrScript.LATIN, OcrScript.CHINESE, OcrScript.LATIN), created)
+    }
+
+    @Test
+    fun forName_ignoresCaseAndRejectsUnknownScripts() {
+        assertEquals(OcrScript.DEVANAGARI, OcrScript.forName("Devanagari"))
+        try {
+            OcrScript.forName("klingon")
+            fail("Unknown scripts should be rejected.")
+        } catch (expected: IllegalArgumentException) {
+        }
+    }
+
+    private fun fakeRecognizer(): TextRecognizer {
+        val type = TextRecognizer::class.java
+        return Proxy.newProxyInstance(type.classLoader, arrayOf(type)) { proxy, method, args ->
+            when (method.name) {
+                "close" -> {
+                    closed.incrementAndGet()
+                    null
+                }
+                "hashCode" -> System.identityHashCode(proxy)
+                "equals" -> proxy === args?.get(0)
+                "toString" -> "FakeTextRecognizer"
+                else -> throw UnsupportedOperationException(method.name)
+            }
+        } as TextRecognizer
+    }
+}
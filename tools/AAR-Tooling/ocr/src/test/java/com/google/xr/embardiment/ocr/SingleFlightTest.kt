@@ -0,0 +1,128 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import java.util.concurrent.atomic.AtomicInteger
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.awaitCancellation
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.yield
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Test
+
+class SingleFlightTest {
+    private val flights = SingleFlight<String, String>()
+    private val runs = AtomicInteger()
+
+    @Test
+    fun run_concurrentEqualKeys_runOnceAndShareTheValue() = runBlocking(Dispatchers.Default) {
+        val release = CompletableDeferred<Unit>()
+
+        val calls = List(5) {
+            async {
+                flights.run("page") {
+                    runs.incrementAndGet()
+                    release.await()
+                    "text"
+                }
+            }
+        }
+        while (flights.coalesced < 4) yield()
+        release.complete(Unit)
+
+        assertEquals(List(5) { "text" }, calls.awaitAll())
+        assertEquals(1, runs.get())
+        assertEquals(4L, flights.coalesced)
+    }
+
+    @Test
+    fun run_differentKeys_runSeparately() = runBlocking(Dispatchers.Default) {
+        val release = CompletableDeferred<Unit>()
+
+        val calls = listOf("page 1", "page 2").map { key ->
+            async {
+                flights.run(key) {
+                    runs.incrementAndGet()
+                    release.await()
+                    key
+                }
+            }
+        }
+        while (runs.get() < 2) yield()
+        release.complete(Unit)
+
+        assertEquals(listOf("page 1", "page 2"), calls.awaitAll())
+        assertEquals(0L, flights.coalesced)
+    }
+
+    @Test
+    fun run_failure_reachesEveryWaitingCaller() = runBlocking(Dispatchers.Default) {
+        val release = CompletableDeferred<Unit>()
+
+        val calls = List(3) {
+            async {
+                try {
+                    flights.run("page") {
+                        release.await()
+                        throw IllegalArgumentException("Failed to decode image data.")
+                    }
+                    fail("The shared failure should be thrown.")
+                } catch (e: IllegalArgumentException) {
+                    e.message
+                }
+            }
+        }
+        while (flights.coalesced < 2) yield()
+        release.complete(Unit)
+
+        assertEquals(List(3) { "Failed to decode image data." }, calls.awaitAll())
+    }
+
+    @Test
+    fun run_cancelledLeader_waitingCallerRunsTheWork() = runBlocking(Dispatchers.Default) {
+        val started = CompletableDeferred<Unit>()
+        val leader = async {
+            flights.run("page") {
+                runs.incrementAndGet()
+                started.complete(Unit)
+                awaitCancellation()
+            }
+        }
+        started.await()
+        val waiting = async { flights.run("page") { "run ${runs.incrementAndGet()}" } }
+        while (flights.coalesced < 1) yield()
+
+        leader.cancel()
+
+        assertEquals("run 2", waiting.await())
+        assertTrue(leader.isCancelled)
+        assertEquals(0L, flights.coalesced)
+    }
+
+    @Test
+    fun run_afterCompletion_runsAgain() = runBlocking {
+        flights.run("page") { "run ${runs.incrementAndGet()}" }
+
+        assertEquals("run 2", flights.run("page") { "run ${runs.incrementAndGet()}" })
+        assertEquals(0L, flights.coalesced)
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2025 The Embardiment Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.xr.embardiment.ocr
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class TiledOcrTest {
+    @Test
+    fun tileGrid_smallImage_isOneTile() {
+        assertEquals(listOf(OcrBox(0, 0, 800, 600)), tileGrid(800, 600, 1024, 64))
+    }
+
+    @Test
+    fun tileGrid_coversImageWithOverlap() {
+        val tiles = tileGrid(5000, 2500, 2048, 128)
+
+        // Columns start at 0, 1920 and 5000 - 2048; rows at 0 and 2500 - 2048.
+        assertEquals(6, tiles.size)
+        assertEquals(listOf(0, 1920, 2952), tiles.take(3).map { it.x })
+        assertEquals(listOf(0, 452), tiles.map { it.y }.distinct())
+        assertTrue(tiles.all { it.w == 2048 && it.h == 2048 })
+        assertEquals(5000, tiles.maxOf { it.right })
+        assertEquals(2500, tiles.maxOf { it.bottom })
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun tileGrid_rejectsOverlapAsLargeAsTile() {
+        tileGrid(5000, 5000, 512, 512)
+    }
+
+    @Test
+    fun rotateBox_mapsIntoRotatedFrame() {
+        val box = OcrBox(10, 20, 30, 40)
+
+        assertEquals(box, rotateBox(box, 0, 100, 200))
+        assertEquals(OcrBox(140, 10, 40, 30), rotateBox(box, 90, 100, 200))
+        assertEquals(OcrBox(60, 140, 30, 40), rotateBox(box, 180, 100, 200))
+        assertEquals(OcrBox(20, 60, 40, 30), rotateBox(box, 270, 100, 200))
+    }
+
+    @Test
+    fun mergeTiles_dropsLineCutAtSeam() {
+        val full = line("The quick brown fox jumps", OcrBox(1800, 100, 500, 40))
+        val cut = line("The quick brown fo", OcrBox(1800, 100, 248, 40))
+        val left = listOf(block(cut, line("Left column", OcrBox(100, 100, 300, 40))))
+        val right = listOf(block(full))
+
+        val merged = mergeTiles(listOf(left, right))
+
+        val texts = merged.flatMap { block -> block.lines.map { it.text } }
+        assertEquals(listOf("Left column", "The quick brown fox jumps"), texts)
+        // The left block shrinks to its surviving line.
+        assertEquals(OcrBox(100, 100, 300, 40), merged[0].box)
+        assertEquals("Left column", merged[0].text)
+    }
+
+    @Test
+    fun mergeTiles_dropsLineReadTwiceInOverlap() {
+        val first = line("Chapter 2", OcrBox(1950, 400, 150, 40))
+        val second = line("Chapter 2", OcrBox(1951, 401, 150, 40))
+
+        val merged = mergeTiles(listOf(listOf(block(first)), listOf(block(second))))
+
+        assertEquals(1, merged.size)
+    }
+
+    @Test
+    fun mergeTiles_keepsRepeatedTextElsewhere() {
+        val first = line("Total", OcrBox(100, 100, 100, 40))
+        val second = line("Total", OcrBox(2500, 100, 100, 40))
+
+        val merged = mergeTiles(listOf(listOf(block(first)), listOf(block(second))))
+
+        assertEquals(2, merged.size)
+    }
+
+    @Test
+    fun mergeTiles_keepsOverlappingLinesWithinOneTile() {
+        val first = line("a b", OcrBox(100, 100, 100, 40))
+        val second = line("a", OcrBox(100, 100, 50, 40))
+
+        val merged = mergeTiles(listOf(listOf(block(first, second))))
+
+        assertEquals(2, merged.single().lines.size)
+    }
+
+    private fun line(text: String, box: OcrBox) = OcrLine(text, box, emptyList())
+
+    private fun block(vararg lines: OcrLine): OcrBlock {
+        val box = lines.mapNotNull { it.box }.reduce { a, b -> a.union(b) }
+        return OcrBlock(lines.joinToString("\n") { it.text }, box, lines.toList())
+    }
+}
@@ -51,4 +51,22 @@ dependencies {
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
-}
\ No newline at end of file
+}
+
+// The only supported way to update the AAR that Unity loads:
+// ./gradlew :TTSUnityPlugin:copyReleaseAarToUnity
+tasks.register<Copy>("copyReleaseAarToUnity") {
+    val aar = layout.buildDirectory.file("outputs/aar/TTSUnityPlugin-release.aar")
+    val consumerRules = file("consumer-rules.pro")
+    dependsOn("assembleRelease")
+    from(aar)
+    into(rootProject.file("../../unity/Packages/com.google.xr.embardiment/Runtime/Plugins/Android TTS"))
+    doFirst {
+        // Unity's build shrinks the app with these rules, so an AAR without them breaks at runtime.
+        val packaged = zipTree(aar).matching { include("proguard.txt") }.singleFile.readText()
+        val missing = consumerRules.readLines()
+            .map { it.trim() }
+            .filter { it.isNotEmpty() && !it.startsWith("#") && it !in packaged }
+        check(missing.isEmpty()) { "$name: proguard.txt in the AAR lacks $missing" }
+    }
+}
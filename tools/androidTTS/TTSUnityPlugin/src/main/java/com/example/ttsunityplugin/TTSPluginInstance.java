@@ -18,6 +18,8 @@ package com.example.ttsunityplugin;
 
 import android.app.Activity;
 import android.content.Intent;
+import android.os.Bundle;
+import android.os.SystemClock;
 import android.speech.tts.TextToSpeech;
 import android.speech.tts.UtteranceProgressListener;
 import android.speech.tts.Voice;
@@ -25,16 +27,48 @@ import android.util.Log;
 
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
+import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.unity3d.player.UnityPlayer;
 
-public class TTSPluginInstance implements TextToSpeech.OnInitListener{
+/**
+ * Reference counted: the creator holds the first reference and native collaborators (e.g. barge-in)
+ * take their own with Retain(). The last close() stops speech and shuts the engine down, releasing
+ * its service connection.
+ */
+public class TTSPluginInstance implements TextToSpeech.OnInitListener, Closeable {
+
+    /**
+     * Notified on the TTS binder thread when the engine acknowledges that an utterance was stopped,
+     * used by native callers (e.g. barge-in) to measure how long an interruption took.
+     */
+    public interface InterruptionListener {
+        void onUtteranceStopped(String utteranceId, long elapsedRealtimeNanos);
+    }
 
     private static final String TAG = "UnityTTSPlugin";
+    private static final String UTTERANCE_ID = TextToSpeech.ACTION_TTS_QUEUE_PROCESSING_COMPLETED;
+
+    /**
+     * One speak() request. Ducking restarts the text from the word being spoken as a new segment
+     * with its own utterance id, so callbacks of the segment it replaced can be told apart.
+     */
+    private static final class Segment {
+        final String utteranceId;
+        final int start;
+        final boolean restart;
+
+        Segment(String utteranceId, int start, boolean restart) {
+            this.utteranceId = utteranceId;
+            this.start = start;
+            this.restart = restart;
+        }
+    }
 
     private boolean runFromUnity = false;
     private TextToSpeech tts;
@@ -44,6 +78,17 @@ public class TTSPluginInstance implements TextToSpeech.OnInitListener{
 
     private float currentPitch = 1.0F;
     private float currentSpeechRate = 1.0F;
+    private float currentVolume = 1.0F;
+
+    // Text of the last Speak() call and the offsets used to resume it after ducking.
+    private volatile String currentText = "";
+    private volatile Segment currentSegment;
+    private final AtomicInteger segmentCount = new AtomicInteger();
+    private volatile int spokenUpTo = 0;
+    private volatile boolean utteranceActive = false;
+    private volatile boolean isDucked = false;
+    private volatile InterruptionListener interruptionListener;
+    private final AtomicInteger refCount = new AtomicInteger(1);
 
     private String localeStr;
     private static Activity unityActivity;
@@ -90,27 +135,70 @@ public class TTSPluginInstance implements TextToSpeech.OnInitListener{
                     @Override
                     public void onStart(String utteranceId)
                     {
-                        ReportUtteranceEvent("onStart",utteranceId,"");
+                        Segment segment = currentSegment;
+                        if (!isCurrent(segment, utteranceId)) {
+                            return;
+                        }
+                        utteranceActive = true;
+                        // Unity already heard about the start of the utterance a restart continues.
+                        if (!segment.restart) {
+                            ReportUtteranceEvent("onStart",utteranceId,"");
+                        }
                         Log.i(TAG + "-utterOnStart","Started speaking: " + utteranceId);
                     }
 
                     @Override
                     public void onDone(String utteranceId) {
+                        if (!isCurrent(currentSegment, utteranceId)) {
+                            return;
+                        }
+                        utteranceActive = false;
                         ReportUtteranceEvent("onDone",utteranceId,"");
                         Log.i(TAG + "-utterOnDone","Done speaking: " + utteranceId);
                     }
 
                     @Override
                     public void onError(String utteranceId) {
+                        if (!isCurrent(currentSegment, utteranceId)) {
+                            return;
+                        }
+                        utteranceActive = false;
                         ReportUtteranceEvent("onError",utteranceId,"");
                         Log.i( TAG + "-utterOnError","Error speaking: " + utteranceId);
                     }
 
                     @Override
                     public void onError(String utteranceId, int errorCode) {
+                        if (!isCurrent(currentSegment, utteranceId)) {
+                            return;
+                        }
+                        utteranceActive = false;
                         ReportUtteranceEvent("onError",utteranceId,String.valueOf(errorCode));
                         Log.i( TAG + "-utterOnError","Error speaking: " + utteranceId + "Error Code: " + errorCode);
                     }
+
+                    @Override
+                    public void onStop(String utteranceId, boolean interrupted) {
+                        long stoppedAt = SystemClock.elapsedRealtimeNanos();
+                        // A segment replaced by a restart stops too; the utterance goes on.
+                        if (isCurrent(currentSegment, utteranceId)) {
+                            utteranceActive = false;
+                        }
+                        InterruptionListener listener = interruptionListener;
+                        if (listener != null) {
+                            listener.onUtteranceStopped(utteranceId, stoppedAt);
+                        }
+                        Log.i(TAG + "-utterOnStop", "Stopped speaking: " + utteranceId + " interrupted: " + interrupted);
+                    }
+
+                    @Override
+                    public void onRangeStart(String utteranceId, int start, int end, int frame) {
+                        // Only reported on API 26+, below that ducking resumes from the segment start.
+                        Segment segment = currentSegment;
+                        if (isCurrent(segment, utteranceId)) {
+                            spokenUpTo = segment.start + start;
+                        }
+                    }
                 });
                 IsInitialized = true;
             }
@@ -206,7 +294,9 @@ public class TTSPluginInstance implements TextToSpeech.OnInitListener{
             tts.setVoice(newVoice);
         }
 
-        tts.speak(textToSpeak, TextToSpeech.QUEUE_FLUSH, null, TextToSpeech.ACTION_TTS_QUEUE_PROCESSING_COMPLETED);
+        currentText = textToSpeak;
+        isDucked = false;
+        speakFrom(0, currentVolume, false);
     }
 
     /**
@@ -214,9 +304,125 @@ public class TTSPluginInstance implements TextToSpeech.OnInitListener{
      *
      */
     public void Stop(){
+        isDucked = false;
         tts.stop();
     }
 
+    /**
+     * Unity Plugin API: to set the volume of subsequent utterances
+     *
+     * @param volume float value between 0 (silent) and 1 (full volume)
+     */
+    public void SetVolume(float volume){
+        currentVolume = Math.max(0.0F, Math.min(1.0F, volume));
+    }
+
+    /**
+     * Native API: lowers the volume of the utterance being spoken by restarting it from the word
+     * currently being spoken, since the engine cannot change volume mid-utterance
+     *
+     * @param volume float value between 0 and 1 to continue speaking at
+     * @return true if an utterance was playing and has been ducked
+     */
+    public boolean Duck(float volume){
+        if (!utteranceActive || isDucked) {
+            return false;
+        }
+        isDucked = true;
+        speakFrom(spokenUpTo, Math.max(0.0F, Math.min(1.0F, volume)), true);
+        return true;
+    }
+
+    /**
+     * Native API: restores the volume of a ducked utterance, continuing from the word being spoken
+     *
+     * @return true if a ducked utterance was playing and has been restored
+     */
+    public boolean Unduck(){
+        if (!isDucked) {
+            return false;
+        }
+        isDucked = false;
+        if (!utteranceActive) {
+            return false;
+        }
+        speakFrom(spokenUpTo, currentVolume, true);
+        return true;
+    }
+
+    /**
+     * Native API: cheap check of whether an utterance is playing, tracked from progress callbacks
+     * instead of a binder call to the engine
+     *
+     * @return true between the start and the done/stop/error callbacks of an utterance
+     */
+    public boolean IsUtteranceActive(){
+        return utteranceActive;
+    }
+
+    /**
+     * Native API: registers a listener notified when the engine acknowledges a stopped utterance
+     *
+     * @param listener the listener, or null to clear it
+     */
+    public void SetInterruptionListener(InterruptionListener listener){
+        interruptionListener = listener;
+    }
+
+    /**
+     * Native API: adds a reference that must be balanced by a close()
+     *
+     * @return this instance
+     */
+    public TTSPluginInstance Retain(){
+        while (true) {
+            int count = refCount.get();
+            if (count == 0) {
+                throw new IllegalStateException("TTSPluginInstance is closed.");
+            }
+            if (refCount.compareAndSet(count, count + 1)) {
+                return this;
+            }
+        }
+    }
+
+    /**
+     * Unity Plugin API: drops a reference; the last one stops speaking and shuts the engine down
+     *
+     */
+    @Override
+    public void close(){
+        if (refCount.getAndUpdate(count -> count > 0 ? count - 1 : 0) != 1) {
+            return;
+        }
+        interruptionListener = null;
+        isDucked = false;
+        utteranceActive = false;
+        IsInitialized = false;
+        if (tts != null) {
+            tts.stop();
+            tts.shutdown();
+        }
+        Log.i(TAG, "TTS engine shut down.");
+    }
+
+    private void speakFrom(int start, float volume, boolean restart){
+        String text = currentText;
+        int from = Math.max(0, Math.min(start, text.length()));
+        // Published before speak(), so the new segment's callbacks always find it.
+        Segment segment = new Segment(UTTERANCE_ID + "-" + segmentCount.incrementAndGet(), from, restart);
+        spokenUpTo = from;
+        currentSegment = segment;
+
+        Bundle params = new Bundle();
+        params.putFloat(TextToSpeech.Engine.KEY_PARAM_VOLUME, volume);
+        tts.speak(text.substring(from), TextToSpeech.QUEUE_FLUSH, params, segment.utteranceId);
+    }
+
+    private static boolean isCurrent(Segment segment, String utteranceId){
+        return segment != null && segment.utteranceId.equals(utteranceId);
+    }
+
     private void ReportUtteranceEvent(String eventDescription, String utteranceId, String detail){
         //UnitySendMessageWrapper(UNITY_TARGET_GAME_OBJECT, "HandelUtteranceProgressCallback", (eventDescription + "," + utteranceId + "," + detail).replaceAll(",$",""));
         UnitySendMessageWrapper(UNITY_TARGET_GAME_OBJECT, "HandelUtteranceProgressCallback", (eventDescription ));
@@ -0,0 +1,242 @@
+// <copyright file="BargeInBridge.cs" company="Google LLC">
+//
+// Copyright 2025 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// </copyright>
+// ----------------------------------------------------------------------
+
+using System;
+using UnityEngine;
+
+namespace AndroidXRUnitySamples.Gemini
+{
+    /// <summary>
+    /// C# Bridge for the native BargeInCoordinator, which stops or ducks text-to-speech playback
+    /// as soon as the user starts speaking, without a round trip through Unity's main thread.
+    /// </summary>
+    public class BargeInBridge : IDisposable
+    {
+        private const string _javaPluginClassName =
+            "com.google.xr.androidxrunitysamples.java.BargeInCoordinator";
+
+        private const string _javaCallbackInterfaceName =
+            "com.google.xr.androidxrunitysamples.java.IPluginCallback";
+
+        private const string _actionConfigure = "configure";
+        private const string _actionGetStats = "getStats";
+        private const string _actionResetStats = "resetStats";
+
+        private const string _eventInterrupted = "BargeIn_Interrupted";
+        private const string _eventStats = "BargeIn_Stats";
+        private const string _eventError = "BargeIn_Error";
+
+        private AndroidJavaObject _pluginInstance;
+        private PluginCallbackProxy _callbackProxy;
+        private bool _isInitialized;
+        private bool _isDisposed;
+
+        /// <summary>
+        /// Initializes a new instance of the <see cref="BargeInBridge"/> class and attaches the
+        /// coordinator to a recognizer and the text-to-speech engine it should interrupt.
+        /// </summary>
+        /// <param name="speechToText">The native SpeechToTextPlugin, see
+        /// SpeechToTextBridge.PluginInstance.</param>
+        /// <param name="textToSpeech">The native TTSPluginInstance, see
+        /// AndroidTts.PluginInstance.</param>
+        public BargeInBridge(AndroidJavaObject speechToText, AndroidJavaObject textToSpeech)
+        {
+            if (Application.platform != RuntimePlatform.Android)
+            {
+                Debug.LogError("BargeInBridge is only supported on Android.");
+                return;
+            }
+
+            if (speechToText == null || textToSpeech == null)
+            {
+                Debug.LogError("BargeInBridge needs both a recognizer and a TTS engine.");
+                return;
+            }
+
+            try
+            {
+                _callbackProxy = new PluginCallbackProxy(this);
+                using (var unityPlayer = new AndroidJavaClass("com.unity3d.player.UnityPlayer"))
+                {
+                    using (var activity = unityPlayer.GetStatic<AndroidJavaObject>(
+                        "currentActivity"))
+                    {
+                        _pluginInstance = new AndroidJavaObject(_javaPluginClassName);
+                        _pluginInstance.Call("initialize", activity, _callbackProxy);
+                        _pluginInstance.Call("attach", speechToText, textToSpeech);
+                        _isInitialized = true;
+                        Debug.Log("BargeInBridge initialized successfully.");
+                    }
+                }
+            }
+            catch (Exception e)
+            {
+                Debug.LogError($"BargeInBridge initialization failed: {e.Message}\n{e.StackTrace}");
+                Dispose();
+            }
+        }
+
+        ~BargeInBridge()
+        {
+            Dispose(false);
+        }
+
+        /// <summary>
+        /// Event fired with the source, mode and measured latency of each interruption as JSON.
+        /// </summary>
+        public event Action<string> OnInterrupted;
+
+        /// <summary>
+        /// Event fired with the interruption count and latencies as JSON, see RequestStats.
+        /// </summary>
+        public event Action<string> OnStats;
+
+        /// <summary>
+        /// Event fired with a native error as JSON.
+        /// </summary>
+        public event Action<string> OnError;
+
+        /// <summary>
+        /// Configures the coordinator, e.g.
+        /// <c>{"enabled":true,"mode":"duck","rmsThresholdDb":8,"rmsHoldMs":60,"duckVolume":0.2}</c>.
+        /// </summary>
+        /// <param name="jsonArgs">JSON object with the options to change.</param>
+        public void Configure(string jsonArgs)
+        {
+            CallPluginAction(_actionConfigure, jsonArgs ?? "{}");
+        }
+
+        /// <summary>
+        /// Requests the interruption stats, which arrive as OnStats.
+        /// </summary>
+        public void RequestStats()
+        {
+            CallPluginAction(_actionGetStats, "{}");
+        }
+
+        /// <summary>
+        /// Clears the interruption stats.
+        /// </summary>
+        public void ResetStats()
+        {
+            CallPluginAction(_actionResetStats, "{}");
+        }
+
+        /// <inheritdoc/>
+        public void Dispose()
+        {
+            Dispose(true);
+            GC.SuppressFinalize(this);
+        }
+
+        /// <summary>
+        /// Protected implementation of Dispose pattern.
+        /// </summary>
+        /// <param name="disposing">True if called from Dispose(),
+        /// if called from finalizer.</param>
+        protected virtual void Dispose(bool disposing)
+        {
+            if (_isDisposed)
+            {
+                return;
+            }
+
+            if (_pluginInstance != null)
+            {
+                try
+                {
+                    // Detaches from the recognizer and releases its reference to the TTS engine.
+                    _pluginInstance.Call("destroy");
+                    _pluginInstance.Dispose();
+                }
+                catch (Exception e)
+                {
+                    Debug.LogError($"Error during BargeInBridge disposal: {e.Message}");
+                }
+                finally
+                {
+                    _pluginInstance = null;
+                    _isInitialized = false;
+                }
+            }
+
+            _callbackProxy = null;
+
+            _isDisposed = true;
+        }
+
+        private void CallPluginAction(string actionName, string jsonArgs)
+        {
+            if (!_isInitialized || _isDisposed)
+            {
+                return;
+            }
+
+            try
+            {
+                _pluginInstance.Call("callAction", actionName, jsonArgs);
+            }
+            catch (Exception e)
+            {
+                Debug.LogError($"Error calling {actionName}: {e.Message}\n{e.StackTrace}");
+            }
+        }
+
+        private class PluginCallbackProxy : AndroidJavaProxy
+        {
+            private readonly BargeInBridge _owner;
+
+            public PluginCallbackProxy(BargeInBridge owner)
+                : base(_javaCallbackInterfaceName)
+            {
+                _owner = owner;
+            }
+
+            public void OnEvent(string jsonPayload)
+            {
+                UnityMainThreadDispatcher.Instance?.Enqueue(() => ProcessEvent(jsonPayload));
+            }
+
+            private void ProcessEvent(string jsonPayload)
+            {
+                if (_owner._isDisposed || string.IsNullOrEmpty(jsonPayload))
+                {
+                    return;
+                }
+
+                var baseEvent = JsonUtility.FromJson<BasePluginEvent>(jsonPayload);
+                switch (baseEvent?.Event)
+                {
+                    case _eventInterrupted:
+                        _owner.OnInterrupted?.Invoke(jsonPayload);
+                        break;
+                    case _eventStats:
+                        _owner.OnStats?.Invoke(jsonPayload);
+                        break;
+                    case _eventError:
+                        _owner.OnError?.Invoke(jsonPayload);
+                        break;
+                    default:
+                        Debug.LogWarning($"Received unhandled barge-in event: {jsonPayload}");
+                        break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,362 @@
+// <copyright file="BargeInCoordinator.java" company="Google LLC">
+//
+// Copyright 2025 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// </copyright>
+// ----------------------------------------------------------------------
+
+package com.google.xr.androidxrunitysamples.java;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.speech.SpeechRecognizer;
+import android.util.Log;
+import com.example.ttsunityplugin.TTSPluginInstance;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Interrupts TTS playback as soon as the user starts speaking. Listens to the recognizer callbacks
+ * of a {@link SpeechToTextPlugin} and stops or ducks a {@link TTSPluginInstance} directly in Java,
+ * without a round trip through Unity's main thread, and reports the measured interruption latency.
+ */
+public class BargeInCoordinator
+    implements IUnityPlugin,
+        SpeechToTextPlugin.SpeechActivityListener,
+        TTSPluginInstance.InterruptionListener {
+  private static final String TAG = "BargeIn";
+  private static final String ACTION_CONFIGURE = "configure";
+  private static final String ACTION_GET_STATS = "getStats";
+  private static final String ACTION_RESET_STATS = "resetStats";
+
+  private static final String EVENT_INTERRUPTED = "BargeIn_Interrupted";
+  private static final String EVENT_STATS = "BargeIn_Stats";
+  private static final String EVENT_ERROR = "BargeIn_Error";
+
+  private static final String MODE_STOP = "stop";
+  private static final String MODE_DUCK = "duck";
+
+  private static final String SOURCE_BEGINNING = "beginningOfSpeech";
+  private static final String SOURCE_RMS = "rms";
+
+  private static final long NANOS_PER_MILLI = 1_000_000L;
+  private static final long TARGET_LATENCY_NANOS = 100 * NANOS_PER_MILLI;
+
+  private IPluginCallback eventCallback;
+  private SpeechToTextPlugin speechToText;
+  private TTSPluginInstance textToSpeech;
+
+  private volatile boolean enabled = true;
+  private volatile String mode = MODE_STOP;
+  private volatile float rmsThresholdDb = 8.0f;
+  private volatile long rmsHoldNanos = 60 * NANOS_PER_MILLI;
+  private volatile float duckVolume = 0.2f;
+
+  // Recognizer callbacks arrive on the UI thread, stop acknowledgements on the TTS binder thread.
+  private final Object lock = new Object();
+  private long rmsAboveSinceNanos;
+  private boolean triggeredThisTurn;
+  private long pendingTriggerNanos;
+  private long pendingStopCallNanos;
+  private String pendingSource;
+  private String pendingMode;
+
+  private long interruptionCount;
+  private long withinTargetCount;
+  private long totalAckNanos;
+  private long maxAckNanos;
+  private long lastAckNanos;
+  private long lastStopCallNanos;
+
+  @Override
+  public void initialize(Context context, IPluginCallback callback) {
+    this.eventCallback = callback;
+    Log.d(TAG, "BargeInCoordinator initialized.");
+  }
+
+  /**
+   * Connects the coordinator to the recognizer and the TTS engine it should interrupt. Both objects
+   * are the same instances the C# bridges already hold; the coordinator keeps its own reference to
+   * the TTS engine until {@link #detach()}.
+   */
+  public void attach(SpeechToTextPlugin speechToText, TTSPluginInstance textToSpeech) {
+    detach();
+    this.speechToText = speechToText;
+    this.textToSpeech = textToSpeech.Retain();
+    speechToText.addSpeechActivityListener(this);
+    textToSpeech.SetInterruptionListener(this);
+    Log.d(TAG, "Attached to SpeechToTextPlugin and TTSPluginInstance.");
+  }
+
+  /** Disconnects from the recognizer and the TTS engine. */
+  public void detach() {
+    if (speechToText != null) {
+      speechToText.removeSpeechActivityListener(this);
+      speechToText = null;
+    }
+    if (textToSpeech != null) {
+      textToSpeech.SetInterruptionListener(null);
+      textToSpeech.close();
+      textToSpeech = null;
+    }
+  }
+
+  @Override
+  public void callAction(String actionName, String jsonArgs) {
+    Log.d(TAG, "callAction received: " + actionName + " with args: " + jsonArgs);
+
+    if (ACTION_CONFIGURE.equals(actionName)) {
+      configure(jsonArgs);
+    } else if (ACTION_GET_STATS.equals(actionName)) {
+      sendStatsEvent();
+    } else if (ACTION_RESET_STATS.equals(actionName)) {
+      synchronized (lock) {
+        interruptionCount = 0;
+        withinTargetCount = 0;
+        totalAckNanos = 0;
+        maxAckNanos = 0;
+        lastAckNanos = 0;
+        lastStopCallNanos = 0;
+      }
+    } else {
+      Log.w(TAG, "Unknown action requested: " + actionName);
+      sendErrorEvent("Unknown action: " + actionName);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    Log.d(TAG, "Destroying BargeInCoordinator...");
+    detach();
+    this.eventCallback = null;
+  }
+
+  @Override
+  public void onBeginningOfSpeech(long elapsedRealtimeNanos) {
+    trigger(SOURCE_BEGINNING, elapsedRealtimeNanos);
+  }
+
+  @Override
+  public void onRmsChanged(float rmsdB, long elapsedRealtimeNanos) {
+    boolean shouldTrigger = false;
+    synchronized (lock) {
+      if (rmsdB < rmsThresholdDb) {
+        rmsAboveSinceNanos = 0;
+      } else if (rmsAboveSinceNanos == 0) {
+        rmsAboveSinceNanos = elapsedRealtimeNanos;
+        shouldTrigger = rmsHoldNanos == 0;
+      } else {
+        shouldTrigger = elapsedRealtimeNanos - rmsAboveSinceNanos >= rmsHoldNanos;
+      }
+    }
+    if (shouldTrigger) {
+      trigger(SOURCE_RMS, elapsedRealtimeNanos);
+    }
+  }
+
+  @Override
+  public void onEndOfSpeech(long elapsedRealtimeNanos) {
+    synchronized (lock) {
+      rmsAboveSinceNanos = 0;
+    }
+  }
+
+  @Override
+  public void onResults(String text, long elapsedRealtimeNanos) {
+    TTSPluginInstance tts = textToSpeech;
+    boolean wasTriggered = endTurn();
+    // A ducked answer is only dropped once the user actually said something.
+    if (wasTriggered && tts != null && MODE_DUCK.equals(mode)) {
+      if (text == null || text.isEmpty()) {
+        tts.Unduck();
+      } else {
+        tts.Stop();
+      }
+    }
+  }
+
+  @Override
+  public void onError(int errorCode, long elapsedRealtimeNanos) {
+    TTSPluginInstance tts = textToSpeech;
+    boolean wasTriggered = endTurn();
+    if (wasTriggered && tts != null && MODE_DUCK.equals(mode)) {
+      if (errorCode == SpeechRecognizer.ERROR_NO_MATCH
+          || errorCode == SpeechRecognizer.ERROR_SPEECH_TIMEOUT) {
+        tts.Unduck();
+      } else {
+        tts.Stop();
+      }
+    }
+  }
+
+  @Override
+  public void onUtteranceStopped(String utteranceId, long elapsedRealtimeNanos) {
+    long ackNanos;
+    long stopCallNanos;
+    String source;
+    String interruptionMode;
+    synchronized (lock) {
+      if (pendingTriggerNanos == 0) {
+        return;
+      }
+      ackNanos = elapsedRealtimeNanos - pendingTriggerNanos;
+      stopCallNanos = pendingStopCallNanos;
+      source = pendingSource;
+      interruptionMode = pendingMode;
+      pendingTriggerNanos = 0;
+
+      interruptionCount++;
+      totalAckNanos += ackNanos;
+      maxAckNanos = Math.max(maxAckNanos, ackNanos);
+      lastAckNanos = ackNanos;
+      lastStopCallNanos = stopCallNanos;
+      if (ackNanos <= TARGET_LATENCY_NANOS) {
+        withinTargetCount++;
+      }
+    }
+    Log.d(
+        TAG,
+        "Interrupted TTS via " + source + " in " + (ackNanos / (double) NANOS_PER_MILLI) + " ms.");
+    sendInterruptedEvent(source, interruptionMode, stopCallNanos, ackNanos);
+  }
+
+  private void trigger(String source, long triggerNanos) {
+    TTSPluginInstance tts = textToSpeech;
+    if (!enabled || tts == null || !tts.IsUtteranceActive()) {
+      return;
+    }
+    String interruptionMode = mode;
+    synchronized (lock) {
+      if (triggeredThisTurn) {
+        return;
+      }
+      triggeredThisTurn = true;
+      pendingTriggerNanos = triggerNanos;
+      pendingStopCallNanos = 0;
+      pendingSource = source;
+      pendingMode = interruptionMode;
+    }
+
+    boolean interrupted;
+    if (MODE_DUCK.equals(interruptionMode)) {
+      interrupted = tts.Duck(duckVolume);
+    } else {
+      tts.Stop();
+      interrupted = true;
+    }
+    long stopCallNanos = SystemClock.elapsedRealtimeNanos() - triggerNanos;
+
+    synchronized (lock) {
+      if (!interrupted) {
+        pendingTriggerNanos = 0;
+      } else if (pendingTriggerNanos == triggerNanos) {
+        pendingStopCallNanos = stopCallNanos;
+      }
+    }
+  }
+
+  private boolean endTurn() {
+    synchronized (lock) {
+      boolean wasTriggered = triggeredThisTurn;
+      triggeredThisTurn = false;
+      rmsAboveSinceNanos = 0;
+      return wasTriggered;
+    }
+  }
+
+  private void configure(String jsonArgs) {
+    try {
+      JSONObject args = new JSONObject(jsonArgs == null || jsonArgs.isEmpty() ? "{}" : jsonArgs);
+      enabled = args.optBoolean("enabled", enabled);
+      String newMode = args.optString("mode", mode);
+      if (!MODE_STOP.equals(newMode) && !MODE_DUCK.equals(newMode)) {
+        sendErrorEvent("Unknown barge-in mode: " + newMode);
+        return;
+      }
+      mode = newMode;
+      rmsThresholdDb = (float) args.optDouble("rmsThresholdDb", rmsThresholdDb);
+      rmsHoldNanos = args.optLong("rmsHoldMs", rmsHoldNanos / NANOS_PER_MILLI) * NANOS_PER_MILLI;
+      duckVolume = (float) args.optDouble("duckVolume", duckVolume);
+    } catch (JSONException e) {
+      Log.e(TAG, "JSONException parsing configure args: " + e.getMessage());
+      sendErrorEvent("Invalid configure args: " + e.getMessage());
+    }
+  }
+
+  private void sendEvent(String jsonPayload) {
+    IPluginCallback callback = eventCallback;
+    if (callback != null) {
+      try {
+        callback.OnEvent(jsonPayload);
+      } catch (Exception e) {
+        Log.e(TAG, "Exception sending event to Unity: " + e.getMessage());
+      }
+    } else {
+      Log.w(TAG, "Cannot send event, callback is null.");
+    }
+  }
+
+  private void sendInterruptedEvent(
+      String source, String interruptionMode, long stopCallNanos, long ackNanos) {
+    JSONObject data = new JSONObject();
+    try {
+      data.put("Event", EVENT_INTERRUPTED);
+      data.put("Source", source);
+      data.put("Mode", interruptionMode);
+      data.put("StopCallMs", stopCallNanos / (double) NANOS_PER_MILLI);
+      data.put("LatencyMs", ackNanos / (double) NANOS_PER_MILLI);
+      data.put("Timestamp", System.currentTimeMillis());
+      sendEvent(data.toString());
+    } catch (JSONException e) {
+      Log.e(TAG, "JSONException creating interrupted event: " + e.getMessage());
+    }
+  }
+
+  private void sendStatsEvent() {
+    JSONObject data = new JSONObject();
+    try {
+      synchronized (lock) {
+        data.put("Event", EVENT_STATS);
+        data.put("Count", interruptionCount);
+        data.put("WithinTargetCount", withinTargetCount);
+        data.put(
+            "MeanLatencyMs",
+            interruptionCount == 0
+                ? 0
+                : totalAckNanos / (double) interruptionCount / NANOS_PER_MILLI);
+        data.put("MaxLatencyMs", maxAckNanos / (double) NANOS_PER_MILLI);
+        data.put("LastLatencyMs", lastAckNanos / (double) NANOS_PER_MILLI);
+        data.put("LastStopCallMs", lastStopCallNanos / (double) NANOS_PER_MILLI);
+      }
+      data.put("Timestamp", System.currentTimeMillis());
+      sendEvent(data.toString());
+    } catch (JSONException e) {
+      Log.e(TAG, "JSONException creating stats event: " + e.getMessage());
+    }
+  }
+
+  private void sendErrorEvent(String errorMessage) {
+    JSONObject data = new JSONObject();
+    try {
+      data.put("Event", EVENT_ERROR);
+      data.put("Error", errorMessage);
+      data.put("ErrorCode", -1);
+      data.put("Timestamp", System.currentTimeMillis());
+      sendEvent(data.toString());
+    } catch (JSONException e) {
+      Log.e(TAG, "JSONException creating error event: " + e.getMessage());
+    }
+  }
+}
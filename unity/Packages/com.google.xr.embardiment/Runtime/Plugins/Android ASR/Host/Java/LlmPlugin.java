@@ -0,0 +1,319 @@
+// <copyright file="LlmPlugin.java" company="Google LLC">
+//
+// Copyright 2025 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// </copyright>
+// ----------------------------------------------------------------------
+
+package com.google.xr.androidxrunitysamples.java;
+
+import android.content.Context;
+import android.util.Log;
+import com.google.xr.embardiment.llm.DocumentSummarizer;
+import com.google.xr.embardiment.llm.LlmBridge;
+import java.util.concurrent.Executor;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/** Exposes {@link LlmBridge} as an {@link IUnityPlugin} running on a host executor. */
+public class LlmPlugin extends ActionTablePlugin {
+  private static final String TAG = "LLMPlugin";
+  private static final String ACTION_UPDATE_SETTINGS = "updateSettings";
+  private static final String ACTION_GENERATE = "generate";
+  private static final String ACTION_OPEN_SESSION = "openSession";
+  private static final String ACTION_ASK = "ask";
+  private static final String ACTION_CLOSE_SESSION = "closeSession";
+  private static final String ACTION_GENERATE_STRUCTURED = "generateStructured";
+  private static final String ACTION_GET_STATS = "getStats";
+  private static final String ACTION_ENABLE_SUMMARIES = "enableSummaries";
+  private static final String ACTION_SUMMARIZE_DOCUMENT = "summarizeDocument";
+  private static final String ACTION_GET_SUMMARY = "getSummary";
+  private static final String ACTION_SET_USER_ACTIVE = "setUserActive";
+
+  private static final String PRIORITY_BACKGROUND = "background";
+
+  private static final String EVENT_RESULT = "LLM_Result";
+  private static final String EVENT_ERROR = "LLM_Error";
+  private static final String EVENT_SESSION_OPENED = "LLM_SessionOpened";
+  private static final String EVENT_STATS = "LLM_Stats";
+  private static final String EVENT_SUMMARY = "LLM_Summary";
+
+  private final Executor executor;
+  private LlmBridge bridge;
+  // Only created once Unity opts in to background summaries.
+  private volatile DocumentSummarizer summarizer;
+  private PluginEventDispatcher eventDispatcher;
+  // Reports speech as user activity, which holds background summaries back.
+  private final SpeechToTextPlugin.SpeechActivityListener userActivityListener =
+      new SpeechToTextPlugin.SpeechActivityListener() {
+        @Override
+        public void onBeginningOfSpeech(long elapsedRealtimeNanos) {
+          setUserActive();
+        }
+
+        @Override
+        public void onPartialResults(String text, long elapsedRealtimeNanos) {
+          setUserActive();
+        }
+
+        @Override
+        public void onResults(String text, long elapsedRealtimeNanos) {
+          setUserActive();
+        }
+      };
+
+  public LlmPlugin(Executor executor) {
+    this.executor = executor;
+    registerAction(ACTION_UPDATE_SETTINGS, this::updateSettings);
+    registerAction(ACTION_GENERATE, this::generate);
+    registerAction(ACTION_OPEN_SESSION, this::openSession);
+    registerAction(ACTION_ASK, this::ask);
+    registerAction(ACTION_CLOSE_SESSION, this::closeSession);
+    registerAction(ACTION_GENERATE_STRUCTURED, this::generateStructured);
+    registerAction(ACTION_GET_STATS, this::getStats);
+    registerAction(ACTION_ENABLE_SUMMARIES, this::enableSummaries);
+    registerAction(ACTION_SUMMARIZE_DOCUMENT, this::summarizeDocument);
+    registerAction(ACTION_GET_SUMMARY, this::getSummary);
+    registerAction(ACTION_SET_USER_ACTIVE, jsonArgs -> setUserActive());
+  }
+
+  @Override
+  public void initialize(Context context, IPluginCallback callback) {
+    bridge = new LlmBridge(executor);
+    eventDispatcher = new PluginEventDispatcher(callback, 0);
+    Log.d(TAG, "LlmPlugin initialized.");
+  }
+
+  @Override
+  public void destroy() {
+    Log.d(TAG, "Destroying LlmPlugin...");
+    closeSummarizer();
+    if (bridge != null) {
+      bridge.close();
+      bridge = null;
+    }
+    if (eventDispatcher != null) {
+      eventDispatcher.shutdown();
+      eventDispatcher = null;
+    }
+  }
+
+  /**
+   * Listens to a recognizer for user activity, which holds background summaries back. Prompts
+   * sent elsewhere, e.g. to a cloud model, are reported with {@code setUserActive}.
+   */
+  public SpeechToTextPlugin.SpeechActivityListener getUserActivityListener() {
+    return userActivityListener;
+  }
+
+  /** The wrapped bridge, for native collaborators of the host. */
+  public LlmBridge getBridge() {
+    return bridge;
+  }
+
+  @Override
+  protected String getTag() {
+    return TAG;
+  }
+
+  @Override
+  protected void onActionFailed(String actionName, String errorMessage) {
+    sendErrorEvent(-1, errorMessage);
+  }
+
+  private void updateSettings(String jsonArgs) throws JSONException {
+    JSONObject args = new JSONObject(jsonArgs);
+    bridge.updateSettings(
+        args.getInt("maxOutputTokens"), (float) args.getDouble("temperature"), args.getInt("topK"));
+  }
+
+  private void generate(String jsonArgs) throws JSONException {
+    JSONObject args = new JSONObject(jsonArgs);
+    bridge.startGeneration(
+        args.getString("prompt"), priorityOf(args), newCallback(args.optInt("requestId", -1)));
+  }
+
+  private void openSession(String jsonArgs) throws JSONException {
+    JSONObject args = new JSONObject(jsonArgs);
+    int sessionId = bridge.openSession(args.getString("systemContext"));
+
+    JSONObject data = new JSONObject();
+    data.put("Event", EVENT_SESSION_OPENED);
+    data.put("RequestId", args.optInt("requestId", -1));
+    data.put("SessionId", sessionId);
+    data.put("Timestamp", System.currentTimeMillis());
+    sendEvent(data.toString());
+  }
+
+  private void ask(String jsonArgs) throws JSONException {
+    JSONObject args = new JSONObject(jsonArgs);
+    bridge.startAsk(
+        args.getInt("sessionId"),
+        args.getString("utterance"),
+        priorityOf(args),
+        newCallback(args.optInt("requestId", -1)));
+  }
+
+  private void closeSession(String jsonArgs) throws JSONException {
+    bridge.closeSession(new JSONObject(jsonArgs).getInt("sessionId"));
+  }
+
+  private void generateStructured(String jsonArgs) throws JSONException {
+    JSONObject args = new JSONObject(jsonArgs);
+    bridge.generateStructured(
+        args.getString("prompt"),
+        args.getString("schema"),
+        args.optInt("maxAttempts", 2),
+        newCallback(args.optInt("requestId", -1)));
+  }
+
+  private void getStats(String jsonArgs) throws JSONException {
+    JSONObject data = new JSONObject();
+    data.put("Event", EVENT_STATS);
+    data.put("Stats", new JSONObject(bridge.getStats()));
+    data.put("Timestamp", System.currentTimeMillis());
+    sendEvent(data.toString());
+  }
+
+  /**
+   * Starts or stops summarizing the documents sent with {@code summarizeDocument} while the user
+   * is idle and background work is allowed.
+   */
+  private void enableSummaries(String jsonArgs) throws JSONException {
+    JSONObject args = new JSONObject(jsonArgs);
+    if (!args.optBoolean("enabled", true)) {
+      closeSummarizer();
+      return;
+    }
+    DocumentSummarizer current = summarizer;
+    if (current == null) {
+      current = new DocumentSummarizer(bridge);
+      summarizer = current;
+    }
+    current.setIdleMs(args.optLong("idleMs", current.getIdleMs()));
+    current.setMaxSummaryTokens(args.optInt("maxSummaryTokens", current.getMaxSummaryTokens()));
+  }
+
+  private void summarizeDocument(String jsonArgs) throws JSONException {
+    DocumentSummarizer current = summarizer;
+    if (current == null) {
+      Log.w(TAG, "Ignoring a document to summarize: summaries are not enabled.");
+      return;
+    }
+    JSONObject args = new JSONObject(jsonArgs);
+    current.submit(args.getInt("documentId"), args.getString("text"));
+  }
+
+  /** Sends an {@code LLM_Summary} event; its Summary is absent until the summary is ready. */
+  private void getSummary(String jsonArgs) throws JSONException {
+    JSONObject args = new JSONObject(jsonArgs);
+    int documentId = args.getInt("documentId");
+    DocumentSummarizer current = summarizer;
+    JSONObject data = new JSONObject();
+    data.put("Event", EVENT_SUMMARY);
+    data.put("RequestId", args.optInt("requestId", -1));
+    data.put("DocumentId", documentId);
+    data.put("Summary", current == null ? null : current.getSummary(documentId));
+    data.put("Timestamp", System.currentTimeMillis());
+    sendEvent(data.toString());
+  }
+
+  private void setUserActive() {
+    DocumentSummarizer current = summarizer;
+    if (current != null) {
+      current.setUserActive();
+    }
+  }
+
+  private void closeSummarizer() {
+    DocumentSummarizer current = summarizer;
+    summarizer = null;
+    if (current != null) {
+      current.close();
+    }
+  }
+
+  /** "background" work gives way to every other request; anything else is interactive. */
+  private static int priorityOf(JSONObject args) {
+    return PRIORITY_BACKGROUND.equals(args.optString("priority"))
+        ? LlmBridge.PRIORITY_BACKGROUND
+        : LlmBridge.PRIORITY_INTERACTIVE;
+  }
+
+  private LlmBridge.LlmCallback newCallback(int requestId) {
+    return new LlmBridge.LlmStatsCallback() {
+      // onStats and onSuccess are called back to back on the main thread.
+      private String statsJson;
+
+      @Override
+      public void onStats(String statsJson) {
+        this.statsJson = statsJson;
+      }
+
+      @Override
+      public void onSuccess(String result) {
+        sendResultEvent(requestId, result, statsJson);
+      }
+
+      @Override
+      public void onFailure(String errorMessage) {
+        sendErrorEvent(requestId, errorMessage);
+      }
+    };
+  }
+
+  private void sendEvent(String jsonPayload) {
+    PluginEventDispatcher dispatcher = eventDispatcher;
+    if (dispatcher != null) {
+      try {
+        dispatcher.post(jsonPayload);
+      } catch (Exception e) {
+        Log.e(TAG, "Exception sending event to Unity: " + e.getMessage());
+      }
+    } else {
+      Log.w(TAG, "Cannot send event, callback is null.");
+    }
+  }
+
+  private void sendResultEvent(int requestId, String text, String statsJson) {
+    JSONObject data = new JSONObject();
+    try {
+      data.put("Event", EVENT_RESULT);
+      data.put("RequestId", requestId);
+      data.put("Text", text);
+      if (statsJson != null) {
+        data.put("Stats", new JSONObject(statsJson));
+      }
+      data.put("Timestamp", System.currentTimeMillis());
+      sendEvent(data.toString());
+    } catch (JSONException e) {
+      Log.e(TAG, "JSONException creating result event: " + e.getMessage());
+    }
+  }
+
+  private void sendErrorEvent(int requestId, String errorMessage) {
+    JSONObject data = new JSONObject();
+    try {
+      data.put("Event", EVENT_ERROR);
+      data.put("RequestId", requestId);
+      data.put("Error", errorMessage);
+      data.put("ErrorCode", -1);
+      data.put("Timestamp", System.currentTimeMillis());
+      sendEvent(data.toString());
+    } catch (JSONException e) {
+      Log.e(TAG, "JSONException creating error event: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,297 @@
+// <copyright file="OcrPlugin.java" company="Google LLC">
+//
+// Copyright 2025 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// </copyright>
+// ----------------------------------------------------------------------
+
+package com.google.xr.androidxrunitysamples.java;
+
+import android.content.Context;
+import android.util.Log;
+import com.google.xr.embardiment.ocr.CameraOcrCapture;
+import com.google.xr.embardiment.ocr.OcrBridge;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.Executor;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/** Exposes {@link OcrBridge} as an {@link IUnityPlugin} running on a host executor. */
+public class OcrPlugin extends ActionTablePlugin {
+  private static final String TAG = "OCRPlugin";
+  private static final String ACTION_RECOGNIZE_FILE = "recognizeFile";
+  private static final String ACTION_SET_LATENCY_BUDGET = "setLatencyBudget";
+  private static final String ACTION_RESET_ADAPTIVE_SCALE = "resetAdaptiveScale";
+  private static final String ACTION_SET_SCRIPT = "setScript";
+  private static final String ACTION_START_CAMERA = "startCamera";
+  private static final String ACTION_SCAN_CAMERA_FRAME = "scanCameraFrame";
+  private static final String ACTION_STOP_CAMERA = "stopCamera";
+  private static final String ACTION_SET_DELTA_MODE = "setDeltaMode";
+  private static final String ACTION_RESET_DELTAS = "resetDeltas";
+  private static final String ACTION_RETRIEVE = "retrieve";
+  private static final String ACTION_OPEN_CORPUS_STORE = "openCorpusStore";
+  private static final String ACTION_COMPACT_CORPUS_STORE = "compactCorpusStore";
+
+  private static final int DEFAULT_TILE_OVERLAP = 128;
+  private static final int DEFAULT_MAX_PARALLEL_TILES = 2;
+  private static final int DEFAULT_RETRIEVED_LINES = 8;
+  private static final String DEFAULT_CORPUS_STORE_FILE = "ocr_corpus.bin";
+
+  private static final String EVENT_RESULT = "OCR_Result";
+  private static final String EVENT_ERROR = "OCR_Error";
+  private static final String EVENT_RETRIEVAL = "OCR_Retrieval";
+
+  // Camera results supersede each other if Unity has not received the previous one yet; deltas
+  // build on each other, so they are never dropped.
+  private static final int SLOT_CAMERA_RESULT = 0;
+
+  private final Executor executor;
+  private Context context;
+  private OcrBridge bridge;
+  private CameraOcrCapture cameraCapture;
+  private PluginEventDispatcher eventDispatcher;
+  private volatile boolean deltaMode;
+
+  public OcrPlugin(Executor executor) {
+    this.executor = executor;
+    registerAction(ACTION_RECOGNIZE_FILE, this::recognizeFile);
+    registerAction(
+        ACTION_SET_LATENCY_BUDGET,
+        args -> bridge.setLatencyBudget((float) new JSONObject(args).getDouble("budgetMs")));
+    registerAction(ACTION_RESET_ADAPTIVE_SCALE, args -> bridge.resetAdaptiveScale());
+    registerAction(
+        ACTION_SET_SCRIPT, args -> bridge.setScript(new JSONObject(args).getString("script")));
+    registerAction(ACTION_START_CAMERA, this::startCamera);
+    registerAction(
+        ACTION_SCAN_CAMERA_FRAME,
+        args -> {
+          if (cameraCapture != null) {
+            cameraCapture.scanNextFrame();
+          }
+        });
+    registerAction(ACTION_STOP_CAMERA, args -> stopCamera());
+    registerAction(ACTION_SET_DELTA_MODE, this::setDeltaMode);
+    registerAction(ACTION_RESET_DELTAS, args -> bridge.resetDeltas());
+    registerAction(ACTION_RETRIEVE, this::retrieve);
+    registerAction(ACTION_OPEN_CORPUS_STORE, this::openCorpusStore);
+    registerAction(
+        ACTION_COMPACT_CORPUS_STORE,
+        args ->
+            bridge.compactCorpusStore(new JSONObject(args).optLong("maxBytes", Long.MAX_VALUE)));
+  }
+
+  @Override
+  public void initialize(Context context, IPluginCallback callback) {
+    this.context = context;
+    bridge = new OcrBridge(executor);
+    eventDispatcher = new PluginEventDispatcher(callback, 1);
+    Log.d(TAG, "OcrPlugin initialized.");
+  }
+
+  @Override
+  public void destroy() {
+    Log.d(TAG, "Destroying OcrPlugin...");
+    stopCamera();
+    if (bridge != null) {
+      bridge.close();
+      bridge = null;
+    }
+    if (eventDispatcher != null) {
+      eventDispatcher.shutdown();
+      eventDispatcher = null;
+    }
+  }
+
+  /** The wrapped bridge, for native collaborators of the host. */
+  public OcrBridge getBridge() {
+    return bridge;
+  }
+
+  /**
+   * Recognizes a very large image in overlapping tiles, see {@link OcrBridge#processImageTiled}.
+   */
+  public void recognizeTiled(
+      byte[] imageData,
+      int rotation,
+      int tileSize,
+      int tileOverlap,
+      int maxParallelTiles,
+      int requestId) {
+    bridge.processImageTiled(
+        imageData, rotation, tileSize, tileOverlap, maxParallelTiles, newCallback(requestId));
+  }
+
+  /**
+   * Recognizes encoded image bytes. Images are passed as a Java array rather than inside the JSON
+   * args of {@link #callAction}, so they are never base64 encoded.
+   */
+  public void recognize(byte[] imageData, int rotation, int requestId) {
+    bridge.processImage(imageData, rotation, newCallback(requestId));
+  }
+
+  @Override
+  protected String getTag() {
+    return TAG;
+  }
+
+  @Override
+  protected void onActionFailed(String actionName, String errorMessage) {
+    sendErrorEvent(-1, errorMessage);
+  }
+
+  private OcrBridge.OcrCallback newCallback(int requestId) {
+    return newCallback(requestId, PluginEventDispatcher.NO_SLOT);
+  }
+
+  private OcrBridge.OcrCallback newCallback(int requestId, int slot) {
+    return new OcrBridge.OcrCallback() {
+      @Override
+      public void onSuccess(String resultJson) {
+        sendResultEvent(requestId, resultJson, deltaMode ? PluginEventDispatcher.NO_SLOT : slot);
+      }
+
+      @Override
+      public void onFailure(String errorMessage) {
+        sendErrorEvent(requestId, errorMessage);
+      }
+    };
+  }
+
+  private void recognizeFile(String jsonArgs) throws Exception {
+    JSONObject args = new JSONObject(jsonArgs);
+    byte[] imageData = Files.readAllBytes(new File(args.getString("path")).toPath());
+    int rotation = args.optInt("rotation", 0);
+    int requestId = args.optInt("requestId", -1);
+    int tileSize = args.optInt("tileSize", 0);
+    // Results recognized under a document id are indexed for the retrieve action.
+    int documentId = args.optInt("documentId", OcrBridge.NO_DOCUMENT);
+    if (tileSize > 0) {
+      bridge.processImageTiled(
+          imageData,
+          rotation,
+          tileSize,
+          args.optInt("tileOverlap", DEFAULT_TILE_OVERLAP),
+          args.optInt("maxParallelTiles", DEFAULT_MAX_PARALLEL_TILES),
+          documentId,
+          newCallback(requestId));
+    } else {
+      bridge.processImage(imageData, rotation, documentId, newCallback(requestId));
+    }
+  }
+
+  /**
+   * Sends the indexed OCR lines that best match a query as an {@code OCR_Retrieval} event, see
+   * {@link OcrBridge#retrieve}.
+   */
+  private void retrieve(String jsonArgs) throws JSONException {
+    JSONObject args = new JSONObject(jsonArgs);
+    String hitsJson =
+        bridge.retrieve(
+            args.getString("query"),
+            args.optInt("k", DEFAULT_RETRIEVED_LINES),
+            args.optInt("tokenBudget", 0));
+    JSONObject data = new JSONObject();
+    data.put("Event", EVENT_RETRIEVAL);
+    data.put("RequestId", args.optInt("requestId", -1));
+    data.put("Hits", new JSONObject(hitsJson).getJSONArray("hits"));
+    data.put("Timestamp", System.currentTimeMillis());
+    sendEvent(data.toString());
+  }
+
+  /**
+   * Recognizes camera frames natively through {@link CameraOcrCapture}; frames are never copied
+   * to Unity. Results arrive as {@code OCR_Result} events carrying the given requestId.
+   */
+  private void startCamera(String jsonArgs) throws JSONException {
+    JSONObject args = new JSONObject(jsonArgs);
+    stopCamera();
+    cameraCapture = new CameraOcrCapture(context, bridge);
+    cameraCapture.start(
+        args.optBoolean("backCamera", true),
+        args.optInt("width", 1280),
+        args.optInt("height", 720),
+        args.optLong("minIntervalMs", 0),
+        newCallback(args.optInt("requestId", -1), SLOT_CAMERA_RESULT));
+  }
+
+  private void setDeltaMode(String jsonArgs) throws JSONException {
+    boolean enabled = new JSONObject(jsonArgs).getBoolean("enabled");
+    bridge.setDeltaMode(enabled);
+    deltaMode = enabled;
+  }
+
+  /** Persists results across launches; without a path, in the app's files directory. */
+  private void openCorpusStore(String jsonArgs) throws JSONException {
+    String path = new JSONObject(jsonArgs).optString("path", "");
+    if (path.isEmpty()) {
+      path = new File(context.getFilesDir(), DEFAULT_CORPUS_STORE_FILE).getPath();
+    }
+    bridge.openCorpusStore(path);
+  }
+
+  private void stopCamera() {
+    if (cameraCapture != null) {
+      cameraCapture.close();
+      cameraCapture = null;
+    }
+  }
+
+  private void sendEvent(String jsonPayload) {
+    sendEvent(jsonPayload, PluginEventDispatcher.NO_SLOT);
+  }
+
+  private void sendEvent(String jsonPayload, int slot) {
+    PluginEventDispatcher dispatcher = eventDispatcher;
+    if (dispatcher != null) {
+      try {
+        dispatcher.post(jsonPayload, slot);
+      } catch (Exception e) {
+        Log.e(TAG, "Exception sending event to Unity: " + e.getMessage());
+      }
+    } else {
+      Log.w(TAG, "Cannot send event, callback is null.");
+    }
+  }
+
+  private void sendResultEvent(int requestId, String resultJson, int slot) {
+    // The result is already serialized, so it is spliced in rather than parsed again.
+    StringBuilder data = new StringBuilder(resultJson.length() + 96);
+    data.append("{\"Event\":\"")
+        .append(EVENT_RESULT)
+        .append("\",\"RequestId\":")
+        .append(requestId)
+        .append(",\"Timestamp\":")
+        .append(System.currentTimeMillis())
+        .append(",\"Result\":")
+        .append(resultJson)
+        .append('}');
+    sendEvent(data.toString(), slot);
+  }
+
+  private void sendErrorEvent(int requestId, String errorMessage) {
+    JSONObject data = new JSONObject();
+    try {
+      data.put("Event", EVENT_ERROR);
+      data.put("RequestId", requestId);
+      data.put("Error", errorMessage);
+      data.put("ErrorCode", -1);
+      data.put("Timestamp", System.currentTimeMillis());
+      sendEvent(data.toString());
+    } catch (JSONException e) {
+      Log.e(TAG, "JSONException creating error event: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,231 @@
+// <copyright file="PluginExecutor.java" company="Google LLC">
+//
+// Copyright 2025 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// </copyright>
+// ----------------------------------------------------------------------
+
+package com.google.xr.androidxrunitysamples.java;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * One pool shared by every plugin of a {@link PluginHost}. Tasks are ordered by plugin priority
+ * (lower runs first) and then by submission order, and the pool records queue wait, wall time and
+ * thread CPU time per plugin.
+ *
+ * <p>Only actions submitted from Unity are bounded, each plugin within its own budget, so a burst
+ * of one plugin's actions cannot crowd out another's. The executors handed to the Kotlin bridges
+ * never reject: they run coroutine continuations and ML Kit completions, and dropping one would
+ * leave its callback, and Unity, waiting forever.
+ */
+public final class PluginExecutor {
+  public static final int PRIORITY_ASR = 0;
+  public static final int PRIORITY_TTS = 1;
+  public static final int PRIORITY_LLM = 2;
+  public static final int PRIORITY_OCR = 3;
+
+  private static final long NANOS_PER_MILLI = 1_000_000L;
+
+  /** Counters for one plugin, guarded by the instance itself. */
+  private static final class PluginStats {
+    long completed;
+    long rejected;
+    int queued;
+    int queuedActions;
+    long totalQueueNanos;
+    long maxQueueNanos;
+    long totalRunNanos;
+    long totalCpuNanos;
+  }
+
+  private final class Task implements Runnable, Comparable<Task> {
+    private final Runnable runnable;
+    private final int priority;
+    private final long sequence;
+    private final long enqueuedNanos;
+    private final PluginStats stats;
+    private final boolean isAction;
+
+    Task(Runnable runnable, int priority, PluginStats stats, boolean isAction) {
+      this.runnable = runnable;
+      this.priority = priority;
+      this.sequence = nextSequence.getAndIncrement();
+      this.enqueuedNanos = SystemClock.elapsedRealtimeNanos();
+      this.stats = stats;
+      this.isAction = isAction;
+    }
+
+    @Override
+    public int compareTo(Task other) {
+      if (priority != other.priority) {
+        return Integer.compare(priority, other.priority);
+      }
+      return Long.compare(sequence, other.sequence);
+    }
+
+    @Override
+    public void run() {
+      if (isAction) {
+        synchronized (stats) {
+          stats.queuedActions--;
+        }
+      }
+      long startNanos = SystemClock.elapsedRealtimeNanos();
+      long startCpuNanos = Debug.threadCpuTimeNanos();
+      try {
+        runnable.run();
+      } finally {
+        long cpuNanos = Debug.threadCpuTimeNanos() - startCpuNanos;
+        long endNanos = SystemClock.elapsedRealtimeNanos();
+        long queueNanos = startNanos - enqueuedNanos;
+        synchronized (stats) {
+          stats.queued--;
+          stats.completed++;
+          stats.totalQueueNanos += queueNanos;
+          stats.maxQueueNanos = Math.max(stats.maxQueueNanos, queueNanos);
+          stats.totalRunNanos += endNanos - startNanos;
+          stats.totalCpuNanos += cpuNanos;
+        }
+      }
+    }
+  }
+
+  private final ThreadPoolExecutor pool;
+  private final AtomicLong nextSequence = new AtomicLong();
+  private final Map<String, PluginStats> statsByPlugin = new LinkedHashMap<>();
+
+  /** @param threads The number of worker threads. */
+  public PluginExecutor(int threads) {
+    AtomicInteger threadIndex = new AtomicInteger();
+    this.pool =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            30,
+            TimeUnit.SECONDS,
+            new PriorityBlockingQueue<>(),
+            runnable -> new Thread(runnable, "PluginHost-" + threadIndex.incrementAndGet()));
+    this.pool.allowCoreThreadTimeOut(true);
+  }
+
+  /** Sizes the pool to leave one core for Unity's main and render threads. */
+  public static int defaultThreadCount() {
+    return Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+  }
+
+  /**
+   * Returns an {@link Executor} that runs tasks for {@code pluginName} at {@code priority} and
+   * never rejects them while the pool runs. Kotlin bridges turn it into their coroutine dispatcher,
+   * so their continuations are accounted too.
+   */
+  public Executor executorFor(String pluginName, int priority) {
+    PluginStats stats = statsFor(pluginName);
+    return runnable -> execute(runnable, priority, stats, false);
+  }
+
+  /**
+   * Returns an {@link Executor} for the actions Unity submits to {@code pluginName}, which throws
+   * {@link RejectedExecutionException} while {@code maxQueuedActions} of them are already waiting.
+   */
+  public Executor actionExecutorFor(String pluginName, int priority, int maxQueuedActions) {
+    PluginStats stats = statsFor(pluginName);
+    return runnable -> {
+      synchronized (stats) {
+        if (stats.queuedActions >= maxQueuedActions) {
+          stats.rejected++;
+          throw new RejectedExecutionException(
+              "Too many " + pluginName + " actions are waiting to run.");
+        }
+        stats.queuedActions++;
+      }
+      execute(runnable, priority, stats, true);
+    };
+  }
+
+  /** Returns the per-plugin counters as a JSON object keyed by plugin name. */
+  public JSONObject getStats() throws JSONException {
+    JSONObject result = new JSONObject();
+    synchronized (statsByPlugin) {
+      for (Map.Entry<String, PluginStats> entry : statsByPlugin.entrySet()) {
+        PluginStats stats = entry.getValue();
+        JSONObject pluginJson = new JSONObject();
+        synchronized (stats) {
+          pluginJson.put("Completed", stats.completed);
+          pluginJson.put("Rejected", stats.rejected);
+          pluginJson.put("Queued", stats.queued);
+          pluginJson.put("QueuedActions", stats.queuedActions);
+          pluginJson.put(
+              "MeanQueueMs",
+              stats.completed == 0
+                  ? 0
+                  : stats.totalQueueNanos / (double) stats.completed / NANOS_PER_MILLI);
+          pluginJson.put("MaxQueueMs", stats.maxQueueNanos / (double) NANOS_PER_MILLI);
+          pluginJson.put("TotalRunMs", stats.totalRunNanos / (double) NANOS_PER_MILLI);
+          pluginJson.put("TotalCpuMs", stats.totalCpuNanos / (double) NANOS_PER_MILLI);
+        }
+        result.put(entry.getKey(), pluginJson);
+      }
+    }
+    return result;
+  }
+
+  /** Stops accepting tasks; queued tasks still run. */
+  public void shutdown() {
+    pool.shutdown();
+  }
+
+  private PluginStats statsFor(String pluginName) {
+    synchronized (statsByPlugin) {
+      PluginStats stats = statsByPlugin.get(pluginName);
+      if (stats == null) {
+        stats = new PluginStats();
+        statsByPlugin.put(pluginName, stats);
+      }
+      return stats;
+    }
+  }
+
+  /** Queues a task; only fails once the pool has been shut down. */
+  private void execute(Runnable runnable, int priority, PluginStats stats, boolean isAction) {
+    synchronized (stats) {
+      stats.queued++;
+    }
+    try {
+      pool.execute(new Task(runnable, priority, stats, isAction));
+    } catch (RejectedExecutionException e) {
+      synchronized (stats) {
+        stats.queued--;
+        stats.rejected++;
+        if (isAction) {
+          stats.queuedActions--;
+        }
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,319 @@
+// <copyright file="PluginHost.java" company="Google LLC">
+//
+// Copyright 2025 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// </copyright>
+// ----------------------------------------------------------------------
+
+package com.google.xr.androidxrunitysamples.java;
+
+import android.content.Context;
+import android.util.Log;
+import com.google.xr.embardiment.llm.LlmBridge;
+import com.google.xr.embardiment.llm.ThrottlingGovernor;
+import com.google.xr.embardiment.ocr.OcrBridge;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Registry that owns the ASR, TTS, LLM and OCR plugins and the speculative LLM coordinator, and
+ * runs their work on one shared {@link PluginExecutor}, so the plugins compete for a fixed number
+ * of threads by priority instead of each bringing its own pool.
+ *
+ * <p>Actions are addressed as {@code "<plugin>.<action>"}, e.g. {@code "llm.generate"}. Every route
+ * is resolved once, when the host is initialized, into a table keyed by that string; {@link
+ * #callAction} is a single map lookup followed by a hand-off to the executor, so the calling Unity
+ * thread never runs plugin work.
+ *
+ * <p>Once enabled with {@code "host.enableGovernor"}, a {@link ThrottlingGovernor} eases the OCR
+ * and LLM load as the device heats up or runs low on battery, and reports each change of its tier
+ * to Unity as a {@code Host_PowerTier} event.
+ *
+ * <p>On the C# side, {@code PluginHostBridge} creates the host, and the other bridges and the
+ * {@code Android*} components use its plugins and bridges instead of creating their own.
+ */
+public class PluginHost implements IUnityPlugin {
+  private static final String TAG = "PluginHost";
+
+  public static final String PLUGIN_ASR = "asr";
+  public static final String PLUGIN_TTS = "tts";
+  public static final String PLUGIN_LLM = "llm";
+  public static final String PLUGIN_OCR = "ocr";
+  public static final String PLUGIN_SPECULATION = "speculation";
+
+  private static final String ACTION_GET_STATS = "host.getStats";
+  private static final String ACTION_ENABLE_GOVERNOR = "host.enableGovernor";
+
+  private static final String EVENT_STATS = "Host_Stats";
+  private static final String EVENT_ERROR = "Host_Error";
+  private static final String EVENT_POWER_TIER = "Host_PowerTier";
+
+  // Per plugin, so a burst of OCR requests cannot turn ASR or TTS actions away.
+  private static final int MAX_QUEUED_ACTIONS = 32;
+
+  /** A resolved action together with the executor its plugin runs on. */
+  private static final class Route {
+    final ActionTablePlugin plugin;
+    final String actionName;
+    final ActionTablePlugin.Action action;
+    final Executor executor;
+
+    Route(
+        ActionTablePlugin plugin,
+        String actionName,
+        ActionTablePlugin.Action action,
+        Executor executor) {
+      this.plugin = plugin;
+      this.actionName = actionName;
+      this.action = action;
+      this.executor = executor;
+    }
+  }
+
+  private final PluginExecutor executor;
+  private final Map<String, ActionTablePlugin> plugins = new LinkedHashMap<>();
+  private final Map<String, Executor> pluginExecutors = new HashMap<>();
+  private final Map<String, Route> routes = new HashMap<>();
+
+  private final SpeechToTextPlugin speechToText;
+  private final TtsPlugin textToSpeech;
+  private final LlmPlugin llm;
+  private final OcrPlugin ocr;
+  private final SpeculativeLlmCoordinator speculation;
+
+  private IPluginCallback unityCallback;
+  private Context context;
+  private ThrottlingGovernor governor;
+
+  public PluginHost() {
+    this(PluginExecutor.defaultThreadCount());
+  }
+
+  /** @param threads The number of worker threads shared by all plugins. */
+  public PluginHost(int threads) {
+    executor = new PluginExecutor(threads);
+    speechToText = new SpeechToTextPlugin();
+    textToSpeech = new TtsPlugin();
+    llm = new LlmPlugin(executor.executorFor(PLUGIN_LLM, PluginExecutor.PRIORITY_LLM));
+    ocr = new OcrPlugin(executor.executorFor(PLUGIN_OCR, PluginExecutor.PRIORITY_OCR));
+    speculation = new SpeculativeLlmCoordinator();
+
+    register(PLUGIN_ASR, speechToText, PluginExecutor.PRIORITY_ASR);
+    register(PLUGIN_TTS, textToSpeech, PluginExecutor.PRIORITY_TTS);
+    register(PLUGIN_LLM, llm, PluginExecutor.PRIORITY_LLM);
+    register(PLUGIN_OCR, ocr, PluginExecutor.PRIORITY_OCR);
+    register(PLUGIN_SPECULATION, speculation, PluginExecutor.PRIORITY_LLM);
+  }
+
+  @Override
+  public void initialize(Context context, IPluginCallback callback) {
+    Log.d(TAG, "Initializing PluginHost...");
+    unityCallback = callback;
+    this.context = context;
+    for (ActionTablePlugin plugin : plugins.values()) {
+      plugin.initialize(context, callback);
+    }
+    speculation.attach(speechToText, llm.getBridge());
+    speechToText.addSpeechActivityListener(llm.getUserActivityListener());
+  }
+
+  @Override
+  public void callAction(String actionName, String jsonArgs) {
+    if (ACTION_GET_STATS.equals(actionName)) {
+      sendStatsEvent();
+      return;
+    }
+    if (ACTION_ENABLE_GOVERNOR.equals(actionName)) {
+      enableGovernor(jsonArgs);
+      return;
+    }
+
+    Route route = routes.get(actionName);
+    if (route == null) {
+      Log.w(TAG, "Unknown action requested: " + actionName);
+      sendErrorEvent("Unknown action: " + actionName);
+      return;
+    }
+    try {
+      route.executor.execute(
+          () -> route.plugin.runAction(route.actionName, route.action, jsonArgs));
+    } catch (RejectedExecutionException e) {
+      route.plugin.rejectAction(route.actionName, e.getMessage());
+    }
+  }
+
+  /** Recognizes encoded image bytes without routing them through the JSON args. */
+  public void recognizeImage(byte[] imageData, int rotation, int requestId) {
+    ocr.recognize(imageData, rotation, requestId);
+  }
+
+  @Override
+  public void destroy() {
+    Log.d(TAG, "Destroying PluginHost...");
+    stopGovernor();
+    speechToText.removeSpeechActivityListener(llm.getUserActivityListener());
+    for (ActionTablePlugin plugin : plugins.values()) {
+      plugin.destroy();
+    }
+    executor.shutdown();
+    unityCallback = null;
+  }
+
+  public SpeechToTextPlugin getSpeechToText() {
+    return speechToText;
+  }
+
+  public TtsPlugin getTextToSpeech() {
+    return textToSpeech;
+  }
+
+  public LlmPlugin getLlm() {
+    return llm;
+  }
+
+  public OcrPlugin getOcr() {
+    return ocr;
+  }
+
+  public SpeculativeLlmCoordinator getSpeculation() {
+    return speculation;
+  }
+
+  /** Returns the executor used for work submitted on behalf of {@code pluginName}. */
+  public Executor getExecutor(String pluginName) {
+    return pluginExecutors.get(pluginName);
+  }
+
+  /**
+   * Starts or stops the governor, e.g. with {@code {"enabled":true,"pollMs":5000,
+   * "coolDownMs":30000}}. Stopping it lifts the limits it set.
+   */
+  private void enableGovernor(String jsonArgs) {
+    try {
+      JSONObject args = new JSONObject(jsonArgs);
+      if (!args.optBoolean("enabled", true)) {
+        stopGovernor();
+        applyLimits(ThrottlingGovernor.limitsFor(ThrottlingGovernor.TIER_NOMINAL));
+        return;
+      }
+      synchronized (this) {
+        if (governor == null) {
+          governor = new ThrottlingGovernor(context);
+        }
+        governor.setPollMs(args.optLong("pollMs", governor.getPollMs()));
+        governor.setCoolDownMs(args.optLong("coolDownMs", governor.getCoolDownMs()));
+        governor.start(this::onPowerTierChanged);
+      }
+    } catch (JSONException | RuntimeException e) {
+      Log.e(TAG, "Could not enable the governor: " + e.getMessage());
+      sendErrorEvent("Could not enable the governor: " + e.getMessage());
+    }
+  }
+
+  private synchronized void stopGovernor() {
+    if (governor != null) {
+      governor.close();
+      governor = null;
+    }
+  }
+
+  private void onPowerTierChanged(int tier, ThrottlingGovernor.Limits limits) {
+    applyLimits(limits);
+    JSONObject data = new JSONObject();
+    try {
+      data.put("Event", EVENT_POWER_TIER);
+      data.put("Tier", tier);
+      data.put("Limits", limits.toJson());
+      data.put("Timestamp", System.currentTimeMillis());
+      sendEvent(data.toString());
+    } catch (JSONException e) {
+      Log.e(TAG, "JSONException creating power tier event: " + e.getMessage());
+    }
+  }
+
+  private void applyLimits(ThrottlingGovernor.Limits limits) {
+    LlmBridge llmBridge = llm.getBridge();
+    if (llmBridge != null) {
+      llmBridge.setThrottle(
+          limits.getLlmMaxOutputTokens(), limits.getLlmConcurrency(), limits.getBackgroundWork());
+    }
+    OcrBridge ocrBridge = ocr.getBridge();
+    if (ocrBridge != null) {
+      ocrBridge.setThrottle(limits.getOcrMaxScale(), limits.getOcrFrameIntervalMs());
+    }
+  }
+
+  private void register(String pluginName, ActionTablePlugin plugin, int priority) {
+    Executor actionExecutor =
+        executor.actionExecutorFor(pluginName, priority, MAX_QUEUED_ACTIONS);
+    plugins.put(pluginName, plugin);
+    pluginExecutors.put(pluginName, executor.executorFor(pluginName, priority));
+    for (Map.Entry<String, ActionTablePlugin.Action> entry : plugin.getActions().entrySet()) {
+      routes.put(
+          pluginName + "." + entry.getKey(),
+          new Route(plugin, entry.getKey(), entry.getValue(), actionExecutor));
+    }
+  }
+
+  private void sendEvent(String jsonPayload) {
+    IPluginCallback callback = unityCallback;
+    if (callback != null) {
+      try {
+        callback.OnEvent(jsonPayload);
+      } catch (Exception e) {
+        Log.e(TAG, "Exception sending event to Unity: " + e.getMessage());
+      }
+    } else {
+      Log.w(TAG, "Cannot send event, callback is null.");
+    }
+  }
+
+  private void sendStatsEvent() {
+    JSONObject data = new JSONObject();
+    try {
+      data.put("Event", EVENT_STATS);
+      data.put("Plugins", executor.getStats());
+      ThrottlingGovernor current;
+      synchronized (this) {
+        current = governor;
+      }
+      if (current != null) {
+        data.put("Power", new JSONObject(current.getStats()));
+      }
+      data.put("Timestamp", System.currentTimeMillis());
+      sendEvent(data.toString());
+    } catch (JSONException e) {
+      Log.e(TAG, "JSONException creating stats event: " + e.getMessage());
+    }
+  }
+
+  private void sendErrorEvent(String errorMessage) {
+    JSONObject data = new JSONObject();
+    try {
+      data.put("Event", EVENT_ERROR);
+      data.put("Error", errorMessage);
+      data.put("ErrorCode", -1);
+      data.put("Timestamp", System.currentTimeMillis());
+      sendEvent(data.toString());
+    } catch (JSONException e) {
+      Log.e(TAG, "JSONException creating error event: " + e.getMessage());
+    }
+  }
+}
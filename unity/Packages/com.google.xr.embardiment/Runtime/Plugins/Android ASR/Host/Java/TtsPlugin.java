@@ -0,0 +1,120 @@
+// <copyright file="TtsPlugin.java" company="Google LLC">
+//
+// Copyright 2025 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// </copyright>
+// ----------------------------------------------------------------------
+
+package com.google.xr.androidxrunitysamples.java;
+
+import android.app.Activity;
+import android.content.Context;
+import android.util.Log;
+import com.example.ttsunityplugin.TTSPluginInstance;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Exposes {@link TTSPluginInstance} as an {@link IUnityPlugin}. Actions run on a host executor;
+ * utterance progress callbacks still arrive on the TTS engine's binder thread.
+ */
+public class TtsPlugin extends ActionTablePlugin {
+  private static final String TAG = "TTSPlugin";
+  private static final String ACTION_SPEAK = "speak";
+  private static final String ACTION_STOP = "stop";
+  private static final String ACTION_SET_PITCH = "setPitch";
+  private static final String ACTION_SET_SPEECH_RATE = "setSpeechRate";
+  private static final String ACTION_SET_LANGUAGE = "setLanguage";
+  private static final String ACTION_SET_VOICE_INDEX = "setVoiceIndex";
+  private static final String ACTION_SET_VOLUME = "setVolume";
+
+  private static final String EVENT_ERROR = "TTS_Error";
+
+  private TTSPluginInstance textToSpeech;
+  private IPluginCallback unityCallback;
+
+  public TtsPlugin() {
+    registerAction(ACTION_SPEAK, args -> textToSpeech.Speak(parse(args).getString("text")));
+    registerAction(ACTION_STOP, args -> textToSpeech.Stop());
+    registerAction(
+        ACTION_SET_PITCH, args -> textToSpeech.SetPitch((float) parse(args).getDouble("pitch")));
+    registerAction(
+        ACTION_SET_SPEECH_RATE,
+        args -> textToSpeech.SetSpeechRate((float) parse(args).getDouble("rate")));
+    registerAction(
+        ACTION_SET_LANGUAGE, args -> textToSpeech.SetLanguage(parse(args).getString("language")));
+    registerAction(
+        ACTION_SET_VOICE_INDEX,
+        args -> textToSpeech.SetVoiceIndex(String.valueOf(parse(args).getInt("index"))));
+    registerAction(
+        ACTION_SET_VOLUME, args -> textToSpeech.SetVolume((float) parse(args).getDouble("volume")));
+  }
+
+  @Override
+  public void initialize(Context context, IPluginCallback callback) {
+    unityCallback = callback;
+    if (context instanceof Activity) {
+      TTSPluginInstance.receiveUnityActivity((Activity) context);
+    }
+    textToSpeech = new TTSPluginInstance();
+    textToSpeech.InitializeTTS();
+    Log.d(TAG, "TtsPlugin initialized.");
+  }
+
+  @Override
+  public void destroy() {
+    Log.d(TAG, "Destroying TtsPlugin...");
+    if (textToSpeech != null) {
+      textToSpeech.close();
+      textToSpeech = null;
+    }
+    unityCallback = null;
+  }
+
+  /** The wrapped engine, e.g. for a {@link BargeInCoordinator}. */
+  public TTSPluginInstance getTextToSpeech() {
+    return textToSpeech;
+  }
+
+  @Override
+  protected String getTag() {
+    return TAG;
+  }
+
+  @Override
+  protected void onActionFailed(String actionName, String errorMessage) {
+    IPluginCallback callback = unityCallback;
+    if (callback == null) {
+      Log.w(TAG, "Cannot send event, callback is null.");
+      return;
+    }
+    JSONObject data = new JSONObject();
+    try {
+      data.put("Event", EVENT_ERROR);
+      data.put("Error", errorMessage);
+      data.put("ErrorCode", -1);
+      data.put("Timestamp", System.currentTimeMillis());
+      callback.OnEvent(data.toString());
+    } catch (JSONException e) {
+      Log.e(TAG, "JSONException creating error event: " + e.getMessage());
+    } catch (Exception e) {
+      Log.e(TAG, "Exception sending event to Unity: " + e.getMessage());
+    }
+  }
+
+  private static JSONObject parse(String jsonArgs) throws JSONException {
+    return new JSONObject(jsonArgs);
+  }
+}
@@ -0,0 +1,367 @@
+// <copyright file="PluginHostBridge.cs" company="Google LLC">
+//
+// Copyright 2025 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// </copyright>
+// ----------------------------------------------------------------------
+
+using System;
+using System.Collections.Generic;
+using UnityEngine;
+
+namespace AndroidXRUnitySamples.Gemini
+{
+    /// <summary>
+    /// C# Bridge for the native PluginHost, which owns one ASR, TTS, LLM and OCR plugin and runs
+    /// their work on a shared, prioritized thread pool. The other bridges can be built on top of
+    /// it, so every component talks to the same native instances; events are handed to the
+    /// listener registered for their prefix, e.g. "STT" for "STT_Result".
+    /// </summary>
+    public class PluginHostBridge : IDisposable
+    {
+        private const string _javaPluginClassName =
+            "com.google.xr.androidxrunitysamples.java.PluginHost";
+
+        private const string _javaCallbackInterfaceName =
+            "com.google.xr.androidxrunitysamples.java.IPluginCallback";
+
+        private const string _actionGetStats = "host.getStats";
+        private const string _actionEnableGovernor = "host.enableGovernor";
+
+        private const string _eventPrefixHost = "Host";
+        private const string _eventStats = "Host_Stats";
+        private const string _eventError = "Host_Error";
+        private const string _eventPowerTier = "Host_PowerTier";
+
+        // Every native event is a JSON object that starts with this key.
+        private const string _eventKey = "\"Event\":\"";
+
+        private readonly Dictionary<string, Action<string>> _listeners =
+            new Dictionary<string, Action<string>>();
+
+        private AndroidJavaObject _pluginInstance;
+        private PluginCallbackProxy _callbackProxy;
+        private bool _isInitialized;
+        private bool _isDisposed;
+
+        /// <summary>
+        /// Initializes a new instance of the <see cref="PluginHostBridge"/> class.
+        /// </summary>
+        public PluginHostBridge()
+        {
+            if (Application.platform != RuntimePlatform.Android)
+            {
+                Debug.LogError("PluginHostBridge is only supported on Android.");
+                return;
+            }
+
+            try
+            {
+                _callbackProxy = new PluginCallbackProxy(this);
+                using (var unityPlayer = new AndroidJavaClass("com.unity3d.player.UnityPlayer"))
+                {
+                    using (var activity = unityPlayer.GetStatic<AndroidJavaObject>(
+                        "currentActivity"))
+                    {
+                        _pluginInstance = new AndroidJavaObject(_javaPluginClassName);
+                        _pluginInstance.Call("initialize", activity, _callbackProxy);
+                        _isInitialized = true;
+                        Debug.Log("PluginHostBridge initialized successfully.");
+                    }
+                }
+            }
+            catch (Exception e)
+            {
+                Debug.LogError(
+                    $"PluginHostBridge initialization failed: {e.Message}\n{e.StackTrace}");
+                Dispose();
+            }
+        }
+
+        ~PluginHostBridge()
+        {
+            Dispose(false);
+        }
+
+        /// <summary>
+        /// Event fired with the per-plugin queue and run times, and the power state once the
+        /// governor is enabled, as JSON, see RequestStats.
+        /// </summary>
+        public event Action<string> OnStats;
+
+        /// <summary>
+        /// Event fired with the tier and limits as JSON whenever the governor changes tier.
+        /// </summary>
+        public event Action<string> OnPowerTier;
+
+        /// <summary>
+        /// Event fired with a host error as JSON, e.g. an unknown or rejected action.
+        /// </summary>
+        public event Action<string> OnError;
+
+        /// <summary>
+        /// Gets a value indicating whether the native host was created.
+        /// </summary>
+        public bool IsInitialized => _isInitialized && !_isDisposed;
+
+        /// <summary>
+        /// Gets the host's SpeechToTextPlugin. The caller disposes the returned reference.
+        /// </summary>
+        public AndroidJavaObject SpeechToText => GetPlugin("getSpeechToText");
+
+        /// <summary>
+        /// Gets the host's TTSPluginInstance. The caller disposes the returned reference.
+        /// </summary>
+        public AndroidJavaObject TextToSpeech
+        {
+            get
+            {
+                using (AndroidJavaObject plugin = GetPlugin("getTextToSpeech"))
+                {
+                    return plugin?.Call<AndroidJavaObject>("getTextToSpeech");
+                }
+            }
+        }
+
+        /// <summary>
+        /// Gets the host's LlmBridge, whose work runs on the shared pool. The caller disposes the
+        /// returned reference but must not close the bridge.
+        /// </summary>
+        public AndroidJavaObject LlmBridge
+        {
+            get
+            {
+                using (AndroidJavaObject plugin = GetPlugin("getLlm"))
+                {
+                    return plugin?.Call<AndroidJavaObject>("getBridge");
+                }
+            }
+        }
+
+        /// <summary>
+        /// Gets the host's OcrBridge, whose work runs on the shared pool. The caller disposes the
+        /// returned reference but must not close the bridge.
+        /// </summary>
+        public AndroidJavaObject OcrBridge
+        {
+            get
+            {
+                using (AndroidJavaObject plugin = GetPlugin("getOcr"))
+                {
+                    return plugin?.Call<AndroidJavaObject>("getBridge");
+                }
+            }
+        }
+
+        /// <summary>
+        /// Registers the listener for every event whose name starts with prefix and an
+        /// underscore, replacing any listener registered for it before. Listeners are called on
+        /// the thread the native event arrives on.
+        /// </summary>
+        /// <param name="prefix">The event prefix, e.g. "STT".</param>
+        /// <param name="listener">Receives the event payload.</param>
+        public void SetEventListener(string prefix, Action<string> listener)
+        {
+            lock (_listeners)
+            {
+                if (listener == null)
+                {
+                    _listeners.Remove(prefix);
+                }
+                else
+                {
+                    _listeners[prefix] = listener;
+                }
+            }
+        }
+
+        /// <summary>
+        /// Runs a plugin action on the host's pool, e.g. <c>CallAction("llm.generate", ...)</c>.
+        /// </summary>
+        /// <param name="actionName">The action as "&lt;plugin&gt;.&lt;action&gt;".</param>
+        /// <param name="jsonArgs">JSON object with the action's arguments.</param>
+        public void CallAction(string actionName, string jsonArgs)
+        {
+            if (!IsInitialized)
+            {
+                return;
+            }
+
+            try
+            {
+                _pluginInstance.Call("callAction", actionName, jsonArgs ?? "{}");
+            }
+            catch (Exception e)
+            {
+                Debug.LogError($"Error calling {actionName}: {e.Message}\n{e.StackTrace}");
+            }
+        }
+
+        /// <summary>
+        /// Requests the host stats, which arrive as OnStats.
+        /// </summary>
+        public void RequestStats()
+        {
+            CallAction(_actionGetStats, "{}");
+        }
+
+        /// <summary>
+        /// Starts or stops easing the OCR and LLM load as the device heats up or runs low on
+        /// battery. Tier changes arrive as OnPowerTier.
+        /// </summary>
+        /// <param name="enabled">False to stop the governor and lift its limits.</param>
+        public void EnableGovernor(bool enabled)
+        {
+            CallAction(_actionEnableGovernor, enabled ? "{\"enabled\":true}" : "{\"enabled\":false}");
+        }
+
+        /// <inheritdoc/>
+        public void Dispose()
+        {
+            Dispose(true);
+            GC.SuppressFinalize(this);
+        }
+
+        /// <summary>
+        /// Protected implementation of Dispose pattern.
+        /// </summary>
+        /// <param name="disposing">True if called from Dispose(),
+        /// if called from finalizer.</param>
+        protected virtual void Dispose(bool disposing)
+        {
+            if (_isDisposed)
+            {
+                return;
+            }
+
+            if (_pluginInstance != null)
+            {
+                try
+                {
+                    Debug.Log("Disposing PluginHostBridge...");
+                    _pluginInstance.Call("destroy");
+                    _pluginInstance.Dispose();
+                }
+                catch (Exception e)
+                {
+                    Debug.LogError($"Error during PluginHostBridge disposal: {e.Message}");
+                }
+                finally
+                {
+                    _pluginInstance = null;
+                    _isInitialized = false;
+                }
+            }
+
+            lock (_listeners)
+            {
+                _listeners.Clear();
+            }
+
+            _callbackProxy = null;
+
+            _isDisposed = true;
+        }
+
+        private static string EventPrefix(string jsonPayload)
+        {
+            int start = jsonPayload.IndexOf(_eventKey, StringComparison.Ordinal);
+            if (start < 0)
+            {
+                return null;
+            }
+
+            start += _eventKey.Length;
+            int end = jsonPayload.IndexOf('_', start);
+            return end < 0 ? null : jsonPayload.Substring(start, end - start);
+        }
+
+        private AndroidJavaObject GetPlugin(string getterName)
+        {
+            return IsInitialized ? _pluginInstance.Call<AndroidJavaObject>(getterName) : null;
+        }
+
+        private void ProcessHostEvent(string jsonPayload)
+        {
+            if (_isDisposed)
+            {
+                return;
+            }
+
+            var baseEvent = JsonUtility.FromJson<BasePluginEvent>(jsonPayload);
+            switch (baseEvent?.Event)
+            {
+                case _eventStats:
+                    OnStats?.Invoke(jsonPayload);
+                    break;
+                case _eventPowerTier:
+                    OnPowerTier?.Invoke(jsonPayload);
+                    break;
+                case _eventError:
+                    OnError?.Invoke(jsonPayload);
+                    break;
+                default:
+                    Debug.LogWarning($"Received unhandled host event: {jsonPayload}");
+                    break;
+            }
+        }
+
+        private class PluginCallbackProxy : AndroidJavaProxy
+        {
+            private readonly PluginHostBridge _owner;
+
+            public PluginCallbackProxy(PluginHostBridge owner)
+                : base(_javaCallbackInterfaceName)
+            {
+                _owner = owner;
+            }
+
+            public void OnEvent(string jsonPayload)
+            {
+                if (string.IsNullOrEmpty(jsonPayload))
+                {
+                    return;
+                }
+
+                // Routed without parsing, so the plugin bridges keep their own threading.
+                string prefix = EventPrefix(jsonPayload);
+                if (prefix == _eventPrefixHost)
+                {
+                    UnityMainThreadDispatcher.Instance?.Enqueue(
+                        () => _owner.ProcessHostEvent(jsonPayload));
+                    return;
+                }
+
+                Action<string> listener = null;
+                lock (_owner._listeners)
+                {
+                    if (prefix != null)
+                    {
+                        _owner._listeners.TryGetValue(prefix, out listener);
+                    }
+                }
+
+                if (listener != null)
+                {
+                    listener(jsonPayload);
+                }
+                else
+                {
+                    Debug.LogWarning($"Received plugin event without a listener: {jsonPayload}");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+// <copyright file="ActionTablePlugin.java"  company="Google LLC">
+//
+// Copyright 2025 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// </copyright>
+//  ----------------------------------------------------------------------
+
+package com.google.xr.androidxrunitysamples.java;
+
+import android.util.Log;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Base class for {@link IUnityPlugin} implementations that dispatch {@link #callAction} through a
+ * table of actions built once at construction, instead of comparing the action name against every
+ * known string. The table is also exposed so a host can resolve actions ahead of time.
+ */
+public abstract class ActionTablePlugin implements IUnityPlugin {
+  /** A single plugin action. */
+  public interface Action {
+    /**
+     * Runs the action.
+     *
+     * @param jsonArgs The JSON arguments passed to {@link IUnityPlugin#callAction}.
+     */
+    void run(String jsonArgs) throws Exception;
+  }
+
+  private final Map<String, Action> actions = new HashMap<>();
+
+  /** Adds an action to the table; only called from subclass constructors. */
+  protected final void registerAction(String actionName, Action action) {
+    actions.put(actionName, action);
+  }
+
+  /** Returns the action registered under {@code actionName}, or null. */
+  public final Action findAction(String actionName) {
+    return actions.get(actionName);
+  }
+
+  /** Returns all registered actions keyed by name. */
+  public final Map<String, Action> getActions() {
+    return Collections.unmodifiableMap(actions);
+  }
+
+  @Override
+  public void callAction(String actionName, String jsonArgs) {
+    Log.d(getTag(), "callAction received: " + actionName + " with args: " + jsonArgs);
+
+    Action action = actions.get(actionName);
+    if (action == null) {
+      Log.w(getTag(), "Unknown action requested: " + actionName);
+      onActionFailed(actionName, "Unknown action: " + actionName);
+      return;
+    }
+    runAction(actionName, action, jsonArgs);
+  }
+
+  /** Runs a resolved action, reporting any exception through {@link #onActionFailed}. */
+  public final void runAction(String actionName, Action action, String jsonArgs) {
+    try {
+      action.run(jsonArgs);
+    } catch (Exception e) {
+      Log.e(getTag(), "Exception running action " + actionName + ": " + e.getMessage());
+      onActionFailed(actionName, "Action " + actionName + " failed: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Reports an action that was turned away before it could run, e.g. by a host whose queue for
+   * this plugin is full, through the plugin's own error event.
+   */
+  public final void rejectAction(String actionName, String reason) {
+    Log.w(getTag(), "Rejected action " + actionName + ": " + reason);
+    onActionFailed(actionName, "Action " + actionName + " rejected: " + reason);
+  }
+
+  /** The log tag of the plugin. */
+  protected abstract String getTag();
+
+  /** Reports an unknown or failed action back to Unity. */
+  protected abstract void onActionFailed(String actionName, String errorMessage);
+}
@@ -0,0 +1,38 @@
+// <copyright file="IPluginBinaryCallback.java"  company="Google LLC">
+//
+// Copyright 2025 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// </copyright>
+//  ----------------------------------------------------------------------
+
+package com.google.xr.androidxrunitysamples.java;
+
+/**
+ * Optional extension of {@link IPluginCallback} for hot event paths. Plugins that receive an
+ * implementation of this interface in {@link IUnityPlugin#initialize} send their events as typed
+ * binary payloads instead of JSON strings, and keep {@link #OnEvent(String)} as the fallback for
+ * events that have no binary encoding. Implemented on the C# side using AndroidJavaProxy.
+ */
+public interface IPluginBinaryCallback extends IPluginCallback {
+  /**
+   * Called by the plugin to send a typed event back to Unity.
+   *
+   * @param eventType A plugin-defined event type id.
+   * @param timestampMs The wall clock time of the event, in milliseconds since the epoch.
+   * @param payload The little-endian event payload written with {@link PluginEventWriter}; empty
+   *     for events that carry no data.
+   */
+  void OnEventBinary(int eventType, long timestampMs, byte[] payload);
+}
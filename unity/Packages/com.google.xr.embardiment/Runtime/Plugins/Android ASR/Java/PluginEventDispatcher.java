@@ -0,0 +1,317 @@
+// <copyright file="PluginEventDispatcher.java"  company="Google LLC">
+//
+// Copyright 2025 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// </copyright>
+//  ----------------------------------------------------------------------
+
+package com.google.xr.androidxrunitysamples.java;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.Choreographer;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Queues, coalesces and batches plugin events so that a burst of events costs one JNI transition
+ * into the C# {@link IPluginCallback} proxy instead of one per event. Any {@link IUnityPlugin} can
+ * adopt it by posting its events here instead of calling the callback directly.
+ *
+ * <p>Producers post from any thread into a lock-free multi-producer queue and never deliver
+ * themselves. Events posted with a coalescing slot supersede the previous undelivered event in the
+ * same slot (e.g. only the latest partial transcript is delivered). A single consumer flushes the
+ * queue:
+ *
+ * <ul>
+ *   <li>{@link #MODE_INTERVAL} (the default): at most once per configured interval.
+ *   <li>{@link #MODE_DIRECT}: as soon as the flush thread gets to it, batching only the events
+ *       posted in the meantime.
+ *   <li>{@link #MODE_VSYNC}: at most once per display vsync, driven by {@link Choreographer}. This
+ *       is not Unity's frame; use {@link #MODE_MANUAL} to deliver in step with Unity.
+ *   <li>{@link #MODE_MANUAL}: only when {@link #flush()} is called, e.g. from a Unity Update().
+ * </ul>
+ *
+ * <p>A flush delivers events in the order they were posted, as runs of the same kind. A run of
+ * binary events is one {@link IPluginBinaryCallback#OnEventBinary} call of type {@link
+ * #TYPE_BATCH}, whose payload is an int32 count followed, per event, by int32 type, int64
+ * timestampMs, int32 length and the event payload. A run of JSON events is one {@link
+ * IPluginCallback#OnEvent} call with the payloads separated by newlines, which never occur inside
+ * a serialized JSONObject. A run of one event is delivered unwrapped.
+ */
+public final class PluginEventDispatcher {
+  public static final String MODE_DIRECT = "direct";
+  public static final String MODE_VSYNC = "vsync";
+  public static final String MODE_INTERVAL = "interval";
+  public static final String MODE_MANUAL = "manual";
+
+  /** Binary type id of a batch envelope; plugin event types must not use it. */
+  public static final int TYPE_BATCH = 0;
+
+  /** Slot value for events that are never coalesced. */
+  public static final int NO_SLOT = -1;
+
+  private static final String TAG = "PluginEventDispatcher";
+
+  private static final class Event {
+    final int type;
+    final long timestampMs;
+    final byte[] payload;
+    final String json;
+    final int slot;
+
+    Event(int type, long timestampMs, byte[] payload, String json, int slot) {
+      this.type = type;
+      this.timestampMs = timestampMs;
+      this.payload = payload;
+      this.json = json;
+      this.slot = slot;
+    }
+  }
+
+  private final IPluginCallback callback;
+  private final IPluginBinaryCallback binaryCallback;
+  private final ConcurrentLinkedQueue<Event> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicReferenceArray<Event> latestInSlot;
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+  // Only touched by the consumer, i.e. whichever thread runs flush().
+  private final ArrayList<Event> pending = new ArrayList<>();
+  private final PluginEventWriter batchWriter = new PluginEventWriter(256);
+  private final StringBuilder jsonBatch = new StringBuilder(256);
+
+  private volatile String mode = MODE_INTERVAL;
+  private volatile long intervalMs = 16;
+  private HandlerThread flushThread;
+  private volatile Handler flushHandler;
+  // Only touched on the flush thread, which owns it.
+  private Choreographer choreographer;
+
+  private final Runnable flushRunnable = this::scheduledFlush;
+  private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> scheduledFlush();
+
+  private long deliveredEvents;
+  private long coalescedEvents;
+  private long flushes;
+
+  /**
+   * @param callback The callback to deliver to; binary events require an {@link
+   *     IPluginBinaryCallback}.
+   * @param slotCount The number of coalescing slots the adopting plugin uses.
+   */
+  public PluginEventDispatcher(IPluginCallback callback, int slotCount) {
+    this.callback = callback;
+    this.binaryCallback =
+        callback instanceof IPluginBinaryCallback ? (IPluginBinaryCallback) callback : null;
+    this.latestInSlot = new AtomicReferenceArray<>(Math.max(0, slotCount));
+    flushThread = new HandlerThread(TAG);
+    flushThread.start();
+    flushHandler = new Handler(flushThread.getLooper());
+  }
+
+  /** True if events can be posted with {@link #postBinary}. */
+  public boolean supportsBinary() {
+    return binaryCallback != null;
+  }
+
+  /**
+   * Switches the flush mode. Events already queued are flushed first.
+   *
+   * @param newMode One of the MODE_* constants.
+   * @param newIntervalMs The flush interval for {@link #MODE_INTERVAL}.
+   */
+  public synchronized void configure(String newMode, long newIntervalMs) {
+    if (!MODE_DIRECT.equals(newMode)
+        && !MODE_VSYNC.equals(newMode)
+        && !MODE_INTERVAL.equals(newMode)
+        && !MODE_MANUAL.equals(newMode)) {
+      throw new IllegalArgumentException("Unknown dispatch mode: " + newMode);
+    }
+    flush();
+    intervalMs = Math.max(1, newIntervalMs);
+    mode = newMode;
+    Handler handler = flushHandler;
+    if (MODE_VSYNC.equals(newMode) && handler != null) {
+      // Choreographer is per-looper and must be obtained on the thread that owns it.
+      handler.post(
+          () -> {
+            if (choreographer == null) {
+              choreographer = Choreographer.getInstance();
+            }
+          });
+    }
+    Log.d(TAG, "Dispatch mode set to " + newMode + " (" + intervalMs + " ms).");
+  }
+
+  /** Posts a JSON event. */
+  public void post(String jsonPayload) {
+    post(jsonPayload, NO_SLOT);
+  }
+
+  /** Posts a JSON event that supersedes any undelivered event in the same slot. */
+  public void post(String jsonPayload, int slot) {
+    enqueue(new Event(-1, System.currentTimeMillis(), null, jsonPayload, slot));
+  }
+
+  /**
+   * Posts a binary event that supersedes any undelivered event in the same slot. Only valid when
+   * {@link #supportsBinary()} is true.
+   */
+  public void postBinary(int type, long timestampMs, byte[] payload, int slot) {
+    if (binaryCallback == null) {
+      throw new IllegalStateException("Callback does not implement IPluginBinaryCallback.");
+    }
+    if (type == TYPE_BATCH) {
+      throw new IllegalArgumentException("Event type " + TYPE_BATCH + " is reserved for batches.");
+    }
+    enqueue(new Event(type, timestampMs, payload, null, slot));
+  }
+
+  /**
+   * Delivers all queued events that have not been superseded. Safe to call from any thread;
+   * scheduled flushes run on the dispatcher's own thread. Posting never waits for a flush.
+   */
+  public synchronized void flush() {
+    Event event;
+    while ((event = queue.poll()) != null) {
+      if (event.slot != NO_SLOT && !latestInSlot.compareAndSet(event.slot, event, null)) {
+        // A newer event in the same slot is further down the queue.
+        coalescedEvents++;
+        continue;
+      }
+      pending.add(event);
+    }
+    if (pending.isEmpty()) {
+      return;
+    }
+    flushes++;
+    deliveredEvents += pending.size();
+    try {
+      int start = 0;
+      while (start < pending.size()) {
+        boolean binary = pending.get(start).json == null;
+        int end = start + 1;
+        while (end < pending.size() && (pending.get(end).json == null) == binary) {
+          end++;
+        }
+        if (binary) {
+          deliverBinary(start, end);
+        } else {
+          deliverJson(start, end);
+        }
+        start = end;
+      }
+    } catch (Exception e) {
+      Log.e(TAG, "Exception sending events to Unity: " + e.getMessage());
+    } finally {
+      pending.clear();
+    }
+  }
+
+  /** Flushes any queued events and stops the flush thread; later posts are flushed in place. */
+  public synchronized void shutdown() {
+    flushHandler = null;
+    flush();
+    if (flushThread != null) {
+      flushThread.quitSafely();
+      flushThread = null;
+    }
+  }
+
+  /** Returns {delivered, coalesced, flushes} since creation. */
+  public synchronized long[] getCounters() {
+    return new long[] {deliveredEvents, coalescedEvents, flushes};
+  }
+
+  private void enqueue(Event event) {
+    if (event.slot != NO_SLOT) {
+      latestInSlot.set(event.slot, event);
+    }
+    queue.offer(event);
+
+    Handler handler = flushHandler;
+    if (handler == null) {
+      // Shut down: there is no flush thread left to hand the event to.
+      flush();
+      return;
+    }
+    String currentMode = mode;
+    if (!MODE_MANUAL.equals(currentMode) && flushScheduled.compareAndSet(false, true)) {
+      scheduleFlush(handler, currentMode);
+    }
+  }
+
+  private void scheduleFlush(Handler handler, String currentMode) {
+    if (MODE_DIRECT.equals(currentMode)) {
+      handler.post(flushRunnable);
+    } else if (MODE_VSYNC.equals(currentMode)) {
+      handler.post(
+          () -> {
+            if (choreographer != null) {
+              choreographer.postFrameCallback(frameCallback);
+            } else {
+              scheduledFlush();
+            }
+          });
+    } else {
+      handler.postDelayed(flushRunnable, intervalMs);
+    }
+  }
+
+  private void scheduledFlush() {
+    flushScheduled.set(false);
+    flush();
+  }
+
+  /** Delivers the binary events pending[start, end). */
+  private void deliverBinary(int start, int end) {
+    if (end - start == 1) {
+      Event single = pending.get(start);
+      binaryCallback.OnEventBinary(single.type, single.timestampMs, single.payload);
+      return;
+    }
+
+    batchWriter.reset().writeInt(end - start);
+    for (int i = start; i < end; i++) {
+      Event event = pending.get(i);
+      batchWriter
+          .writeInt(event.type)
+          .writeLong(event.timestampMs)
+          .writeInt(event.payload.length)
+          .writeBytes(event.payload, 0, event.payload.length);
+    }
+    binaryCallback.OnEventBinary(TYPE_BATCH, System.currentTimeMillis(), batchWriter.toByteArray());
+  }
+
+  /** Delivers the JSON events pending[start, end). */
+  private void deliverJson(int start, int end) {
+    if (end - start == 1) {
+      callback.OnEvent(pending.get(start).json);
+      return;
+    }
+
+    jsonBatch.setLength(0);
+    for (int i = start; i < end; i++) {
+      if (i > start) {
+        jsonBatch.append('\n');
+      }
+      jsonBatch.append(pending.get(i).json);
+    }
+    callback.OnEvent(jsonBatch.toString());
+  }
+}
@@ -0,0 +1,124 @@
+// <copyright file="PluginEventWriter.java"  company="Google LLC">
+//
+// Copyright 2025 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// </copyright>
+//  ----------------------------------------------------------------------
+
+package com.google.xr.androidxrunitysamples.java;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reusable little-endian writer for {@link IPluginBinaryCallback} payloads. Values are written
+ * back to back without tags, in the order documented by the plugin for each event type, so they
+ * can be read on the C# side with a {@code BinaryReader}. Strings are written as an int32 byte
+ * length followed by UTF-8 bytes.
+ *
+ * <p>The internal buffer is kept between events, so the only per-event allocation is the exact
+ * sized array returned by {@link #toByteArray()}. Not thread-safe; use one writer per thread.
+ */
+public final class PluginEventWriter {
+  private static final byte[] EMPTY = new byte[0];
+
+  private byte[] buffer;
+  private int size;
+
+  public PluginEventWriter() {
+    this(64);
+  }
+
+  public PluginEventWriter(int initialCapacity) {
+    buffer = new byte[Math.max(16, initialCapacity)];
+  }
+
+  /** Discards the current payload and returns this writer for chaining. */
+  public PluginEventWriter reset() {
+    size = 0;
+    return this;
+  }
+
+  public PluginEventWriter writeBoolean(boolean value) {
+    ensureCapacity(1);
+    buffer[size++] = (byte) (value ? 1 : 0);
+    return this;
+  }
+
+  public PluginEventWriter writeInt(int value) {
+    ensureCapacity(4);
+    buffer[size++] = (byte) value;
+    buffer[size++] = (byte) (value >>> 8);
+    buffer[size++] = (byte) (value >>> 16);
+    buffer[size++] = (byte) (value >>> 24);
+    return this;
+  }
+
+  public PluginEventWriter writeLong(long value) {
+    writeInt((int) value);
+    return writeInt((int) (value >>> 32));
+  }
+
+  public PluginEventWriter writeFloat(float value) {
+    return writeInt(Float.floatToIntBits(value));
+  }
+
+  public PluginEventWriter writeDouble(double value) {
+    return writeLong(Double.doubleToLongBits(value));
+  }
+
+  /** Writes an int32 count followed by the first {@code count} values. */
+  public PluginEventWriter writeFloats(float[] values, int count) {
+    writeInt(count);
+    ensureCapacity(4 * count);
+    for (int i = 0; i < count; i++) {
+      writeFloat(values[i]);
+    }
+    return this;
+  }
+
+  /** Writes an int32 byte length followed by the UTF-8 bytes; null is written as empty. */
+  public PluginEventWriter writeString(String value) {
+    if (value == null || value.isEmpty()) {
+      return writeInt(0);
+    }
+    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+    writeInt(utf8.length);
+    return writeBytes(utf8, 0, utf8.length);
+  }
+
+  /** Writes raw bytes without a length prefix. */
+  public PluginEventWriter writeBytes(byte[] bytes, int offset, int length) {
+    ensureCapacity(length);
+    System.arraycopy(bytes, offset, buffer, size, length);
+    size += length;
+    return this;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Returns a copy of the current payload, sized exactly. */
+  public byte[] toByteArray() {
+    return size == 0 ? EMPTY : Arrays.copyOf(buffer, size);
+  }
+
+  private void ensureCapacity(int extra) {
+    if (size + extra > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+    }
+  }
+}
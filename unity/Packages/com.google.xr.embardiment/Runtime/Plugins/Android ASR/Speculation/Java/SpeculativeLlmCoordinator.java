@@ -0,0 +1,287 @@
+// <copyright file="SpeculativeLlmCoordinator.java" company="Google LLC">
+//
+// Copyright 2025 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// </copyright>
+// ----------------------------------------------------------------------
+
+package com.google.xr.androidxrunitysamples.java;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.google.xr.embardiment.llm.LlmBridge;
+import com.google.xr.embardiment.llm.TranscriptSpeculator;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Starts LLM generation on partial ASR transcripts, before the final result arrives.
+ *
+ * <p>A partial transcript is speculated on once it has been unchanged for {@code stableMs}, or at
+ * the end of speech. The speculation itself, when it is kept, cancelled or committed, is decided
+ * by a {@link TranscriptSpeculator}: a speculation is kept while partials stay within {@code
+ * divergenceThreshold} of it, and committed when the final result has its words.
+ *
+ * <p>While enabled, every final transcript is answered with one {@code Speculation_Result} event,
+ * so Unity should not also send the STT_Result to the LLM itself. Recognizer and LLM callbacks and
+ * the stability timer all run on the main looper.
+ */
+public class SpeculativeLlmCoordinator extends ActionTablePlugin
+    implements SpeechToTextPlugin.SpeechActivityListener, TranscriptSpeculator.Listener {
+  private static final String TAG = "SpeculativeLlm";
+  private static final String ACTION_CONFIGURE = "configure";
+  private static final String ACTION_GET_STATS = "getStats";
+  private static final String ACTION_RESET_STATS = "resetStats";
+
+  private static final String EVENT_RESULT = "Speculation_Result";
+  private static final String EVENT_STATS = "Speculation_Stats";
+  private static final String EVENT_ERROR = "Speculation_Error";
+
+  private static final long NANOS_PER_MILLI = 1_000_000L;
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Runnable stableRunnable = this::speculateOnLatestPartial;
+
+  private volatile boolean enabled;
+  private volatile long stableMs = 300;
+  private volatile int minWords = 3;
+  private volatile float divergenceThreshold = 0.25f;
+  private volatile int sessionId = -1;
+  private volatile String promptPrefix = "";
+  private volatile String promptSuffix = "";
+
+  private SpeechToTextPlugin speechToText;
+  private volatile TranscriptSpeculator speculator;
+  private PluginEventDispatcher eventDispatcher;
+
+  public SpeculativeLlmCoordinator() {
+    registerAction(ACTION_CONFIGURE, this::configure);
+    registerAction(ACTION_GET_STATS, args -> sendStatsEvent());
+    registerAction(ACTION_RESET_STATS, args -> resetStats());
+  }
+
+  @Override
+  public void initialize(Context context, IPluginCallback callback) {
+    eventDispatcher = new PluginEventDispatcher(callback, 0);
+    Log.d(TAG, "SpeculativeLlmCoordinator initialized.");
+  }
+
+  /**
+   * Connects the coordinator to the recognizer whose partials it speculates on and the bridge it
+   * generates with. The coordinator keeps its own reference to the bridge until {@link #detach()}.
+   */
+  public void attach(SpeechToTextPlugin speechToText, LlmBridge bridge) {
+    detach();
+    this.speechToText = speechToText;
+    TranscriptSpeculator newSpeculator = new TranscriptSpeculator(bridge, this);
+    applySettings(newSpeculator);
+    speculator = newSpeculator;
+    speechToText.addSpeechActivityListener(this);
+    Log.d(TAG, "Attached to SpeechToTextPlugin and LlmBridge.");
+  }
+
+  /** Disconnects from the recognizer and drops any pending speculation. */
+  public void detach() {
+    if (speechToText != null) {
+      speechToText.removeSpeechActivityListener(this);
+      speechToText = null;
+    }
+    handler.removeCallbacks(stableRunnable);
+    TranscriptSpeculator oldSpeculator = speculator;
+    speculator = null;
+    if (oldSpeculator != null) {
+      oldSpeculator.close();
+    }
+  }
+
+  @Override
+  public void destroy() {
+    Log.d(TAG, "Destroying SpeculativeLlmCoordinator...");
+    detach();
+    if (eventDispatcher != null) {
+      eventDispatcher.shutdown();
+      eventDispatcher = null;
+    }
+  }
+
+  @Override
+  protected String getTag() {
+    return TAG;
+  }
+
+  @Override
+  protected void onActionFailed(String actionName, String errorMessage) {
+    sendErrorEvent(errorMessage);
+  }
+
+  @Override
+  public void onBeginningOfSpeech(long elapsedRealtimeNanos) {
+    endTurn();
+  }
+
+  @Override
+  public void onPartialResults(String text, long elapsedRealtimeNanos) {
+    TranscriptSpeculator current = speculator;
+    if (!enabled || current == null) {
+      return;
+    }
+    current.onPartial(text);
+    handler.removeCallbacks(stableRunnable);
+    handler.postDelayed(stableRunnable, stableMs);
+  }
+
+  @Override
+  public void onEndOfSpeech(long elapsedRealtimeNanos) {
+    // No more audio is coming, so the latest partial is as stable as it will get.
+    handler.removeCallbacks(stableRunnable);
+    if (enabled) {
+      speculateOnLatestPartial();
+    }
+  }
+
+  @Override
+  public void onResults(String text, long elapsedRealtimeNanos) {
+    handler.removeCallbacks(stableRunnable);
+    TranscriptSpeculator current = speculator;
+    if (enabled && current != null) {
+      current.onFinal(text, elapsedRealtimeNanos);
+    }
+  }
+
+  @Override
+  public void onError(int errorCode, long elapsedRealtimeNanos) {
+    endTurn();
+  }
+
+  @Override
+  public void onResult(String transcript, String text, boolean speculative, long savedNanos) {
+    JSONObject data = new JSONObject();
+    try {
+      data.put("Event", EVENT_RESULT);
+      data.put("Text", text);
+      data.put("Transcript", transcript);
+      data.put("Speculative", speculative);
+      data.put("SavedMs", savedNanos / (double) NANOS_PER_MILLI);
+      data.put("Timestamp", System.currentTimeMillis());
+      sendEvent(data.toString());
+    } catch (JSONException e) {
+      Log.e(TAG, "JSONException creating result event: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public void onError(String errorMessage) {
+    sendErrorEvent(errorMessage);
+  }
+
+  private void speculateOnLatestPartial() {
+    TranscriptSpeculator current = speculator;
+    if (current != null) {
+      current.speculate();
+    }
+  }
+
+  private void endTurn() {
+    handler.removeCallbacks(stableRunnable);
+    TranscriptSpeculator current = speculator;
+    if (current != null) {
+      current.endTurn();
+    }
+  }
+
+  private void applySettings(TranscriptSpeculator target) {
+    target.setMinWords(minWords);
+    target.setDivergenceThreshold(divergenceThreshold);
+    target.setSessionId(sessionId);
+    target.setPromptPrefix(promptPrefix);
+    target.setPromptSuffix(promptSuffix);
+  }
+
+  private void configure(String jsonArgs) throws JSONException {
+    JSONObject args = new JSONObject(jsonArgs == null || jsonArgs.isEmpty() ? "{}" : jsonArgs);
+    stableMs = Math.max(0, args.optLong("stableMs", stableMs));
+    minWords = Math.max(1, args.optInt("minWords", minWords));
+    divergenceThreshold = (float) args.optDouble("divergenceThreshold", divergenceThreshold);
+    sessionId = args.optInt("sessionId", sessionId);
+    promptPrefix = args.optString("promptPrefix", promptPrefix);
+    promptSuffix = args.optString("promptSuffix", promptSuffix);
+    TranscriptSpeculator current = speculator;
+    if (current != null) {
+      applySettings(current);
+    }
+    enabled = args.optBoolean("enabled", enabled);
+    if (!enabled) {
+      endTurn();
+    }
+  }
+
+  private void resetStats() {
+    TranscriptSpeculator current = speculator;
+    if (current != null) {
+      current.resetStats();
+    }
+  }
+
+  private void sendEvent(String jsonPayload) {
+    PluginEventDispatcher dispatcher = eventDispatcher;
+    if (dispatcher != null) {
+      try {
+        dispatcher.post(jsonPayload);
+      } catch (Exception e) {
+        Log.e(TAG, "Exception sending event to Unity: " + e.getMessage());
+      }
+    } else {
+      Log.w(TAG, "Cannot send event, callback is null.");
+    }
+  }
+
+  private void sendStatsEvent() throws JSONException {
+    TranscriptSpeculator current = speculator;
+    TranscriptSpeculator.Stats stats =
+        current != null ? current.stats() : new TranscriptSpeculator.Stats(0, 0, 0, 0, 0, 0, 0);
+    long hits = stats.getHits();
+    long misses = stats.getMisses();
+    JSONObject data = new JSONObject();
+    data.put("Event", EVENT_STATS);
+    data.put("Speculations", stats.getSpeculations());
+    data.put("Cancelled", stats.getCancelled());
+    data.put("Hits", hits);
+    data.put("Misses", misses);
+    data.put("HitRate", hits + misses == 0 ? 0 : hits / (double) (hits + misses));
+    data.put("TotalSavedMs", stats.getTotalSavedNanos() / (double) NANOS_PER_MILLI);
+    data.put(
+        "MeanSavedMs",
+        hits == 0 ? 0 : stats.getTotalSavedNanos() / (double) hits / NANOS_PER_MILLI);
+    data.put("MaxSavedMs", stats.getMaxSavedNanos() / (double) NANOS_PER_MILLI);
+    data.put("LastSavedMs", stats.getLastSavedNanos() / (double) NANOS_PER_MILLI);
+    data.put("Timestamp", System.currentTimeMillis());
+    sendEvent(data.toString());
+  }
+
+  private void sendErrorEvent(String errorMessage) {
+    JSONObject data = new JSONObject();
+    try {
+      data.put("Event", EVENT_ERROR);
+      data.put("Error", errorMessage);
+      data.put("ErrorCode", -1);
+      data.put("Timestamp", System.currentTimeMillis());
+      sendEvent(data.toString());
+    } catch (JSONException e) {
+      Log.e(TAG, "JSONException creating error event: " + e.getMessage());
+    }
+  }
+}
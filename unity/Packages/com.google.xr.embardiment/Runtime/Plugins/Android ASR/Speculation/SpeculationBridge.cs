@@ -0,0 +1,223 @@
+// <copyright file="SpeculationBridge.cs" company="Google LLC">
+//
+// Copyright 2025 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// </copyright>
+// ----------------------------------------------------------------------
+
+using System;
+using UnityEngine;
+
+namespace AndroidXRUnitySamples.Gemini
+{
+    /// <summary>
+    /// C# Bridge for the plugin host's SpeculativeLlmCoordinator, which starts LLM generation on
+    /// partial transcripts of the host's recognizer before the final result arrives. While it is
+    /// enabled, every final transcript is answered with one OnResult, so callers must not also
+    /// send the final transcript to the LLM themselves. The recognizer must be started with
+    /// partial results.
+    /// </summary>
+    public class SpeculationBridge : IDisposable
+    {
+        private const string _actionConfigure = "speculation.configure";
+        private const string _actionGetStats = "speculation.getStats";
+        private const string _actionResetStats = "speculation.resetStats";
+
+        private const string _eventPrefix = "Speculation";
+        private const string _eventResult = "Speculation_Result";
+        private const string _eventStats = "Speculation_Stats";
+        private const string _eventError = "Speculation_Error";
+
+        private PluginHostBridge _host;
+        private bool _isDisposed;
+
+        /// <summary>
+        /// Initializes a new instance of the <see cref="SpeculationBridge"/> class on top of the
+        /// coordinator of a <see cref="PluginHostBridge"/>. Speculation stays off until Enable.
+        /// </summary>
+        /// <param name="host">The host whose recognizer and LLM bridge to speculate with.</param>
+        public SpeculationBridge(PluginHostBridge host)
+        {
+            if (host == null || !host.IsInitialized)
+            {
+                Debug.LogError("SpeculationBridge needs an initialized PluginHostBridge.");
+                return;
+            }
+
+            _host = host;
+            _host.SetEventListener(_eventPrefix, OnEvent);
+        }
+
+        ~SpeculationBridge()
+        {
+            Dispose(false);
+        }
+
+        /// <summary>
+        /// Event fired with the response to each final transcript.
+        /// </summary>
+        public event Action<SpeculationResult> OnResult;
+
+        /// <summary>
+        /// Event fired with the speculation, hit and saved time counts as JSON, see RequestStats.
+        /// </summary>
+        public event Action<string> OnStats;
+
+        /// <summary>
+        /// Event fired with a failed generation or a native error as JSON.
+        /// </summary>
+        public event Action<string> OnError;
+
+        /// <summary>
+        /// Gets a value indicating whether speculation is enabled, and final transcripts are
+        /// therefore answered by OnResult.
+        /// </summary>
+        public bool IsEnabled { get; private set; }
+
+        /// <summary>
+        /// Starts speculating. Each transcript is generated as promptPrefix, the transcript, then
+        /// promptSuffix, or as a turn of sessionId when that is not negative.
+        /// </summary>
+        /// <param name="promptPrefix">Text prepended to every transcript.</param>
+        /// <param name="promptSuffix">Text appended to every transcript.</param>
+        /// <param name="sessionId">An LLM session opened on the host's bridge, or -1.</param>
+        public void Enable(string promptPrefix, string promptSuffix, int sessionId = -1)
+        {
+            Configure(JsonUtility.ToJson(new ConfigureArgs
+            {
+                enabled = true,
+                promptPrefix = promptPrefix ?? string.Empty,
+                promptSuffix = promptSuffix ?? string.Empty,
+                sessionId = sessionId
+            }));
+            IsEnabled = _host != null;
+        }
+
+        /// <summary>
+        /// Stops speculating and drops any pending speculation.
+        /// </summary>
+        public void Disable()
+        {
+            Configure("{\"enabled\":false}");
+            IsEnabled = false;
+        }
+
+        /// <summary>
+        /// Tunes the coordinator, e.g. <c>{"stableMs":300,"minWords":3,"divergenceThreshold":0.25}</c>.
+        /// Use Enable and Disable to switch speculation on and off.
+        /// </summary>
+        /// <param name="jsonArgs">JSON object with the options to change.</param>
+        public void Configure(string jsonArgs)
+        {
+            if (_host == null || _isDisposed)
+            {
+                return;
+            }
+
+            _host.CallAction(_actionConfigure, jsonArgs ?? "{}");
+        }
+
+        /// <summary>
+        /// Requests the speculation stats, which arrive as OnStats.
+        /// </summary>
+        public void RequestStats()
+        {
+            _host?.CallAction(_actionGetStats, "{}");
+        }
+
+        /// <summary>
+        /// Clears the speculation stats.
+        /// </summary>
+        public void ResetStats()
+        {
+            _host?.CallAction(_actionResetStats, "{}");
+        }
+
+        /// <inheritdoc/>
+        public void Dispose()
+        {
+            Dispose(true);
+            GC.SuppressFinalize(this);
+        }
+
+        /// <summary>
+        /// Protected implementation of Dispose pattern.
+        /// </summary>
+        /// <param name="disposing">True if called from Dispose(),
+        /// if called from finalizer.</param>
+        protected virtual void Dispose(bool disposing)
+        {
+            if (_isDisposed)
+            {
+                return;
+            }
+
+            if (_host != null && _host.IsInitialized)
+            {
+                // The coordinator belongs to the host; only speculation is switched off.
+                Disable();
+                _host.SetEventListener(_eventPrefix, null);
+            }
+
+            _host = null;
+            _isDisposed = true;
+        }
+
+        private void OnEvent(string jsonPayload)
+        {
+            UnityMainThreadDispatcher.Instance?.Enqueue(() => ProcessEvent(jsonPayload));
+        }
+
+        private void ProcessEvent(string jsonPayload)
+        {
+            if (_isDisposed)
+            {
+                return;
+            }
+
+            var baseEvent = JsonUtility.FromJson<BasePluginEvent>(jsonPayload);
+            switch (baseEvent?.Event)
+            {
+                case _eventResult:
+                    var result = JsonUtility.FromJson<SpeculationResult>(jsonPayload);
+                    if (result != null)
+                    {
+                        OnResult?.Invoke(result);
+                    }
+
+                    break;
+                case _eventStats:
+                    OnStats?.Invoke(jsonPayload);
+                    break;
+                case _eventError:
+                    OnError?.Invoke(jsonPayload);
+                    break;
+                default:
+                    Debug.LogWarning($"Received unhandled speculation event: {jsonPayload}");
+                    break;
+            }
+        }
+
+        // Field names match the JSON keys the coordinator reads.
+        [Serializable]
+        private class ConfigureArgs
+        {
+            public bool enabled;
+            public string promptPrefix;
+            public string promptSuffix;
+            public int sessionId;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+// <copyright file="SpeculationResult.cs" company="Google LLC">
+//
+// Copyright 2025 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// </copyright>
+// ----------------------------------------------------------------------
+
+using System;
+
+namespace AndroidXRUnitySamples.Gemini
+{
+    /// <summary>
+    /// Represents the LLM response to one final transcript while speculation is enabled.
+    /// </summary>
+    [Serializable]
+    public class SpeculationResult : BasePluginEvent
+    {
+        /// <summary>
+        /// Gets or sets the generated response.
+        /// </summary>
+        public string Text;
+
+        /// <summary>
+        /// Gets or sets the final transcript the response answers.
+        /// </summary>
+        public string Transcript;
+
+        /// <summary>
+        /// Gets or sets a value indicating whether the response was started from a partial
+        /// transcript, rather than from the final one.
+        /// </summary>
+        public bool Speculative;
+
+        /// <summary>
+        /// Gets or sets how much sooner the response was ready than generating from the final
+        /// transcript would have allowed, in ms; zero unless Speculative.
+        /// </summary>
+        public float SavedMs;
+    }
+}
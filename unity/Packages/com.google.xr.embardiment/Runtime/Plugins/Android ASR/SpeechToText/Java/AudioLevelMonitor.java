@@ -0,0 +1,183 @@
+// <copyright file="AudioLevelMonitor.java" company="Google LLC">
+//
+// Copyright 2025 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// </copyright>
+// ----------------------------------------------------------------------
+
+package com.google.xr.androidxrunitysamples.java;
+
+import org.json.JSONObject;
+
+/**
+ * Turns the recognizer's RMS callbacks (roughly one every 10ms) into a decimated, batched audio
+ * level stream and a lightweight energy-based voice activity detector with hangover.
+ *
+ * <p>Levels are peak-held over each 1/hz window and handed to the {@link Sink} in batches, so Unity
+ * receives one event per batch instead of one JSON + JNI call per sample. The VAD compares each RMS
+ * value against an adaptive noise floor plus a margin, requires {@code attackMs} of energy to enter
+ * speech and {@code hangoverMs} of silence to leave it.
+ */
+final class AudioLevelMonitor implements SpeechToTextPlugin.SpeechActivityListener {
+  /** Receives the batched levels and VAD transitions, on the recognizer callback thread. */
+  interface Sink {
+    void onAudioLevels(float[] levels, int count, float intervalMs);
+
+    void onVoiceActivity(boolean speaking, long elapsedRealtimeNanos);
+
+    /** Called once the VAD has seen trailing silence and endOnSilence is enabled. */
+    void onSilenceEndpoint();
+  }
+
+  private static final long NANOS_PER_MILLI = 1_000_000L;
+  // The noise floor follows quiet input immediately but rises slowly, so speech does not raise it.
+  private static final float NOISE_FLOOR_RISE = 0.01f;
+
+  private final Sink sink;
+  private final long levelIntervalNanos;
+  private final float[] batch;
+  private final boolean vadEnabled;
+  private final float marginDb;
+  private final float minThresholdDb;
+  private final long attackNanos;
+  private final long hangoverNanos;
+  private final boolean endOnSilence;
+
+  private int batchCount;
+  private long windowStartNanos;
+  private float windowPeak = Float.NEGATIVE_INFINITY;
+
+  private float noiseFloorDb = Float.NaN;
+  private boolean speaking;
+  private boolean endpointSent;
+  private long aboveSinceNanos;
+  private long belowSinceNanos;
+
+  private AudioLevelMonitor(Sink sink, JSONObject args) {
+    this.sink = sink;
+    double hz = args.optDouble("audioLevelHz", 0);
+    this.levelIntervalNanos = hz > 0 ? (long) (1_000_000_000L / hz) : 0;
+    this.batch = new float[Math.max(1, args.optInt("audioLevelBatch", 5))];
+    this.vadEnabled = args.optBoolean("vad", false) || args.optBoolean("endOnSilence", false);
+    this.marginDb = (float) args.optDouble("vadMarginDb", 4.0);
+    this.minThresholdDb = (float) args.optDouble("vadMinDb", 2.0);
+    this.attackNanos = args.optLong("vadAttackMs", 60) * NANOS_PER_MILLI;
+    this.hangoverNanos = args.optLong("vadHangoverMs", 700) * NANOS_PER_MILLI;
+    this.endOnSilence = args.optBoolean("endOnSilence", false);
+  }
+
+  /**
+   * Creates a monitor from the startSpeechToText args, or returns null when neither the level
+   * stream nor the VAD was requested so the default path pays nothing.
+   */
+  static AudioLevelMonitor fromArgs(Sink sink, JSONObject args) {
+    AudioLevelMonitor monitor = new AudioLevelMonitor(sink, args);
+    if (monitor.levelIntervalNanos == 0 && !monitor.vadEnabled) {
+      return null;
+    }
+    return monitor;
+  }
+
+  @Override
+  public void onRmsChanged(float rmsdB, long elapsedRealtimeNanos) {
+    if (levelIntervalNanos > 0) {
+      accumulateLevel(rmsdB, elapsedRealtimeNanos);
+    }
+    if (vadEnabled) {
+      updateVad(rmsdB, elapsedRealtimeNanos);
+    }
+  }
+
+  @Override
+  public void onEndOfSpeech(long elapsedRealtimeNanos) {
+    flush();
+  }
+
+  @Override
+  public void onResults(String text, long elapsedRealtimeNanos) {
+    flush();
+  }
+
+  @Override
+  public void onError(int errorCode, long elapsedRealtimeNanos) {
+    flush();
+  }
+
+  /** Hands any partially filled batch to the sink. */
+  void flush() {
+    if (batchCount > 0) {
+      sink.onAudioLevels(batch, batchCount, levelIntervalNanos / (float) NANOS_PER_MILLI);
+      batchCount = 0;
+    }
+  }
+
+  private void accumulateLevel(float rmsdB, long nowNanos) {
+    if (windowStartNanos == 0) {
+      windowStartNanos = nowNanos;
+    }
+    windowPeak = Math.max(windowPeak, rmsdB);
+    if (nowNanos - windowStartNanos < levelIntervalNanos) {
+      return;
+    }
+
+    batch[batchCount++] = windowPeak;
+    windowPeak = Float.NEGATIVE_INFINITY;
+    windowStartNanos = nowNanos;
+    if (batchCount == batch.length) {
+      flush();
+    }
+  }
+
+  private void updateVad(float rmsdB, long nowNanos) {
+    if (Float.isNaN(noiseFloorDb) || rmsdB < noiseFloorDb) {
+      noiseFloorDb = rmsdB;
+    } else if (!speaking) {
+      noiseFloorDb += (rmsdB - noiseFloorDb) * NOISE_FLOOR_RISE;
+    }
+
+    boolean above = rmsdB >= Math.max(minThresholdDb, noiseFloorDb + marginDb);
+    if (above) {
+      belowSinceNanos = 0;
+      if (aboveSinceNanos == 0) {
+        aboveSinceNanos = nowNanos;
+      }
+      if (!speaking && nowNanos - aboveSinceNanos >= attackNanos) {
+        speaking = true;
+        endpointSent = false;
+        // Keep the level stream ordered before the transition it explains.
+        flush();
+        sink.onVoiceActivity(true, nowNanos);
+      }
+      return;
+    }
+
+    aboveSinceNanos = 0;
+    if (!speaking) {
+      return;
+    }
+    if (belowSinceNanos == 0) {
+      belowSinceNanos = nowNanos;
+    }
+    if (nowNanos - belowSinceNanos >= hangoverNanos) {
+      speaking = false;
+      flush();
+      sink.onVoiceActivity(false, nowNanos);
+      if (endOnSilence && !endpointSent) {
+        endpointSent = true;
+        sink.onSilenceEndpoint();
+      }
+    }
+  }
+}
@@ -23,59 +23,203 @@ import android.Manifest;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.speech.RecognitionListener;
+import android.speech.RecognitionSupport;
+import android.speech.RecognitionSupportCallback;
 import android.speech.RecognizerIntent;
 import android.speech.SpeechRecognizer;
 import android.util.Log;
 import androidx.core.app.ActivityCompat;
 import com.unity3d.player.UnityPlayer;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-/** Implements STT functionality for Unity objects. */
-public class SpeechToTextPlugin implements IUnityPlugin {
+/**
+ * Implements STT functionality for Unity objects.
+ *
+ * <p>The recognizer is picked per {@code startSpeechToText} call with the {@code "mode"} arg:
+ * {@link #MODE_DEFAULT} uses the system recognition service, which may go to the network; {@link
+ * #MODE_ON_DEVICE} recognizes on device only; {@link #MODE_AUTO} prefers the on-device recognizer
+ * and falls back to the system service, asked to prefer offline recognition, when the on-device one
+ * is unavailable or fails before the user started speaking. The {@code "language"} arg selects the
+ * language, {@code "en-US"} by default. Each result reports the mode it came from with its startup
+ * and final-result latency.
+ */
+public class SpeechToTextPlugin extends ActionTablePlugin {
+  /**
+   * Receives recognizer activity directly on the recognizer callback thread, so native consumers
+   * (e.g. barge-in) can react without a round trip through Unity's main thread. Timestamps come
+   * from {@link SystemClock#elapsedRealtimeNanos()} taken when the recognizer callback fired.
+   */
+  public interface SpeechActivityListener {
+    default void onBeginningOfSpeech(long elapsedRealtimeNanos) {}
+
+    default void onRmsChanged(float rmsdB, long elapsedRealtimeNanos) {}
+
+    default void onEndOfSpeech(long elapsedRealtimeNanos) {}
+
+    default void onPartialResults(String text, long elapsedRealtimeNanos) {}
+
+    default void onResults(String text, long elapsedRealtimeNanos) {}
+
+    default void onError(int errorCode, long elapsedRealtimeNanos) {}
+  }
+
   private static final String TAG = "STTPlugin";
   private static final String ACTION_START_STT = "startSpeechToText";
+  private static final String ACTION_CONFIGURE_EVENTS = "configureEvents";
+  private static final String ACTION_FLUSH_EVENTS = "flushEvents";
+  private static final String ACTION_CHECK_LANGUAGE = "checkLanguage";
+  private static final String ACTION_GET_STATS = "getStats";
 
   private static final String EVENT_RESULT = "STT_Result";
   private static final String EVENT_ERROR = "STT_Error";
   private static final String EVENT_READY = "STT_Ready";
   private static final String EVENT_BEGINNING = "STT_Beginning";
   private static final String EVENT_END = "STT_End";
+  private static final String EVENT_AUDIO_LEVELS = "STT_AudioLevels";
+  private static final String EVENT_VAD = "STT_Vad";
+  private static final String EVENT_PARTIAL = "STT_Partial";
+  private static final String EVENT_LANGUAGE_SUPPORT = "STT_LanguageSupport";
+  private static final String EVENT_STATS = "STT_Stats";
+
+  /** Recognizes with the system recognition service, which may go to the network. */
+  public static final String MODE_DEFAULT = "default";
+  /** Recognizes on device only. */
+  public static final String MODE_ON_DEVICE = "onDevice";
+  /** Recognizes on device when possible, with the system service as the fallback. */
+  public static final String MODE_AUTO = "auto";
+
+  private static final String DEFAULT_LANGUAGE = "en-US";
+  private static final long NANOS_PER_MILLI = 1_000_000L;
+
+  // Coalescing slots: only the latest undelivered partial transcript is sent to Unity.
+  private static final int SLOT_PARTIAL = 0;
+  private static final int SLOT_COUNT = 1;
+
+  // Event type ids and payload layouts used with IPluginBinaryCallback.
+  /** No payload. */
+  public static final int TYPE_READY = 1;
+  /** No payload. */
+  public static final int TYPE_BEGINNING = 2;
+  /** No payload. */
+  public static final int TYPE_END = 3;
+  /** string text, string mode, float32 startupMs, float32 finalMs (negative if unknown). */
+  public static final int TYPE_RESULT = 4;
+  /** int32 errorCode, string error. */
+  public static final int TYPE_ERROR = 5;
+  /** float32 intervalMs, int32 count, float32[count] levels. */
+  public static final int TYPE_AUDIO_LEVELS = 6;
+  /** bool speaking. */
+  public static final int TYPE_VAD = 7;
+  /** string text. */
+  public static final int TYPE_PARTIAL = 8;
+
+  /** Startup and final-result latency of one recognizer mode; only used on the UI thread. */
+  private static final class ModeStats {
+    long sessions;
+    long fallbacks;
+    long startupCount;
+    long totalStartupNanos;
+    long lastStartupNanos;
+    long finalCount;
+    long totalFinalNanos;
+    long lastFinalNanos;
+
+    JSONObject toJson() throws JSONException {
+      JSONObject json = new JSONObject();
+      json.put("Sessions", sessions);
+      json.put("Fallbacks", fallbacks);
+      json.put("MeanStartupMs", meanMs(totalStartupNanos, startupCount));
+      json.put("LastStartupMs", lastStartupNanos / (double) NANOS_PER_MILLI);
+      json.put("MeanFinalMs", meanMs(totalFinalNanos, finalCount));
+      json.put("LastFinalMs", lastFinalNanos / (double) NANOS_PER_MILLI);
+      return json;
+    }
+
+    private static double meanMs(long totalNanos, long count) {
+      return count == 0 ? 0 : totalNanos / (double) count / NANOS_PER_MILLI;
+    }
+  }
 
   private SpeechRecognizer speechRecognizer;
-  private Intent speechRecognizerIntent;
   private Context context;
   private IPluginCallback eventCallback;
+  private IPluginBinaryCallback binaryCallback;
+  private PluginEventDispatcher eventDispatcher;
+  // Events are only sent from the UI thread, so a single writer is reused for all of them.
+  private final PluginEventWriter eventWriter = new PluginEventWriter();
+  private final CopyOnWriteArrayList<SpeechActivityListener> activityListeners =
+      new CopyOnWriteArrayList<>();
+  private AudioLevelMonitor audioLevelMonitor;
+
+  // The running session, written on the UI thread only.
+  private String activeMode = MODE_DEFAULT;
+  private boolean fallbackAllowed;
+  private JSONObject sessionArgs = new JSONObject();
+  private long startNanos;
+  private long readyNanos;
+  private long endOfSpeechNanos;
+  private boolean speechBegan;
+  // Languages found to have no on-device model; auto mode skips the on-device recognizer for them.
+  private final Set<String> missingOnDeviceLanguages = new HashSet<>();
+  private final ModeStats defaultStats = new ModeStats();
+  private final ModeStats onDeviceStats = new ModeStats();
+
+  public SpeechToTextPlugin() {
+    registerAction(
+        ACTION_START_STT,
+        jsonArgs ->
+            UnityPlayer.currentActivity.runOnUiThread(() -> startSpeechToTextInternal(jsonArgs)));
+    // Event delivery actions don't touch the recognizer, so they skip the UI thread hop.
+    registerAction(
+        ACTION_FLUSH_EVENTS,
+        jsonArgs -> {
+          PluginEventDispatcher dispatcher = eventDispatcher;
+          if (dispatcher != null) {
+            dispatcher.flush();
+          }
+        });
+    registerAction(ACTION_CONFIGURE_EVENTS, this::configureEvents);
+    registerAction(
+        ACTION_CHECK_LANGUAGE,
+        jsonArgs -> UnityPlayer.currentActivity.runOnUiThread(() -> checkLanguage(jsonArgs)));
+    registerAction(
+        ACTION_GET_STATS,
+        jsonArgs -> UnityPlayer.currentActivity.runOnUiThread(this::sendStatsEvent));
+  }
 
   @Override
   public void initialize(Context context, IPluginCallback callback) {
     this.context = context;
     this.eventCallback = callback;
-    Log.d(TAG, "SpeechToTextPluginImpl initialized.");
-
-    speechRecognizerIntent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
-    speechRecognizerIntent.putExtra(
-        RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
-    speechRecognizerIntent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, "en-US");
-    speechRecognizerIntent.putExtra(RecognizerIntent.EXTRA_PROMPT, "Speak now");
+    this.binaryCallback =
+        callback instanceof IPluginBinaryCallback ? (IPluginBinaryCallback) callback : null;
+    this.eventDispatcher = new PluginEventDispatcher(callback, SLOT_COUNT);
+    Log.d(
+        TAG,
+        "SpeechToTextPluginImpl initialized (binary events: " + (binaryCallback != null) + ").");
   }
 
   @Override
-  public void callAction(String actionName, String jsonArgs) {
-    Log.d(TAG, "callAction received: " + actionName + " with args: " + jsonArgs);
+  protected String getTag() {
+    return TAG;
+  }
 
-    UnityPlayer.currentActivity.runOnUiThread(
-        () -> {
-          if (ACTION_START_STT.equals(actionName)) {
-            startSpeechToTextInternal();
-          } else {
-            Log.w(TAG, "Unknown action requested: " + actionName);
-            sendErrorEvent("Unknown action: " + actionName, -1);
-          }
-        });
+  @Override
+  protected void onActionFailed(String actionName, String errorMessage) {
+    // Events are written on the UI thread only, see eventWriter.
+    UnityPlayer.currentActivity.runOnUiThread(() -> sendErrorEvent(errorMessage, -1));
   }
 
   @Override
@@ -93,9 +237,25 @@ public class SpeechToTextPlugin implements IUnityPlugin {
         });
     this.context = null;
     this.eventCallback = null;
+    this.binaryCallback = null;
+    if (eventDispatcher != null) {
+      eventDispatcher.shutdown();
+      eventDispatcher = null;
+    }
+    activityListeners.clear();
+  }
+
+  /** Registers a native listener for recognizer activity. */
+  public void addSpeechActivityListener(SpeechActivityListener listener) {
+    activityListeners.addIfAbsent(listener);
+  }
+
+  /** Removes a listener previously added with {@link #addSpeechActivityListener}. */
+  public void removeSpeechActivityListener(SpeechActivityListener listener) {
+    activityListeners.remove(listener);
   }
 
-  private void startSpeechToTextInternal() {
+  private void startSpeechToTextInternal(String jsonArgs) {
     if (eventCallback == null) {
       Log.e(TAG, "Cannot start STT, callback is null.");
       return;
@@ -115,15 +275,54 @@ public class SpeechToTextPlugin implements IUnityPlugin {
       return;
     }
 
+    JSONObject args = parseArgs(jsonArgs);
+    String mode = args.optString("mode", MODE_DEFAULT);
+    String language = args.optString("language", DEFAULT_LANGUAGE);
+    boolean onDeviceAvailable = SpeechRecognizer.isOnDeviceRecognitionAvailable(context);
+    boolean onDevice;
+    switch (mode) {
+      case MODE_DEFAULT:
+        onDevice = false;
+        break;
+      case MODE_ON_DEVICE:
+        if (!onDeviceAvailable) {
+          Log.e(TAG, "On-device recognition is not available.");
+          sendErrorEvent(
+              "On-device recognition is not available",
+              SpeechRecognizer.ERROR_LANGUAGE_UNAVAILABLE);
+          return;
+        }
+        onDevice = true;
+        break;
+      case MODE_AUTO:
+        onDevice = onDeviceAvailable && !missingOnDeviceLanguages.contains(languageKey(language));
+        break;
+      default:
+        Log.e(TAG, "Unknown recognizer mode: " + mode);
+        sendErrorEvent("Unknown recognizer mode: " + mode, -1);
+        return;
+    }
+
+    fallbackAllowed = MODE_AUTO.equals(mode);
+    sessionArgs = args;
+    configureAudioLevelMonitor(args);
+    startRecognizer(onDevice);
+  }
+
+  /** Starts listening with a new recognizer for {@link #sessionArgs}. */
+  private void startRecognizer(boolean onDevice) {
     if (speechRecognizer != null) {
       speechRecognizer.destroy();
       speechRecognizer = null;
     }
 
     try {
-      speechRecognizer = SpeechRecognizer.createSpeechRecognizer(context);
+      speechRecognizer =
+          onDevice
+              ? SpeechRecognizer.createOnDeviceSpeechRecognizer(context)
+              : SpeechRecognizer.createSpeechRecognizer(context);
       if (speechRecognizer == null) {
-        Log.e(TAG, "SpeechRecognizer.createSpeechRecognizer returned null");
+        Log.e(TAG, "Creating the SpeechRecognizer returned null");
         sendErrorEvent("Failed to create SpeechRecognizer instance.", -1);
         return;
       }
@@ -133,33 +332,240 @@ public class SpeechToTextPlugin implements IUnityPlugin {
       return;
     }
 
+    activeMode = onDevice ? MODE_ON_DEVICE : MODE_DEFAULT;
+    statsFor(activeMode).sessions++;
+    startNanos = SystemClock.elapsedRealtimeNanos();
+    readyNanos = 0;
+    endOfSpeechNanos = 0;
+    speechBegan = false;
     speechRecognizer.setRecognitionListener(recognitionListener);
-    speechRecognizer.startListening(speechRecognizerIntent);
-    Log.d(TAG, "SpeechRecognizer started listening.");
+    speechRecognizer.startListening(newRecognizerIntent(sessionArgs, onDevice));
+    Log.d(TAG, "SpeechRecognizer started listening (" + activeMode + ").");
   }
 
+  private Intent newRecognizerIntent(JSONObject args, boolean onDevice) {
+    Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
+    intent.putExtra(
+        RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
+    intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, args.optString("language", DEFAULT_LANGUAGE));
+    intent.putExtra(RecognizerIntent.EXTRA_PROMPT, "Speak now");
+    intent.putExtra(
+        RecognizerIntent.EXTRA_PARTIAL_RESULTS, args.optBoolean("partialResults", false));
+    // The system service may still recognize offline if it has a model, which saves a round trip.
+    if (!onDevice && args.optBoolean("preferOffline", fallbackAllowed)) {
+      intent.putExtra(RecognizerIntent.EXTRA_PREFER_OFFLINE, true);
+    }
+    return intent;
+  }
+
+  /**
+   * Reports whether the on-device recognizer has a model for {@code "language"} in an {@code
+   * STT_LanguageSupport} event, and with {@code "download":true} asks the system to download a
+   * supported model that is missing. Checking needs Android 13; on older versions the event only
+   * says whether on-device recognition is available at all.
+   */
+  private void checkLanguage(String jsonArgs) {
+    if (context == null) {
+      Log.e(TAG, "Cannot check the language, context is null.");
+      return;
+    }
+    JSONObject args = parseArgs(jsonArgs);
+    String language = args.optString("language", DEFAULT_LANGUAGE);
+    boolean available = SpeechRecognizer.isOnDeviceRecognitionAvailable(context);
+    if (!available || Build.VERSION.SDK_INT < Build.VERSION_CODES.TIRAMISU) {
+      sendLanguageSupportEvent(language, available, false, false, false, false, false);
+      return;
+    }
+
+    SpeechRecognizer checker = SpeechRecognizer.createOnDeviceSpeechRecognizer(context);
+    Intent intent = newRecognizerIntent(args, true);
+    checker.checkRecognitionSupport(
+        intent,
+        context.getMainExecutor(),
+        new RecognitionSupportCallback() {
+          @Override
+          public void onSupportResult(RecognitionSupport support) {
+            boolean installed = containsLanguage(support.getInstalledOnDeviceLanguages(), language);
+            boolean pending = containsLanguage(support.getPendingOnDeviceLanguages(), language);
+            boolean supported =
+                installed || containsLanguage(support.getSupportedOnDeviceLanguages(), language);
+            if (installed) {
+              missingOnDeviceLanguages.remove(languageKey(language));
+            } else {
+              missingOnDeviceLanguages.add(languageKey(language));
+            }
+            boolean download = !installed && !pending && supported && args.optBoolean("download");
+            if (download) {
+              Log.d(TAG, "Requesting the on-device model for " + language);
+              checker.triggerModelDownload(intent);
+            }
+            checker.destroy();
+            sendLanguageSupportEvent(
+                language, true, true, installed, pending, supported, download);
+          }
+
+          @Override
+          public void onError(int error) {
+            checker.destroy();
+            Log.e(TAG, "Could not check on-device support: " + getErrorText(error));
+            sendLanguageSupportEvent(language, true, false, false, false, false, false);
+          }
+        });
+  }
+
+  private static boolean containsLanguage(List<String> languages, String language) {
+    for (String candidate : languages) {
+      if (languageKey(candidate).equals(languageKey(language))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Recognizers report tags as either en-US or en_us, so languages are compared normalized.
+  private static String languageKey(String language) {
+    return language.replace('_', '-').toLowerCase(Locale.ROOT);
+  }
+
+  private ModeStats statsFor(String mode) {
+    return MODE_ON_DEVICE.equals(mode) ? onDeviceStats : defaultStats;
+  }
+
+  /**
+   * Whether the on-device recognizer failed in a way the system service may not, before the user
+   * said anything that would be lost by starting over.
+   */
+  private boolean shouldFallBack(int error) {
+    if (!fallbackAllowed || speechBegan || !MODE_ON_DEVICE.equals(activeMode)) {
+      return false;
+    }
+    switch (error) {
+      case SpeechRecognizer.ERROR_LANGUAGE_NOT_SUPPORTED:
+      case SpeechRecognizer.ERROR_LANGUAGE_UNAVAILABLE:
+      case SpeechRecognizer.ERROR_CLIENT:
+      case SpeechRecognizer.ERROR_RECOGNIZER_BUSY:
+      case SpeechRecognizer.ERROR_SERVER:
+      case SpeechRecognizer.ERROR_SERVER_DISCONNECTED:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static JSONObject parseArgs(String jsonArgs) {
+    if (jsonArgs == null || jsonArgs.isEmpty()) {
+      return new JSONObject();
+    }
+    try {
+      return new JSONObject(jsonArgs);
+    } catch (JSONException e) {
+      Log.e(TAG, "JSONException parsing action args: " + e.getMessage());
+      return new JSONObject();
+    }
+  }
+
+  private void configureEvents(String jsonArgs) {
+    JSONObject args = parseArgs(jsonArgs);
+    PluginEventDispatcher dispatcher = eventDispatcher;
+    if (dispatcher == null) {
+      Log.w(TAG, "Cannot configure events, plugin is not initialized.");
+      return;
+    }
+    try {
+      dispatcher.configure(
+          args.optString("mode", PluginEventDispatcher.MODE_INTERVAL),
+          args.optLong("intervalMs", 16));
+    } catch (IllegalArgumentException e) {
+      Log.e(TAG, "Invalid event configuration: " + e.getMessage());
+      onActionFailed(ACTION_CONFIGURE_EVENTS, "Invalid event configuration: " + e.getMessage());
+    }
+  }
+
+  private void configureAudioLevelMonitor(JSONObject args) {
+    if (audioLevelMonitor != null) {
+      removeSpeechActivityListener(audioLevelMonitor);
+      audioLevelMonitor = null;
+    }
+    audioLevelMonitor = AudioLevelMonitor.fromArgs(audioLevelSink, args);
+    if (audioLevelMonitor != null) {
+      addSpeechActivityListener(audioLevelMonitor);
+    }
+  }
+
+  private final AudioLevelMonitor.Sink audioLevelSink =
+      new AudioLevelMonitor.Sink() {
+        @Override
+        public void onAudioLevels(float[] levels, int count, float intervalMs) {
+          sendAudioLevelsEvent(levels, count, intervalMs);
+        }
+
+        @Override
+        public void onVoiceActivity(boolean speaking, long elapsedRealtimeNanos) {
+          sendVadEvent(speaking);
+        }
+
+        @Override
+        public void onSilenceEndpoint() {
+          // Ending on our own endpoint frees the recognizer before its own silence timeout.
+          if (speechRecognizer != null) {
+            Log.d(TAG, "VAD detected trailing silence, stopping recognizer.");
+            speechRecognizer.stopListening();
+          }
+        }
+      };
+
   private final RecognitionListener recognitionListener =
       new RecognitionListener() {
         @Override
         public void onReadyForSpeech(Bundle bundle) {
-          Log.d(TAG, "onReadyForSpeech");
-          sendSimpleEvent(EVENT_READY);
+          readyNanos = SystemClock.elapsedRealtimeNanos();
+          ModeStats stats = statsFor(activeMode);
+          stats.lastStartupNanos = readyNanos - startNanos;
+          stats.totalStartupNanos += stats.lastStartupNanos;
+          stats.startupCount++;
+          Log.d(TAG, "onReadyForSpeech after " + stats.lastStartupNanos / NANOS_PER_MILLI + " ms");
+          sendSimpleEvent(EVENT_READY, TYPE_READY);
         }
 
         @Override
         public void onBeginningOfSpeech() {
+          long now = SystemClock.elapsedRealtimeNanos();
+          speechBegan = true;
+          for (SpeechActivityListener listener : activityListeners) {
+            listener.onBeginningOfSpeech(now);
+          }
           Log.d(TAG, "onBeginningOfSpeech");
-          sendSimpleEvent(EVENT_BEGINNING);
+          sendSimpleEvent(EVENT_BEGINNING, TYPE_BEGINNING);
         }
 
         @Override
         public void onEndOfSpeech() {
+          long now = SystemClock.elapsedRealtimeNanos();
+          endOfSpeechNanos = now;
+          for (SpeechActivityListener listener : activityListeners) {
+            listener.onEndOfSpeech(now);
+          }
           Log.d(TAG, "onEndOfSpeech");
-          sendSimpleEvent(EVENT_END);
+          sendSimpleEvent(EVENT_END, TYPE_END);
         }
 
         @Override
         public void onError(int error) {
+          if (shouldFallBack(error)) {
+            Log.w(TAG, "On-device recognizer failed (" + error + "), falling back.");
+            if (error == SpeechRecognizer.ERROR_LANGUAGE_NOT_SUPPORTED
+                || error == SpeechRecognizer.ERROR_LANGUAGE_UNAVAILABLE) {
+              missingOnDeviceLanguages.add(
+                  languageKey(sessionArgs.optString("language", DEFAULT_LANGUAGE)));
+            }
+            onDeviceStats.fallbacks++;
+            startRecognizer(false);
+            return;
+          }
+          long now = SystemClock.elapsedRealtimeNanos();
+          for (SpeechActivityListener listener : activityListeners) {
+            listener.onError(error, now);
+          }
           String errorMessage = getErrorText(error);
           Log.e(TAG, "onError: " + errorMessage + " (" + error + ")");
           sendErrorEvent(errorMessage, error);
@@ -178,18 +584,51 @@ public class SpeechToTextPlugin implements IUnityPlugin {
 
             textResult = "";
           }
-          sendResultEvent(textResult);
+          long now = SystemClock.elapsedRealtimeNanos();
+          for (SpeechActivityListener listener : activityListeners) {
+            listener.onResults(textResult, now);
+          }
+          ModeStats stats = statsFor(activeMode);
+          long finalNanos = endOfSpeechNanos == 0 ? -1 : now - endOfSpeechNanos;
+          if (finalNanos >= 0) {
+            stats.lastFinalNanos = finalNanos;
+            stats.totalFinalNanos += finalNanos;
+            stats.finalCount++;
+          }
+          sendResultEvent(
+              textResult,
+              activeMode,
+              readyNanos == 0 ? -1f : (readyNanos - startNanos) / (float) NANOS_PER_MILLI,
+              finalNanos / (float) NANOS_PER_MILLI);
         }
 
         @Override
-        public void onRmsChanged(float rmsdB) {}
+        public void onRmsChanged(float rmsdB) {
+          if (activityListeners.isEmpty()) {
+            return;
+          }
+          long now = SystemClock.elapsedRealtimeNanos();
+          for (SpeechActivityListener listener : activityListeners) {
+            listener.onRmsChanged(rmsdB, now);
+          }
+        }
 
         @Override
         public void onBufferReceived(byte[] bytes) {}
 
         @Override
         public void onPartialResults(Bundle partialResults) {
-          Log.d(TAG, "onPartialResults received");
+          ArrayList<String> matches =
+              partialResults.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+          if (matches == null || matches.isEmpty() || matches.get(0).isEmpty()) {
+            return;
+          }
+          String partialText = matches.get(0);
+          long now = SystemClock.elapsedRealtimeNanos();
+          for (SpeechActivityListener listener : activityListeners) {
+            listener.onPartialResults(partialText, now);
+          }
+          sendPartialEvent(partialText);
         }
 
         @Override
@@ -199,11 +638,16 @@ public class SpeechToTextPlugin implements IUnityPlugin {
       };
 
   private void sendEvent(String jsonPayload) {
-    if (eventCallback != null) {
+    sendEvent(jsonPayload, PluginEventDispatcher.NO_SLOT);
+  }
+
+  private void sendEvent(String jsonPayload, int slot) {
+    PluginEventDispatcher dispatcher = eventDispatcher;
+    if (eventCallback != null && dispatcher != null) {
       Log.d(TAG, "Sending event: " + jsonPayload);
 
       try {
-        eventCallback.OnEvent(jsonPayload);
+        dispatcher.post(jsonPayload, slot);
       } catch (Exception e) {
 
         Log.e(TAG, "Exception sending event to Unity: " + e.getMessage());
@@ -213,7 +657,28 @@ public class SpeechToTextPlugin implements IUnityPlugin {
     }
   }
 
-  private void sendSimpleEvent(String eventName) {
+  private void sendBinaryEvent(int eventType, PluginEventWriter payload) {
+    sendBinaryEvent(eventType, payload, PluginEventDispatcher.NO_SLOT);
+  }
+
+  private void sendBinaryEvent(int eventType, PluginEventWriter payload, int slot) {
+    PluginEventDispatcher dispatcher = eventDispatcher;
+    if (binaryCallback == null || dispatcher == null) {
+      Log.w(TAG, "Cannot send binary event, callback is null.");
+      return;
+    }
+    try {
+      dispatcher.postBinary(eventType, System.currentTimeMillis(), payload.toByteArray(), slot);
+    } catch (Exception e) {
+      Log.e(TAG, "Exception sending binary event to Unity: " + e.getMessage());
+    }
+  }
+
+  private void sendSimpleEvent(String eventName, int eventType) {
+    if (binaryCallback != null) {
+      sendBinaryEvent(eventType, eventWriter.reset());
+      return;
+    }
     JSONObject data = new JSONObject();
     try {
       data.put("Event", eventName);
@@ -224,11 +689,25 @@ public class SpeechToTextPlugin implements IUnityPlugin {
     }
   }
 
-  private void sendResultEvent(String text) {
+  private void sendResultEvent(String text, String mode, float startupMs, float finalMs) {
+    if (binaryCallback != null) {
+      sendBinaryEvent(
+          TYPE_RESULT,
+          eventWriter
+              .reset()
+              .writeString(text)
+              .writeString(mode)
+              .writeFloat(startupMs)
+              .writeFloat(finalMs));
+      return;
+    }
     JSONObject data = new JSONObject();
     try {
       data.put("Event", EVENT_RESULT);
       data.put("Text", text);
+      data.put("Mode", mode);
+      data.put("StartupMs", (double) startupMs);
+      data.put("FinalMs", (double) finalMs);
       data.put("Timestamp", System.currentTimeMillis());
       sendEvent(data.toString());
     } catch (JSONException e) {
@@ -236,7 +715,104 @@ public class SpeechToTextPlugin implements IUnityPlugin {
     }
   }
 
+  private void sendPartialEvent(String text) {
+    if (binaryCallback != null) {
+      sendBinaryEvent(TYPE_PARTIAL, eventWriter.reset().writeString(text), SLOT_PARTIAL);
+      return;
+    }
+    JSONObject data = new JSONObject();
+    try {
+      data.put("Event", EVENT_PARTIAL);
+      data.put("Text", text);
+      data.put("Timestamp", System.currentTimeMillis());
+      sendEvent(data.toString(), SLOT_PARTIAL);
+    } catch (JSONException e) {
+      Log.e(TAG, "JSONException creating partial result event: " + e.getMessage());
+    }
+  }
+
+  private void sendAudioLevelsEvent(float[] levels, int count, float intervalMs) {
+    if (binaryCallback != null) {
+      sendBinaryEvent(
+          TYPE_AUDIO_LEVELS, eventWriter.reset().writeFloat(intervalMs).writeFloats(levels, count));
+      return;
+    }
+    JSONObject data = new JSONObject();
+    try {
+      JSONArray levelArray = new JSONArray();
+      for (int i = 0; i < count; i++) {
+        levelArray.put((double) levels[i]);
+      }
+      data.put("Event", EVENT_AUDIO_LEVELS);
+      data.put("Levels", levelArray);
+      data.put("IntervalMs", (double) intervalMs);
+      data.put("Timestamp", System.currentTimeMillis());
+      sendEvent(data.toString());
+    } catch (JSONException e) {
+      Log.e(TAG, "JSONException creating audio levels event: " + e.getMessage());
+    }
+  }
+
+  private void sendVadEvent(boolean speaking) {
+    if (binaryCallback != null) {
+      sendBinaryEvent(TYPE_VAD, eventWriter.reset().writeBoolean(speaking));
+      return;
+    }
+    JSONObject data = new JSONObject();
+    try {
+      data.put("Event", EVENT_VAD);
+      data.put("Speaking", speaking);
+      data.put("Timestamp", System.currentTimeMillis());
+      sendEvent(data.toString());
+    } catch (JSONException e) {
+      Log.e(TAG, "JSONException creating VAD event: " + e.getMessage());
+    }
+  }
+
+  private void sendLanguageSupportEvent(
+      String language,
+      boolean onDeviceAvailable,
+      boolean checked,
+      boolean installed,
+      boolean pending,
+      boolean supported,
+      boolean downloadRequested) {
+    JSONObject data = new JSONObject();
+    try {
+      data.put("Event", EVENT_LANGUAGE_SUPPORT);
+      data.put("Language", language);
+      data.put("OnDeviceAvailable", onDeviceAvailable);
+      data.put("Checked", checked);
+      data.put("Installed", installed);
+      data.put("Pending", pending);
+      data.put("Supported", supported);
+      data.put("DownloadRequested", downloadRequested);
+      data.put("Timestamp", System.currentTimeMillis());
+      sendEvent(data.toString());
+    } catch (JSONException e) {
+      Log.e(TAG, "JSONException creating language support event: " + e.getMessage());
+    }
+  }
+
+  private void sendStatsEvent() {
+    JSONObject data = new JSONObject();
+    try {
+      data.put("Event", EVENT_STATS);
+      data.put("Default", defaultStats.toJson());
+      data.put("OnDevice", onDeviceStats.toJson());
+      data.put("Timestamp", System.currentTimeMillis());
+      sendEvent(data.toString());
+    } catch (JSONException e) {
+      Log.e(TAG, "JSONException creating stats event: " + e.getMessage());
+    }
+  }
+
   private void sendErrorEvent(String errorMessage, int errorCode) {
+    if (binaryCallback != null) {
+      sendBinaryEvent(
+          TYPE_ERROR, eventWriter.reset().writeInt(errorCode).writeString(errorMessage));
+      return;
+    }
     JSONObject data = new JSONObject();
     try {
       data.put("Event", EVENT_ERROR);
@@ -280,6 +856,18 @@ public class SpeechToTextPlugin implements IUnityPlugin {
       case SpeechRecognizer.ERROR_SPEECH_TIMEOUT:
         message = "No speech input timeout";
         break;
+      case SpeechRecognizer.ERROR_TOO_MANY_REQUESTS:
+        message = "Too many requests";
+        break;
+      case SpeechRecognizer.ERROR_SERVER_DISCONNECTED:
+        message = "Recognition service disconnected";
+        break;
+      case SpeechRecognizer.ERROR_LANGUAGE_NOT_SUPPORTED:
+        message = "Language not supported";
+        break;
+      case SpeechRecognizer.ERROR_LANGUAGE_UNAVAILABLE:
+        message = "Language model not available";
+        break;
       default:
         message = "Unknown speech error";
         break;
@@ -0,0 +1,40 @@
+// <copyright file="SpeechToTextAudioLevels.cs" company="Google LLC">
+//
+// Copyright 2025 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// </copyright>
+// ----------------------------------------------------------------------
+
+using System;
+
+namespace AndroidXRUnitySamples.Gemini
+{
+    /// <summary>
+    /// Represents a batch of decimated audio levels from the Speech-to-Text service.
+    /// </summary>
+    [Serializable]
+    public class SpeechToTextAudioLevels : BasePluginEvent
+    {
+        /// <summary>
+        /// Gets or sets the peak RMS level in dB of each interval, oldest first.
+        /// </summary>
+        public float[] Levels;
+
+        /// <summary>
+        /// Gets or sets the length in milliseconds of the interval each level covers.
+        /// </summary>
+        public float IntervalMs;
+    }
+}
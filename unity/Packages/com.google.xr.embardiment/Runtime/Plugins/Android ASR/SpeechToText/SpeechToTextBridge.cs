@@ -18,6 +18,8 @@
 // ----------------------------------------------------------------------
 
 using System;
+using System.IO;
+using System.Text;
 using UnityEngine;
 
 namespace AndroidXRUnitySamples.Gemini
@@ -34,15 +36,43 @@ namespace AndroidXRUnitySamples.Gemini
         private const string _javaCallbackInterfaceName =
             "com.google.xr.androidxrunitysamples.java.IPluginCallback";
 
+        private const string _javaBinaryCallbackInterfaceName =
+            "com.google.xr.androidxrunitysamples.java.IPluginBinaryCallback";
+
         private const string _actionStartStt = "startSpeechToText";
+        private const string _actionConfigureEvents = "configureEvents";
+        private const string _actionFlushEvents = "flushEvents";
+        private const string _actionCheckLanguage = "checkLanguage";
+        private const string _actionGetStats = "getStats";
+
+        // The name PluginHost registers the recognizer under, and the prefix of its events.
+        private const string _hostPluginName = "asr";
+        private const string _eventPrefix = "STT";
 
         private const string _eventResult = "STT_Result";
         private const string _eventError = "STT_Error";
         private const string _eventReady = "STT_Ready";
         private const string _eventBeginning = "STT_Beginning";
         private const string _eventEnd = "STT_End";
+        private const string _eventAudioLevels = "STT_AudioLevels";
+        private const string _eventVad = "STT_Vad";
+        private const string _eventPartial = "STT_Partial";
+        private const string _eventLanguageSupport = "STT_LanguageSupport";
+        private const string _eventStats = "STT_Stats";
+
+        // Must match the TYPE_* ids in SpeechToTextPlugin.java and PluginEventDispatcher.java.
+        private const int _typeBatch = 0;
+        private const int _typeReady = 1;
+        private const int _typeBeginning = 2;
+        private const int _typeEnd = 3;
+        private const int _typeResult = 4;
+        private const int _typeError = 5;
+        private const int _typeAudioLevels = 6;
+        private const int _typeVad = 7;
+        private const int _typePartial = 8;
 
         private AndroidJavaObject _pluginInstance;
+        private PluginHostBridge _host;
         private PluginCallbackProxy _callbackProxy;
         private bool _isInitialized;
         private bool _isDisposed;
@@ -51,7 +81,17 @@ namespace AndroidXRUnitySamples.Gemini
         /// Initializes a new instance of the <see cref="SpeechToTextBridge"/> class.
         /// Sets up the bridge between Unity and Android's Speech-to-Text functionality.
         /// </summary>
-        public SpeechToTextBridge()
+        public SpeechToTextBridge() : this(false)
+        {
+        }
+
+        /// <summary>
+        /// Initializes a new instance of the <see cref="SpeechToTextBridge"/> class.
+        /// Sets up the bridge between Unity and Android's Speech-to-Text functionality.
+        /// </summary>
+        /// <param name="useBinaryEvents">True to receive events as typed binary payloads
+        /// instead of JSON strings, which avoids JSON work on both sides of the bridge.</param>
+        public SpeechToTextBridge(bool useBinaryEvents)
         {
             if (Application.platform != RuntimePlatform.Android)
             {
@@ -61,7 +101,9 @@ namespace AndroidXRUnitySamples.Gemini
 
             try
             {
-                _callbackProxy = new PluginCallbackProxy(this);
+                _callbackProxy = new PluginCallbackProxy(
+                    this,
+                    useBinaryEvents ? _javaBinaryCallbackInterfaceName : _javaCallbackInterfaceName);
                 using (var unityPlayer = new AndroidJavaClass(
                     "com.unity3d.player.UnityPlayer"))
                 {
@@ -95,6 +137,28 @@ namespace AndroidXRUnitySamples.Gemini
             }
         }
 
+        /// <summary>
+        /// Initializes a new instance of the <see cref="SpeechToTextBridge"/> class that uses
+        /// the recognizer of a <see cref="PluginHostBridge"/>. Actions run on the host's thread
+        /// pool and events arrive as JSON; the host keeps owning the recognizer.
+        /// </summary>
+        /// <param name="host">The host whose recognizer to use.</param>
+        public SpeechToTextBridge(PluginHostBridge host)
+        {
+            if (host == null || !host.IsInitialized)
+            {
+                Debug.LogError("SpeechToTextBridge needs an initialized PluginHostBridge.");
+                return;
+            }
+
+            _host = host;
+            _callbackProxy = new PluginCallbackProxy(this, _javaCallbackInterfaceName);
+            _pluginInstance = host.SpeechToText;
+            host.SetEventListener(_eventPrefix, _callbackProxy.OnEvent);
+            _isInitialized = _pluginInstance != null;
+            Debug.Log("SpeechToTextBridge initialized on the plugin host.");
+        }
+
         ~SpeechToTextBridge()
         {
             Dispose(false);
@@ -120,21 +184,64 @@ namespace AndroidXRUnitySamples.Gemini
         /// </summary>
         public event Action<SpeechToTextResult> OnResult;
 
+        /// <summary>
+        /// Event fired with the latest partial transcript, when requested in the start args.
+        /// </summary>
+        public event Action<SpeechToTextResult> OnPartialResult;
+
         /// <summary>
         /// Event fired when an error occurs during speech recognition.
         /// </summary>
         public event Action<SpeechToTextError> OnError;
 
+        /// <summary>
+        /// Event fired with a batch of decimated audio levels, when requested in the start args.
+        /// </summary>
+        public event Action<SpeechToTextAudioLevels> OnAudioLevels;
+
+        /// <summary>
+        /// Event fired when the native voice activity detector sees speech start or stop.
+        /// </summary>
+        public event Action<bool> OnVoiceActivity;
+
+        /// <summary>
+        /// Event fired with the on-device model status of a language, see CheckLanguage.
+        /// </summary>
+        public event Action<SpeechToTextLanguageSupport> OnLanguageSupport;
+
+        /// <summary>
+        /// Event fired with the per-mode session counts, fallbacks and latencies as JSON, see
+        /// RequestStats.
+        /// </summary>
+        public event Action<string> OnStats;
+
         /// <summary>
         /// Event fired for debug logging purposes.
         /// </summary>
         public event Action<string> OnDebugLog;
 
+        /// <summary>
+        /// Gets the native SpeechToTextPlugin, e.g. for a <see cref="BargeInBridge"/>, or null
+        /// before initialization and after disposal.
+        /// </summary>
+        public AndroidJavaObject PluginInstance => _isInitialized ? _pluginInstance : null;
+
         /// <summary>
         /// Starts the speech recognition process.
         /// Make sure RECORD_AUDIO permission is granted before calling this.
         /// </summary>
         public void StartRecognition()
+        {
+            StartRecognition("{}");
+        }
+
+        /// <summary>
+        /// Starts the speech recognition process with native options, e.g.
+        /// <c>{"audioLevelHz":10,"audioLevelBatch":5,"vad":true,"endOnSilence":true}</c>.
+        /// Make sure RECORD_AUDIO permission is granted before calling this.
+        /// </summary>
+        /// <param name="jsonArgs">JSON object with the recognition options.</param>
+        public void StartRecognition(string jsonArgs)
         {
             if (!_isInitialized || _isDisposed)
             {
@@ -150,7 +257,7 @@ namespace AndroidXRUnitySamples.Gemini
             {
                 OnDebugLog?.Invoke("Requesting StartRecognition...");
 
-                _pluginInstance.Call("callAction", _actionStartStt, "{}");
+                InvokeAction(_actionStartStt, jsonArgs ?? "{}");
             }
             catch (Exception e)
             {
@@ -162,6 +269,52 @@ namespace AndroidXRUnitySamples.Gemini
             }
         }
 
+        /// <summary>
+        /// Configures how native events are batched before crossing into C#.
+        /// </summary>
+        /// <param name="mode">"interval" (default), "direct", "vsync" or "manual". "vsync" follows
+        /// the display, not Unity's frame: use "manual" and call FlushEvents from Update for
+        /// that.</param>
+        /// <param name="intervalMs">The flush interval used by the "interval" mode.</param>
+        public void ConfigureEvents(string mode, int intervalMs = 16)
+        {
+            CallPluginAction(
+                    _actionConfigureEvents,
+                    $"{{\"mode\":\"{mode}\",\"intervalMs\":{intervalMs}}}");
+        }
+
+        /// <summary>
+        /// Checks whether the on-device recognizer has a model for a language; the answer arrives
+        /// as OnLanguageSupport. Needs Android 13 for more than whether on-device recognition is
+        /// available at all.
+        /// </summary>
+        /// <param name="language">A BCP 47 language tag, e.g. "en-US".</param>
+        /// <param name="download">True to ask the system to download a supported model that is
+        /// not installed yet.</param>
+        public void CheckLanguage(string language, bool download = false)
+        {
+            string downloadArg = download ? "true" : "false";
+            CallPluginAction(
+                    _actionCheckLanguage,
+                    $"{{\"language\":\"{language}\",\"download\":{downloadArg}}}");
+        }
+
+        /// <summary>
+        /// Requests the recognizer stats, which arrive as OnStats.
+        /// </summary>
+        public void RequestStats()
+        {
+            CallPluginAction(_actionGetStats, "{}");
+        }
+
+        /// <summary>
+        /// Delivers all queued native events, for the "manual" event mode.
+        /// </summary>
+        public void FlushEvents()
+        {
+            CallPluginAction(_actionFlushEvents, "{}");
+        }
+
         /// <inheritdoc/>
         public void Dispose()
         {
@@ -181,7 +334,16 @@ namespace AndroidXRUnitySamples.Gemini
                 return;
             }
 
-            if (_isInitialized && _pluginInstance != null)
+            if (_host != null)
+            {
+                // The recognizer belongs to the host, which destroys it.
+                _host.SetEventListener(_eventPrefix, null);
+                _pluginInstance?.Dispose();
+                _pluginInstance = null;
+                _isInitialized = false;
+                _host = null;
+            }
+            else if (_isInitialized && _pluginInstance != null)
             {
                 try
                 {
@@ -206,18 +368,180 @@ namespace AndroidXRUnitySamples.Gemini
             _isDisposed = true;
         }
 
+        private void CallPluginAction(string actionName, string jsonArgs)
+        {
+            if (!_isInitialized || _isDisposed)
+            {
+                return;
+            }
+
+            try
+            {
+                InvokeAction(actionName, jsonArgs);
+            }
+            catch (Exception e)
+            {
+                Debug.LogError($"Error calling {actionName}: {e.Message}\n{e.StackTrace}");
+            }
+        }
+
+        private void InvokeAction(string actionName, string jsonArgs)
+        {
+            if (_host != null)
+            {
+                _host.CallAction(_hostPluginName + "." + actionName, jsonArgs);
+            }
+            else
+            {
+                _pluginInstance.Call("callAction", actionName, jsonArgs);
+            }
+        }
+
         private class PluginCallbackProxy : AndroidJavaProxy
         {
             private readonly SpeechToTextBridge _owner;
 
-            public PluginCallbackProxy(SpeechToTextBridge owner) : base(_javaCallbackInterfaceName)
+            public PluginCallbackProxy(SpeechToTextBridge owner, string interfaceName)
+                : base(interfaceName)
             {
                 _owner = owner;
             }
 
             public void OnEvent(string jsonPayload)
             {
-                UnityMainThreadDispatcher.Instance?.Enqueue(() => ProcessEvent(jsonPayload));
+                UnityMainThreadDispatcher.Instance?.Enqueue(() => ProcessEvents(jsonPayload));
+            }
+
+            public void OnEventBinary(int eventType, long timestampMs, AndroidJavaObject payload)
+            {
+                byte[] bytes = payload == null
+                        ? Array.Empty<byte>()
+                        : AndroidJNIHelper.ConvertFromJNIArray<byte[]>(payload.GetRawObject());
+                payload?.Dispose();
+                UnityMainThreadDispatcher.Instance?.Enqueue(
+                        () => ProcessBinaryEvent(eventType, timestampMs, bytes));
+            }
+
+            private static string ReadString(BinaryReader reader)
+            {
+                int length = reader.ReadInt32();
+                return length == 0 ? string.Empty : Encoding.UTF8.GetString(reader.ReadBytes(length));
+            }
+
+            private void ProcessBinaryEvent(int eventType, long timestampMs, byte[] payload)
+            {
+                if (_owner._isDisposed)
+                {
+                    return;
+                }
+
+                try
+                {
+                    using (var reader = new BinaryReader(new MemoryStream(payload)))
+                    {
+                        switch (eventType)
+                        {
+                            case _typeReady:
+                                _owner.OnReadyForSpeech?.Invoke();
+                                break;
+                            case _typeBeginning:
+                                _owner.OnBeginningOfSpeech?.Invoke();
+                                break;
+                            case _typeEnd:
+                                _owner.OnEndOfSpeech?.Invoke();
+                                break;
+                            case _typeResult:
+                                _owner.OnResult?.Invoke(new SpeechToTextResult
+                                {
+                                        Event = _eventResult,
+                                        Timestamp = timestampMs,
+                                        Text = ReadString(reader),
+                                        Mode = ReadString(reader),
+                                        StartupMs = reader.ReadSingle(),
+                                        FinalMs = reader.ReadSingle()
+                                });
+                                break;
+                            case _typeError:
+                                int errorCode = reader.ReadInt32();
+                                _owner.OnError?.Invoke(new SpeechToTextError
+                                {
+                                        Event = _eventError,
+                                        Timestamp = timestampMs,
+                                        ErrorCode = errorCode,
+                                        Error = ReadString(reader)
+                                });
+                                break;
+                            case _typeAudioLevels:
+                                float intervalMs = reader.ReadSingle();
+                                var levels = new float[reader.ReadInt32()];
+                                for (int i = 0; i < levels.Length; i++)
+                                {
+                                    levels[i] = reader.ReadSingle();
+                                }
+
+                                _owner.OnAudioLevels?.Invoke(new SpeechToTextAudioLevels
+                                {
+                                        Event = _eventAudioLevels,
+                                        Timestamp = timestampMs,
+                                        IntervalMs = intervalMs,
+                                        Levels = levels
+                                });
+                                break;
+                            case _typeVad:
+                                _owner.OnVoiceActivity?.Invoke(reader.ReadBoolean());
+                                break;
+                            case _typePartial:
+                                _owner.OnPartialResult?.Invoke(new SpeechToTextResult
+                                {
+                                        Event = _eventPartial,
+                                        Timestamp = timestampMs,
+                                        Text = ReadString(reader)
+                                });
+                                break;
+                            case _typeBatch:
+                                int count = reader.ReadInt32();
+                                for (int i = 0; i < count; i++)
+                                {
+                                    int innerType = reader.ReadInt32();
+                                    long innerTimestampMs = reader.ReadInt64();
+                                    byte[] innerPayload = reader.ReadBytes(reader.ReadInt32());
+                                    ProcessBinaryEvent(innerType, innerTimestampMs, innerPayload);
+                                }
+
+                                break;
+                            default:
+                                Debug.LogWarning(
+                                        $"Received unhandled binary plugin event type: {eventType}");
+                                _owner.OnDebugLog?.Invoke($"Unhandled binary event: {eventType}");
+                                break;
+                        }
+                    }
+                }
+                catch (Exception e)
+                {
+                    Debug.LogError(
+                            $"Error processing binary plugin event {eventType} "
+                          + $"on main thread\nError: {e.Message}\n{e.StackTrace}");
+                    _owner.OnError?.Invoke(new SpeechToTextError
+                    {
+                            Error = $"Binary Event Processing Error: {e.Message}", ErrorCode = -1
+                    });
+                }
+            }
+
+            private void ProcessEvents(string jsonPayload)
+            {
+                // Batched JSON events arrive newline separated in a single payload.
+                if (jsonPayload == null || jsonPayload.IndexOf('\n') < 0)
+                {
+                    ProcessEvent(jsonPayload);
+                    return;
+                }
+
+                foreach (string eventPayload in jsonPayload.Split('\n'))
+                {
+                    ProcessEvent(eventPayload);
+                }
             }
 
             private void ProcessEvent(string jsonPayload)
@@ -271,6 +595,43 @@ namespace AndroidXRUnitySamples.Gemini
                                 Debug.LogError($"Failed to parse STT_Result: {jsonPayload}");
                             }
 
+                            break;
+                        case _eventAudioLevels:
+                            var levelData =
+                                    JsonUtility.FromJson<SpeechToTextAudioLevels>(jsonPayload);
+                            if (levelData != null)
+                            {
+                                _owner.OnAudioLevels?.Invoke(levelData);
+                            }
+
+                            break;
+                        case _eventPartial:
+                            var partialData = JsonUtility.FromJson<SpeechToTextResult>(jsonPayload);
+                            if (partialData != null)
+                            {
+                                _owner.OnPartialResult?.Invoke(partialData);
+                            }
+
+                            break;
+                        case _eventVad:
+                            var vadData = JsonUtility.FromJson<SpeechToTextVad>(jsonPayload);
+                            if (vadData != null)
+                            {
+                                _owner.OnVoiceActivity?.Invoke(vadData.Speaking);
+                            }
+
+                            break;
+                        case _eventLanguageSupport:
+                            var supportData =
+                                    JsonUtility.FromJson<SpeechToTextLanguageSupport>(jsonPayload);
+                            if (supportData != null)
+                            {
+                                _owner.OnLanguageSupport?.Invoke(supportData);
+                            }
+
+                            break;
+                        case _eventStats:
+                            _owner.OnStats?.Invoke(jsonPayload);
                             break;
                         case _eventError:
                             var errorData = JsonUtility.FromJson<SpeechToTextError>(jsonPayload);
@@ -0,0 +1,68 @@
+// <copyright file="SpeechToTextLanguageSupport.cs" company="Google LLC">
+//
+// Copyright 2025 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// </copyright>
+// ----------------------------------------------------------------------
+
+using System;
+
+namespace AndroidXRUnitySamples.Gemini
+{
+    /// <summary>
+    /// Represents the on-device model status of a language, as reported by the Speech-to-Text
+    /// service in answer to a language check.
+    /// </summary>
+    [Serializable]
+    public class SpeechToTextLanguageSupport : BasePluginEvent
+    {
+        /// <summary>
+        /// Gets or sets the language that was checked.
+        /// </summary>
+        public string Language;
+
+        /// <summary>
+        /// Gets or sets a value indicating whether the device has an on-device recognizer.
+        /// </summary>
+        public bool OnDeviceAvailable;
+
+        /// <summary>
+        /// Gets or sets a value indicating whether the language could be checked; false before
+        /// Android 13 or when the check failed, which leaves the fields below false.
+        /// </summary>
+        public bool Checked;
+
+        /// <summary>
+        /// Gets or sets a value indicating whether the language's model is installed.
+        /// </summary>
+        public bool Installed;
+
+        /// <summary>
+        /// Gets or sets a value indicating whether the language's model is being downloaded.
+        /// </summary>
+        public bool Pending;
+
+        /// <summary>
+        /// Gets or sets a value indicating whether the language can be recognized on device once
+        /// its model is installed.
+        /// </summary>
+        public bool Supported;
+
+        /// <summary>
+        /// Gets or sets a value indicating whether a download of the model was requested.
+        /// </summary>
+        public bool DownloadRequested;
+    }
+}
@@ -32,5 +32,22 @@ namespace AndroidXRUnitySamples.Gemini
         /// Gets or sets the transcribed text from the speech recognition.
         /// </summary>
         public string Text;
+
+        /// <summary>
+        /// Gets or sets the recognizer that produced a final result: "onDevice" or "default".
+        /// </summary>
+        public string Mode;
+
+        /// <summary>
+        /// Gets or sets the time from starting to listen until the recognizer was ready, in ms,
+        /// or a negative value if unknown.
+        /// </summary>
+        public float StartupMs;
+
+        /// <summary>
+        /// Gets or sets the time from the end of speech until the final result, in ms, or a
+        /// negative value if unknown.
+        /// </summary>
+        public float FinalMs;
     }
 }
@@ -24,8 +24,30 @@ namespace Google.XR.Embardiment
     {
         public UnityEvent<string> OnComplete;
         public string RecentTranscription;
+        // "auto" recognizes on device when the language's model is installed and falls back to the
+        // system recognition service otherwise; "onDevice" never leaves the device; "default"
+        // always uses the system service, which may go to the network.
+        public string RecognizerMode = "auto";
+        public string Language = "en-US";
+        // Asks the recognizer for partial transcripts while the user speaks, which
+        // AndroidLlm.SpeculateOnPartials starts generating from.
+        public bool PartialResults;
+        // The mode and latencies of the most recent result: from starting to listen until the
+        // recognizer was ready, and from the end of speech until the final result, in ms.
+        public string RecentRecognizerMode;
+        public float RecentStartupMs;
+        public float RecentFinalMs;
+        // Stops BargeInTts as soon as the user starts speaking, or lowers its volume until the
+        // result arrives when BargeInMode is "duck". The stop is issued natively, within the
+        // recognizer's callback, and OnBargeIn receives its measured latency as JSON.
+        public AndroidTts BargeInTts;
+        public string BargeInMode = "stop";
+        public UnityEvent<string> OnBargeIn;
+        // Uses the host's recognizer, so recognition runs on its shared thread pool.
+        public AndroidPluginHost PluginHost;
 
         private SpeechToTextBridge _sttBridge;
+        private BargeInBridge _bargeIn;
         private bool _permissionRequested;
         private Action<string> _invocationCallback;
 
@@ -34,7 +56,10 @@ namespace Google.XR.Embardiment
             if (_sttBridge != null)
             {
                 _invocationCallback = invocationCallback;
-                _sttBridge.StartRecognition();
+                string partialResults = PartialResults ? ",\"partialResults\":true" : "";
+                _sttBridge.StartRecognition(
+                    $"{{\"mode\":\"{RecognizerMode}\",\"language\":\"{Language}\"" +
+                    $"{partialResults}}}");
             }
             else
             {
@@ -71,6 +96,13 @@ namespace Google.XR.Embardiment
 
         private void OnDestroy()
         {
+            if (_bargeIn != null)
+            {
+                _bargeIn.OnInterrupted -= BargeInOnInterrupted;
+                _bargeIn.Dispose();
+                _bargeIn = null;
+            }
+
             if (_sttBridge != null)
             {
                 _sttBridge.OnResult -= SttBridgeOnResult;
@@ -88,9 +120,22 @@ namespace Google.XR.Embardiment
 
             if (_sttBridge != null) return;
 
-            _sttBridge = new SpeechToTextBridge();
+            PluginHostBridge host = PluginHost != null ? PluginHost.Bridge : null;
+            _sttBridge = host != null ? new SpeechToTextBridge(host) : new SpeechToTextBridge();
             _sttBridge.OnResult += SttBridgeOnResult;
             Debug.Log("SpeechToTextBridge initialized.");
+
+            if (BargeInTts != null && _sttBridge.PluginInstance != null)
+            {
+                _bargeIn = new BargeInBridge(_sttBridge.PluginInstance, BargeInTts.PluginInstance);
+                _bargeIn.Configure($"{{\"mode\":\"{BargeInMode}\"}}");
+                _bargeIn.OnInterrupted += BargeInOnInterrupted;
+            }
+        }
+
+        private void BargeInOnInterrupted(string interruptionJson)
+        {
+            OnBargeIn?.Invoke(interruptionJson);
         }
 
         private void SttBridgeOnResult(SpeechToTextResult obj)
@@ -98,6 +143,9 @@ namespace Google.XR.Embardiment
             _invocationCallback?.Invoke(obj.Text);
             _invocationCallback = null;
             RecentTranscription = obj.Text;
+            RecentRecognizerMode = obj.Mode;
+            RecentStartupMs = obj.StartupMs;
+            RecentFinalMs = obj.FinalMs;
             OnComplete?.Invoke(obj.Text);
         }
     }
@@ -13,6 +13,7 @@
 // limitations under the License.
 
 using System;
+using AndroidXRUnitySamples.Gemini;
 using UnityEngine;
 using UnityEngine.Events;
 
@@ -24,12 +25,20 @@ namespace Google.XR.Embardiment
         {
             private readonly Action<string> _onSuccess;
             private readonly Action<string> _onFailure;
+            private readonly Action<string> _onStats;
 
-            public LlmCallbackProxy(Action<string> onSuccess, Action<string> onFailure)
-                : base("com.google.xr.embardiment.llm.LlmBridge$LlmCallback")
+            public LlmCallbackProxy(
+                Action<string> onSuccess, Action<string> onFailure, Action<string> onStats = null)
+                : base("com.google.xr.embardiment.llm.LlmBridge$LlmStatsCallback")
             {
                 _onSuccess = onSuccess;
                 _onFailure = onFailure;
+                _onStats = onStats;
+            }
+
+            public void onStats(string statsJson)
+            {
+                _onStats?.Invoke(statsJson);
             }
 
             public void onSuccess(string result)
@@ -46,12 +55,52 @@ namespace Google.XR.Embardiment
         public UnityEvent<string> OnComplete;
         public int MaxOutputTokens = 256;
         public string RecentGeneratedText;
+        // The stats of the most recent successful prompt as JSON: queue, model init, first-token
+        // and total times in ms, estimated prompt and output tokens, and whether the model was
+        // already loaded.
+        public string RecentGenerationStats;
         public string SourcePrompt = "";
         [Range(0.0f, 1.0f)]
         public float Temperature = 0.5f;
         public int TopK = 16;
+        // Sends a prompt to the Gemini API as well when the on-device model has not produced its
+        // first chunk within FirstTokenSloMs, and keeps whichever answers first.
+        public bool UseCloudHedging;
+        public int FirstTokenSloMs = 800;
+        // Summarizes documents passed to SubmitDocument once the user has been idle for
+        // SummaryIdleMs, so prompts can carry the summaries instead of the full text. Prompts sent
+        // here count as activity; report the rest, e.g. speech or prompts to Gemini, with
+        // SetUserActive. With a PluginHost, summaries also wait while its governor holds
+        // background work back.
+        public bool SummarizeDocuments;
+        public int SummaryIdleMs = 3000;
+        public int SummaryMaxTokens = 96;
+        // Uses the host's LLM bridge, so generations run on its shared thread pool and follow
+        // the governor's limits.
+        public AndroidPluginHost PluginHost;
+        // Starts generating from the partial transcripts of PluginHost's recognizer, so a reply
+        // is often ready when the final result arrives. Each final transcript is sent as
+        // SpeculationPromptPrefix, the transcript, then SpeculationPromptSuffix, and answered
+        // through OnComplete; callers must not send it themselves while IsSpeculating. Needs an
+        // AndroidAsr on the same PluginHost with PartialResults set.
+        public bool SpeculateOnPartials;
+        public string SpeculationPromptPrefix = "";
+        public string SpeculationPromptSuffix = "";
+        // How much sooner the most recent reply was ready than generating it from the final
+        // transcript would have allowed, in ms; zero when the speculation missed.
+        public float RecentSpeculationSavedMs;
+
+        public bool IsSpeculating => _speculation != null && _speculation.IsEnabled;
+
+        // LlmBridge.PRIORITY_BACKGROUND.
+        private const int BackgroundPriority = 1;
 
         private AndroidJavaObject _bridge;
+        private AndroidJavaObject _router;
+        private AndroidJavaObject _summarizer;
+        private SpeculationBridge _speculation;
+        // False when the bridge belongs to PluginHost, which closes it.
+        private bool _ownsBridge;
 
         public void SendPrompt()
         {
@@ -82,36 +131,223 @@ namespace Google.XR.Embardiment
                 return;
             }
 
-            var callback = new LlmCallbackProxy(
-                (responseText) =>
-                {
-                    RecentGeneratedText = responseText;
-                    invocationCallback?.Invoke(responseText);
-                    OnComplete?.Invoke(responseText);
-                },
-                (error) =>
-                {
-                    Debug.LogError("LLM Failure: " + error);
-                }
-            );
-            _bridge.Call("generateResponse", SourcePrompt, callback);
+            if (_router != null)
+            {
+                using AndroidJavaObject request = _router.Call<AndroidJavaObject>(
+                    "route", SourcePrompt, (long)FirstTokenSloMs, NewCallback(invocationCallback));
+                return;
+            }
+            _bridge.Call("generateResponse", SourcePrompt, NewCallback(invocationCallback));
+        }
+
+        // Generates a response to prompt only while no other prompt runs, e.g. to summarize a
+        // document while the user is idle. An interactive prompt sent meanwhile pauses it; it
+        // starts over once the interactive prompts have been answered.
+        public void SendBackgroundPrompt(string prompt, Action<string> invocationCallback)
+        {
+            ApplySettings();
+            if (_bridge == null)
+            {
+                Debug.LogWarning("AndroidLLM only works inside an Android context");
+                return;
+            }
+            using AndroidJavaObject request = _bridge.Call<AndroidJavaObject>(
+                "startGeneration", prompt, BackgroundPriority, NewBackgroundCallback(invocationCallback));
+        }
+
+        // Generates a JSON value matching schemaJson, a JSON Schema. The callback receives the value
+        // without insignificant whitespace, so it can be parsed as is; a response that breaks the
+        // schema is cut off as soon as it does and regenerated, up to maxAttempts in total.
+        public void SendStructuredPrompt(
+            string prompt, string schemaJson, int maxAttempts, Action<string> invocationCallback)
+        {
+            ApplySettings();
+            if (_bridge == null)
+            {
+                Debug.LogWarning("AndroidLLM only works inside an Android context");
+                return;
+            }
+            SourcePrompt = prompt;
+            _bridge.Call(
+                "generateStructured", prompt, schemaJson, maxAttempts, NewCallback(invocationCallback));
+        }
+
+        // Returns rolling p50/p95/p99 of the queue, model init, first-token and total times and of
+        // the output tokens and throughput of recent prompts as JSON, for tuning MaxOutputTokens
+        // and TopK against real latency. "coalescedRequests" counts prompts that joined an
+        // identical one still running instead of running the model again.
+        public string GetGenerationStats()
+        {
+            return _bridge?.Call<string>("getStats");
+        }
+
+        // Returns the router's decisions and per-backend latency percentiles as JSON.
+        public string GetRoutingStats()
+        {
+            return _router?.Call<string>("getStats");
+        }
+
+        // Opens a session whose prompts all start with systemContext, e.g. the text of the
+        // documents in view. This only saves sending the context across JNI with every prompt:
+        // the model still processes the whole context for each one. Returns -1 outside Android.
+        public int OpenSession(string systemContext)
+        {
+            ApplySettings();
+            if (_bridge == null)
+            {
+                Debug.LogWarning("AndroidLLM only works inside an Android context");
+                return -1;
+            }
+            return _bridge.Call<int>("openSession", systemContext);
+        }
+
+        // Sends one utterance within a session opened by OpenSession.
+        public void Ask(int sessionId, string utterance, Action<string> invocationCallback = null)
+        {
+            if (_bridge == null)
+            {
+                Debug.LogWarning("AndroidLLM only works inside an Android context");
+                return;
+            }
+            SourcePrompt = utterance;
+            _bridge.Call("ask", sessionId, utterance, NewCallback(invocationCallback));
+        }
+
+        public void CloseSession(int sessionId)
+        {
+            _bridge?.Call("closeSession", sessionId);
+        }
+
+        // Queues the recognized text of a document for summarizing, replacing the text submitted
+        // for it before. Does nothing unless SummarizeDocuments was set before Start.
+        public void SubmitDocument(int documentId, string text)
+        {
+            if (_summarizer == null || string.IsNullOrEmpty(text))
+            {
+                return;
+            }
+            _summarizer.Call("setIdleMs", (long)SummaryIdleMs);
+            _summarizer.Call("setMaxSummaryTokens", SummaryMaxTokens);
+            _summarizer.Call("submit", documentId, text);
+        }
+
+        // Records that the user is active, which holds summaries back for SummaryIdleMs.
+        public void SetUserActive()
+        {
+            _summarizer?.Call("setUserActive");
+        }
+
+        // Returns the summary of the text last submitted for documentId, or null until it is
+        // ready.
+        public string GetDocumentSummary(int documentId)
+        {
+            return _summarizer?.Call<string>("getSummary", documentId);
         }
 
         private void Start()
         {
             if (Application.platform == RuntimePlatform.Android)
             {
-                _bridge = new AndroidJavaObject("com.google.xr.embardiment.llm.LlmBridge");
+                _bridge = PluginHost != null ? PluginHost.Bridge?.LlmBridge : null;
+                _ownsBridge = _bridge == null;
+                if (_ownsBridge)
+                {
+                    _bridge = new AndroidJavaObject("com.google.xr.embardiment.llm.LlmBridge");
+                }
                 ApplySettings();
+                if (UseCloudHedging && GeminiKey.Instance != null)
+                {
+                    _router = new AndroidJavaObject(
+                        "com.google.xr.embardiment.llm.LlmRouter", _bridge, GeminiKey.Instance.Key);
+                }
+                if (SummarizeDocuments)
+                {
+                    _summarizer = new AndroidJavaObject(
+                        "com.google.xr.embardiment.llm.DocumentSummarizer", _bridge);
+                }
+                if (SpeculateOnPartials && !_ownsBridge)
+                {
+                    _speculation = new SpeculationBridge(PluginHost.Bridge);
+                    _speculation.OnResult += SpeculationOnResult;
+                    _speculation.OnError += SpeculationOnError;
+                    _speculation.Enable(SpeculationPromptPrefix, SpeculationPromptSuffix);
+                }
+                else if (SpeculateOnPartials)
+                {
+                    Debug.LogWarning("SpeculateOnPartials needs a PluginHost.");
+                }
             }
         }
 
         private void OnDestroy()
         {
+            if (_speculation != null)
+            {
+                _speculation.OnResult -= SpeculationOnResult;
+                _speculation.OnError -= SpeculationOnError;
+                _speculation.Dispose();
+                _speculation = null;
+            }
+            // Releases the model and the bridge's coroutines once pending prompts have completed.
+            _router?.Call("close");
+            _router?.Dispose();
+            _router = null;
+            _summarizer?.Call("close");
+            _summarizer?.Dispose();
+            _summarizer = null;
+            if (_ownsBridge)
+            {
+                _bridge?.Call("close");
+            }
             _bridge?.Dispose();
             _bridge = null;
         }
 
+        private void SpeculationOnResult(SpeculationResult result)
+        {
+            SourcePrompt = result.Transcript;
+            RecentGeneratedText = result.Text;
+            RecentSpeculationSavedMs = result.SavedMs;
+            OnComplete?.Invoke(result.Text);
+        }
+
+        private void SpeculationOnError(string errorJson)
+        {
+            Debug.LogError("LLM Failure: " + errorJson);
+        }
+
+        // Keeps background results out of RecentGeneratedText and OnComplete, which report the
+        // user's prompts.
+        private LlmCallbackProxy NewBackgroundCallback(Action<string> invocationCallback)
+        {
+            return new LlmCallbackProxy(
+                (responseText) => invocationCallback?.Invoke(responseText),
+                (error) =>
+                {
+                    Debug.LogError("LLM Failure: " + error);
+                });
+        }
+
+        private LlmCallbackProxy NewCallback(Action<string> invocationCallback)
+        {
+            return new LlmCallbackProxy(
+                (responseText) =>
+                {
+                    RecentGeneratedText = responseText;
+                    invocationCallback?.Invoke(responseText);
+                    OnComplete?.Invoke(responseText);
+                },
+                (error) =>
+                {
+                    Debug.LogError("LLM Failure: " + error);
+                },
+                (statsJson) =>
+                {
+                    RecentGenerationStats = statsJson;
+                }
+            );
+        }
+
         private void ApplySettings()
         {
             if (_bridge == null)
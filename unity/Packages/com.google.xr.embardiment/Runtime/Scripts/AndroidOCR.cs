@@ -13,6 +13,7 @@
 // limitations under the License.
 
 using System;
+using System.IO;
 using Newtonsoft.Json;
 using UnityEngine;
 using UnityEngine.Events;
@@ -29,17 +30,66 @@ namespace Google.XR.Embardiment
             public string FullText;
             [JsonProperty("textBlocks")]
             public TextBlock[] TextBlocks;
+            [JsonProperty("metadata")]
+            public OcrMetadata Metadata;
+            [JsonProperty("spatialIndex")]
+            public OcrSpatialIndex SpatialIndex;
+            // Only set in delta mode, which leaves FullText, TextBlocks and SpatialIndex empty.
+            [JsonProperty("delta")]
+            public OcrDelta Delta;
+        }
+
+        [System.Serializable]
+        public struct OcrDelta
+        {
+            // Counts results since delta mode was enabled.
+            [JsonProperty("frame")]
+            public long Frame;
+            [JsonProperty("added")]
+            public TextBlock[] Added;
+            // Blocks whose text changed or whose box moved noticeably since last reported.
+            [JsonProperty("changed")]
+            public TextBlock[] Changed;
+            // The ids of blocks that have left the view.
+            [JsonProperty("removed")]
+            public int[] Removed;
+        }
+
+        [System.Serializable]
+        public struct OcrMetadata
+        {
+            // The fraction of the source resolution that was recognized.
+            [JsonProperty("scale")]
+            public float Scale;
+            [JsonProperty("width")]
+            public int Width;
+            [JsonProperty("height")]
+            public int Height;
+            [JsonProperty("recognitionMs")]
+            public float RecognitionMs;
+            [JsonProperty("budgetMs")]
+            public float BudgetMs;
+            [JsonProperty("elementCount")]
+            public int ElementCount;
+            // Only set by tiled recognition.
+            [JsonProperty("tileCount")]
+            public int TileCount;
         }
 
         [System.Serializable]
         public struct TextBlock
         {
+            // Stable across frames in delta mode; zero otherwise.
+            [JsonProperty("id")]
+            public int Id;
             [JsonProperty("text")]
             public string Text;
             [JsonProperty("boundingBox")]
             public BoundingBox BoundingBox;
             [JsonProperty("lines")]
             public Line[] Lines;
+            [JsonProperty("wordCount")]
+            public int WordCount;
         }
 
         [System.Serializable]
@@ -51,6 +101,8 @@ namespace Google.XR.Embardiment
             public BoundingBox BoundingBox;
             [JsonProperty("elements")]
             public Element[] Elements;
+            [JsonProperty("wordCount")]
+            public int WordCount;
         }
 
         [System.Serializable]
@@ -74,8 +126,32 @@ namespace Google.XR.Embardiment
             [JsonProperty("y")]
             public int Y;
         }
+
+        [System.Serializable]
+        public struct RetrievalHit
+        {
+            // The document id the line was recognized under.
+            [JsonProperty("document")]
+            public int Document;
+            // The line's item id in the spatial index of that document's most recent result.
+            [JsonProperty("item")]
+            public int Item;
+            [JsonProperty("score")]
+            public float Score;
+            [JsonProperty("text")]
+            public string Text;
+        }
+
+        private struct RetrievalResult
+        {
+            [JsonProperty("hits")]
+            public RetrievalHit[] Hits;
+        }
         #endregion
 
+        // Recognizes without adding the result to the retrieval index.
+        public const int NoDocument = -1;
+
         class OcrCallbackProxy : AndroidJavaProxy
         {
             private readonly Action<OcrResponse> _onSuccess;
@@ -104,6 +180,34 @@ namespace Google.XR.Embardiment
         public Texture2D SourceTexture;
         public OcrResponse RecentOcrResult;
         public UnityEvent<OcrResponse> OnComplete;
+        // Per-frame recognition budget; above zero, images are downscaled to fit it.
+        public float LatencyBudgetMs = 0f;
+        // Tiling used by RecognizeDocument for textures too large to recognize in one pass.
+        public int TileSize = 2048;
+        public int TileOverlap = 128;
+        public int MaxParallelTiles = 2;
+        // The script to read: "latin", "chinese", "japanese", "korean" or "devanagari". Each model
+        // loads on first use; scripts other than Latin need their ML Kit package, see
+        // OcrDependencies.xml.
+        public string Script = "latin";
+        // Reports only the blocks added, changed or removed since the previous result, each with an
+        // id that stays stable across frames, so continuous scans can update one object per block
+        // instead of rebuilding everything. Tiled documents are always reported whole.
+        public bool DeltaMode = false;
+        // Keeps results in a file of the app's storage, so textures read in an earlier launch are
+        // served from it instead of being recognized again.
+        public bool PersistResults = false;
+        public string CorpusStoreFileName = "ocr_corpus.bin";
+        // Past this size, compaction also drops results this launch has not used, oldest first.
+        public long CorpusStoreMaxBytes = 64L * 1024 * 1024;
+        // Uses the host's OCR bridge, so recognition runs on its shared thread pool and follows
+        // the governor's limits.
+        public AndroidPluginHost PluginHost;
+
+        private AndroidJavaObject _bridge;
+        private AndroidJavaObject _cameraCapture;
+        // False when the bridge belongs to PluginHost, which closes it.
+        private bool _ownsBridge;
 
         public void RecognizeText()
         {
@@ -116,6 +220,102 @@ namespace Google.XR.Embardiment
         }
 
         public void RecognizeText(Texture2D newSourceTexture, Action<OcrResponse> invocationCallback)
+        {
+            Recognize(newSourceTexture, invocationCallback, false, NoDocument);
+        }
+
+        // Also indexes the recognized lines under documentId for Retrieve, replacing the lines
+        // previously recognized for that document.
+        public void RecognizeText(
+            Texture2D newSourceTexture, int documentId, Action<OcrResponse> invocationCallback)
+        {
+            Recognize(newSourceTexture, invocationCallback, false, documentId);
+        }
+
+        // Recognizes a very large texture, such as a multi-page capture, in overlapping tiles so the
+        // native side never decodes it whole.
+        public void RecognizeDocument(Texture2D newSourceTexture, Action<OcrResponse> invocationCallback)
+        {
+            Recognize(newSourceTexture, invocationCallback, true, NoDocument);
+        }
+
+        public void RecognizeDocument(
+            Texture2D newSourceTexture, int documentId, Action<OcrResponse> invocationCallback)
+        {
+            Recognize(newSourceTexture, invocationCallback, true, documentId);
+        }
+
+        // Returns up to k lines of the documents recognized with an id that best match query,
+        // best first, within about tokenBudget tokens (zero or less for no limit). Prompts built
+        // from the hits stay the same size however many documents have been read.
+        public RetrievalHit[] Retrieve(string query, int k, int tokenBudget)
+        {
+            if (_bridge == null)
+            {
+                return Array.Empty<RetrievalHit>();
+            }
+            string json = _bridge.Call<string>("retrieve", query, k, tokenBudget);
+            return JsonConvert.DeserializeObject<RetrievalResult>(json).Hits
+                ?? Array.Empty<RetrievalHit>();
+        }
+
+        // Trims the store to CorpusStoreMaxBytes. Best called once a scene has loaded, so the
+        // results it used are kept.
+        public void CompactCorpusStore()
+        {
+            _bridge?.Call("compactCorpusStore", CorpusStoreMaxBytes);
+        }
+
+        // How many recognitions were skipped because an identical image was already being read,
+        // e.g. the same texture submitted again before its first result came back.
+        public long GetCoalescedRequests()
+        {
+            return _bridge?.Call<long>("getCoalescedRequests") ?? 0;
+        }
+
+        public void RemoveIndexedDocument(int documentId)
+        {
+            _bridge?.Call("removeIndexedDocument", documentId);
+        }
+
+        // Recognizes frames of the device camera natively: CameraX hands each frame straight to ML Kit,
+        // so nothing is read back from the GPU or copied into managed memory, and only the results
+        // reach Unity. Frames are recognized at most every minIntervalMs; with a negative interval,
+        // only the frames requested with ScanCameraFrame are. The camera cannot be shared with a
+        // WebCamTexture while the capture runs.
+        public void StartCameraCapture(
+            bool backCamera, int width, int height, long minIntervalMs,
+            Action<OcrResponse> invocationCallback = null)
+        {
+            if (Application.platform != RuntimePlatform.Android)
+            {
+                Debug.LogWarning("AndroidOCR is intended for the Android platform. Bypassing native call.");
+                return;
+            }
+
+            StopCameraCapture();
+            EnsureBridge();
+            _cameraCapture = new AndroidJavaObject(
+                "com.google.xr.embardiment.ocr.CameraOcrCapture", _bridge);
+            _cameraCapture.Call(
+                "start", backCamera, width, height, minIntervalMs, NewCallback(invocationCallback));
+        }
+
+        // Recognizes the next camera frame of a capture started with a negative interval.
+        public void ScanCameraFrame()
+        {
+            _cameraCapture?.Call("scanNextFrame");
+        }
+
+        public void StopCameraCapture()
+        {
+            _cameraCapture?.Call("close");
+            _cameraCapture?.Dispose();
+            _cameraCapture = null;
+        }
+
+        private void Recognize(
+            Texture2D newSourceTexture, Action<OcrResponse> invocationCallback, bool tiled, int documentId)
         {
             if (newSourceTexture != null)
             {
@@ -137,24 +337,75 @@ namespace Google.XR.Embardiment
             byte[] imageData = SourceTexture.EncodeToJPG();
             int rotation = 0;
 
-            string className = "com.google.xr.embardiment.ocr.OcrBridge";
-            using (var bridge = new AndroidJavaObject(className))
+            EnsureBridge();
+            var callback = NewCallback(invocationCallback);
+
+            if (tiled)
+            {
+                _bridge.Call("processImageTiled", imageData, rotation, TileSize, TileOverlap, MaxParallelTiles,
+                    documentId, callback);
+            }
+            else
+            {
+                _bridge.Call("setLatencyBudget", LatencyBudgetMs);
+                _bridge.Call("processImage", imageData, rotation, documentId, callback);
+            }
+        }
+
+        // Makes the next delta report every visible block as added.
+        public void ResetDeltas()
+        {
+            _bridge?.Call("resetDeltas");
+        }
+
+        private void EnsureBridge()
+        {
+            // The bridge is kept so the adaptive scale can learn from previous frames.
+            if (_bridge == null)
+            {
+                _bridge = PluginHost != null ? PluginHost.Bridge?.OcrBridge : null;
+                _ownsBridge = _bridge == null;
+                if (_ownsBridge)
+                {
+                    _bridge = new AndroidJavaObject("com.google.xr.embardiment.ocr.OcrBridge");
+                }
+                if (PersistResults)
+                {
+                    _bridge.Call("openCorpusStore",
+                        Path.Combine(Application.persistentDataPath, CorpusStoreFileName));
+                }
+            }
+            _bridge.Call("setScript", Script);
+            _bridge.Call("setDeltaMode", DeltaMode);
+        }
+
+        private OcrCallbackProxy NewCallback(Action<OcrResponse> invocationCallback)
+        {
+            return new OcrCallbackProxy(
+                (response) =>
+                {
+                    RecentOcrResult = response;
+                    invocationCallback?.Invoke(response);
+                    OnComplete?.Invoke(response);
+                },
+                (error) =>
+                {
+                    Debug.LogError("OCR Failure: " + error);
+                }
+            );
+        }
+
+        private void OnDestroy()
+        {
+            StopCameraCapture();
+            // Pending requests keep their own reference, so the recognizer is closed once they
+            // complete.
+            if (_ownsBridge)
             {
-                var callback = new OcrCallbackProxy(
-                    (response) =>
-                    {
-                        RecentOcrResult = response;
-                        invocationCallback?.Invoke(response);
-                        OnComplete?.Invoke(response);
-                    },
-                    (error) =>
-                    {
-                        Debug.LogError("OCR Failure: " + error);
-                    }
-                );
-
-                bridge.Call("processImage", imageData, rotation, callback);
+                _bridge?.Call("close");
             }
+            _bridge?.Dispose();
+            _bridge = null;
         }
     }
 }
\ No newline at end of file
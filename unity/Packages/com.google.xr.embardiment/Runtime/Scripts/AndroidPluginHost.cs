@@ -0,0 +1,104 @@
+// Copyright 2025 The Embardiment Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+using AndroidXRUnitySamples.Gemini;
+using UnityEngine;
+using UnityEngine.Events;
+
+namespace Google.XR.Embardiment
+{
+    // Owns the native plugin host. AndroidAsr, AndroidTts, AndroidLlm and AndroidOcr components
+    // that reference it use its recognizer, TTS engine, LLM and OCR bridges instead of creating
+    // their own, so their work shares one prioritized thread pool and the governor's limits
+    // apply to all of them.
+    public class AndroidPluginHost : MonoBehaviour
+    {
+        // Eases the OCR and LLM load as the device heats up or runs low on battery.
+        public bool EnableGovernor = true;
+        // The tier and limits as JSON whenever the governor changes tier.
+        public UnityEvent<string> OnPowerTier;
+        public string RecentStats;
+
+        private PluginHostBridge _bridge;
+
+        // The host bridge, created on first use; null outside Android.
+        public PluginHostBridge Bridge
+        {
+            get
+            {
+                InitializeIfNull();
+                return _bridge;
+            }
+        }
+
+        // Requests the per-plugin queue and run times, which arrive in RecentStats.
+        public void RequestStats()
+        {
+            Bridge?.RequestStats();
+        }
+
+        private void Awake()
+        {
+            InitializeIfNull();
+        }
+
+        private void OnDestroy()
+        {
+            if (_bridge != null)
+            {
+                _bridge.OnPowerTier -= BridgeOnPowerTier;
+                _bridge.OnStats -= BridgeOnStats;
+                _bridge.Dispose();
+                _bridge = null;
+            }
+        }
+
+        private void InitializeIfNull()
+        {
+            if (_bridge != null || Application.platform != RuntimePlatform.Android)
+            {
+                return;
+            }
+
+            if (UnityMainThreadDispatcher.Instance == null)
+            {
+                gameObject.AddComponent<UnityMainThreadDispatcher>();
+            }
+
+            _bridge = new PluginHostBridge();
+            if (!_bridge.IsInitialized)
+            {
+                _bridge = null;
+                return;
+            }
+
+            _bridge.OnPowerTier += BridgeOnPowerTier;
+            _bridge.OnStats += BridgeOnStats;
+            if (EnableGovernor)
+            {
+                _bridge.EnableGovernor(true);
+            }
+        }
+
+        private void BridgeOnPowerTier(string tierJson)
+        {
+            OnPowerTier?.Invoke(tierJson);
+        }
+
+        private void BridgeOnStats(string statsJson)
+        {
+            RecentStats = statsJson;
+        }
+    }
+}
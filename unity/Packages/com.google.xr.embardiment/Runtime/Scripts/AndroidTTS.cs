@@ -28,7 +28,18 @@ namespace Google.XR.Embardiment
         public float Speed = 1f;
         public string SourceText;
         public int VoiceIndex = -1;
+        // Speaks through the host's TTS engine instead of creating one.
+        public AndroidPluginHost PluginHost;
         public bool IsSpeaking => _androidJObject != null ? bool.Parse(_androidJObject.Call<string>("GetIsSpeaking")) : false;
+        // The native TTSPluginInstance, e.g. for AndroidAsr's barge-in; null outside Android.
+        public AndroidJavaObject PluginInstance
+        {
+            get
+            {
+                InitializeIfNull();
+                return _androidJObject;
+            }
+        }
 
         private AndroidJavaObject _androidJObject = null;
         private bool _watchForStart = false;
@@ -99,11 +110,27 @@ namespace Google.XR.Embardiment
             }
         }
 
+        private void OnDestroy()
+        {
+            // Shuts the engine down and releases its service connection.
+            _androidJObject?.Call("close");
+            _androidJObject?.Dispose();
+            _androidJObject = null;
+        }
+
         private void InitializeIfNull()
         {
 #if !UNITY_ANDROID || UNITY_EDITOR
             Debug.LogWarning("AndroidTTS only works inside an Android context");
 #else
+            if (_androidJObject == null && PluginHost != null && PluginHost.Bridge != null)
+            {
+                // Takes its own reference, which OnDestroy releases; the host releases its own.
+                using (AndroidJavaObject shared = PluginHost.Bridge.TextToSpeech)
+                {
+                    _androidJObject = shared?.Call<AndroidJavaObject>("Retain");
+                }
+            }
             if (_androidJObject == null)
             {
                 AndroidJavaObject activityContext = null;
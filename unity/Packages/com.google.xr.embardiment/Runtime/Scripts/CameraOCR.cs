@@ -28,6 +28,11 @@ namespace Google.XR.Embardiment
             "2. Tap screen\n\n" +
             "3. View OCR on screen", EInfoBoxType.Normal)]
         public TextMeshProUGUI InfoArea;
+        // Captures and recognizes camera frames natively instead of reading a WebCamTexture back
+        // into a Texture2D; there is no camera preview in this mode.
+        public bool UseNativeCapture = true;
+        public int CaptureWidth = 1280;
+        public int CaptureHeight = 720;
         private WebCamTexture _webCamTexture;
         private RenderTexture _renderTexture;
         private bool _isCameraReady = false;
@@ -46,6 +51,17 @@ namespace Google.XR.Embardiment
                 yield break;
             }
 
+            _androidOcr = GetComponentInChildren<AndroidOcr>();
+            _androidOcr.OnComplete.AddListener(UponCompletion);
+            if (UseNativeCapture && Application.platform == RuntimePlatform.Android)
+            {
+                // A negative interval recognizes only the frames requested on tap.
+                _androidOcr.StartCameraCapture(true, CaptureWidth, CaptureHeight, -1);
+                _isCameraReady = true;
+                InfoArea.text = "Camera is ready.  Tap to start OCR.";
+                yield break;
+            }
+
             _webCamTexture = new WebCamTexture();
             _rawImage = GetComponentInChildren<RawImage>();
             _rawImage.texture = _webCamTexture;
@@ -56,13 +72,19 @@ namespace Google.XR.Embardiment
             _renderTexture = new RenderTexture(_webCamTexture.width, _webCamTexture.height, 0);
             _isCameraReady = true;
             InfoArea.text = "Webcam is ready.  Tap to start OCR.";
-            _androidOcr = GetComponentInChildren<AndroidOcr>();
-            _androidOcr.OnComplete.AddListener(UponCompletion);
         }
 
         private void Update()
         {
-            if (_isCameraReady)
+            if (_isCameraReady && _webCamTexture == null)
+            {
+                if (Touchscreen.current.primaryTouch.press.wasPressedThisFrame)
+                {
+                    InfoArea.text = "Tap detected.  Scanning the next camera frame";
+                    _androidOcr.ScanCameraFrame();
+                }
+            }
+            else if (_isCameraReady)
             {
                 if (_webCamTexture.videoRotationAngle != _previousRotation)
                 {
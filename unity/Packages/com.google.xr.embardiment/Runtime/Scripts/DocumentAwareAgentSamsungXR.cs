@@ -27,6 +27,22 @@ namespace Google.XR.Embardiment
 
         private const float _fixationTimeThreshold = 0.120f;
         private const int _fixationWordBudget = 250;
+        private const string _fullContextHeader =
+            "The user is looking at screens with the following text:\n\n";
+        private const string _retrievedContextHeader =
+            "The user is looking at screens; these are the lines most relevant to the request:\n\n";
+        private const string _summaryContextHeader =
+            "The user is looking at screens; these are summaries of their text:\n\n";
+        private const string _gazeContextHeader =
+            "The user was recently looking at the following lines of text:\n\n";
+
+        private struct GazedLine
+        {
+            public int Source;
+            public int Item;
+            public int WordCount;
+            public float Dwell;
+        }
 
         [InfoBox("To use:\n\n" +
             "1. Play the scene\n\n" +
@@ -35,13 +51,39 @@ namespace Google.XR.Embardiment
             "4. Hear the LLM's response read back out to you", EInfoBoxType.Normal)]
         public List<OcrTargetAndroid> Screens;
         public List<GameObject> LastGazedLines;
+        // Answers with the AndroidLlm child instead of Gemini. Its prompts are truncated to the
+        // on-device model's context window minus the tokens reserved for the reply; prompts for
+        // Gemini carry the full context.
+        public bool UseOnDeviceLlm;
+        public int ContextWindowTokens = 4096;
+        public int MaxOutputTokens = 256;
+        // FullContext sends only the RetrievedLines screen lines that best match the request, so
+        // its prompt and prefill time stay flat however many screens have been read. Otherwise,
+        // or when no line matches, it sends every line.
+        public bool RetrieveContext;
+        public int RetrievedLines = 24;
+        public int RetrievalTokenBudget = 1024;
+        // FullContext sends each screen's summary instead once every screen has one. Needs an
+        // AndroidLlm child with SummarizeDocuments set, which summarizes screens while the user
+        // is not talking to the agent.
+        public bool UseDocumentSummaries;
 
         private AndroidOcr _androidOcr;
         private AndroidAsr _androidAsr;
+        private AndroidLlm _androidLlm;
         private GeminiLlm _geminiLlm;
         private AndroidTts _androidTts;
         private float _fixationStart;
         private GameObject _fixationLineCandidate;
+        // Word counts come precomputed with the OCR result, so the budget is kept incrementally.
+        private readonly Dictionary<GameObject, GazedLine> _gazedLines = new();
+        private int _gazedWordCount;
+        private GazeContextBuilder _contextBuilder;
+        private OcrSpatialIndex[] _registeredIndexes;
+        private int[] _contextSources = new int[64];
+        private int[] _contextItems = new int[64];
+        private float[] _contextWeights = new float[64];
+        private int _contextCount;
         private Condition _condition = Condition.Baseline;
 
         public void SetCondition(Int32 formCondition)
@@ -59,65 +101,102 @@ namespace Google.XR.Embardiment
             {
                 return;
             }
-            RaycastHit[] hits = Physics.RaycastAll(ray);
-            foreach (RaycastHit hit in hits)
+            if (!Physics.Raycast(ray, out RaycastHit hit))
             {
-                // Is a line:
-                if (hit.collider.transform.parent != null && hit.collider.transform.parent.name.StartsWith("screen-"))
-                {
-                    GameObject line = hit.collider.gameObject;
-
-                    bool newFixation = line != _fixationLineCandidate;
-                    if (newFixation)
-                    {
-                        _fixationStart = Time.time;
-                        _fixationLineCandidate = line;
-                        return;
-                    }
+                return;
+            }
+            OcrTargetAndroid screen = hit.collider.GetComponentInParent<OcrTargetAndroid>();
+            int source = screen == null ? -1 : Screens.IndexOf(screen);
+            if (source < 0
+                || !screen.TryGetLineAt(hit.point, out GameObject line, out int item, out int wordCount))
+            {
+                return;
+            }
 
-                    if (Time.time <= _fixationStart + _fixationTimeThreshold)
-                    {
-                        return;
-                    }
+            bool newFixation = line != _fixationLineCandidate;
+            if (newFixation)
+            {
+                _fixationStart = Time.time;
+                _fixationLineCandidate = line;
+                return;
+            }
 
-                    if (!LastGazedLines.Contains(line))
-                    {
-                        line.GetComponent<LineRenderer>().enabled = true;
-                        LastGazedLines.Add(line);
-                    }
+            if (Time.time <= _fixationStart + _fixationTimeThreshold)
+            {
+                return;
+            }
 
-                    int totalWords = LastGazedLines.Sum(l => l.name.Split(' ').Length);
+            if (_gazedLines.TryGetValue(line, out GazedLine gazed))
+            {
+                // ProcessRay runs once per frame, so dwell grows for as long as the fixation holds.
+                gazed.Dwell += Time.deltaTime;
+                _gazedLines[line] = gazed;
+                return;
+            }
+            line.GetComponent<LineRenderer>().enabled = true;
+            LastGazedLines.Add(line);
+            _gazedLines.Add(line, new GazedLine
+            {
+                Source = source,
+                Item = item,
+                WordCount = wordCount,
+                Dwell = Time.time - _fixationStart,
+            });
+            _gazedWordCount += wordCount;
 
-                    while (totalWords > _fixationWordBudget && LastGazedLines.Count > 0)
-                    {
-                        LastGazedLines[0].GetComponent<LineRenderer>().enabled = false;
-                        totalWords -= LastGazedLines[0].name.Split(' ').Length;
-                        LastGazedLines.RemoveAt(0);
-                    }
-                }
+            while (_gazedWordCount > _fixationWordBudget && LastGazedLines.Count > 0)
+            {
+                GameObject oldest = LastGazedLines[0];
+                oldest.GetComponent<LineRenderer>().enabled = false;
+                _gazedWordCount -= _gazedLines[oldest].WordCount;
+                _gazedLines.Remove(oldest);
+                LastGazedLines.RemoveAt(0);
             }
         }
 
         private void Start()
         {
             _androidOcr = GetComponentInChildren<AndroidOcr>();
+            _androidLlm = UseDocumentSummaries || UseOnDeviceLlm
+                ? GetComponentInChildren<AndroidLlm>()
+                : null;
 
-            foreach (OcrTargetAndroid screen in Screens)
+            for (int source = 0; source < Screens.Count; source++)
             {
+                OcrTargetAndroid screen = Screens[source];
                 screen.Texture = screen.GetComponent<MeshRenderer>().material.mainTexture as Texture2D;
-                _androidOcr.RecognizeText(screen.Texture, (ocrResponse) =>
+                // Screens are indexed under their source id, so retrieved lines map to context items.
+                _androidOcr.RecognizeText(screen.Texture, source, (ocrResponse) =>
                 {
                     screen.OnOcrResultReceived(ocrResponse);
+                    _androidLlm?.SubmitDocument(source, ocrResponse.FullText);
                 });
             }
 
             _androidAsr = GetComponentInChildren<AndroidAsr>();
             _androidAsr.OnComplete.AddListener(OnAsrReturn);
 
-            _geminiLlm = GetComponentInChildren<GeminiLlm>();
-            _geminiLlm.OnComplete.AddListener(OnLlmReturn);
+            if (UseOnDeviceLlm)
+            {
+                _androidLlm.MaxOutputTokens = MaxOutputTokens;
+                _androidLlm.OnComplete.AddListener(OnLlmReturn);
+            }
+            else
+            {
+                _geminiLlm = GetComponentInChildren<GeminiLlm>();
+                _geminiLlm.OnComplete.AddListener(OnLlmReturn);
+            }
 
             _androidTts = GetComponentInChildren<AndroidTts>();
+
+            _contextBuilder = new GazeContextBuilder(ContextWindowTokens);
+            _registeredIndexes = new OcrSpatialIndex[Screens.Count];
+        }
+
+        private void OnDestroy()
+        {
+            _contextBuilder?.Dispose();
+            _contextBuilder = null;
         }
 
         private void Update()
@@ -135,45 +214,168 @@ namespace Google.XR.Embardiment
                 line.GetComponent<LineRenderer>().enabled = false;
             }
             LastGazedLines.Clear();
+            _gazedLines.Clear();
+            _gazedWordCount = 0;
         }
 
         private void OnAsrReturn(string recognizedText)
         {
             Debug.Log("Recording converted to text.  Sending to LLM...");
-            string context = "";
+            _androidLlm?.SetUserActive();
+            string header = $"User said: {recognizedText}\n\nContext: ";
+            string request;
 
-            if (_condition == Condition.Baseline)
+            if (_condition == Condition.FullContext && TryBuildSummaryContext(out string summaries))
             {
-                context = "Currently unavailable";
+                request = header + _summaryContextHeader + summaries;
+            }
+            else if (_condition == Condition.FullContext && RetrieveContext
+                && TryRetrieve(recognizedText, out AndroidOcr.RetrievalHit[] hits))
+            {
+                if (UseOnDeviceLlm)
+                {
+                    RegisterScreenSources();
+                    _contextCount = 0;
+                    foreach (AndroidOcr.RetrievalHit hit in hits)
+                    {
+                        AddContextItem(hit.Document, hit.Item, hit.Score);
+                    }
+                    request = BuildRequest(header + _retrievedContextHeader);
+                }
+                else
+                {
+                    request = header + _retrievedContextHeader +
+                        string.Join("\n", hits.Select(hit => hit.Text));
+                }
+            }
+            else if (_condition == Condition.FullContext && !UseOnDeviceLlm)
+            {
+                request = header + _fullContextHeader +
+                    string.Concat(Screens.Select(screen => screen.OcrResponse.FullText));
             }
             else if (_condition == Condition.FullContext)
             {
-                context = "The user is looking at screens with the following text:";
-                foreach (var screen in Screens)
+                RegisterScreenSources();
+                _contextCount = 0;
+                for (int source = 0; source < Screens.Count; source++)
+                {
+                    OcrSpatialIndex index = Screens[source].OcrResponse.SpatialIndex;
+                    for (int item = 0; item < (index?.ItemCount ?? 0); item++)
+                    {
+                        // Equal weights keep document order, so the budget truncates from the end.
+                        if (index.ItemKind[item] == OcrSpatialIndex.KindLine)
+                        {
+                            AddContextItem(source, item, 1f);
+                        }
+                    }
+                }
+                request = BuildRequest(header + _fullContextHeader);
+            }
+            else if (_condition == Condition.EyeTracking && LastGazedLines.Count > 0 && !UseOnDeviceLlm)
+            {
+                // Line objects are named after their text.
+                request = header + _gazeContextHeader +
+                    string.Join(" ", LastGazedLines.Select(line => line.name));
+            }
+            else if (_condition == Condition.EyeTracking && LastGazedLines.Count > 0)
+            {
+                RegisterScreenSources();
+                _contextCount = 0;
+                foreach (GameObject line in LastGazedLines)
                 {
-                    context += screen.OcrResponse.FullText;
+                    GazedLine gazed = _gazedLines[line];
+                    AddContextItem(gazed.Source, gazed.Item, gazed.Dwell);
                 }
+                request = BuildRequest(header + _gazeContextHeader);
             }
             else if (_condition == Condition.EyeTracking)
             {
-                if (LastGazedLines.Any())
+                request = header +
+                    "The user's gaze has not been detected on any specific lines of text yet.";
+            }
+            else
+            {
+                request = header + "Currently unavailable";
+            }
+
+            if (UseOnDeviceLlm)
+            {
+                _androidLlm.SendPrompt(request);
+            }
+            else
+            {
+                _geminiLlm.SendPrompt(request);
+            }
+            ClearTrackedData();
+        }
+
+        // Succeeds only once every screen has been summarized, so no screen drops out of the
+        // context while the rest are still waiting for their summaries.
+        private bool TryBuildSummaryContext(out string summaries)
+        {
+            summaries = null;
+            if (_androidLlm == null || Screens.Count == 0)
+            {
+                return false;
+            }
+            var builder = new System.Text.StringBuilder();
+            for (int source = 0; source < Screens.Count; source++)
+            {
+                string summary = _androidLlm.GetDocumentSummary(source);
+                if (summary == null)
                 {
-                    string gazedText = string.Join(" ", LastGazedLines.Select(line => line.name));
-                    context = $"The user was recently looking at the following lines of text:\n\n{gazedText}";
+                    return false;
                 }
-                else
+                builder.Append("Screen ").Append(source + 1).Append(": ").Append(summary).Append('\n');
+            }
+            summaries = builder.ToString();
+            return true;
+        }
+
+        // Succeeds only if at least one screen line shares a word with the request.
+        private bool TryRetrieve(string query, out AndroidOcr.RetrievalHit[] hits)
+        {
+            hits = _androidOcr.Retrieve(query, RetrievedLines, RetrievalTokenBudget);
+            return hits.Length > 0;
+        }
+
+        // Sends each screen's OCR text to the context builder once per OCR result.
+        private void RegisterScreenSources()
+        {
+            for (int source = 0; source < Screens.Count; source++)
+            {
+                AndroidOcr.OcrResponse response = Screens[source].OcrResponse;
+                if (response.SpatialIndex != null && response.SpatialIndex != _registeredIndexes[source])
                 {
-                    context = "The user's gaze has not been detected on any specific lines of text yet.";
+                    _contextBuilder.SetSource(source, response);
+                    _registeredIndexes[source] = response.SpatialIndex;
                 }
             }
+        }
 
-            string request = $"User said: {recognizedText}\n\nContext: {context}";
-            _geminiLlm.SendPrompt(request);
-            ClearTrackedData();
+        private void AddContextItem(int source, int item, float weight)
+        {
+            if (_contextCount == _contextItems.Length)
+            {
+                Array.Resize(ref _contextSources, _contextCount * 2);
+                Array.Resize(ref _contextItems, _contextCount * 2);
+                Array.Resize(ref _contextWeights, _contextCount * 2);
+            }
+            _contextSources[_contextCount] = source;
+            _contextItems[_contextCount] = item;
+            _contextWeights[_contextCount] = weight;
+            _contextCount++;
+        }
+
+        private string BuildRequest(string header)
+        {
+            return _contextBuilder.Build(header, "", _contextSources, _contextItems,
+                _contextWeights, _contextCount, MaxOutputTokens);
         }
 
         private void OnLlmReturn(string responsePrompt)
         {
+            _androidLlm?.SetUserActive();
             _androidTts.Speak(responsePrompt);
         }
     }
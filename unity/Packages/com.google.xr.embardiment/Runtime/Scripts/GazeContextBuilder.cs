@@ -0,0 +1,120 @@
+// Copyright 2025 The Embardiment Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+using System;
+using System.Collections.Generic;
+using System.Text;
+using UnityEngine;
+
+namespace Google.XR.Embardiment
+{
+    // Wraps the LLM module's GazeContextBuilder, which ranks OCR items by gaze weight and truncates
+    // them to the model's token budget. Each OCR result is sent across JNI once through SetSource;
+    // Build then only passes item ids and weights. Outside Android, where no on-device model can
+    // run, Build keeps every item instead.
+    public class GazeContextBuilder : IDisposable
+    {
+        private AndroidJavaObject _builder;
+        // The item texts of each source, kept only outside Android.
+        private readonly Dictionary<int, string[]> _sources = new();
+
+        public GazeContextBuilder(int contextWindowTokens)
+        {
+            if (Application.platform != RuntimePlatform.Android)
+            {
+                Debug.LogWarning("GazeContextBuilder only truncates inside an Android context");
+                return;
+            }
+            _builder = new AndroidJavaObject(
+                "com.google.xr.embardiment.llm.GazeContextBuilder", contextWindowTokens);
+        }
+
+        // Registers the item texts of an OCR result, indexed by its spatial index item ids.
+        public void SetSource(int sourceId, AndroidOcr.OcrResponse response)
+        {
+            OcrSpatialIndex index = response.SpatialIndex;
+            if (index == null)
+            {
+                return;
+            }
+
+            string[] texts = new string[index.ItemCount];
+            for (int item = 0; item < texts.Length; item++)
+            {
+                AndroidOcr.TextBlock block = response.TextBlocks[index.ItemBlock[item]];
+                switch (index.ItemKind[item])
+                {
+                    case OcrSpatialIndex.KindBlock:
+                        texts[item] = block.Text;
+                        break;
+                    case OcrSpatialIndex.KindLine:
+                        texts[item] = block.Lines[index.ItemLine[item]].Text;
+                        break;
+                    default:
+                        texts[item] =
+                            block.Lines[index.ItemLine[item]].Elements[index.ItemElement[item]].Text;
+                        break;
+                }
+            }
+            if (_builder == null)
+            {
+                _sources[sourceId] = texts;
+                return;
+            }
+            _builder.Call("setSource", sourceId, texts);
+        }
+
+        // Returns header, the heaviest items that fit the budget in document order, then footer.
+        // Only the first count entries of the arrays are used, so callers can reuse them.
+        public string Build(string header, string footer, int[] sourceIds, int[] itemIds,
+            float[] weights, int count, int maxOutputTokens)
+        {
+            if (_builder == null)
+            {
+                return BuildUntruncated(header, footer, sourceIds, itemIds, count);
+            }
+            return _builder.Call<string>(
+                "build", header, footer, sourceIds, itemIds, weights, count, maxOutputTokens);
+        }
+
+        // Writes every distinct item in document order, as the native builder would with an
+        // unlimited budget.
+        private string BuildUntruncated(
+            string header, string footer, int[] sourceIds, int[] itemIds, int count)
+        {
+            var items = new SortedSet<(int Source, int Item)>();
+            for (int i = 0; i < count; i++)
+            {
+                items.Add((sourceIds[i], itemIds[i]));
+            }
+
+            var prompt = new StringBuilder(header);
+            foreach ((int source, int item) in items)
+            {
+                if (_sources.TryGetValue(source, out string[] texts)
+                    && item < texts.Length && !string.IsNullOrEmpty(texts[item]))
+                {
+                    prompt.Append(texts[item]).Append('\n');
+                }
+            }
+            return prompt.Append(footer).ToString();
+        }
+
+        public void Dispose()
+        {
+            _builder?.Dispose();
+            _builder = null;
+        }
+    }
+}
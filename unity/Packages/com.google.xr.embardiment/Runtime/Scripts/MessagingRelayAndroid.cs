@@ -29,6 +29,19 @@ namespace Google.XR.Embardiment
         public TextMeshProUGUI InfoArea;
         public Transform MessageContainer;
 
+        private const string PromptPrefix =
+"You are a concise AI assistant. You respond to the user with a single, direct sentence. You must not continue the conversation by writing for the User.  You must respond with at least some text.\n\n" +
+
+"User: Hello there how are you?\n" +
+"Assistant: I'm doing fine thanks.  How can I help you?\n\n" +
+
+"User: Can I ask you some questions?\n" +
+"Assistant: Sure thing.  What can I help you with today?\n\n" +
+
+"User: ";
+        private const string PromptSuffix = "\n" +
+"Assistant: ";
+
         private GameObject _messageTemplate;
         private AndroidAsr _androidAsr;
         private AndroidLlm _androidLlm;
@@ -55,6 +68,12 @@ namespace Google.XR.Embardiment
 
             _androidLlm = GetComponentInChildren<AndroidLlm>();
             _androidLlm.OnComplete.AddListener(OnLlmReturnAndroid);
+            if (!UseGeminiLlm && _androidLlm.SpeculateOnPartials)
+            {
+                _androidLlm.SpeculationPromptPrefix = PromptPrefix;
+                _androidLlm.SpeculationPromptSuffix = PromptSuffix;
+                _androidAsr.PartialResults = true;
+            }
 
             _geminiLlm = GetComponentInChildren<GeminiLlm>();
             _geminiLlm.OnComplete.AddListener(OnLlmReturnGemini);
@@ -94,21 +113,15 @@ namespace Google.XR.Embardiment
                 Debug.Log("Recording converted to text.  Sending to Gemini LLM...");
                 _geminiLlm.SendPrompt(recognizedText);
             }
+            else if (_androidLlm.IsSpeculating)
+            {
+                // The speculation already answers this transcript through OnComplete.
+                Debug.Log("Recording converted to text.  Awaiting the speculative response...");
+            }
             else
             {
                 Debug.Log("Recording converted to text.  Sending to Android LLM...");
-                _androidLlm.SendPrompt(
-"You are a concise AI assistant. You respond to the user with a single, direct sentence. You must not continue the conversation by writing for the User.  You must respond with at least some text.\n\n" +
-
-"User: Hello there how are you?\n" +
-"Assistant: I'm doing fine thanks.  How can I help you?\n\n" +
-
-"User: Can I ask you some questions?\n" +
-"Assistant: Sure thing.  What can I help you with today?\n\n" +
-
-"User: " + recognizedText + "\n" +
-"Assistant: "
-                );
+                _androidLlm.SendPrompt(PromptPrefix + recognizedText + PromptSuffix);
             }
         }
 
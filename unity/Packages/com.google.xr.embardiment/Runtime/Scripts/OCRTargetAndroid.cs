@@ -13,6 +13,7 @@
 // limitations under the License.
 
 using System.Collections.Concurrent;
+using System.Collections.Generic;
 using UnityEngine;
 
 namespace Google.XR.Embardiment
@@ -26,12 +27,46 @@ namespace Google.XR.Embardiment
         public AndroidOcr.OcrResponse OcrResponse;
 
         private readonly ConcurrentQueue<AndroidOcr.OcrResponse> _ocrResultsQueue = new();
+        private readonly List<int> _queryResults = new();
+        private GameObject[][] _lineObjects;
 
         public void OnOcrResultReceived(AndroidOcr.OcrResponse result)
         {
             _ocrResultsQueue.Enqueue(result);
         }
 
+        // Finds the OCR line under a world-space point on this screen through the result's spatial
+        // index, instead of raycasting against every line collider. item is the line's spatial index
+        // item id.
+        public bool TryGetLineAt(
+            Vector3 worldPoint, out GameObject line, out int item, out int wordCount)
+        {
+            line = null;
+            item = -1;
+            wordCount = 0;
+            OcrSpatialIndex index = OcrResponse.SpatialIndex;
+            if (index == null || _lineObjects == null)
+            {
+                return false;
+            }
+
+            // Inverse of the box placement in ProcessOcrResult.
+            Vector3 local = transform.InverseTransformPoint(worldPoint);
+            int pixelX = Mathf.RoundToInt((0.5f - local.x) * Texture.width);
+            int pixelY = Mathf.RoundToInt((0.5f - local.y) * Texture.height);
+            if (index.QueryPoint(pixelX, pixelY, OcrSpatialIndex.KindLine, _queryResults) == 0)
+            {
+                return false;
+            }
+
+            item = _queryResults[0];
+            int block = index.ItemBlock[item];
+            int lineIndex = index.ItemLine[item];
+            line = _lineObjects[block][lineIndex];
+            wordCount = OcrResponse.TextBlocks[block].Lines[lineIndex].WordCount;
+            return true;
+        }
+
         private void Awake()
         {
             if (_lineBoxTemplate == null)
@@ -58,11 +93,16 @@ namespace Google.XR.Embardiment
             float screenW = Texture.width;
             float screenH = Texture.height;
 
-            foreach (AndroidOcr.TextBlock textBlock in result.TextBlocks)
+            _lineObjects = new GameObject[result.TextBlocks.Length][];
+            for (int blockIndex = 0; blockIndex < result.TextBlocks.Length; blockIndex++)
             {
-                foreach (AndroidOcr.Line line in textBlock.Lines)
+                AndroidOcr.TextBlock textBlock = result.TextBlocks[blockIndex];
+                _lineObjects[blockIndex] = new GameObject[textBlock.Lines.Length];
+                for (int lineIndex = 0; lineIndex < textBlock.Lines.Length; lineIndex++)
                 {
+                    AndroidOcr.Line line = textBlock.Lines[lineIndex];
                     GameObject lineBoxObject = Instantiate(_lineBoxTemplate, transform);
+                    _lineObjects[blockIndex][lineIndex] = lineBoxObject;
                     float lineX = line.BoundingBox.X;
                     float lineY = line.BoundingBox.Y;
                     float lineW = line.BoundingBox.Width;
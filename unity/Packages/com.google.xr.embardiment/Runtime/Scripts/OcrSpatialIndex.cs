@@ -0,0 +1,119 @@
+// Copyright 2025 The Embardiment Authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+using System.Collections.Generic;
+using Newtonsoft.Json;
+
+namespace Google.XR.Embardiment
+{
+    // Packed R-tree over the blocks, lines and elements of one OCR result, built by the OCR bridge.
+    // Items are numbered in document order (each block, then its lines, each line followed by its
+    // elements) and map back to the result through ItemBlock, ItemLine and ItemElement. The tree is
+    // stored level by level, leaves first, with four ints per node: minX, minY, maxX, maxY.
+    [System.Serializable]
+    public class OcrSpatialIndex
+    {
+        public const int KindBlock = 0;
+        public const int KindLine = 1;
+        public const int KindElement = 2;
+        public const int AnyKind = -1;
+
+        [JsonProperty("nodeSize")]
+        public int NodeSize;
+        [JsonProperty("levelOffsets")]
+        public int[] LevelOffsets;
+        [JsonProperty("boxes")]
+        public int[] Boxes;
+        [JsonProperty("leafItems")]
+        public int[] LeafItems;
+        [JsonProperty("itemKind")]
+        public int[] ItemKind;
+        [JsonProperty("itemBlock")]
+        public int[] ItemBlock;
+        [JsonProperty("itemLine")]
+        public int[] ItemLine;
+        [JsonProperty("itemElement")]
+        public int[] ItemElement;
+
+        private readonly Stack<int> _stack = new();
+
+        public int ItemCount => ItemKind?.Length ?? 0;
+
+        // Fills results with the items of the given kind whose box contains the pixel (x, y).
+        public int QueryPoint(int x, int y, int kind, List<int> results)
+        {
+            return QueryRadius(x, y, 0, kind, results);
+        }
+
+        // Fills results with the items of the given kind whose box lies within radius pixels of
+        // (x, y). Does not allocate once the stack and the results list have grown.
+        public int QueryRadius(int x, int y, int radius, int kind, List<int> results)
+        {
+            results.Clear();
+            if (LeafItems == null || LeafItems.Length == 0)
+            {
+                return 0;
+            }
+
+            long radiusSquared = (long)radius * radius;
+            _stack.Clear();
+            // The root is the only node of the top level.
+            _stack.Push(LevelOffsets[LevelOffsets.Length - 2]);
+            while (_stack.Count > 0)
+            {
+                int node = _stack.Pop();
+                if (DistanceSquared(node, x, y) > radiusSquared)
+                {
+                    continue;
+                }
+
+                int level = LevelOf(node);
+                if (level == 0)
+                {
+                    int item = LeafItems[node];
+                    if (kind < 0 || ItemKind[item] == kind)
+                    {
+                        results.Add(item);
+                    }
+                    continue;
+                }
+                int firstChild = LevelOffsets[level - 1] + (node - LevelOffsets[level]) * NodeSize;
+                int endChild = System.Math.Min(firstChild + NodeSize, LevelOffsets[level]);
+                for (int child = firstChild; child < endChild; child++)
+                {
+                    _stack.Push(child);
+                }
+            }
+            return results.Count;
+        }
+
+        private int LevelOf(int node)
+        {
+            int level = 0;
+            while (node >= LevelOffsets[level + 1])
+            {
+                level++;
+            }
+            return level;
+        }
+
+        private long DistanceSquared(int node, int x, int y)
+        {
+            int i = node * 4;
+            long dx = System.Math.Max(0, System.Math.Max(Boxes[i] - x, x - Boxes[i + 2]));
+            long dy = System.Math.Max(0, System.Math.Max(Boxes[i + 1] - y, y - Boxes[i + 3]));
+            return dx * dx + dy * dy;
+        }
+    }
+}